@@ -65,7 +65,8 @@ public @interface CacheNamespace {
   Class<? extends Cache> eviction() default LruCache.class;
 
   /**
-   * Returns the flush interval.
+   * Returns the flush interval. Since 3.5.6, every entry expires on its own once this interval has elapsed after it was
+   * put, unless its statement specifies its own {@link Options#cacheTtl()}.
    *
    * @return the flush interval
    */
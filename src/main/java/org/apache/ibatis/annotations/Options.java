@@ -144,6 +144,62 @@ public @interface Options {
    */
   String databaseId() default "";
 
+  /**
+   * Returns the sizes of the chunks a collection parameter is split into, each chunk being executed as its own batched
+   * update (e.g. {@code "128,16,1"}). The rows left after the smallest size form one last, smaller chunk.
+   * <p>
+   * If you specify multiple sizes, please separate using comma(',').
+   * </p>
+   *
+   * @return chunk sizes that separate with comma(',')
+   * @since 3.5.6
+   */
+  String chunkSizes() default "";
+
+  /**
+   * Returns how long the results of this statement are kept in the 2nd level cache, in milliseconds. Lookup tables that
+   * rarely change can be kept longer than the other results of the namespace, and volatile results shorter.
+   *
+   * @return the time to live of the cached results. {@code -1} (the default) keeps them like the other results of the
+   *         namespace, as long as its {@code flushInterval} if any
+   * @since 3.5.6
+   */
+  long cacheTtl() default -1;
+
+  /**
+   * Returns the tables a select reads, or the tables an insert, update or delete modifies. When table level cache
+   * invalidation is enabled, they are used instead of the tables found in the SQL of the statement.
+   * <p>
+   * If you specify multiple tables, please separate using comma(',').
+   * </p>
+   *
+   * @return table names that separate with comma(',')
+   * @since 3.5.6
+   */
+  String tables() default "";
+
+  /**
+   * Returns the id of a statement that selects the results of several parameters of this statement at once. When
+   * {@code lazyLoadBatchSize} is set, the pending lazy properties of a result set that are loaded by this statement
+   * are then loaded by one execution of that statement, whose parameter is the list of their parameters.
+   *
+   * @return the multi-key statement id
+   * @since 3.5.6
+   */
+  String batchSelect() default "";
+
+  /**
+   * Returns the properties of the results of the {@link #batchSelect()} statement that hold the parameter they were
+   * selected for.
+   * <p>
+   * If you specify multiple properties (for a composite parameter), please separate using comma(',').
+   * </p>
+   *
+   * @return property names that separate with comma(',')
+   * @since 3.5.6
+   */
+  String batchKey() default "";
+
   /**
    * The container annotation for {@link Options}.
    * @author Kazuki Shimizu
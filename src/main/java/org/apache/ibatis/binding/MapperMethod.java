@@ -23,10 +23,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementCanceller;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -37,6 +41,7 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 
 /**
  * @author Clinton Begin
@@ -64,6 +69,13 @@ public class MapperMethod {
    * @return {@link Object} 数据库操作结果
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      return executeAsync(sqlSession.getConfiguration(), args);
+    }
+    return executeCommand(sqlSession, args);
+  }
+
+  private Object executeCommand(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       case INSERT: {
@@ -125,6 +137,39 @@ public class MapperMethod {
     return result;
   }
 
+  /**
+   * 在 {@link Configuration#getAsyncExecutorService()} 上用独立的 SqlSession 执行，成功后提交。
+   * 取消返回的 future 会取消正在执行的 {@link java.sql.Statement}；语句已经执行完时回滚，开始提交后不能再取消
+   */
+  private CompletableFuture<Object> executeAsync(Configuration configuration, Object[] args) {
+    final AsyncResult future = new AsyncResult();
+    try {
+      configuration.getAsyncExecutorService().execute(() -> {
+        if (future.isDone()) {
+          return;
+        }
+        future.canceller.attach();
+        try (SqlSession sqlSession = new DefaultSqlSessionFactory(configuration).openSession()) {
+          Object result = executeCommand(sqlSession, args);
+          if (future.startCommit()) {
+            sqlSession.commit();
+            future.complete(result);
+          } else {
+            // 语句执行完后 future 才被取消，调用方会得到 CancellationException，因此不能提交
+            sqlSession.rollback(true);
+          }
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        } finally {
+          future.canceller.detach();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   private Object rowCountResult(int rowCount) {
     final Object result;
     if (method.returnsVoid()) {
@@ -223,6 +268,39 @@ public class MapperMethod {
     return result;
   }
 
+  /**
+   * 异步执行的结果，取消和开始提交互斥
+   */
+  private static final class AsyncResult extends CompletableFuture<Object> {
+
+    private final StatementCanceller canceller = new StatementCanceller();
+    private boolean committing;
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+      if (committing) {
+        return false;
+      }
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      // 已经完成的 future 不能取消，此时不能影响执行线程
+      if (cancelled) {
+        canceller.cancel();
+      }
+      return cancelled;
+    }
+
+    /**
+     * @return 是否可以提交，future 已经被取消时返回 false
+     */
+    synchronized boolean startCommit() {
+      if (isDone()) {
+        return false;
+      }
+      committing = true;
+      return true;
+    }
+  }
+
   public static class ParamMap<V> extends HashMap<String, V> {
 
     private static final long serialVersionUID = -2212268410512043556L;
@@ -321,6 +399,8 @@ public class MapperMethod {
     private final boolean returnsCursor;
     // 该方法返回类型是否为 optional 类型
     private final boolean returnsOptional;
+    // 该方法返回类型是否为 CompletableFuture 或 CompletionStage, 其余属性描述的是 future 的结果类型
+    private final boolean returnsFuture;
     // 该方法返回类型
     private final Class<?> returnType;
     // 如果该方法返回类型为map, 则这里记录所有的map的key
@@ -334,18 +414,26 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = isFuture(resolvedReturnType);
+      if (this.returnsFuture) {
+        resolvedReturnType = getFutureResultType(method, resolvedReturnType);
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || returnsFuture && Void.class.equals(this.returnType);
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException(method.getName() + " cannot return a Cursor from a CompletableFuture,"
+            + " the cursor would be closed together with its SqlSession");
+      }
       this.returnsOptional = Optional.class.equals(this.returnType);
-      this.mapKey = getMapKey(method);
+      this.mapKey = getMapKey(method, this.returnType);
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -392,6 +480,18 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture} or
+     * {@code java.util.concurrent.CompletionStage}. If so, {@link #getReturnType()} and the other properties describe
+     * the result of the future.
+     *
+     * @return return {@code true}, if return type is {@code CompletableFuture} or {@code CompletionStage}
+     * @since 3.5.6
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     /**
      * return whether return type is {@code java.util.Optional}.
      *
@@ -421,9 +521,9 @@ public class MapperMethod {
       return mapKey;
     }
 
-    private String getMapKey(Method method) {
+    private String getMapKey(Method method, Class<?> returnType) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -431,6 +531,18 @@ public class MapperMethod {
       }
       return mapKey;
     }
+
+    private static boolean isFuture(Type type) {
+      Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type;
+      return CompletableFuture.class.equals(rawType) || CompletionStage.class.equals(rawType);
+    }
+
+    private static Type getFutureResultType(Method method, Type futureType) {
+      if (!(futureType instanceof ParameterizedType)) {
+        throw new BindingException(method.getName() + " must declare the result type of its " + futureType.getTypeName());
+      }
+      return ((ParameterizedType) futureType).getActualTypeArguments()[0];
+    }
   }
 
 }
@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * A bounded cache of the {@link StaticSqlSource}s built by {@link SqlSourceBuilder#parse(String, Class, Map)} for the
+ * SQL rendered by one dynamic statement.
+ * <p>
+ * Entries are keyed by the parameter type and the rendered SQL. Because the java types of the parameter mappings are
+ * also resolved from the additional parameters (e.g. the items bound by {@code <foreach>}), every entry remembers the
+ * types it was built with and is only reused when the current additional parameters resolve to the same types.
+ *
+ * @since 3.5.6
+ */
+public class ParsedSqlCache {
+
+  private static final Object ABSENT = new Object();
+  private static final Object NULL_VALUE = new Object();
+  private static final Object BEAN = new Object();
+  private static final Object RESOLVED = new Object();
+
+  private final Configuration configuration;
+  private final Statistics statistics;
+  private final Cache cache;
+
+  public ParsedSqlCache(Configuration configuration, int maximumSize) {
+    this.configuration = configuration;
+    this.statistics = configuration.getParsedSqlCacheStatistics();
+    ConcurrentLruCache lruCache = new ConcurrentLruCache(new ConcurrentPerpetualCache(ParsedSqlCache.class.getName()), 1);
+    lruCache.setSize(maximumSize);
+    this.cache = lruCache;
+  }
+
+  /**
+   * 获取已解析的 SQL，如果缓存中不存在或者参数类型不一致，使用 {@link SqlSourceBuilder} 重新解析
+   *
+   * @param sql 拼接之后的 SQL 语句
+   * @param parameterType 实参类型
+   * @param additionalParameters 附加参数
+   * @return 解析结果 {@link StaticSqlSource}
+   */
+  public SqlSource parse(String sql, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    final Key key = new Key(parameterType, sql);
+    final Entry entry = (Entry) cache.getObject(key);
+    if (entry != null && entry.matches(additionalParameters)) {
+      statistics.hitCount.increment();
+      return entry.sqlSource;
+    }
+    statistics.missCount.increment();
+    final SqlSource sqlSource = new SqlSourceBuilder(configuration).parse(sql, parameterType, additionalParameters);
+    final List<ParameterMapping> parameterMappings = sqlSource.getBoundSql(null).getParameterMappings();
+    final String[] properties = new String[parameterMappings.size()];
+    for (int i = 0; i < properties.length; i++) {
+      properties[i] = parameterMappings.get(i).getProperty();
+    }
+    cache.putObject(key, new Entry(sqlSource, properties, signatureOf(properties, additionalParameters)));
+    return sqlSource;
+  }
+
+  public int getSize() {
+    return cache.getSize();
+  }
+
+  /**
+   * 计算参数映射的类型签名，和 SqlSourceBuilder.ParameterMappingTokenHandler 使用附加参数推断类型的方式一致
+   */
+  private Object[] signatureOf(String[] properties, Map<String, Object> additionalParameters) {
+    final Object[] signature = new Object[properties.length * 2];
+    MetaObject metaParameters = null;
+    for (int i = 0; i < properties.length; i++) {
+      final String property = properties[i];
+      if (property == null) {
+        signature[i * 2] = ABSENT;
+        continue;
+      }
+      final int dot = property.indexOf('.');
+      if (dot < 0 && property.indexOf('[') < 0) {
+        // 简单属性，类型为附加参数值的类型
+        if (!additionalParameters.containsKey(property)) {
+          signature[i * 2] = ABSENT;
+        } else {
+          final Object value = additionalParameters.get(property);
+          signature[i * 2] = value == null ? NULL_VALUE : value.getClass();
+        }
+        continue;
+      }
+      if (dot > 0 && property.indexOf('.', dot + 1) < 0 && property.indexOf('[') < 0) {
+        // 形如 item.name 的属性，如果 item 是 JavaBean，类型只取决于 item 的类型
+        final Object value = additionalParameters.get(property.substring(0, dot));
+        if (value != null && !(value instanceof Map) && !(value instanceof Iterable) && !value.getClass().isArray()) {
+          signature[i * 2] = BEAN;
+          signature[i * 2 + 1] = value.getClass();
+          continue;
+        }
+      }
+      if (metaParameters == null) {
+        metaParameters = configuration.newMetaObject(additionalParameters);
+      }
+      signature[i * 2] = RESOLVED;
+      signature[i * 2 + 1] = metaParameters.hasGetter(property) ? metaParameters.getGetterType(property) : ABSENT;
+    }
+    return signature;
+  }
+
+  private final class Entry {
+    private final SqlSource sqlSource;
+    private final String[] properties;
+    private final Object[] signature;
+
+    Entry(SqlSource sqlSource, String[] properties, Object[] signature) {
+      this.sqlSource = sqlSource;
+      this.properties = properties;
+      this.signature = signature;
+    }
+
+    boolean matches(Map<String, Object> additionalParameters) {
+      return Arrays.equals(signature, signatureOf(properties, additionalParameters));
+    }
+  }
+
+  private static final class Key {
+    private final Class<?> parameterType;
+    private final String sql;
+    private final int hashCode;
+
+    Key(Class<?> parameterType, String sql) {
+      this.parameterType = parameterType;
+      this.sql = sql;
+      this.hashCode = 31 * parameterType.hashCode() + sql.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return parameterType == other.parameterType && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Hit and miss counts of all the parsed SQL caches of a {@link Configuration}.
+   */
+  public static final class Statistics {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @return a snapshot of the counts; evictions are not counted
+     */
+    public CacheStats getStats() {
+      return new CacheStats(hitCount.sum(), missCount.sum(), 0);
+    }
+
+    public void reset() {
+      hitCount.reset();
+      missCount.reset();
+    }
+  }
+
+}
@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -397,10 +399,22 @@ public class MapperAnnotationBuilder {
           statementAnnotation.getDatabaseId(),
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          statementBuilder -> applyStatementOptions(statementBuilder, options));
     });
   }
 
+  private void applyStatementOptions(MappedStatement.Builder statementBuilder, Options options) {
+    if (options != null) {
+      statementBuilder
+          .chunkSizes(nullOrEmpty(options.chunkSizes()))
+          .cacheTtl(options.cacheTtl() > -1 ? options.cacheTtl() : null)
+          .tables(nullOrEmpty(options.tables()))
+          .batchSelect(assistant.applyCurrentNamespace(nullOrEmpty(options.batchSelect()), true))
+          .batchKey(nullOrEmpty(options.batchKey()));
+    }
+  }
+
   private LanguageDriver getLanguageDriver(Method method) {
     Lang lang = method.getAnnotation(Lang.class);
     Class<? extends LanguageDriver> langClass = null;
@@ -429,17 +443,25 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    boolean future = false;
+    if (resolvedReturnType instanceof ParameterizedType) {
+      Type rawType = ((ParameterizedType) resolvedReturnType).getRawType();
+      if (CompletableFuture.class.equals(rawType) || CompletionStage.class.equals(rawType)) {
+        // the statement maps the result of the future
+        future = true;
+        resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+        returnType = Object.class;
+      }
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
         returnType = returnType.getComponentType();
       }
       // gcode issue #508
-      if (void.class.equals(returnType)) {
+      if (void.class.equals(returnType) || future && Void.class.equals(returnType)) {
         ResultType rt = method.getAnnotation(ResultType.class);
-        if (rt != null) {
-          returnType = rt.value();
-        }
+        returnType = rt != null ? rt.value() : void.class;
       }
     } else if (resolvedReturnType instanceof ParameterizedType) {
       ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
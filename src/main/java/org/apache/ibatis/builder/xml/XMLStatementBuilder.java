@@ -120,12 +120,23 @@ public class XMLStatementBuilder extends BaseBuilder {
     String keyProperty = context.getStringAttribute("keyProperty");
     String keyColumn = context.getStringAttribute("keyColumn");
     String resultSets = context.getStringAttribute("resultSets");
+    String chunkSizes = context.getStringAttribute("chunkSizes");
+    Long cacheTtl = context.getLongAttribute("cacheTtl");
+    String tables = context.getStringAttribute("tables");
+    String batchSelect = context.getStringAttribute("batchSelect");
+    String batchKey = context.getStringAttribute("batchKey");
 
     // 创建 MappedStatement 对象， 并写入 Configuration
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered,
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets,
+        statementBuilder -> statementBuilder
+            .chunkSizes(chunkSizes)
+            .cacheTtl(cacheTtl)
+            .tables(tables)
+            .batchSelect(builderAssistant.applyCurrentNamespace(batchSelect, true))
+            .batchKey(batchKey));
   }
 
   private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
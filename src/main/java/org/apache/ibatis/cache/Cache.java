@@ -54,6 +54,25 @@ public interface Cache {
    */
   void putObject(Object key, Object value);
 
+  /**
+   * Optional. Puts a value that should not be returned anymore once {@code ttl} milliseconds have elapsed, so that the
+   * results of some statements can be kept longer or shorter than the others of the namespace.
+   * <p>
+   * Decorators should forward this call to their delegate so that it reaches the cache that expires entries. Caches
+   * that do not expire entries put the value like {@link #putObject(Object, Object)} does.
+   *
+   * @param key
+   *          Can be any object but usually it is a {@link CacheKey}
+   * @param value
+   *          The result of a select.
+   * @param ttl
+   *          The milliseconds the value is kept, or 0 to keep it like any other value of this cache
+   * @since 3.5.6
+   */
+  default void putObject(Object key, Object value, long ttl) {
+    putObject(key, value);
+  }
+
   /**
    * @param key
    *          The key
@@ -101,4 +120,16 @@ public interface Cache {
     return null;
   }
 
+  /**
+   * Optional. Statistics recorded by this cache or, for a decorator, by the caches it wraps.
+   * <p>
+   * Decorators should forward this call to their delegate so that the statistics of the cache that records them can
+   * be read from the outermost cache of the chain.
+   *
+   * @return The statistics, or {@code null} if no cache of the chain records them
+   */
+  default CacheStats getStats() {
+    return null;
+  }
+
 }
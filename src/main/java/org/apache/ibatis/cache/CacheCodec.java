@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes the values of a cache that keeps them as bytes, like {@link org.apache.ibatis.cache.impl.OffHeapCache}.
+ * <p>
+ * A codec never loads classes by itself: the names it reads are resolved by the cache, which rejects the ones its class
+ * filter does not allow, the way a JEP-290 serial filter does for object streams.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.cache.impl.CompactCacheCodec
+ */
+public interface CacheCodec {
+
+  /**
+   * @param value
+   *          the result of a select, never {@code null}
+   * @param output
+   *          where to write it
+   * @throws IOException
+   *           if the value cannot be encoded, e.g. {@link java.io.NotSerializableException} for a type the codec does
+   *           not support
+   */
+  void encode(Object value, DataOutput output) throws IOException;
+
+  /**
+   * @param input
+   *          the bytes written by {@link #encode(Object, DataOutput)}
+   * @param classResolver
+   *          resolves the class names read from the input
+   * @return a new copy of the value
+   * @throws IOException
+   *           if the value cannot be decoded, e.g. {@link java.io.InvalidClassException} for a rejected class
+   * @throws ClassNotFoundException
+   *           if a class of the value cannot be found
+   */
+  Object decode(DataInput input, ClassResolver classResolver) throws IOException, ClassNotFoundException;
+
+  @FunctionalInterface
+  interface ClassResolver {
+
+    /**
+     * @param className
+     *          the name of a class read from the encoded value
+     * @return the class
+     * @throws java.io.InvalidClassException
+     *           if the class is not allowed
+     * @throws ClassNotFoundException
+     *           if the class cannot be found
+     */
+    Class<?> resolve(String className) throws IOException, ClassNotFoundException;
+  }
+
+}
@@ -16,18 +16,23 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
 /**
+ * The components are kept in an array that can be pre-sized with {@link #CacheKey(int)}, and a 64-bit hash of all of
+ * them is maintained so that {@link #equals(Object)} only compares the components of keys that are almost certainly
+ * equal.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -4396385218462736216L;
+
+  private static final Object[] EMPTY_UPDATE_LIST = new Object[0];
 
   public static final CacheKey NULL_CACHE_KEY = new CacheKey() {
 
@@ -42,23 +47,14 @@ public class CacheKey implements Cloneable, Serializable {
     }
   };
 
-  private static final int DEFAULT_MULTIPLIER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
-
-  /**
-   * 乘数，用来计算 hashcode 时使用
-   */
-  private final int multiplier;
-
-  /**
-   * 哈希值，整个 {@link CacheKey} 的哈希值。如果两个 CacheKey 的该值不同，则两个 CacheKey 一定不同
-   */
-  private int hashcode;
+  private static final int MINIMUM_CAPACITY = 8;
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
 
   /**
-   * 求和校验值，整个 {@link CacheKey} 的求和校验值。如果两个 {@link CacheKey} 的该值不同，则两个 {@link CacheKey} 一定不同
+   * 64 位哈希值，由所有更新参数依次混合而成。如果两个 {@link CacheKey} 的该值不同，则两个 {@link CacheKey} 一定不同
    */
-  private long checksum;
+  private long hash;
 
   /**
    * 更新次数，整个 {@link CacheKey} 的更新次数
@@ -66,26 +62,34 @@ public class CacheKey implements Cloneable, Serializable {
   private int count;
 
   /**
-   * 更新历史
+   * 更新历史，只有前 {@link #count} 个元素有效
    */
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient. While true if content is not serializable, this
   // is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLIER;
-    this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = EMPTY_UPDATE_LIST;
+  }
+
+  /**
+   * Creates a key with room for the given number of updates.
+   *
+   * @param expectedUpdateCount
+   *          the number of times {@link #update(Object)} is expected to be called
+   * @since 3.5.6
+   */
+  public CacheKey(int expectedUpdateCount) {
+    this.updateList = expectedUpdateCount > 0 ? new Object[expectedUpdateCount] : EMPTY_UPDATE_LIST;
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   /**
@@ -94,15 +98,24 @@ public class CacheKey implements Cloneable, Serializable {
    * @param object 更新参数
    */
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
+    long k;
+    if (object == null) {
+      k = 1;
+    } else if (object instanceof CacheKey) {
+      k = ((CacheKey) object).hash;
+    } else {
+      k = ArrayUtil.hashCode(object);
+    }
+    k *= C1;
+    k = Long.rotateLeft(k, 31);
+    k *= C2;
+    hash ^= k;
+    hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, Math.max(MINIMUM_CAPACITY, count << 1));
+    }
+    updateList[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -127,22 +140,17 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    // 依次比较 hashcode, checksum, count
-    if (hashcode != cacheKey.hashcode) {
+    // 依次比较 count, hash
+    if (count != cacheKey.count) {
       return false;
     }
-    if (checksum != cacheKey.checksum) {
-      return false;
-    }
-    if (count != cacheKey.count) {
+    if (hash != cacheKey.hash) {
       return false;
     }
 
     // 详细比较变更历史中的每次变更
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      if (!ArrayUtil.equals(updateList[i], cacheKey.updateList[i])) {
         return false;
       }
     }
@@ -151,22 +159,31 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    long h = hash ^ count;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) (h ^ (h >>> 32));
   }
 
   @Override
   public String toString() {
     StringJoiner returnValue = new StringJoiner(":");
-    returnValue.add(String.valueOf(hashcode));
-    returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    returnValue.add(String.valueOf(hashCode()));
+    returnValue.add(Long.toHexString(hash));
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(updateList[i]));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    // leave room for one more update, cloned keys are usually combined with another one
+    clonedCacheKey.updateList = Arrays.copyOf(updateList, count + 1);
     return clonedCacheKey;
   }
 
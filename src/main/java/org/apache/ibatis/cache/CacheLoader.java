@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes the value of one cache key, usually by running the select the key was created for.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.cache.decorators.LoadingCache
+ */
+public interface CacheLoader {
+
+  /**
+   * Loads the value in the session that missed it.
+   *
+   * @return the value
+   * @throws SQLException
+   *           if the select fails
+   */
+  Object load() throws SQLException;
+
+  /**
+   * Optional. Loads the value again in the background, outside of the session that asked for it. Used to refresh an
+   * entry before it expires.
+   *
+   * @return the value to come, or {@code null} if the value cannot be loaded in the background
+   */
+  default CompletableFuture<Object> reload() {
+    return null;
+  }
+
+}
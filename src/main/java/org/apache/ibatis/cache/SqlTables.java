@@ -0,0 +1,361 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The tables a SQL statement reads or writes, found by scanning its tokens for the table references that follow
+ * {@code FROM}, {@code JOIN}, {@code INTO}, {@code UPDATE} and {@code TRUNCATE}.
+ * <p>
+ * This is not a SQL parser. It may find tables a statement does not use (e.g. the {@code x} of
+ * {@code extract(year from x)}), which only invalidates cache entries more often than needed. When a statement may use
+ * tables it cannot see, like a table function in a {@code FROM} clause or a stored procedure, the tables are unknown.
+ * <p>
+ * Table names are lower cased, without quotes and without their schema.
+ *
+ * @since 3.5.6
+ */
+final class SqlTables {
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+      "as", "on", "using", "where", "join", "inner", "outer", "left", "right", "full", "cross", "natural",
+      "straight_join", "group", "order", "having", "limit", "offset", "fetch", "for", "union", "intersect", "except",
+      "minus", "window", "connect", "start", "set", "values", "select", "from", "into", "and", "or", "not",
+      "returning", "with", "partition", "qualify", "lateral", "tablesample", "default", "output"));
+
+  /**
+   * 查询语句读取的表，未知时为 null
+   */
+  private final String[] read;
+
+  /**
+   * 写入语句修改的表，未知时为 null
+   */
+  private final String[] written;
+
+  private SqlTables(String[] read, String[] written) {
+    this.read = read;
+    this.written = written;
+  }
+
+  /**
+   * @return the tables a select reads, sorted, or {@code null} if the statement is not a select or may read tables that
+   *         could not be found
+   */
+  String[] getRead() {
+    return read;
+  }
+
+  /**
+   * @return the tables an insert, update, delete, merge or truncate statement modifies, sorted, or {@code null} if the
+   *         statement is none of those or may modify tables that could not be found
+   */
+  String[] getWritten() {
+    return written;
+  }
+
+  static SqlTables parse(String sql) {
+    return new Scanner(tokenize(sql)).scan();
+  }
+
+  /**
+   * Normalizes a table name as found in a statement, or as declared by a mapped statement.
+   *
+   * @param name
+   *          the table name, possibly quoted and qualified
+   * @return the lower cased table name, without quotes and without its schema
+   */
+  static String normalize(String name) {
+    StringBuilder table = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c == '.') {
+        // 只保留最后一段，不同 schema 下的同名表共用版本号，只会多失效一些缓存
+        table.setLength(0);
+      } else if (c != '"' && c != '`' && c != '[' && c != ']' && !Character.isWhitespace(c)) {
+        table.append(c);
+      }
+    }
+    return table.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  private static List<String> tokenize(String sql) {
+    List<String> tokens = new ArrayList<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (c == '\'') {
+        // 字符串常量
+        i++;
+        while (i < length) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          i++;
+        }
+        i++;
+        tokens.add("'");
+      } else if (isIdentifierStart(c)) {
+        int start = i;
+        while (i < length) {
+          char current = sql.charAt(i);
+          char close = current == '"' ? '"' : current == '`' ? '`' : current == '[' ? ']' : 0;
+          if (close != 0) {
+            int end = sql.indexOf(close, i + 1);
+            i = end < 0 ? length : end + 1;
+          } else if (Character.isLetterOrDigit(current) || current == '_' || current == '$' || current == '#'
+              || current == '.') {
+            i++;
+          } else {
+            break;
+          }
+        }
+        tokens.add(sql.substring(start, i));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isIdentifierStart(char c) {
+    return Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[';
+  }
+
+  private static final class Scanner {
+
+    private final List<String> tokens;
+    private final Set<String> tables = new TreeSet<>();
+    private boolean unknown;
+    private int position;
+
+    Scanner(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    SqlTables scan() {
+      String command = command();
+      if ("select".equals(command)) {
+        // 每层括号是否在 FROM 子句中，JOIN 的 ON 条件之后还可以有逗号分隔的表
+        List<Boolean> inFrom = new ArrayList<>();
+        inFrom.add(false);
+        while (position < tokens.size()) {
+          String token = keyword(position++);
+          int depth = inFrom.size() - 1;
+          if ("(".equals(token)) {
+            inFrom.add(false);
+          } else if (")".equals(token)) {
+            if (depth > 0) {
+              inFrom.remove(depth);
+            }
+          } else if ("from".equals(token) || "join".equals(token)) {
+            inFrom.set(depth, true);
+            tableReferences("from".equals(token), false);
+          } else if (",".equals(token)) {
+            if (inFrom.get(depth)) {
+              tableReferences(true, false);
+            }
+          } else if (!"on".equals(token) && KEYWORDS.contains(token) && !isJoinModifier(token)) {
+            inFrom.set(depth, false);
+          }
+        }
+        return new SqlTables(result(), null);
+      }
+      if ("insert".equals(command) || "replace".equals(command) || "upsert".equals(command)
+          || "merge".equals(command)) {
+        while (position < tokens.size()) {
+          if ("into".equals(keyword(position++))) {
+            tableReferences(false, true);
+          }
+        }
+      } else if ("update".equals(command)) {
+        skipToCommand();
+        tableReferences(true, false);
+        while (position < tokens.size() && !"set".equals(keyword(position))) {
+          if ("join".equals(keyword(position++))) {
+            tableReferences(false, false);
+          }
+        }
+      } else if ("delete".equals(command)) {
+        skipToCommand();
+        // MySQL 的多表删除在 FROM 之前列出要删除的表或其别名，它们都在 FROM 子句中；Oracle 可以省略 FROM
+        Set<String> names = new TreeSet<>();
+        while (position < tokens.size() && isIdentifier(tokens.get(position)) && !KEYWORDS.contains(keyword(position))) {
+          names.add(normalize(tokens.get(position++)));
+          if (",".equals(keyword(position))) {
+            position++;
+          }
+        }
+        if ("from".equals(keyword(position))) {
+          position++;
+          tableReferences(true, false);
+          while (position < tokens.size() && !"where".equals(keyword(position)) && !"using".equals(keyword(position))) {
+            if ("join".equals(keyword(position++))) {
+              tableReferences(false, false);
+            }
+          }
+        } else {
+          tables.addAll(names);
+        }
+      } else if ("truncate".equals(command)) {
+        skipToCommand();
+        if ("table".equals(keyword(position))) {
+          position++;
+        }
+        tableReferences(false, true);
+      } else {
+        return new SqlTables(null, null);
+      }
+      return new SqlTables(null, result());
+    }
+
+    /**
+     * 语句类型，WITH 开头的语句以第一个不在括号中的 DML 关键字为准
+     */
+    private String command() {
+      if (!tokens.isEmpty() && "(".equals(tokens.get(0))) {
+        // (select ...) union (select ...)
+        return "select";
+      }
+      int depth = 0;
+      for (int i = 0; i < tokens.size(); i++) {
+        String token = tokens.get(i);
+        if ("(".equals(token)) {
+          depth++;
+        } else if (")".equals(token)) {
+          depth--;
+        } else if (depth == 0 && isIdentifier(token)) {
+          String keyword = keyword(i);
+          if (i == 0 && !"with".equals(keyword)) {
+            return keyword;
+          }
+          if ("select".equals(keyword) || "insert".equals(keyword) || "update".equals(keyword)
+              || "delete".equals(keyword) || "merge".equals(keyword)) {
+            return keyword;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * 跳到语句类型关键字之后
+     */
+    private void skipToCommand() {
+      String command = command();
+      int depth = 0;
+      while (position < tokens.size()) {
+        String token = tokens.get(position++);
+        if ("(".equals(token)) {
+          depth++;
+        } else if (")".equals(token)) {
+          depth--;
+        } else if (depth == 0 && command.equals(keyword(position - 1))) {
+          break;
+        }
+      }
+      // UPDATE LOW_PRIORITY IGNORE t、DELETE QUICK FROM t、UPDATE ONLY t 等修饰词
+      while (position < tokens.size() && isModifier(keyword(position))) {
+        position++;
+      }
+    }
+
+    private boolean isJoinModifier(String keyword) {
+      return "inner".equals(keyword) || "outer".equals(keyword) || "left".equals(keyword) || "right".equals(keyword)
+          || "full".equals(keyword) || "cross".equals(keyword) || "natural".equals(keyword) || "as".equals(keyword)
+          || "and".equals(keyword) || "or".equals(keyword) || "not".equals(keyword) || "using".equals(keyword);
+    }
+
+    private boolean isModifier(String keyword) {
+      return "low_priority".equals(keyword) || "ignore".equals(keyword) || "quick".equals(keyword)
+          || "only".equals(keyword) || "top".equals(keyword);
+    }
+
+    /**
+     * 读取一组表引用：表名、可选的别名，FROM 子句中以逗号分隔。写入的目标表之后可以是列名列表
+     */
+    private void tableReferences(boolean list, boolean target) {
+      while (position < tokens.size()) {
+        String token = tokens.get(position);
+        if ("(".equals(token)) {
+          // 子查询，其中的表在继续扫描时读取
+          return;
+        }
+        String keyword = keyword(position);
+        if ("only".equals(keyword)) {
+          position++;
+          continue;
+        }
+        if ("lateral".equals(keyword) || "table".equals(keyword) || !isIdentifier(token) || KEYWORDS.contains(keyword)) {
+          unknown |= "lateral".equals(keyword) || "table".equals(keyword);
+          return;
+        }
+        position++;
+        if (!target && position < tokens.size() && "(".equals(tokens.get(position))) {
+          // 表函数，无法知道它读取了哪些表
+          unknown = true;
+          return;
+        }
+        tables.add(normalize(token));
+        if ("as".equals(keyword(position))) {
+          position += 2;
+        } else if (position < tokens.size() && isIdentifier(tokens.get(position))
+            && !KEYWORDS.contains(keyword(position))) {
+          position++;
+        }
+        if (!list || position >= tokens.size() || !",".equals(tokens.get(position))) {
+          return;
+        }
+        position++;
+      }
+    }
+
+    private String[] result() {
+      // 没有找到任何表时同样视为未知，例如 select nextval('seq')
+      return unknown || tables.isEmpty() ? null : tables.toArray(new String[0]);
+    }
+
+    private String keyword(int index) {
+      return index < tokens.size() ? tokens.get(index).toLowerCase(Locale.ENGLISH) : "";
+    }
+
+    private static boolean isIdentifier(String token) {
+      return isIdentifierStart(token.charAt(0));
+    }
+  }
+
+}
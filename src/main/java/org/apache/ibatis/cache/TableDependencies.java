@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Table level invalidation of the 2nd level caches of a {@link org.apache.ibatis.session.Configuration}.
+ * <p>
+ * Every table has a version, incremented each time a transaction that modified it commits. The key of a cached select
+ * is extended with the versions of the tables it reads, so once one of them is modified its entries are not hit
+ * anymore, whatever the namespace that modified it. They are left to the eviction policy of their cache.
+ * <p>
+ * The tables of a statement are the ones it declares (see {@link MappedStatement#getTables()}), or else the ones
+ * found in its SQL. Every select also depends on the namespace of its cache, which any write of that namespace
+ * invalidates, like a write used to clear the whole cache; the tables add the writes of the other namespaces. Only a
+ * select that declares its tables drops the namespace, so that the writes of its own namespace to other tables keep
+ * its entries.
+ * <p>
+ * Tables found in the SQL are only the ones it names. A select from a view depends on the view, not on the tables
+ * behind it, and the tables a trigger or a stored procedure modifies are not seen at all. Declare the tables of such
+ * statements, e.g. the tables behind a view on the select, or the tables a trigger modifies on the write.
+ *
+ * @since 3.5.6
+ */
+public class TableDependencies {
+
+  private static final int DEFAULT_PARSED_STATEMENTS = 1024;
+  private static final String NAMESPACE_PREFIX = "#namespace:";
+
+  private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  /**
+   * 已解析的 SQL 语句，键为 SQL
+   */
+  private final Cache parsedStatements;
+
+  public TableDependencies() {
+    this(DEFAULT_PARSED_STATEMENTS);
+  }
+
+  /**
+   * @param maximumSize
+   *          the number of SQL statements whose tables are kept
+   */
+  public TableDependencies(int maximumSize) {
+    ConcurrentLruCache lruCache = new ConcurrentLruCache(new ConcurrentPerpetualCache(TableDependencies.class.getName()), 1);
+    lruCache.setSize(maximumSize);
+    this.parsedStatements = lruCache;
+  }
+
+  /**
+   * Gets the tables a select depends on.
+   *
+   * @param ms
+   *          the select
+   * @param boundSql
+   *          its SQL
+   * @return the declared tables, or else the tables found in its SQL and the namespace of its cache
+   */
+  public String[] getReadTables(MappedStatement ms, BoundSql boundSql) {
+    String[] tables = ms.getTables();
+    if (tables != null) {
+      return tables;
+    }
+    String namespace = namespaceOf(ms.getCache());
+    tables = parse(boundSql.getSql()).getRead();
+    if (tables == null) {
+      return new String[] { namespace };
+    }
+    String[] withNamespace = Arrays.copyOf(tables, tables.length + 1);
+    withNamespace[tables.length] = namespace;
+    return withNamespace;
+  }
+
+  /**
+   * Gets the tables a write modifies.
+   *
+   * @param ms
+   *          the insert, update or delete
+   * @param boundSql
+   *          the SQL it executes
+   * @return the tables, or {@code null} when they are unknown
+   */
+  public String[] getWrittenTables(MappedStatement ms, BoundSql boundSql) {
+    String[] tables = ms.getTables();
+    return tables == null ? parse(boundSql.getSql()).getWritten() : tables;
+  }
+
+  /**
+   * The pseudo table the selects of a cache whose tables are unknown depend on.
+   *
+   * @param cache
+   *          the cache of a namespace
+   * @return the pseudo table
+   */
+  public String namespaceOf(Cache cache) {
+    return NAMESPACE_PREFIX + cache.getId();
+  }
+
+  /**
+   * Extends a cache key with the current versions of tables.
+   *
+   * @param key
+   *          the key of a select
+   * @param tables
+   *          the tables it depends on
+   */
+  public void appendVersions(CacheKey key, String[] tables) {
+    for (String table : tables) {
+      key.update(getVersion(table));
+    }
+  }
+
+  public long getVersion(String table) {
+    AtomicLong version = versions.get(table);
+    return version == null ? 0 : version.get();
+  }
+
+  /**
+   * Invalidates the cached selects that depend on tables.
+   *
+   * @param tables
+   *          the tables modified by a committed transaction
+   */
+  public void invalidate(Collection<String> tables) {
+    for (String table : tables) {
+      versions.computeIfAbsent(table, name -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  private SqlTables parse(String sql) {
+    SqlTables tables = (SqlTables) parsedStatements.getObject(sql);
+    if (tables == null) {
+      tables = SqlTables.parse(sql);
+      parsedStatements.putObject(sql, tables);
+    }
+    return tables;
+  }
+
+  /**
+   * Normalizes a declared table name the way the tables found in SQL statements are.
+   *
+   * @param table
+   *          the table name, possibly quoted and qualified
+   * @return the lower cased table name, without quotes and without its schema
+   */
+  public static String normalize(String table) {
+    return SqlTables.normalize(table);
+  }
+
+}
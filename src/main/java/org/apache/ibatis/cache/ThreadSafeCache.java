@@ -0,0 +1,27 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Marker interface for caches that can be called by several threads at the same time without external locking.
+ * <p>
+ * A decorator implementing this interface is thread-safe as long as the cache it decorates is thread-safe too. When
+ * every cache of a chain is thread-safe, {@link org.apache.ibatis.mapping.CacheBuilder} does not wrap it into a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ */
+public interface ThreadSafeCache extends Cache {
+
+}
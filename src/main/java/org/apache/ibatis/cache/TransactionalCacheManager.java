@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.cache;
 
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,6 +39,14 @@ public class TransactionalCacheManager {
     return getTransactionalCache(cache).getObject(key);
   }
 
+  /**
+   * @since 3.5.6
+   * @see TransactionalCache#getObject(Object, CacheLoader, long)
+   */
+  public Object getObject(Cache cache, CacheKey key, CacheLoader loader, long ttl) throws SQLException {
+    return getTransactionalCache(cache).getObject(key, loader, ttl);
+  }
+
   public void putObject(Cache cache, CacheKey key, Object value) {
     getTransactionalCache(cache).putObject(key, value);
   }
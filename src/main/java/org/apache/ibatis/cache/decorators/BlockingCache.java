@@ -17,6 +17,7 @@ package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -79,6 +80,15 @@ public class BlockingCache implements Cache {
     }
   }
 
+  @Override
+  public void putObject(Object key, Object value, long ttl) {
+    try {
+      delegate.putObject(key, value, ttl);
+    } finally {
+      releaseLock(key);
+    }
+  }
+
   @Override
   public Object getObject(Object key) {
     // 获取锁
@@ -105,6 +115,11 @@ public class BlockingCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
 
   /**'
    * 找出某个键的锁
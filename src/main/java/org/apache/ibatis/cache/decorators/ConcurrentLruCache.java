@@ -0,0 +1,213 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * Thread-safe Lru (least recently used) cache decorator.
+ * <p>
+ * Keys are spread over independently locked stripes, each one keeping its own access-ordered key map, so the policy
+ * is LRU per stripe. Reads never take a lock: a hit is recorded in a small lossy buffer of its stripe and replayed on
+ * the key map by whichever thread next gets the stripe lock. Under heavy load some reads may be dropped, which only
+ * makes the recency information slightly less precise.
+ */
+public class ConcurrentLruCache implements ThreadSafeCache {
+
+  private static final int READ_BUFFER_SIZE = 16;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private final Cache delegate;
+  private final Stripe[] stripes;
+
+  public ConcurrentLruCache(Cache delegate) {
+    this(delegate, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param delegate
+   *          the decorated cache
+   * @param concurrencyLevel
+   *          the expected number of concurrent writers, rounded up to a power of two stripes (at most 64)
+   */
+  public ConcurrentLruCache(Cache delegate, int concurrencyLevel) {
+    this.delegate = delegate;
+    this.stripes = new Stripe[stripeCount(concurrencyLevel)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe();
+    }
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * Sets the capacity of the cache, shared evenly between the stripes.
+   *
+   * @param size
+   *          the capacity
+   */
+  public void setSize(final int size) {
+    int stripeSize = Math.max(1, (size + stripes.length - 1) / stripes.length);
+    for (Stripe stripe : stripes) {
+      stripe.lock.lock();
+      try {
+        stripe.size = stripeSize;
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    Object eldestKey = stripeFor(key).add(key);
+    if (eldestKey != null) {
+      delegate.removeObject(eldestKey);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      stripeFor(key).recordRead(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    stripeFor(key).remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    for (Stripe stripe : stripes) {
+      stripe.clear();
+    }
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
+  private Stripe stripeFor(Object key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    return stripes[h & (stripes.length - 1)];
+  }
+
+  private static int stripeCount(int concurrencyLevel) {
+    int count = 1;
+    while (count < concurrencyLevel && count < 64) {
+      count <<= 1;
+    }
+    return count;
+  }
+
+  private static final class Stripe {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Object, Object> keyMap = new LinkedHashMap<>(16, .75F, true);
+    private final AtomicReferenceArray<Object> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicInteger readCount = new AtomicInteger();
+    private int size;
+
+    void recordRead(Object key) {
+      int index = readCount.getAndIncrement() & READ_BUFFER_MASK;
+      readBuffer.lazySet(index, key);
+      if (index == READ_BUFFER_MASK && lock.tryLock()) {
+        try {
+          drainReads();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    /**
+     * Adds a key and returns the key that has to be evicted, if any.
+     */
+    Object add(Object key) {
+      lock.lock();
+      try {
+        drainReads();
+        keyMap.put(key, key);
+        if (keyMap.size() > size) {
+          Object eldestKey = keyMap.keySet().iterator().next();
+          keyMap.remove(eldestKey);
+          return eldestKey;
+        }
+        return null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void remove(Object key) {
+      lock.lock();
+      try {
+        keyMap.remove(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      lock.lock();
+      try {
+        keyMap.clear();
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+          readBuffer.lazySet(i, null);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void drainReads() {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        Object key = readBuffer.getAndSet(i, null);
+        if (key != null) {
+          // touch
+          keyMap.get(key);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,366 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * 过期装饰器，每条数据在写入一段时间后单独过期
+ *
+ * <p>Expires every entry on its own, {@code ttl} milliseconds after it was put, instead of clearing the whole cache at
+ * once like {@link ScheduledCache} does. A statement can give its results their own time to live through
+ * {@link Cache#putObject(Object, Object, long)}.
+ *
+ * <p>Each deadline is brought forward by a random part of the time to live, up to {@code jitter} times it, so entries
+ * put at the same time do not all miss at the same time and the database does not get their selects all at once.
+ *
+ * <p>An expired entry is never returned. Its deadline is stored with the value in the decorated cache and checked on
+ * every read. Entries that are not read anymore are removed from the decorated cache by a hashed timer wheel with
+ * {@code tickDuration} wide slots. The wheel only holds weak references to the entries, so an entry the decorated cache
+ * evicts is not kept alive by this cache. No thread drives the wheel: the calls to this cache advance it, and a call
+ * that finds another thread advancing it does not wait.
+ *
+ * @since 3.5.6
+ */
+public class ExpiringCache implements ThreadSafeCache {
+
+  private static final int WHEEL_SIZE = 512;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  private final Cache delegate;
+
+  /**
+   * 时间轮，每个槽位是一个单链表
+   */
+  private final Node[] wheel = new Node[WHEEL_SIZE];
+  private final ReentrantLock wheelLock = new ReentrantLock();
+
+  /**
+   * 被装饰的缓存淘汰的数据被回收后，其节点进入该队列
+   */
+  private final ReferenceQueue<Expiring> collected = new ReferenceQueue<>();
+
+  /**
+   * 时间轮中的节点数，以及其中数据已经被回收的节点数，后者过多时清理时间轮
+   */
+  private int nodeCount;
+  private int collectedCount;
+
+  /**
+   * 时间轮已经推进到的刻度
+   */
+  private volatile long currentTick;
+
+  /**
+   * 是否写入过带过期时间的数据，没有时写入不需要处理被替换的数据
+   */
+  private volatile boolean expiring;
+
+  private volatile long ttl;
+  private volatile double jitter = 0.1;
+  private volatile long tickDuration = 1000;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    this.currentTick = System.currentTimeMillis() / tickDuration;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    expireDue(System.currentTimeMillis());
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    putObject(key, object, 0);
+  }
+
+  @Override
+  public void putObject(Object key, Object object, long ttl) {
+    long now = System.currentTimeMillis();
+    expireDue(now);
+    if (expiring) {
+      // 被替换的数据不能再由时间轮移除，否则会移除新写入的数据
+      cancel(delegate.removeObject(key));
+    }
+    long entryTtl = ttl > 0 ? ttl : this.ttl;
+    if (entryTtl <= 0) {
+      delegate.putObject(key, object);
+      return;
+    }
+    long deadline = now + entryTtl - (long) (entryTtl * jitter * ThreadLocalRandom.current().nextDouble());
+    Expiring entry = new Expiring(key, object, deadline);
+    expiring = true;
+    delegate.putObject(key, entry);
+    schedule(new Node(entry, collected));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    long now = System.currentTimeMillis();
+    expireDue(now);
+    Object value = delegate.getObject(key);
+    if (!(value instanceof Expiring)) {
+      return value;
+    }
+    Expiring entry = (Expiring) value;
+    if (now >= entry.deadline) {
+      expire(entry);
+      return null;
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return cancel(delegate.removeObject(key));
+  }
+
+  @Override
+  public void clear() {
+    wheelLock.lock();
+    try {
+      Arrays.fill(wheel, null);
+      nodeCount = 0;
+      collectedCount = 0;
+      while (collected.poll() != null) {
+        // 丢弃已经不在时间轮中的节点
+      }
+      delegate.clear();
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  /**
+   * @param ttl
+   *          the milliseconds an entry is kept when it is put without its own time to live, 0 (the default) to keep it
+   *          until it is evicted
+   */
+  public void setTtl(long ttl) {
+    this.ttl = ttl;
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * @param jitter
+   *          the largest part of its time to live an entry may expire early, between 0 and 1 (0.1 by default)
+   */
+  public void setJitter(double jitter) {
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("The jitter must be between 0 and 1 but was " + jitter);
+    }
+    this.jitter = jitter;
+  }
+
+  public long getTickDuration() {
+    return tickDuration;
+  }
+
+  /**
+   * @param tickDuration
+   *          the milliseconds covered by one slot of the timer wheel (1000 by default). Entries that are not read
+   *          anymore are removed up to that long after they expired.
+   */
+  public void setTickDuration(long tickDuration) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("The tick duration must be positive but was " + tickDuration);
+    }
+    wheelLock.lock();
+    try {
+      Node[] nodes = wheel.clone();
+      Arrays.fill(wheel, null);
+      nodeCount = 0;
+      this.tickDuration = tickDuration;
+      currentTick = System.currentTimeMillis() / tickDuration;
+      for (Node head : nodes) {
+        Node node = head;
+        while (node != null) {
+          Node next = node.next;
+          schedule(node);
+          node = next;
+        }
+      }
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private void schedule(Node node) {
+    wheelLock.lock();
+    try {
+      // 向上取整，扫描到该刻度时数据一定已经过期；已经扫描过的刻度不会再扫描，放到下一个刻度
+      long tick = Math.max((node.deadline + tickDuration - 1) / tickDuration, currentTick + 1);
+      int slot = (int) (tick & WHEEL_MASK);
+      node.tick = tick;
+      node.next = wheel[slot];
+      wheel[slot] = node;
+      nodeCount++;
+      purgeCollected();
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  /**
+   * 推进时间轮，移除到期的数据。其它线程正在推进时直接返回
+   */
+  private void expireDue(long now) {
+    long tick = now / tickDuration;
+    if (tick <= currentTick || !wheelLock.tryLock()) {
+      return;
+    }
+    try {
+      // 落后超过一圈时每个槽位只需扫描一次
+      for (long t = Math.max(currentTick + 1, tick - WHEEL_SIZE + 1); t <= tick; t++) {
+        int slot = (int) (t & WHEEL_MASK);
+        Node kept = null;
+        Node node = wheel[slot];
+        while (node != null) {
+          Node next = node.next;
+          if (node.tick <= tick) {
+            Expiring entry = node.get();
+            if (entry != null) {
+              expire(entry);
+            }
+            nodeCount--;
+          } else {
+            // 还要再转几圈
+            node.next = kept;
+            kept = node;
+          }
+          node = next;
+        }
+        wheel[slot] = kept;
+      }
+      currentTick = tick;
+    } finally {
+      wheelLock.unlock();
+    }
+  }
+
+  /**
+   * 被装饰的缓存淘汰的数据被回收后，其节点要到过期时刻才离开时间轮。这样的节点超过一半时扫描整个时间轮移除它们，
+   * 时间轮的大小因此与被装饰的缓存中的数据量成正比，而不是与过期时间内写入的数据量成正比
+   */
+  private void purgeCollected() {
+    while (collected.poll() != null) {
+      collectedCount++;
+    }
+    if (collectedCount <= WHEEL_SIZE || collectedCount * 2 <= nodeCount) {
+      return;
+    }
+    nodeCount = 0;
+    for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+      Node kept = null;
+      Node node = wheel[slot];
+      while (node != null) {
+        Node next = node.next;
+        if (node.get() != null) {
+          node.next = kept;
+          kept = node;
+          nodeCount++;
+        }
+        node = next;
+      }
+      wheel[slot] = kept;
+    }
+    collectedCount = 0;
+  }
+
+  private void expire(Expiring entry) {
+    // 数据被移除或重新写入后不能再移除该键
+    if (!entry.cancelled) {
+      entry.cancelled = true;
+      delegate.removeObject(entry.key);
+    }
+  }
+
+  private static Object cancel(Object value) {
+    if (!(value instanceof Expiring)) {
+      return value;
+    }
+    Expiring entry = (Expiring) value;
+    entry.cancelled = true;
+    return entry.value;
+  }
+
+  /**
+   * 存放在被装饰的缓存中的数据及其过期时刻
+   */
+  private static final class Expiring {
+
+    private final Object key;
+    private final Object value;
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    Expiring(Object key, Object value, long deadline) {
+      this.key = key;
+      this.value = value;
+      this.deadline = deadline;
+    }
+  }
+
+  private static final class Node extends WeakReference<Expiring> {
+
+    private final long deadline;
+    private long tick;
+    private Node next;
+
+    Node(Expiring entry, ReferenceQueue<Expiring> queue) {
+      super(entry, queue);
+      this.deadline = entry.deadline;
+    }
+  }
+
+}
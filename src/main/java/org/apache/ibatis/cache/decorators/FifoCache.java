@@ -19,6 +19,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * FIFO (first in, first out) cache decorator.
@@ -77,6 +78,11 @@ public class FifoCache implements Cache {
     keyList.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
   private void cycleKeyList(Object key) {
     keyList.addLast(key);
     if (keyList.size() > size) {
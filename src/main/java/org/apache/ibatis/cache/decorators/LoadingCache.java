@@ -0,0 +1,321 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 加载装饰器，多个会话同时未命中同一个键时只有一个会话查询数据库，其余会话等待它的结果
+ *
+ * <p>Single-flight loading decorator, used for {@code blocking} caches.
+ *
+ * <p>When several sessions miss the same key at the same time, only the first one runs its {@link CacheLoader}. The
+ * others wait for a shared future, that is completed when the loading session commits and puts the value, like
+ * {@link BlockingCache} releases its lock. So waiting sessions only get committed results, never rows the loading
+ * session wrote itself. If the load fails or the loading session rolls back, a waiting session loads the value itself.
+ * With a {@code timeout}, a session that waited that long gives up with a {@link CacheException}.
+ *
+ * <p>With an {@code expiration}, every entry expires on its own that long after it was put, instead of the whole cache
+ * being cleared like {@link ScheduledCache} does. An entry put with its own time to live expires after that time
+ * instead. With a {@code refreshAhead} as well, a hit on an entry that expires within that time reloads it in the
+ * background with {@link CacheLoader#reload()}. The callers keep getting the current value, so a hot entry does not
+ * expire.
+ *
+ * @since 3.5.6
+ */
+public class LoadingCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(LoadingCache.class);
+
+  private final Cache delegate;
+
+  /**
+   * 正在加载的键，值为加载结果
+   */
+  private final ConcurrentHashMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+  /**
+   * 正在后台刷新的键
+   */
+  private final Set<Object> refreshes = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 每次清空缓存时加一，清空前开始的刷新结果不再写入缓存
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * 等待其它会话加载的最长时间，0 表示一直等待
+   */
+  private long timeout;
+  private long expiration;
+  private long refreshAhead;
+  private boolean readWrite;
+
+  public LoadingCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    putObject(key, value, 0);
+  }
+
+  @Override
+  public void putObject(Object key, Object value, long ttl) {
+    Entry entry = value == null ? null : new Entry(value, System.currentTimeMillis(), ttl > 0 ? ttl : expiration);
+    delegate.putObject(key, entry, ttl);
+    // 加载的会话提交，等待的会话得到已提交的结果
+    CompletableFuture<Object> load = loads.remove(key);
+    if (load != null) {
+      load.complete(value);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry = getEntry(key);
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Gets the value of a key and, if it expires within {@code refreshAhead}, reloads it in the background.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          reloads the value
+   * @return the value, or {@code null} if the key is missing or has expired
+   */
+  public Object getObject(Object key, CacheLoader loader) {
+    Entry entry = getEntry(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.ttl > 0 && refreshAhead > 0 && System.currentTimeMillis() - entry.created >= entry.ttl - refreshAhead) {
+      refresh(key, loader, entry.ttl);
+    }
+    return entry.value;
+  }
+
+  /**
+   * Loads the value of a missed key, or waits for the session that is already loading it.
+   * <p>
+   * The value is not put into the cache. The caller must put it when its transaction commits, or call
+   * {@link #removeObject(Object)} when it rolls back, to release the sessions waiting for it.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads the value in the session of the caller
+   * @return the value
+   * @throws SQLException
+   *           if the loader of the caller fails
+   */
+  public Object load(Object key, CacheLoader loader) throws SQLException {
+    while (true) {
+      CompletableFuture<Object> future = new CompletableFuture<>();
+      CompletableFuture<Object> running = loads.putIfAbsent(key, future);
+      if (running == null) {
+        try {
+          return loader.load();
+        } catch (Throwable t) {
+          loads.remove(key, future);
+          future.completeExceptionally(t);
+          throw t;
+        }
+      }
+      try {
+        Object value = timeout > 0 ? running.get(timeout, TimeUnit.MILLISECONDS) : running.get();
+        if (value != null) {
+          return readWrite ? copy(value) : value;
+        }
+        // 加载的会话清空了缓存，提交时没有写入结果
+        log.debug("Key " + key + " of cache " + getId() + " was not put by the session that loaded it, loading it again.");
+      } catch (ExecutionException e) {
+        // 加载失败或回滚的原因可能只和那个会话有关，由本会话重新加载
+        log.debug("Loading key " + key + " of cache " + getId() + " failed in another session, loading it again.");
+      } catch (TimeoutException e) {
+        throw new CacheException(
+            "Couldn't get a lock in " + timeout + " for the key " + key + " at the cache " + delegate.getId());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Got interrupted while waiting for the key " + key + " to be loaded", e);
+      }
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // despite of its name, this method is called only to release locks: the loading session rolled back
+    CompletableFuture<Object> load = loads.remove(key);
+    if (load != null) {
+      load.completeExceptionally(new CacheException("The session loading key " + key + " rolled back"));
+    }
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    generation.incrementAndGet();
+    delegate.clear();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public long getExpiration() {
+    return expiration;
+  }
+
+  /**
+   * @param expiration
+   *          the milliseconds an entry is kept after it was put when it is put without its own time to live, 0 (the
+   *          default) to keep it until it is evicted
+   */
+  public void setExpiration(long expiration) {
+    this.expiration = expiration;
+  }
+
+  public long getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  /**
+   * @param refreshAhead
+   *          the milliseconds before its expiration in which a hit reloads an entry in the background, 0 (the default)
+   *          to let entries expire. Only used together with an expiration.
+   */
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public boolean isReadWrite() {
+    return readWrite;
+  }
+
+  /**
+   * @param readWrite
+   *          true to give sessions that waited for a load a serialized copy of the value, like a read-write cache
+   *          gives every session its own copy
+   */
+  public void setReadWrite(boolean readWrite) {
+    this.readWrite = readWrite;
+  }
+
+  private Entry getEntry(Object key) {
+    Object object = delegate.getObject(key);
+    if (!(object instanceof Entry)) {
+      return null;
+    }
+    Entry entry = (Entry) object;
+    return entry.ttl > 0 && System.currentTimeMillis() - entry.created >= entry.ttl ? null : entry;
+  }
+
+  private void refresh(Object key, CacheLoader loader, long ttl) {
+    if (!refreshes.add(key)) {
+      return;
+    }
+    long startGeneration = generation.get();
+    CompletableFuture<Object> reload = null;
+    try {
+      reload = loader.reload();
+    } finally {
+      if (reload == null) {
+        refreshes.remove(key);
+      }
+    }
+    if (reload == null) {
+      return;
+    }
+    reload.whenComplete((value, failure) -> {
+      try {
+        if (failure != null) {
+          log.debug("Refreshing key " + key + " of cache " + getId() + " failed. Cause: " + failure);
+        } else if (generation.get() == startGeneration) {
+          putObject(key, value, ttl);
+          if (generation.get() != startGeneration) {
+            // 写入的同时缓存被清空，刷新结果可能已经过期
+            delegate.removeObject(key);
+          }
+        }
+      } finally {
+        refreshes.remove(key);
+      }
+    });
+  }
+
+  private static Object copy(Object value) {
+    if (value != null && !(value instanceof Serializable)) {
+      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + value);
+    }
+    return SerializedCache.deserialize(SerializedCache.serialize((Serializable) value));
+  }
+
+  /**
+   * A value, the time it was put and how long it is kept.
+   */
+  static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object value;
+    private final long created;
+    private final long ttl;
+
+    Entry(Object value, long created, long ttl) {
+      this.value = value;
+      this.created = created;
+      this.ttl = ttl;
+    }
+  }
+
+}
@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -23,12 +27,17 @@ import org.apache.ibatis.logging.LogFactory;
  * 日志装饰器， 缓存增加日志功能
  * @author Clinton Begin
  */
-public class LoggingCache implements Cache {
+public class LoggingCache implements ThreadSafeCache {
 
   private final Log log;
   private final Cache delegate;
+  /**
+   * 保留给子类读取，并发访问时可能丢失计数，统计信息使用 {@link #requestCount} 和 {@link #hitCount}
+   */
   protected int requests = 0;
   protected int hits = 0;
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
@@ -50,6 +59,11 @@ public class LoggingCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public void putObject(Object key, Object object, long ttl) {
+    delegate.putObject(key, object, ttl);
+  }
+
   /**
    * 从缓存中读取一条信息
    *
@@ -61,10 +75,12 @@ public class LoggingCache implements Cache {
   public Object getObject(Object key) {
     // 请求缓存次数
     requests++;
+    requestCount.increment();
     final Object value = delegate.getObject(key);
     if (value != null) {
       // 命中缓存次数
       hits++;
+      hitCount.increment();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -82,6 +98,20 @@ public class LoggingCache implements Cache {
     delegate.clear();
   }
 
+  /**
+   * Returns the statistics of the decorated caches or, when none of them records any, the hits and misses counted by
+   * this decorator.
+   */
+  @Override
+  public CacheStats getStats() {
+    CacheStats stats = delegate.getStats();
+    if (stats != null) {
+      return stats;
+    }
+    long hitSum = hitCount.sum();
+    return new CacheStats(hitSum, requestCount.sum() - hitSum, 0);
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -93,7 +123,7 @@ public class LoggingCache implements Cache {
   }
 
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return (double) hitCount.sum() / (double) requestCount.sum();
   }
 
 }
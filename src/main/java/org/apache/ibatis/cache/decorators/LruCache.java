@@ -19,6 +19,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * Lru (least recently used) cache decorator.
@@ -112,6 +113,11 @@ public class LruCache implements Cache {
     keyMap.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
   /**
    * 向KeyMap中存入当前的键，并删除最久未访问的数据
    * @param key key
@@ -18,13 +18,15 @@ package org.apache.ibatis.cache.decorators;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
 
 /**
  * 定时清理装饰器，为缓存增加定时刷新功能
  *
  * @author Clinton Begin
  */
-public class ScheduledCache implements Cache {
+public class ScheduledCache implements ThreadSafeCache {
 
   /**
    * 被装饰的对象
@@ -34,12 +36,12 @@ public class ScheduledCache implements Cache {
   /**
    * 清理的时间间隔
    */
-  protected long clearInterval;
+  protected volatile long clearInterval;
 
   /**
    * 上次清理的时刻
    */
-  protected long lastClear;
+  protected volatile long lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -68,6 +70,12 @@ public class ScheduledCache implements Cache {
     delegate.putObject(key, object);
   }
 
+  @Override
+  public void putObject(Object key, Object object, long ttl) {
+    clearWhenStale();
+    delegate.putObject(key, object, ttl);
+  }
+
   @Override
   public Object getObject(Object key) {
     return clearWhenStale() ? null : delegate.getObject(key);
@@ -85,6 +93,11 @@ public class ScheduledCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
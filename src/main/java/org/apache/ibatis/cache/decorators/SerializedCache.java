@@ -26,6 +26,8 @@ import java.io.Serializable;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.SerialFilterChecker;
 
@@ -44,7 +46,7 @@ import org.apache.ibatis.io.SerialFilterChecker;
  *
  * @author Clinton Begin
  */
-public class SerializedCache implements Cache {
+public class SerializedCache implements ThreadSafeCache {
 
   private final Cache delegate;
 
@@ -64,8 +66,13 @@ public class SerializedCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
+    putObject(key, object, 0);
+  }
+
+  @Override
+  public void putObject(Object key, Object object, long ttl) {
     if (object == null || object instanceof Serializable) {
-      delegate.putObject(key, serialize((Serializable) object));
+      delegate.putObject(key, serialize((Serializable) object), ttl);
     } else {
       throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
     }
@@ -87,6 +94,11 @@ public class SerializedCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -97,7 +109,7 @@ public class SerializedCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private byte[] serialize(Serializable value) {
+  static byte[] serialize(Serializable value) {
     try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
       oos.writeObject(value);
@@ -108,7 +120,7 @@ public class SerializedCache implements Cache {
     }
   }
 
-  private Serializable deserialize(byte[] value) {
+  static Serializable deserialize(byte[] value) {
     SerialFilterChecker.check();
     Serializable result;
     try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
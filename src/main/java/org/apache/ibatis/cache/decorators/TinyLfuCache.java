@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+
+/**
+ * Window TinyLFU cache decorator.
+ * <p>
+ * New keys enter a small LRU window (1% of the capacity). Keys leaving the window compete with the least recently used
+ * key of the main area, and only the one that was accessed more often according to a {@link FrequencySketch} is kept.
+ * The main area is a segmented LRU: keys hit again while on probation are promoted to the protected segment. This
+ * keeps frequently used entries in the cache while a one-off scan only churns the window.
+ * <p>
+ * Hits, misses and evictions are available through {@link #getStats()}.
+ */
+public class TinyLfuCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Object> window = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Object> probation = new LinkedHashMap<>(16, .75F, true);
+  private final Map<Object, Object> protectedKeys = new LinkedHashMap<>(16, .75F, true);
+  private FrequencySketch sketch;
+  private int maximumWindowSize;
+  private int maximumMainSize;
+  private int maximumProtectedSize;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * Sets the maximum number of entries, which also resets the frequency history.
+   *
+   * @param size
+   *          the capacity
+   */
+  public void setSize(final int size) {
+    int capacity = Math.max(2, size);
+    maximumWindowSize = Math.max(1, capacity / 100);
+    maximumMainSize = capacity - maximumWindowSize;
+    maximumProtectedSize = maximumMainSize * 4 / 5;
+    sketch = new FrequencySketch(capacity);
+    while (window.size() + probation.size() + protectedKeys.size() > capacity) {
+      evict(eldestOfMain());
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    if (!onHit(key)) {
+      window.put(key, key);
+      if (window.size() > maximumWindowSize) {
+        admit(removeEldest(window));
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    sketch.increment(key);
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      missCount++;
+    } else {
+      hitCount++;
+      onHit(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    if (window.remove(key) == null && probation.remove(key) == null) {
+      protectedKeys.remove(key);
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    window.clear();
+    probation.clear();
+    protectedKeys.clear();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return new CacheStats(hitCount, missCount, evictionCount);
+  }
+
+  /**
+   * Moves a tracked key to the most recently used position of its segment, promoting it out of probation.
+   *
+   * @return false if the key is not tracked
+   */
+  private boolean onHit(Object key) {
+    if (window.get(key) != null || protectedKeys.get(key) != null) {
+      return true;
+    }
+    if (probation.remove(key) == null) {
+      return false;
+    }
+    protectedKeys.put(key, key);
+    if (protectedKeys.size() > maximumProtectedSize) {
+      // demote to probation
+      Object demoted = removeEldest(protectedKeys);
+      probation.put(demoted, demoted);
+    }
+    return true;
+  }
+
+  /**
+   * Lets a key evicted from the window into the main area if it is used more often than the main area's victim.
+   */
+  private void admit(Object candidate) {
+    if (probation.size() + protectedKeys.size() < maximumMainSize) {
+      probation.put(candidate, candidate);
+      return;
+    }
+    Object victim = eldestOfMain();
+    if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+      evict(victim);
+      probation.put(candidate, candidate);
+    } else {
+      evictionCount++;
+      delegate.removeObject(candidate);
+    }
+  }
+
+  private Object eldestOfMain() {
+    Map<Object, Object> segment = probation.isEmpty() ? protectedKeys : probation;
+    return segment.isEmpty() ? window.keySet().iterator().next() : segment.keySet().iterator().next();
+  }
+
+  private void evict(Object key) {
+    evictionCount++;
+    if (probation.remove(key) == null && protectedKeys.remove(key) == null) {
+      window.remove(key);
+    }
+    delegate.removeObject(key);
+  }
+
+  private static Object removeEldest(Map<Object, Object> segment) {
+    Iterator<Object> iterator = segment.keySet().iterator();
+    Object eldest = iterator.next();
+    iterator.remove();
+    return eldest;
+  }
+
+}
@@ -16,9 +16,12 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -53,6 +56,11 @@ public class TransactionalCache implements Cache {
    */
   private final Map<Object, Object> entriesToAddOnCommit;
 
+  /**
+   * 事务提交时需要写入缓存的数据中，有自己过期时间的数据的过期时间
+   */
+  private final Map<Object, Long> ttlsToAddOnCommit;
+
   /**
    * 缓存查询未命中的数据
    */
@@ -62,6 +70,7 @@ public class TransactionalCache implements Cache {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
+    this.ttlsToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
   }
 
@@ -93,10 +102,62 @@ public class TransactionalCache implements Cache {
     }
   }
 
+  /**
+   * Gets the value of a key, or loads it on a miss. The loaded value is added to the cache on commit like a value given
+   * to {@link #putObject(Object, Object, long)}.
+   * <p>
+   * When the cache is a {@link LoadingCache}, sessions that miss the same key at the same time share one load, and get
+   * its value when the loading session commits. Once this session has cleared the cache, its selects may see its own
+   * uncommitted changes, so it loads alone.
+   *
+   * @param key
+   *          the key
+   * @param loader
+   *          loads the value in this session
+   * @param ttl
+   *          the milliseconds a loaded value is kept, or 0 to keep it like any other value of the cache
+   * @return the value
+   * @throws SQLException
+   *           if the loader fails
+   * @since 3.5.6
+   */
+  public Object getObject(Object key, CacheLoader loader, long ttl) throws SQLException {
+    if (!(delegate instanceof LoadingCache)) {
+      Object object = getObject(key);
+      if (object == null) {
+        object = loader.load();
+        putObject(key, object, ttl);
+      }
+      return object;
+    }
+    if (entriesToAddOnCommit.containsKey(key)) {
+      // 本会话已经加载，其它会话在等待本会话提交，不能再等待自己
+      return entriesToAddOnCommit.get(key);
+    }
+    LoadingCache loadingCache = (LoadingCache) delegate;
+    Object object = clearOnCommit ? null : loadingCache.getObject(key, loader);
+    if (object == null) {
+      entriesMissedInCache.add(key);
+      object = clearOnCommit ? loader.load() : loadingCache.load(key, loader);
+      putObject(key, object, ttl);
+    }
+    return object;
+  }
+
   @Override
   public void putObject(Object key, Object object) {
+    putObject(key, object, 0);
+  }
+
+  @Override
+  public void putObject(Object key, Object object, long ttl) {
     // 暂存于  entriesToAddOnCommit
     entriesToAddOnCommit.put(key, object);
+    if (ttl > 0) {
+      ttlsToAddOnCommit.put(key, ttl);
+    } else {
+      ttlsToAddOnCommit.remove(key);
+    }
   }
 
   @Override
@@ -108,6 +169,12 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    ttlsToAddOnCommit.clear();
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
   }
 
   /**
@@ -133,12 +200,18 @@ public class TransactionalCache implements Cache {
   private void reset() {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
+    ttlsToAddOnCommit.clear();
     entriesMissedInCache.clear();
   }
 
   private void flushPendingEntries() {
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+      Long ttl = ttlsToAddOnCommit.get(entry.getKey());
+      if (ttl == null) {
+        delegate.putObject(entry.getKey(), entry.getValue());
+      } else {
+        delegate.putObject(entry.getKey(), entry.getValue(), ttl);
+      }
     }
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
@@ -21,6 +21,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * Weak Reference cache decorator.
@@ -117,6 +118,11 @@ public class WeakCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public CacheStats getStats() {
+    return delegate.getStats();
+  }
+
   /**
    * 把值已经被JVM清理掉的缓存数据从缓存中删除
    */
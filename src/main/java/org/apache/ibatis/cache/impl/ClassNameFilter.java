@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class name patterns with the syntax of the JEP-290 {@code jdk.serialFilter} property: {@code ;} separated patterns,
+ * {@code !} to reject, {@code pkg.*} for the classes of a package, {@code pkg.**} for its sub packages too,
+ * {@code prefix*} and {@code *}. The first matching pattern decides; a class no pattern matches is allowed, so a filter
+ * that only allows some classes ends with {@code !*}. Limits like {@code maxdepth=} do not apply and are ignored.
+ *
+ * @since 3.5.6
+ */
+final class ClassNameFilter {
+
+  private final String patterns;
+  private final List<String> names = new ArrayList<>();
+  private final List<Boolean> allowed = new ArrayList<>();
+
+  ClassNameFilter(String patterns) {
+    this.patterns = patterns;
+    for (String pattern : patterns.split(";")) {
+      pattern = pattern.trim();
+      if (pattern.isEmpty() || pattern.indexOf('=') >= 0) {
+        continue;
+      }
+      boolean allow = !pattern.startsWith("!");
+      if (!allow) {
+        pattern = pattern.substring(1).trim();
+      }
+      // 模块名不影响匹配
+      int slash = pattern.indexOf('/');
+      if (slash >= 0) {
+        pattern = pattern.substring(slash + 1);
+      }
+      if (!pattern.isEmpty()) {
+        names.add(pattern);
+        allowed.add(allow);
+      }
+    }
+  }
+
+  boolean isAllowed(String className) {
+    for (int i = 0; i < names.size(); i++) {
+      if (matches(names.get(i), className)) {
+        return allowed.get(i);
+      }
+    }
+    return true;
+  }
+
+  private static boolean matches(String pattern, String className) {
+    if (pattern.endsWith(".**")) {
+      return className.startsWith(pattern.substring(0, pattern.length() - 2));
+    }
+    if (pattern.endsWith(".*")) {
+      String packageName = pattern.substring(0, pattern.length() - 1);
+      return className.startsWith(packageName) && className.indexOf('.', packageName.length()) < 0;
+    }
+    if (pattern.endsWith("*")) {
+      return className.startsWith(pattern.substring(0, pattern.length() - 1));
+    }
+    return className.equals(pattern);
+  }
+
+  @Override
+  public String toString() {
+    return patterns;
+  }
+
+}
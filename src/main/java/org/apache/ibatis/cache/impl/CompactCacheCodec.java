@@ -0,0 +1,557 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.cache.CacheCodec;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 紧凑编码器，不使用 Java 序列化
+ *
+ * <p>Writes the values select results are made of with a one byte tag and no class descriptor: strings, numbers,
+ * dates and times, byte arrays, enums, arrays, lists, sets, maps, and result objects. A result object is written as its
+ * class name and the values of its properties that have a setter, or a field MyBatis can set, the way a result map
+ * would fill it. Class and property names are written once per value; an object found twice, like the parent an
+ * association points back to, is written once too.
+ *
+ * <p>Result objects need a default constructor. Objects built through a constructor result mapping and lazy loading
+ * proxies cannot be encoded.
+ *
+ * @since 3.5.6
+ */
+public class CompactCacheCodec implements CacheCodec {
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte TRUE = 7;
+  private static final byte FALSE = 8;
+  private static final byte DOUBLE = 9;
+  private static final byte FLOAT = 10;
+  private static final byte CHARACTER = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte SQL_DATE = 15;
+  private static final byte TIME = 16;
+  private static final byte TIMESTAMP = 17;
+  private static final byte LOCAL_DATE = 18;
+  private static final byte LOCAL_TIME = 19;
+  private static final byte LOCAL_DATE_TIME = 20;
+  private static final byte INSTANT = 21;
+  private static final byte OFFSET_DATE_TIME = 22;
+  private static final byte ZONED_DATE_TIME = 23;
+  private static final byte BYTES = 24;
+  private static final byte ENUM = 25;
+  private static final byte COLLECTION = 26;
+  private static final byte MAP = 27;
+  private static final byte ARRAY = 28;
+  private static final byte BEAN = 29;
+
+  /**
+   * 保留类型的集合，其它集合解码为第一个同类的集合：List 为 ArrayList，Set 为 LinkedHashSet，Map 为 LinkedHashMap
+   */
+  private static final List<Class<?>> COLLECTION_TYPES = Arrays.asList(ArrayList.class, LinkedHashSet.class,
+      LinkedHashMap.class, LinkedList.class, HashSet.class, TreeSet.class, HashMap.class, TreeMap.class);
+  private static final List<Supplier<Object>> COLLECTION_FACTORIES = Arrays.asList(ArrayList::new,
+      LinkedHashSet::new, LinkedHashMap::new, LinkedList::new, HashSet::new, TreeSet::new, HashMap::new, TreeMap::new);
+
+  private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<>();
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  static {
+    for (Class<?> type : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class, long.class,
+        float.class, double.class }) {
+      PRIMITIVE_TYPES.put(type.getName(), type);
+    }
+  }
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<>();
+
+  @Override
+  public void encode(Object value, DataOutput output) throws IOException {
+    new Encoder(output).write(value);
+  }
+
+  @Override
+  public Object decode(DataInput input, ClassResolver classResolver) throws IOException, ClassNotFoundException {
+    return new Decoder(input, classResolver).read();
+  }
+
+  private BeanType beanType(Class<?> type) {
+    return beanTypes.computeIfAbsent(type, key -> new BeanType(reflectorFactory.findForClass(key)));
+  }
+
+  private static int collectionType(Object collection, int defaultType) {
+    int type = COLLECTION_TYPES.indexOf(collection.getClass());
+    // 带比较器的有序集合无法重建，按默认类型解码
+    if (type < 0 || collection instanceof SortedSet && ((SortedSet<?>) collection).comparator() != null
+        || collection instanceof SortedMap && ((SortedMap<?, ?>) collection).comparator() != null) {
+      return defaultType;
+    }
+    return type;
+  }
+
+  private final class Encoder {
+
+    private final DataOutput output;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final Map<String, Integer> names = new HashMap<>();
+
+    Encoder(DataOutput output) {
+      this.output = output;
+    }
+
+    void write(Object value) throws IOException {
+      if (value == null) {
+        output.writeByte(NULL);
+      } else if (value instanceof String) {
+        output.writeByte(STRING);
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        output.writeByte(INTEGER);
+        output.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        output.writeByte(LONG);
+        output.writeLong((Long) value);
+      } else if (value instanceof Short) {
+        output.writeByte(SHORT);
+        output.writeShort((Short) value);
+      } else if (value instanceof Byte) {
+        output.writeByte(BYTE);
+        output.writeByte((Byte) value);
+      } else if (value instanceof Boolean) {
+        output.writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (value instanceof Double) {
+        output.writeByte(DOUBLE);
+        output.writeDouble((Double) value);
+      } else if (value instanceof Float) {
+        output.writeByte(FLOAT);
+        output.writeFloat((Float) value);
+      } else if (value instanceof Character) {
+        output.writeByte(CHARACTER);
+        output.writeChar((Character) value);
+      } else if (value.getClass() == BigDecimal.class) {
+        output.writeByte(BIG_DECIMAL);
+        output.writeInt(((BigDecimal) value).scale());
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+      } else if (value.getClass() == BigInteger.class) {
+        output.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (value instanceof Date) {
+        writeDate((Date) value);
+      } else if (value instanceof LocalDate) {
+        output.writeByte(LOCAL_DATE);
+        output.writeLong(((LocalDate) value).toEpochDay());
+      } else if (value instanceof LocalTime) {
+        output.writeByte(LOCAL_TIME);
+        output.writeLong(((LocalTime) value).toNanoOfDay());
+      } else if (value instanceof LocalDateTime) {
+        output.writeByte(LOCAL_DATE_TIME);
+        output.writeLong(((LocalDateTime) value).toLocalDate().toEpochDay());
+        output.writeLong(((LocalDateTime) value).toLocalTime().toNanoOfDay());
+      } else if (value instanceof Instant) {
+        output.writeByte(INSTANT);
+        output.writeLong(((Instant) value).getEpochSecond());
+        output.writeInt(((Instant) value).getNano());
+      } else if (value instanceof OffsetDateTime) {
+        output.writeByte(OFFSET_DATE_TIME);
+        writeString(value.toString());
+      } else if (value instanceof ZonedDateTime) {
+        output.writeByte(ZONED_DATE_TIME);
+        writeString(value.toString());
+      } else if (value instanceof byte[]) {
+        output.writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        output.writeByte(ENUM);
+        writeName(((Enum<?>) value).getDeclaringClass().getName());
+        writeString(((Enum<?>) value).name());
+      } else {
+        writeObject(value);
+      }
+    }
+
+    private void writeDate(Date value) throws IOException {
+      Class<?> type = value.getClass();
+      if (type == Timestamp.class) {
+        output.writeByte(TIMESTAMP);
+        output.writeLong(value.getTime());
+        output.writeInt(((Timestamp) value).getNanos());
+      } else if (type == java.sql.Date.class || type == Time.class || type == Date.class) {
+        output.writeByte(type == Date.class ? DATE : type == Time.class ? TIME : SQL_DATE);
+        output.writeLong(value.getTime());
+      } else {
+        // 日期类型的子类按结果对象写入
+        writeObject(value);
+      }
+    }
+
+    /**
+     * 可能被多次引用的对象，第二次写入时只写入其序号
+     */
+    private void writeObject(Object value) throws IOException {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        output.writeByte(REFERENCE);
+        output.writeInt(reference);
+        return;
+      }
+      references.put(value, references.size());
+      if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        output.writeByte(COLLECTION);
+        output.writeByte(collectionType(collection, collection instanceof Set ? 1 : 0));
+        output.writeInt(collection.size());
+        for (Object element : collection) {
+          write(element);
+        }
+      } else if (value instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        output.writeByte(MAP);
+        output.writeByte(collectionType(map, 2));
+        output.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(entry.getKey());
+          write(entry.getValue());
+        }
+      } else if (value.getClass().isArray()) {
+        int length = Array.getLength(value);
+        output.writeByte(ARRAY);
+        writeName(value.getClass().getComponentType().getName());
+        output.writeInt(length);
+        for (int i = 0; i < length; i++) {
+          write(Array.get(value, i));
+        }
+      } else {
+        writeBean(value);
+      }
+    }
+
+    private void writeBean(Object value) throws IOException {
+      Class<?> type = value.getClass();
+      if (Proxy.isProxyClass(type) || type.getName().contains("$$")) {
+        throw new NotSerializableException(type.getName() + " is a proxy");
+      }
+      BeanType beanType = beanType(type);
+      if (beanType.constructor == null) {
+        throw new NotSerializableException(type.getName() + " has no default constructor");
+      }
+      output.writeByte(BEAN);
+      writeName(type.getName());
+      output.writeInt(beanType.properties.length);
+      for (int i = 0; i < beanType.properties.length; i++) {
+        Object propertyValue;
+        try {
+          propertyValue = beanType.getters[i].invoke(value, NO_ARGUMENTS);
+        } catch (ReflectiveOperationException e) {
+          throw new IOException("Could not get property '" + beanType.properties[i] + "' of " + type.getName()
+              + ". Cause: " + e, e);
+        }
+        writeName(beanType.properties[i]);
+        write(propertyValue);
+      }
+    }
+
+    /**
+     * 类名和属性名只在第一次出现时写入，之后写入其序号
+     */
+    private void writeName(String name) throws IOException {
+      Integer index = names.get(name);
+      if (index != null) {
+        output.writeInt(index);
+      } else {
+        names.put(name, names.size());
+        output.writeInt(-1);
+        writeString(name);
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      // writeUTF 最多只能写入 65535 个字节
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  private final class Decoder {
+
+    private final DataInput input;
+    private final ClassResolver classResolver;
+    private final List<Object> references = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    Decoder(DataInput input, ClassResolver classResolver) {
+      this.input = input;
+      this.classResolver = classResolver;
+    }
+
+    Object read() throws IOException, ClassNotFoundException {
+      byte tag = input.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(input.readInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return input.readInt();
+        case LONG:
+          return input.readLong();
+        case SHORT:
+          return input.readShort();
+        case BYTE:
+          return input.readByte();
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case DOUBLE:
+          return input.readDouble();
+        case FLOAT:
+          return input.readFloat();
+        case CHARACTER:
+          return input.readChar();
+        case BIG_DECIMAL:
+          int scale = input.readInt();
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(input.readLong());
+        case SQL_DATE:
+          return new java.sql.Date(input.readLong());
+        case TIME:
+          return new Time(input.readLong());
+        case TIMESTAMP:
+          Timestamp timestamp = new Timestamp(input.readLong());
+          timestamp.setNanos(input.readInt());
+          return timestamp;
+        case LOCAL_DATE:
+          return LocalDate.ofEpochDay(input.readLong());
+        case LOCAL_TIME:
+          return LocalTime.ofNanoOfDay(input.readLong());
+        case LOCAL_DATE_TIME:
+          LocalDate date = LocalDate.ofEpochDay(input.readLong());
+          return LocalDateTime.of(date, LocalTime.ofNanoOfDay(input.readLong()));
+        case INSTANT:
+          long seconds = input.readLong();
+          return Instant.ofEpochSecond(seconds, input.readInt());
+        case OFFSET_DATE_TIME:
+          return OffsetDateTime.parse(readString());
+        case ZONED_DATE_TIME:
+          return ZonedDateTime.parse(readString());
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          return readEnum();
+        case COLLECTION:
+          return readCollection();
+        case MAP:
+          return readMap();
+        case ARRAY:
+          return readArray();
+        case BEAN:
+          return readBean();
+        default:
+          throw new StreamCorruptedException("Unknown value tag " + tag);
+      }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readEnum() throws IOException, ClassNotFoundException {
+      Class<?> type = classResolver.resolve(readName());
+      if (!type.isEnum()) {
+        throw new InvalidClassException(type.getName(), "not an enum");
+      }
+      return Enum.valueOf((Class) type, readString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection() throws IOException, ClassNotFoundException {
+      Collection<Object> collection = (Collection<Object>) COLLECTION_FACTORIES.get(input.readByte()).get();
+      references.add(collection);
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+        collection.add(read());
+      }
+      return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap() throws IOException, ClassNotFoundException {
+      Map<Object, Object> map = (Map<Object, Object>) COLLECTION_FACTORIES.get(input.readByte()).get();
+      references.add(map);
+      int size = input.readInt();
+      for (int i = 0; i < size; i++) {
+        Object key = read();
+        map.put(key, read());
+      }
+      return map;
+    }
+
+    private Object readArray() throws IOException, ClassNotFoundException {
+      String componentName = readName();
+      Class<?> componentType = PRIMITIVE_TYPES.get(componentName);
+      if (componentType == null) {
+        componentType = classResolver.resolve(componentName);
+      }
+      Object array = Array.newInstance(componentType, input.readInt());
+      references.add(array);
+      for (int i = 0; i < Array.getLength(array); i++) {
+        Array.set(array, i, read());
+      }
+      return array;
+    }
+
+    private Object readBean() throws IOException, ClassNotFoundException {
+      Class<?> type = classResolver.resolve(readName());
+      BeanType beanType = beanType(type);
+      Object bean;
+      try {
+        bean = beanType.constructor.newInstance();
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        throw new InvalidClassException(type.getName(), "could not be instantiated. Cause: " + e);
+      }
+      references.add(bean);
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String property = readName();
+        Object value = read();
+        // 编码后类可能已经改变，不存在的属性忽略
+        Invoker setter = beanType.setters.get(property);
+        if (setter != null) {
+          try {
+            setter.invoke(bean, new Object[] { value });
+          } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new InvalidClassException(type.getName(), "could not set property '" + property + "'. Cause: " + e);
+          }
+        }
+      }
+      return bean;
+    }
+
+    private String readName() throws IOException {
+      int index = input.readInt();
+      if (index >= 0) {
+        return names.get(index);
+      }
+      String name = readString();
+      names.add(name);
+      return name;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return bytes;
+    }
+  }
+
+  /**
+   * 结果对象的类型：默认构造函数，以及按名称排序的可以读写的属性
+   */
+  private static final class BeanType {
+
+    private final Constructor<?> constructor;
+    private final String[] properties;
+    private final Invoker[] getters;
+    private final Map<String, Invoker> setters = new HashMap<>();
+
+    BeanType(Reflector reflector) {
+      Constructor<?> defaultConstructor = null;
+      if (reflector.hasDefaultConstructor()) {
+        defaultConstructor = reflector.getDefaultConstructor();
+        try {
+          if (Reflector.canControlMemberAccessible()) {
+            defaultConstructor.setAccessible(true);
+          }
+        } catch (RuntimeException e) {
+          // 无法访问的构造函数
+          defaultConstructor = null;
+        }
+      }
+      this.constructor = defaultConstructor;
+      this.properties = Arrays.stream(reflector.getGetablePropertyNames()).filter(reflector::hasSetter).sorted()
+          .toArray(String[]::new);
+      this.getters = new Invoker[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        getters[i] = reflector.getGetInvoker(properties[i]);
+      }
+      for (String property : reflector.getSetablePropertyNames()) {
+        setters.put(property, reflector.getSetInvoker(property));
+      }
+    }
+  }
+
+}
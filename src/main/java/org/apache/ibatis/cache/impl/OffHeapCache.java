@@ -0,0 +1,660 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheCodec;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 堆外缓存，数据编码后保存在堆外内存中
+ *
+ * <p>Keeps its values encoded in direct {@link ByteBuffer} slabs, or in slabs of memory mapped files when
+ * {@code directory} is set, so that a large cache grows neither the heap nor the work of the garbage collector. Only
+ * the keys and the location of their values stay on the heap.
+ *
+ * <p>Values are appended to the current slab. When it is full, the next slab is emptied and the values it held are
+ * evicted, so the oldest values go first. A value larger than a slab is not cached.
+ *
+ * <p>Values are decoded straight from their slab, so every read returns a new copy, like a read/write cache does, and
+ * no {@link java.io.ObjectInputStream} is involved. They are encoded by a {@link CacheCodec},
+ * {@link CompactCacheCodec} by default. Before a class named in a value is loaded, its name is checked against the
+ * {@code classFilter} patterns, or the JEP-290 {@code jdk.serialFilter} ones when it is not set.
+ *
+ * <pre>
+ * &lt;cache type="org.apache.ibatis.cache.impl.OffHeapCache"&gt;
+ *   &lt;property name="capacity" value="4294967296"/&gt;
+ *   &lt;property name="classFilter" value="com.example.domain.**;!*"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * @since 3.5.6
+ */
+public class OffHeapCache implements ThreadSafeCache, InitializingObject {
+
+  private static final Log log = LogFactory.getLog(OffHeapCache.class);
+  /* Property key for the JEP-290 serialization filters */
+  private static final String JDK_SERIAL_FILTER = "jdk.serialFilter";
+  private static boolean firstMissingFilter = true;
+
+  private final String id;
+
+  /**
+   * 键及其数据在堆外内存中的位置
+   */
+  private final ConcurrentHashMap<Object, Location> index = new ConcurrentHashMap<>();
+
+  /**
+   * 写入数据和回收分片时持有
+   */
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile Slab[] slabs;
+  private int currentSlab;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private long capacity = 64L * 1024 * 1024;
+  private int slabSize = 4 * 1024 * 1024;
+  private String directory;
+  private CacheCodec codec = new CompactCacheCodec();
+  private volatile ClassNameFilter classFilter;
+
+  /**
+   * 已通过类过滤器检查并加载的类
+   */
+  private final Map<String, Class<?>> resolvedClasses = new ConcurrentHashMap<>();
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public void initialize() {
+    writeLock.lock();
+    try {
+      slabs();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      // 未命中的数据，读取时同样为 null
+      index.remove(key);
+      return;
+    }
+    EncodedValue encoded = encode(value);
+    if (encoded.size() > slabSize) {
+      index.remove(key);
+      return;
+    }
+    writeLock.lock();
+    try {
+      Slab[] slabs = slabs();
+      Slab slab = slabs[currentSlab];
+      if (slab.position + encoded.size() > slabSize) {
+        currentSlab = (currentSlab + 1) % slabs.length;
+        slab = slabs[currentSlab];
+        recycle(slab, true);
+      }
+      Location location = new Location(key, slab, slab.position, encoded.size(), slab.generation);
+      encoded.writeTo(slab.buffer, slab.position);
+      slab.locations.add(location);
+      slab.position += encoded.size();
+      index.put(key, location);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Location location = index.get(key);
+    Object value = location == null ? null : read(location);
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // 返回值未被使用，不解码
+    index.remove(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      index.clear();
+      if (slabs != null) {
+        for (Slab slab : slabs) {
+          recycle(slab, false);
+        }
+      }
+      currentSlab = 0;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @param capacity
+   *          the bytes of off-heap memory the values are kept in, 64 MB by default. It is rounded up to a whole number
+   *          of slabs, at least two.
+   */
+  public void setCapacity(long capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive but was " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * @param slabSize
+   *          the bytes of a slab, 4 MB by default. It is the largest value that can be cached, and the bytes evicted
+   *          at once when the cache is full.
+   */
+  public void setSlabSize(int slabSize) {
+    if (slabSize <= 0) {
+      throw new IllegalArgumentException("The slab size must be positive but was " + slabSize);
+    }
+    this.slabSize = slabSize;
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory
+   *          the directory of the files the slabs are mapped to, or {@code null} (the default) for direct buffers.
+   *          The files are deleted when the JVM exits.
+   */
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public CacheCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * @param type
+   *          the class name of the {@link CacheCodec}, that must have a default constructor
+   */
+  public void setCodec(String type) {
+    try {
+      this.codec = (CacheCodec) Resources.classForName(type).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error creating cache codec " + type + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * @param classFilter
+   *          the patterns of the classes that may be decoded, with the syntax of {@code jdk.serialFilter}, e.g.
+   *          {@code com.example.domain.**;!*}
+   */
+  public void setClassFilter(String classFilter) {
+    this.classFilter = classFilter == null ? null : new ClassNameFilter(classFilter);
+    resolvedClasses.clear();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  /**
+   * 第一次写入前分配分片，调用时需持有写锁
+   */
+  private Slab[] slabs() {
+    if (slabs == null) {
+      if (classFilter == null) {
+        String serialFilter = System.getProperty(JDK_SERIAL_FILTER, Security.getProperty(JDK_SERIAL_FILTER));
+        if (serialFilter != null) {
+          classFilter = new ClassNameFilter(serialFilter);
+        } else if (firstMissingFilter) {
+          firstMissingFilter = false;
+          log.warn("As you are using an off-heap cache that decodes objects, it is recommended to set its classFilter "
+              + "property or to define the JEP-290 serial filter.");
+        }
+      }
+      int count = (int) Math.max(2, (capacity + slabSize - 1) / slabSize);
+      Slab[] allocated = new Slab[count];
+      for (int i = 0; i < count; i++) {
+        allocated[i] = new Slab(directory == null ? ByteBuffer.allocateDirect(slabSize) : map());
+      }
+      slabs = allocated;
+    }
+    return slabs;
+  }
+
+  private ByteBuffer map() {
+    try {
+      File file = File.createTempFile("mybatis-cache-", ".slab", new File(directory));
+      file.deleteOnExit();
+      try (RandomAccessFile slabFile = new RandomAccessFile(file, "rw")) {
+        // 映射在文件关闭后仍然有效
+        return slabFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, slabSize);
+      }
+    } catch (IOException e) {
+      throw new CacheException("Error mapping a slab of cache " + id + " in " + directory + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 清空分片，移除仍指向它的键。正在读取该分片的线程读完后才能回收
+   */
+  private void recycle(Slab slab, boolean evict) {
+    long stamp = slab.lock.writeLock();
+    try {
+      if (evict) {
+        for (Location location : slab.locations) {
+          if (index.remove(location.key, location)) {
+            evictions.increment();
+          }
+        }
+      }
+      slab.locations.clear();
+      slab.position = 0;
+      slab.generation++;
+    } finally {
+      slab.lock.unlockWrite(stamp);
+    }
+  }
+
+  private EncodedValue encode(Object value) {
+    EncodedValue encoded = new EncodedValue();
+    try {
+      codec.encode(value, encoded);
+    } catch (IOException e) {
+      throw new CacheException("Error encoding object.  Cause: " + e, e);
+    }
+    return encoded;
+  }
+
+  private Object read(Location location) {
+    Slab slab = location.slab;
+    long stamp = slab.lock.readLock();
+    try {
+      if (slab.generation != location.generation) {
+        // 读取位置后分片已被回收
+        return null;
+      }
+      ByteBuffer buffer = slab.buffer.duplicate();
+      buffer.position(location.offset);
+      buffer.limit(location.offset + location.length);
+      return codec.decode(new ByteBufferInput(buffer), this::resolveClass);
+    } catch (IOException | ClassNotFoundException e) {
+      throw new CacheException("Error decoding object.  Cause: " + e, e);
+    } finally {
+      slab.lock.unlockRead(stamp);
+    }
+  }
+
+  private Class<?> resolveClass(String className) throws IOException, ClassNotFoundException {
+    Class<?> type = resolvedClasses.get(className);
+    if (type == null) {
+      ClassNameFilter filter = classFilter;
+      if (filter != null && !filter.isAllowed(className)) {
+        throw new InvalidClassException(className, "rejected by the class filter '" + filter + "' of cache " + id);
+      }
+      type = Resources.classForName(className);
+      resolvedClasses.put(className, type);
+    }
+    return type;
+  }
+
+  private static final class Slab {
+
+    private final ByteBuffer buffer;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * 以下字段在持有写锁时修改，generation 同时持有分片的写锁
+     */
+    private final List<Location> locations = new ArrayList<>();
+    private int position;
+    private long generation;
+
+    Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private static final class Location {
+
+    private final Object key;
+    private final Slab slab;
+    private final int offset;
+    private final int length;
+    private final long generation;
+
+    Location(Object key, Slab slab, int offset, int length, long generation) {
+      this.key = key;
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * 编码结果，直接复制到分片中
+   */
+  private static final class EncodedValue extends OutputStream implements DataOutput {
+
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    int size() {
+      return buffer.position();
+    }
+
+    void writeTo(ByteBuffer slabBuffer, int position) {
+      ByteBuffer target = slabBuffer.duplicate();
+      target.position(position);
+      target.put(buffer.array(), 0, buffer.position());
+    }
+
+    private ByteBuffer ensureCapacity(int length) {
+      if (buffer.remaining() < length) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+      }
+      return buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(1).put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      ensureCapacity(length).put(bytes, offset, length);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) {
+      write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) {
+      write(v);
+    }
+
+    @Override
+    public void writeShort(int v) {
+      ensureCapacity(2).putShort((short) v);
+    }
+
+    @Override
+    public void writeChar(int v) {
+      ensureCapacity(2).putChar((char) v);
+    }
+
+    @Override
+    public void writeInt(int v) {
+      ensureCapacity(4).putInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) {
+      ensureCapacity(8).putLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) {
+      writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) {
+      writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) {
+      for (int i = 0; i < s.length(); i++) {
+        write(s.charAt(i));
+      }
+    }
+
+    @Override
+    public void writeChars(String s) {
+      for (int i = 0; i < s.length(); i++) {
+        writeChar(s.charAt(i));
+      }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+      new DataOutputStream(this).writeUTF(s);
+    }
+  }
+
+  /**
+   * 直接从分片中读取数据，不复制到堆内
+   */
+  private static final class ByteBufferInput implements DataInput {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInput(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void readFully(byte[] bytes) throws IOException {
+      readFully(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int offset, int length) throws IOException {
+      if (buffer.remaining() < length) {
+        throw new EOFException();
+      }
+      buffer.get(bytes, offset, length);
+    }
+
+    @Override
+    public int skipBytes(int n) {
+      int skipped = Math.min(n, buffer.remaining());
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+      return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+      try {
+        return buffer.get();
+      } catch (BufferUnderflowException e) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+      return readByte() & 0xff;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+      try {
+        return buffer.getShort();
+      } catch (BufferUnderflowException e) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+      return readShort() & 0xffff;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+      return (char) readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      try {
+        return buffer.getInt();
+      } catch (BufferUnderflowException e) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public long readLong() throws IOException {
+      try {
+        return buffer.getLong();
+      } catch (BufferUnderflowException e) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+      return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * 和 {@link DataInputStream#readLine()} 一样，每个字节作为一个字符，行以 '\n'、'\r' 或 "\r\n" 结束
+     */
+    @Override
+    public String readLine() {
+      if (!buffer.hasRemaining()) {
+        return null;
+      }
+      StringBuilder line = new StringBuilder();
+      while (buffer.hasRemaining()) {
+        int c = buffer.get() & 0xff;
+        if (c == '\n') {
+          break;
+        }
+        if (c == '\r') {
+          if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+            buffer.get();
+          }
+          break;
+        }
+        line.append((char) c);
+      }
+      return line.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+      return DataInputStream.readUTF(this);
+    }
+  }
+
+}
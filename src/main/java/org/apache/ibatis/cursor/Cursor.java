@@ -16,6 +16,12 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
@@ -44,4 +50,50 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
    * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
    */
   int getCurrentIndex();
+
+  /**
+   * Returns a stream of the items of this cursor, closing the stream closes the cursor.
+   *
+   * @param parallel
+   *          whether the stream is parallel
+   * @return the stream
+   * @since 3.5.6
+   * @see #stream(boolean, int)
+   */
+  default Stream<T> stream(boolean parallel) {
+    return stream(parallel, CursorSpliterator.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Returns a stream of the items of this cursor, closing the stream closes the cursor.
+   * <p>
+   * The rows are fetched by one thread at a time, because the result set of the cursor cannot be shared between
+   * threads. A parallel stream takes the rows in batches of {@code batchSize} and hands every batch to another worker.
+   * The default cursor reads the column values of a row and lets the worker map them, when the result map is flat
+   * enough to be compiled: no nested result maps, nested queries or discriminator, a default object factory and
+   * properties set by the columns directly. Other result maps are still mapped by the thread that fetches the rows, so
+   * only the operations of the stream run in parallel.
+   * Like {@link #iterator()}, this can only be called once.
+   *
+   * @param parallel
+   *          whether the stream is parallel
+   * @param batchSize
+   *          the number of items handed to a worker at once
+   * @return the stream
+   * @since 3.5.6
+   */
+  default Stream<T> stream(boolean parallel, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+    }
+    return StreamSupport.stream(() -> new CursorSpliterator<T, T>(iterator(), Function.identity(), batchSize),
+        Spliterator.ORDERED, parallel)
+        .onClose(() -> {
+          try {
+            close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
 }
@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Splits the rows of a cursor into batches of a fixed size.
+ * <p>
+ * Every split takes the next batch of rows from the iterator of the cursor, so the cursor is only read by the thread
+ * that holds this spliterator, while the batches are processed by other workers. A row is turned into an item by the
+ * mapper of this spliterator, which runs on the worker that processes the batch. A cursor that can read the column
+ * values of a row without mapping them (see {@link org.apache.ibatis.cursor.defaults.DefaultCursor}) passes them as
+ * rows and maps them here, so the mapping is distributed as well. Other cursors pass their items as rows with the
+ * identity as mapper, and only the downstream operations of the stream run in parallel.
+ * <p>
+ * The default {@link Iterable#spliterator()} splits too, but hands out batches of 1024 items that grow by 1024 with
+ * every split, which leaves workers idle on small and medium result sets and buffers large ones.
+ *
+ * @param <R>
+ *          the type of the rows read from the cursor
+ * @param <T>
+ *          the type of the items
+ * @since 3.5.6
+ */
+public class CursorSpliterator<R, T> implements Spliterator<T> {
+
+  static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final Iterator<? extends R> rows;
+  private final Function<? super R, ? extends T> mapper;
+  private final int batchSize;
+
+  /**
+   * @param rows
+   *          the rows of the cursor, only read by the thread that holds this spliterator
+   * @param mapper
+   *          turns a row into an item, must not access the cursor
+   * @param batchSize
+   *          the number of rows handed to a worker at once
+   */
+  public CursorSpliterator(Iterator<? extends R> rows, Function<? super R, ? extends T> mapper, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+    }
+    this.rows = rows;
+    this.mapper = mapper;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (rows.hasNext()) {
+      action.accept(mapper.apply(rows.next()));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    rows.forEachRemaining(row -> action.accept(mapper.apply(row)));
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (!rows.hasNext()) {
+      return null;
+    }
+    Object[] batch = new Object[batchSize];
+    int size = 0;
+    do {
+      batch[size++] = rows.next();
+    } while (size < batchSize && rows.hasNext());
+    return new BatchSpliterator<>(batch, 0, size, mapper);
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED;
+  }
+
+  /**
+   * 一批已经读取的行，在处理该批次的线程中映射
+   */
+  private static class BatchSpliterator<R, T> implements Spliterator<T> {
+
+    private final Object[] batch;
+    private final Function<? super R, ? extends T> mapper;
+    private int index;
+    private final int fence;
+
+    BatchSpliterator(Object[] batch, int origin, int fence, Function<? super R, ? extends T> mapper) {
+      this.batch = batch;
+      this.index = origin;
+      this.fence = fence;
+      this.mapper = mapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (index < fence) {
+        action.accept(mapRow(index++));
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      while (index < fence) {
+        action.accept(mapRow(index++));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T mapRow(int i) {
+      R row = (R) batch[i];
+      // 释放已经映射的行
+      batch[i] = null;
+      return mapper.apply(row);
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      Spliterator<T> prefix = new BatchSpliterator<>(batch, index, mid, mapper);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+  }
+
+}
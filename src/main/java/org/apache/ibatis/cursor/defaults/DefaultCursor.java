@@ -16,6 +16,8 @@
 package org.apache.ibatis.cursor.defaults;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorSpliterator;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetWrapper;
 import org.apache.ibatis.mapping.ResultMap;
@@ -27,6 +29,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is the default implementation of a MyBatis Cursor.
@@ -119,6 +125,39 @@ public class DefaultCursor<T> implements Cursor<T> {
 
   @Override
   public Iterator<T> iterator() {
+    retrieveIterator();
+    return cursorIterator;
+  }
+
+  /**
+   * 并行流在结果映射可以编译时，只在当前线程读取每一行的列值，由处理批次的线程完成映射
+   */
+  @Override
+  public Stream<T> stream(boolean parallel, int batchSize) {
+    if (!parallel || resultMap.hasNestedResultMaps()) {
+      return Cursor.super.stream(parallel, batchSize);
+    }
+    final CompiledRowMapper rowMapper;
+    try {
+      rowMapper = resultSetHandler.compileRowMapper(rsw, resultMap);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    if (rowMapper == null) {
+      return Cursor.super.stream(parallel, batchSize);
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+    }
+    @SuppressWarnings("unchecked")
+    final Function<Object[], T> mapper = values -> (T) rowMapper.map(values);
+    return StreamSupport.stream(() -> {
+      retrieveIterator();
+      return new CursorSpliterator<>(new RowValuesIterator(rowMapper), mapper, batchSize);
+    }, Spliterator.ORDERED, true).onClose(this::close);
+  }
+
+  private void retrieveIterator() {
     if (iteratorRetrieved) {
       throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
     }
@@ -126,7 +165,6 @@ public class DefaultCursor<T> implements Cursor<T> {
       throw new IllegalStateException("A Cursor is already closed.");
     }
     iteratorRetrieved = true;
-    return cursorIterator;
   }
 
   @Override
@@ -193,6 +231,41 @@ public class DefaultCursor<T> implements Cursor<T> {
     return next;
   }
 
+  /**
+   * 从数据库读取下一行的列值，和 {@link #fetchNextUsingRowBound()} 一样处理边界，但不映射该行
+   *
+   * @return 列值，没有更多的行时返回 null
+   */
+  protected Object[] fetchNextRowValues(CompiledRowMapper rowMapper) {
+    if (isClosed()) {
+      return null;
+    }
+
+    try {
+      status = CursorStatus.OPEN;
+      ResultSet rs = rsw.getResultSet();
+      while (!rs.isClosed() && rs.next()) {
+        indexWithRowBound++;
+        // 跳过边界起始位置之前的行
+        if (indexWithRowBound < rowBounds.getOffset()) {
+          continue;
+        }
+        Object[] values = rowMapper.read(rs);
+        if (getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) {
+          close();
+          status = CursorStatus.CONSUMED;
+        }
+        return values;
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+
+    close();
+    status = CursorStatus.CONSUMED;
+    return null;
+  }
+
   private boolean isClosed() {
     return status == CursorStatus.CLOSED || status == CursorStatus.CONSUMED;
   }
@@ -220,6 +293,38 @@ public class DefaultCursor<T> implements Cursor<T> {
     }
   }
 
+  /**
+   * 并行流读取的行，只包含列值，索引和 {@link CursorIterator} 共用
+   */
+  private class RowValuesIterator implements Iterator<Object[]> {
+
+    private final CompiledRowMapper rowMapper;
+    private Object[] values;
+
+    RowValuesIterator(CompiledRowMapper rowMapper) {
+      this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (values == null) {
+        values = fetchNextRowValues(rowMapper);
+      }
+      return values != null;
+    }
+
+    @Override
+    public Object[] next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object[] next = values;
+      values = null;
+      cursorIterator.iteratorIndex++;
+      return next;
+    }
+  }
+
   protected class CursorIterator implements Iterator<T> {
 
     /**
@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.util.List;
+
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Chooses the fetch size of a result set that is read ahead of its consumer.
+ * <p>
+ * The fetch size is doubled when the consumer had to wait for rows and the producer did not, so that fewer round trips
+ * are made, and halved when the producer had to wait for the consumer and the consumer did not, so that fewer rows are
+ * held in the driver. It never exceeds the number of rows of the estimated width that fit in {@link #MAXIMUM_FETCH_BYTES}.
+ */
+class FetchSizeTuner {
+
+  static final int MINIMUM_FETCH_SIZE = 10;
+  static final int MAXIMUM_FETCH_SIZE = 10000;
+  static final int MAXIMUM_FETCH_BYTES = 4 * 1024 * 1024;
+
+  private final int minimumFetchSize;
+  private final int maximumFetchSize;
+  private int fetchSize;
+
+  // 消费者取行时缓冲区为空
+  private volatile boolean consumerWaited;
+  // 生产者放行时缓冲区已满
+  private volatile boolean producerWaited;
+
+  FetchSizeTuner(int initialFetchSize, int estimatedRowBytes) {
+    this.fetchSize = initialFetchSize;
+    this.minimumFetchSize = Math.min(initialFetchSize, MINIMUM_FETCH_SIZE);
+    this.maximumFetchSize = Math.max(initialFetchSize,
+        Math.min(MAXIMUM_FETCH_SIZE, MAXIMUM_FETCH_BYTES / Math.max(1, estimatedRowBytes)));
+  }
+
+  void consumerWaited() {
+    consumerWaited = true;
+  }
+
+  void producerWaited() {
+    producerWaited = true;
+  }
+
+  int getFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Adjusts the fetch size to the waits seen since the previous call.
+   *
+   * @return the new fetch size
+   */
+  int tune() {
+    boolean consumer = consumerWaited;
+    boolean producer = producerWaited;
+    consumerWaited = false;
+    producerWaited = false;
+    if (consumer && !producer) {
+      fetchSize = Math.min(maximumFetchSize, fetchSize * 2);
+    } else if (producer && !consumer) {
+      fetchSize = Math.max(minimumFetchSize, fetchSize / 2);
+    }
+    return fetchSize;
+  }
+
+  /**
+   * Estimates the size of a row from the types of its columns.
+   *
+   * @param jdbcTypes
+   *          the column types
+   * @return the estimated size in bytes
+   */
+  static int estimateRowBytes(List<JdbcType> jdbcTypes) {
+    int bytes = 0;
+    for (JdbcType jdbcType : jdbcTypes) {
+      bytes += estimateColumnBytes(jdbcType);
+    }
+    return bytes;
+  }
+
+  private static int estimateColumnBytes(JdbcType jdbcType) {
+    if (jdbcType == null) {
+      return 32;
+    }
+    switch (jdbcType) {
+      case BIT:
+      case BOOLEAN:
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+        return 4;
+      case BIGINT:
+      case REAL:
+      case FLOAT:
+      case DOUBLE:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+        return 8;
+      case DECIMAL:
+      case NUMERIC:
+        return 16;
+      case BLOB:
+      case CLOB:
+      case NCLOB:
+      case LONGVARBINARY:
+      case LONGVARCHAR:
+      case LONGNVARCHAR:
+        return 1024;
+      default:
+        return 32;
+    }
+  }
+
+}
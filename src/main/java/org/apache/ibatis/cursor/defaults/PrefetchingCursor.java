@@ -0,0 +1,269 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+
+/**
+ * A cursor that fetches and maps the rows of a {@link DefaultCursor} on a worker, so that the consumer processes one row
+ * while the next ones are read from the database.
+ * <p>
+ * The worker starts when the iterator is retrieved and stays at most {@code prefetchSize} rows ahead of the consumer.
+ * It is the only thread that touches the result set and the result set handler until it has stopped; closing the
+ * cursor waits for the row the worker is mapping. The fetch size of the result set is adjusted once per fetch by a
+ * {@link FetchSizeTuner}, unless the driver uses a negative fetch size to stream rows.
+ * <p>
+ * The session of the cursor must not execute other statements while the cursor is open. Result maps with nested
+ * selects are therefore always mapped by a {@link DefaultCursor}.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.Configuration#setCursorPrefetchSize(int)
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+  private static final Object NULL_ROW = new Object();
+  private static final Object END = new Object();
+
+  private final DefaultCursor<T> delegate;
+  private final ResultSet resultSet;
+  private final ExecutorService executorService;
+  private final BlockingQueue<Object> buffer;
+  private final FetchSizeTuner fetchSizeTuner;
+  private final CountDownLatch workerStopped = new CountDownLatch(1);
+  private final PrefetchingIterator iterator = new PrefetchingIterator();
+  private final int offset;
+
+  private boolean iteratorRetrieved;
+  private boolean opened;
+  private volatile boolean closed;
+  private boolean consumed;
+
+  public PrefetchingCursor(DefaultCursor<T> delegate, ResultSetWrapper rsw, int prefetchSize, ExecutorService executorService) {
+    this.delegate = delegate;
+    this.offset = delegate.getCurrentIndex() + 1;
+    this.resultSet = rsw.getResultSet();
+    this.executorService = executorService;
+    this.buffer = new ArrayBlockingQueue<>(prefetchSize);
+    this.fetchSizeTuner = createFetchSizeTuner(rsw, prefetchSize);
+  }
+
+  private FetchSizeTuner createFetchSizeTuner(ResultSetWrapper rsw, int prefetchSize) {
+    int fetchSize;
+    try {
+      fetchSize = resultSet.getFetchSize();
+    } catch (SQLException e) {
+      return null;
+    }
+    if (fetchSize < 0) {
+      // 驱动以流的方式逐行读取（如 MySQL 的 Integer.MIN_VALUE），不做调整
+      return null;
+    }
+    return new FetchSizeTuner(fetchSize == 0 ? prefetchSize : fetchSize, FetchSizeTuner.estimateRowBytes(rsw.getJdbcTypes()));
+  }
+
+  @Override
+  public boolean isOpen() {
+    return opened && !closed && !consumed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return offset + iterator.iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed || consumed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    try {
+      executorService.execute(this::prefetch);
+    } catch (RejectedExecutionException e) {
+      workerStopped.countDown();
+      throw e;
+    }
+    return iterator;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (iteratorRetrieved) {
+      try {
+        // 清空缓冲区，让阻塞在 put 上的工作线程看到关闭标志后退出
+        do {
+          buffer.clear();
+        } while (!workerStopped.await(10, TimeUnit.MILLISECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    buffer.clear();
+    delegate.close();
+  }
+
+  private void prefetch() {
+    try {
+      Iterator<T> rows = delegate.iterator();
+      int rowsSinceTuning = 0;
+      while (!closed && rows.hasNext()) {
+        T row = rows.next();
+        put(row == null ? NULL_ROW : row);
+        if (fetchSizeTuner != null && ++rowsSinceTuning >= fetchSizeTuner.getFetchSize()) {
+          rowsSinceTuning = 0;
+          tuneFetchSize();
+        }
+      }
+      put(END);
+    } catch (Throwable t) {
+      try {
+        put(new Failure(t));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      workerStopped.countDown();
+    }
+  }
+
+  private void put(Object item) throws InterruptedException {
+    if (closed) {
+      return;
+    }
+    if (!buffer.offer(item)) {
+      if (fetchSizeTuner != null) {
+        fetchSizeTuner.producerWaited();
+      }
+      buffer.put(item);
+    }
+  }
+
+  private void tuneFetchSize() {
+    int fetchSize = fetchSizeTuner.getFetchSize();
+    int tuned = fetchSizeTuner.tune();
+    if (tuned != fetchSize) {
+      try {
+        resultSet.setFetchSize(tuned);
+      } catch (SQLException e) {
+        // the fetch size is only a hint
+      }
+    }
+  }
+
+  private static class Failure {
+
+    private final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  protected class PrefetchingIterator implements Iterator<T> {
+
+    /**
+     * Holder for the next object to be returned, or null.
+     */
+    Object object;
+
+    /**
+     * Index of objects returned using next(), and as such, visible to users.
+     */
+    int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (object == null && !consumed && !closed) {
+        object = take();
+      }
+      return object != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object next = object;
+      object = null;
+      iteratorIndex++;
+      return next == NULL_ROW ? null : (T) next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+
+    private Object take() {
+      opened = true;
+      Object item = buffer.poll();
+      if (item == null) {
+        if (fetchSizeTuner != null) {
+          fetchSizeTuner.consumerWaited();
+        }
+        try {
+          item = buffer.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          close();
+          throw new IllegalStateException("Interrupted while waiting for the next row of the cursor", e);
+        }
+      }
+      if (item == END) {
+        consumed = true;
+        return null;
+      }
+      if (item instanceof Failure) {
+        close();
+        Throwable cause = ((Failure) item).cause;
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+      return item;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a {@link ConcurrentPooledDataSource}.
+ * <p>
+ * The counters are {@link LongAdder}s so that recording them never serializes the threads that check out and return
+ * connections. The idle and active counts are read from the data source itself.
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  private final ConcurrentPooledDataSource concurrentDataSource;
+
+  final LongAdder requestCounter = new LongAdder();
+  final LongAdder accumulatedRequestTimeCounter = new LongAdder();
+  final LongAdder accumulatedCheckoutTimeCounter = new LongAdder();
+  final LongAdder claimedOverdueConnectionCounter = new LongAdder();
+  final LongAdder accumulatedCheckoutTimeOfOverdueConnectionsCounter = new LongAdder();
+  final LongAdder accumulatedWaitTimeCounter = new LongAdder();
+  final LongAdder hadToWaitCounter = new LongAdder();
+  final LongAdder badConnectionCounter = new LongAdder();
+
+  public ConcurrentPoolState(ConcurrentPooledDataSource dataSource) {
+    super(dataSource);
+    this.concurrentDataSource = dataSource;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCounter.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : accumulatedRequestTimeCounter.sum() / requests;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCounter.sum();
+    return waits == 0 ? 0 : accumulatedWaitTimeCounter.sum() / waits;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCounter.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCounter.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCounter.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCounter.sum();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnectionsCounter.sum() / claimed;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : accumulatedCheckoutTimeCounter.sum() / requests;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return concurrentDataSource.getIdleConnectionCount();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return concurrentDataSource.getActiveConnectionCount();
+  }
+
+}
@@ -0,0 +1,566 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.metrics.MetricsCollector;
+
+/**
+ * A thread-safe database connection pool that does not serialize checkouts and returns on a single monitor.
+ * <p>
+ * It accepts the same configuration as {@link PooledDataSource}, but idle connections are kept in a lock-free bag:
+ * a thread first tries the connection it returned last (thread affinity), then the shared idle queue. When the pool
+ * is exhausted, waiting threads are served in arrival order: a returned connection is handed over directly to the thread
+ * that has waited longest, which is the only one woken, instead of going back to the bag where any thread could take it.
+ *
+ * @see ConcurrentPooledDataSourceFactory
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private static final int STATE_REMOVED = -1;
+  private static final int STATE_IDLE = 0;
+  private static final int STATE_IN_USE = 1;
+
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this);
+
+  private final UnpooledDataSource dataSource;
+
+  /**
+   * Every physical connection owned by the pool, idle or not.
+   */
+  private final Set<PoolEntry> allEntries = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  /**
+   * Idle connections, most recently returned first. May contain entries already taken through the thread-local path;
+   * borrowers skip them.
+   */
+  private final ConcurrentLinkedDeque<PoolEntry> idleQueue = new ConcurrentLinkedDeque<>();
+
+  /**
+   * The connection each thread returned last.
+   */
+  private final ThreadLocal<WeakReference<PoolEntry>> lastReturned = new ThreadLocal<>();
+
+  /**
+   * Threads waiting for a connection, longest waiting first.
+   */
+  private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  private final AtomicInteger idleConnections = new AtomicInteger();
+
+  private volatile int expectedConnectionTypeCode;
+
+  public ConcurrentPooledDataSource() {
+    this(new UnpooledDataSource());
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+    this.dataSource = dataSource;
+    this.expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    this(new UnpooledDataSource(driver, url, username, password));
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    this(new UnpooledDataSource(driver, url, driverProperties));
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    this(new UnpooledDataSource(driverClassLoader, driver, url, username, password));
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    this(new UnpooledDataSource(driverClassLoader, driver, url, driverProperties));
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getConnection(dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    MetricsCollector metricsCollector = getMetricsCollector();
+    if (!metricsCollector.isEnabled()) {
+      return popConnection(username, password).getProxyConnection();
+    }
+    long start = System.nanoTime();
+    Connection connection = popConnection(username, password).getProxyConnection();
+    metricsCollector.recordPoolWait(this, System.nanoTime() - start);
+    return connection;
+  }
+
+  /**
+   * Closes all active and idle connections in the pool.
+   */
+  @Override
+  public void forceCloseAll() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PoolEntry entry : allEntries) {
+      int previous = entry.state.getAndSet(STATE_REMOVED);
+      if (previous == STATE_REMOVED) {
+        continue;
+      }
+      if (previous == STATE_IDLE) {
+        idleConnections.decrementAndGet();
+        entry.idleConnection.invalidate();
+        entry.idleConnection.closeStatementCache();
+      } else {
+        EntryConnection owner = entry.owner.getAndSet(null);
+        if (owner != null) {
+          owner.invalidate();
+          owner.closeStatementCache();
+        }
+      }
+      allEntries.remove(entry);
+      totalConnections.decrementAndGet();
+      closeQuietly(entry.realConnection);
+      wakeWaiter();
+    }
+    idleQueue.clear();
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  public PoolState getPoolState() {
+    return state;
+  }
+
+  int getIdleConnectionCount() {
+    return idleConnections.get();
+  }
+
+  int getActiveConnectionCount() {
+    return Math.max(0, totalConnections.get() - idleConnections.get());
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    EntryConnection connection = (EntryConnection) conn;
+    PoolEntry entry = connection.entry;
+    if (!entry.owner.compareAndSet(connection, null)) {
+      // already returned, claimed as overdue or removed by forceCloseAll()
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCounter.increment();
+      return;
+    }
+    state.accumulatedCheckoutTimeCounter.add(connection.getCheckoutTime());
+    if (!connection.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCounter.increment();
+      connection.invalidate();
+      connection.closeStatementCache();
+      discard(entry);
+      return;
+    }
+    try {
+      if (!connection.getRealConnection().getAutoCommit()) {
+        connection.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      connection.invalidate();
+      connection.closeStatementCache();
+      discard(entry);
+      throw e;
+    }
+    if (connection.getConnectionTypeCode() == expectedConnectionTypeCode && reserveIdleSlot()) {
+      EntryConnection newConn = new EntryConnection(entry, this);
+      newConn.setCreatedTimestamp(connection.getCreatedTimestamp());
+      newConn.setLastUsedTimestamp(connection.getLastUsedTimestamp());
+      newConn.takeStatementCache(connection);
+      entry.idleConnection = newConn;
+      connection.invalidate();
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+      }
+      release(entry);
+    } else {
+      connection.invalidate();
+      connection.closeStatementCache();
+      discard(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  /**
+   * Reserves room for one more idle connection. A waiting thread always gets the connection, even when the idle limit
+   * has been reached, since it is taken out again immediately.
+   */
+  private boolean reserveIdleSlot() {
+    for (;;) {
+      int idle = idleConnections.get();
+      if (idle >= poolMaximumIdleConnections && waiters.isEmpty()) {
+        return false;
+      }
+      if (idleConnections.compareAndSet(idle, idle + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Hands an entry that is still in use over to the longest waiting thread, or else makes it idle.
+   */
+  private void release(PoolEntry entry) {
+    for (;;) {
+      Waiter waiter;
+      while ((waiter = waiters.poll()) != null) {
+        if (waiter.handOff(entry)) {
+          return;
+        }
+      }
+      if (!entry.state.compareAndSet(STATE_IN_USE, STATE_IDLE)) {
+        // removed by forceCloseAll() in the meantime
+        idleConnections.decrementAndGet();
+        return;
+      }
+      idleQueue.offerFirst(entry);
+      // a thread that registered after the poll above may have searched the idle queue before the offer: take the
+      // entry back and hand it over, unless another thread took it already
+      if (waiters.isEmpty() || !entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        lastReturned.set(new WeakReference<>(entry));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Wakes the longest waiting thread without a connection, so that it can open a new one.
+   */
+  private void wakeWaiter() {
+    Waiter waiter = waiters.peek();
+    if (waiter != null) {
+      LockSupport.unpark(waiter.thread);
+    }
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      EntryConnection conn = borrowIdle();
+      if (conn == null) {
+        conn = createConnection();
+      }
+      if (conn == null) {
+        conn = claimOverdueConnection();
+      }
+      if (conn == null) {
+        if (!countedWait) {
+          state.hadToWaitCounter.increment();
+          countedWait = true;
+        }
+        long wt = System.currentTimeMillis();
+        try {
+          conn = awaitConnection();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        } finally {
+          state.accumulatedWaitTimeCounter.add(System.currentTimeMillis() - wt);
+        }
+        if (conn == null) {
+          continue;
+        }
+      }
+
+      if (conn.isValid()) {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        long now = System.currentTimeMillis();
+        conn.setCheckoutTimestamp(now);
+        conn.setLastUsedTimestamp(now);
+        state.requestCounter.increment();
+        state.accumulatedRequestTimeCounter.add(now - t);
+        return conn;
+      }
+
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+      }
+      state.badConnectionCounter.increment();
+      localBadConnectionCount++;
+      if (conn.entry.owner.compareAndSet(conn, null)) {
+        conn.invalidate();
+        conn.closeStatementCache();
+        discard(conn.entry);
+      }
+      if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+  }
+
+  private EntryConnection borrowIdle() {
+    WeakReference<PoolEntry> reference = lastReturned.get();
+    if (reference != null) {
+      PoolEntry entry = reference.get();
+      if (entry != null && entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        idleQueue.removeFirstOccurrence(entry);
+        return checkout(entry);
+      }
+    }
+    PoolEntry entry;
+    while ((entry = idleQueue.pollFirst()) != null) {
+      if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+        return checkout(entry);
+      }
+    }
+    return null;
+  }
+
+  private EntryConnection checkout(PoolEntry entry) {
+    idleConnections.decrementAndGet();
+    EntryConnection conn = entry.idleConnection;
+    entry.owner.set(conn);
+    if (log.isDebugEnabled()) {
+      log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+    }
+    return conn;
+  }
+
+  private EntryConnection createConnection() throws SQLException {
+    for (;;) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        break;
+      }
+    }
+    Connection realConnection;
+    try {
+      realConnection = dataSource.getConnection();
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    PoolEntry entry = new PoolEntry(realConnection);
+    EntryConnection conn = new EntryConnection(entry, this);
+    entry.owner.set(conn);
+    allEntries.add(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private EntryConnection claimOverdueConnection() {
+    EntryConnection oldest = null;
+    for (PoolEntry entry : allEntries) {
+      EntryConnection owner = entry.owner.get();
+      if (owner != null && entry.state.get() == STATE_IN_USE
+          && (oldest == null || owner.getCheckoutTimestamp() < oldest.getCheckoutTimestamp())) {
+        oldest = owner;
+      }
+    }
+    if (oldest == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldest.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime) {
+      return null;
+    }
+    EntryConnection conn = new EntryConnection(oldest.entry, this);
+    conn.setCreatedTimestamp(oldest.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldest.getLastUsedTimestamp());
+    if (!oldest.entry.owner.compareAndSet(oldest, conn)) {
+      // returned or claimed by another thread in the meantime
+      return null;
+    }
+    state.claimedOverdueConnectionCounter.increment();
+    state.accumulatedCheckoutTimeOfOverdueConnectionsCounter.add(longestCheckoutTime);
+    state.accumulatedCheckoutTimeCounter.add(longestCheckoutTime);
+    oldest.invalidate();
+    oldest.closeStatementCache();
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // the claimed connection is validated before it is handed out
+      log.debug("Bad connection. Could not roll back");
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  /**
+   * Waits up to {@code poolTimeToWait} for a connection to be handed over. Returns {@code null} when none was in time,
+   * or when a connection was closed and the caller may open a new one instead.
+   */
+  private EntryConnection awaitConnection() throws InterruptedException {
+    if (log.isDebugEnabled()) {
+      log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+    }
+    final Waiter waiter = new Waiter(Thread.currentThread());
+    waiters.offer(waiter);
+    EntryConnection conn = null;
+    try {
+      // a connection may have been returned before this thread was registered as a waiter
+      conn = borrowIdle();
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(poolTimeToWait);
+      while (conn == null) {
+        Object handedOver = waiter.slot.get();
+        if (handedOver != null) {
+          conn = checkout((PoolEntry) handedOver);
+          break;
+        }
+        long nanos = deadline - System.nanoTime();
+        if (nanos <= 0 || totalConnections.get() < poolMaximumActiveConnections) {
+          break;
+        }
+        LockSupport.parkNanos(this, nanos);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      return conn;
+    } finally {
+      waiters.remove(waiter);
+      if (!waiter.slot.compareAndSet(null, Waiter.CANCELLED)) {
+        PoolEntry handedOver = (PoolEntry) waiter.slot.get();
+        if (conn == null || conn.entry != handedOver) {
+          // handed over while this thread was leaving
+          release(handedOver);
+        }
+      }
+    }
+  }
+
+  private void discard(PoolEntry entry) {
+    if (entry.state.getAndSet(STATE_REMOVED) != STATE_REMOVED) {
+      allEntries.remove(entry);
+      totalConnections.decrementAndGet();
+      closeQuietly(entry.realConnection);
+      wakeWaiter();
+    }
+  }
+
+  private void closeQuietly(Connection realConnection) {
+    try {
+      if (!realConnection.getAutoCommit()) {
+        realConnection.rollback();
+      }
+      realConnection.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private int assembleConnectionTypeCode(String url, String username, String password) {
+    return ("" + url + username + password).hashCode();
+  }
+
+  private static final class PoolEntry {
+
+    private final Connection realConnection;
+
+    private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+
+    /**
+     * The connection handed out to the current user, or {@code null} while idle or being returned. Swapping it is what
+     * makes a return or an overdue claim win over the other.
+     */
+    private final AtomicReference<EntryConnection> owner = new AtomicReference<>();
+
+    private volatile EntryConnection idleConnection;
+
+    PoolEntry(Connection realConnection) {
+      this.realConnection = realConnection;
+    }
+  }
+
+  private static final class Waiter {
+
+    private static final Object CANCELLED = new Object();
+
+    private final Thread thread;
+
+    /**
+     * The entry handed over to the thread, still in use, or {@link #CANCELLED} once the thread stopped waiting.
+     */
+    private final AtomicReference<Object> slot = new AtomicReference<>();
+
+    Waiter(Thread thread) {
+      this.thread = thread;
+    }
+
+    boolean handOff(PoolEntry entry) {
+      if (slot.compareAndSet(null, entry)) {
+        LockSupport.unpark(thread);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static final class EntryConnection extends PooledConnection {
+
+    private final PoolEntry entry;
+
+    EntryConnection(PoolEntry entry, ConcurrentPooledDataSource dataSource) {
+      super(entry.realConnection, dataSource);
+      this.entry = entry;
+    }
+  }
+
+}
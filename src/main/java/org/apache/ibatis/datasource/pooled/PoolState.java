@@ -17,6 +17,8 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 存储所有的数据库连接及状态信息
@@ -80,53 +82,132 @@ public class PoolState {
    */
   protected long badConnectionCount = 0;
 
+  /**
+   * 已取出但尚未登记为活跃的连接数，这些连接正在创建或校验，不持有锁
+   *
+   * @since 3.5.6
+   */
+  protected int pendingConnectionCount = 0;
+
+  /**
+   * 保护以上状态的锁。等待连接的虚拟线程不会因此占住载体线程
+   *
+   * @since 3.5.6
+   */
+  protected final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * 有连接归还或连接名额释放时发出信号
+   *
+   * @since 3.5.6
+   */
+  protected final Condition connectionAvailable = lock.newCondition();
+
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  public long getRequestCount() {
+    lock.lock();
+    try {
+      return requestCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    lock.lock();
+    try {
+      return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
-
+  public long getAverageWaitTime() {
+    lock.lock();
+    try {
+      return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    lock.lock();
+    try {
+      return hadToWaitCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    lock.lock();
+    try {
+      return badConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    lock.lock();
+    try {
+      return claimedOverdueConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    lock.lock();
+    try {
+      return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    lock.lock();
+    try {
+      return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    lock.lock();
+    try {
+      return idleConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    lock.lock();
+    try {
+      return activeConnections.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
+    lock.lock();
+    try {
+      return describe();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private String describe() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -140,6 +221,7 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolStatementCacheSize         ").append(dataSource.poolStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
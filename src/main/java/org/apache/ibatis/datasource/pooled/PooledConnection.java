@@ -40,6 +40,7 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private PooledStatementCache statementCache;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -159,6 +160,49 @@ class PooledConnection implements InvocationHandler {
     this.lastUsedTimestamp = lastUsedTimestamp;
   }
 
+  /**
+   * Getter for the statement cache of the real connection, created on first use.
+   *
+   * @return The statement cache, or null if the data source does not cache statements
+   */
+  public synchronized PooledStatementCache getStatementCache() {
+    if (statementCache == null && valid) {
+      statementCache = dataSource.newStatementCache();
+    }
+    return statementCache;
+  }
+
+  /**
+   * Takes over the statement cache of the connection that wrapped the same real connection before.
+   *
+   * @param previous
+   *          - the previous pooled connection
+   */
+  public void takeStatementCache(PooledConnection previous) {
+    PooledStatementCache cache;
+    synchronized (previous) {
+      cache = previous.statementCache;
+      previous.statementCache = null;
+    }
+    synchronized (this) {
+      this.statementCache = cache;
+    }
+  }
+
+  /**
+   * Closes the cached statements, called before the real connection is closed or handed to another user.
+   */
+  public void closeStatementCache() {
+    PooledStatementCache cache;
+    synchronized (this) {
+      cache = statementCache;
+      statementCache = null;
+    }
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
   /**
    * Getter for the time since this connection was last used.
    *
@@ -23,6 +23,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -30,6 +31,8 @@ import javax.sql.DataSource;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.NoOpMetricsCollector;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
@@ -59,6 +62,7 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected int poolStatementCacheSize;
 
   /**
    * 数据源连接池必须保证池中的每个连接都是等价的，这样取出的连接才不会存在差异
@@ -68,6 +72,16 @@ public class PooledDataSource implements DataSource {
    */
   private int expectedConnectionTypeCode;
 
+  /**
+   * 记录取出连接的等待时间
+   */
+  private volatile MetricsCollector metricsCollector = NoOpMetricsCollector.INSTANCE;
+
+  /**
+   * 所有连接的语句缓存共用的命中统计
+   */
+  private final PooledStatementCache.Statistics statementCacheStatistics = new PooledStatementCache.Statistics();
+
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
   }
@@ -98,12 +112,19 @@ public class PooledDataSource implements DataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
-    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+    return getConnection(dataSource.getUsername(), dataSource.getPassword());
   }
 
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
-    return popConnection(username, password).getProxyConnection();
+    MetricsCollector metricsCollector = getMetricsCollector();
+    if (!metricsCollector.isEnabled()) {
+      return popConnection(username, password).getProxyConnection();
+    }
+    long start = System.nanoTime();
+    Connection connection = popConnection(username, password).getProxyConnection();
+    metricsCollector.recordPoolWait(this, System.nanoTime() - start);
+    return connection;
   }
 
   @Override
@@ -266,6 +287,35 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * Sets the number of prepared statements cached per physical connection, so that a
+   * {@link org.apache.ibatis.executor.ReuseExecutor} can reuse them across sessions. 0 (the default) disables the
+   * cache.
+   *
+   * @param poolStatementCacheSize
+   *          the maximum number of statements cached per connection
+   * @since 3.5.6
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * Sets the collector of the time threads wait to check out a connection.
+   *
+   * @param metricsCollector
+   *          the metrics collector, {@link NoOpMetricsCollector} if null
+   * @since 3.5.6
+   */
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    this.metricsCollector = metricsCollector == null ? NoOpMetricsCollector.INSTANCE : metricsCollector;
+  }
+
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -336,12 +386,31 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
+  /**
+   * Gets the hit, miss and eviction counts of the statement caches of all connections.
+   *
+   * @return the statistics
+   * @since 3.5.6
+   */
+  public PooledStatementCache.Statistics getStatementCacheStatistics() {
+    return statementCacheStatistics;
+  }
+
+  PooledStatementCache newStatementCache() {
+    return poolStatementCacheSize > 0 ? new PooledStatementCache(poolStatementCacheSize, statementCacheStatistics) : null;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
   public void forceCloseAll() {
-    // 增加同步锁
-    synchronized (state) {
+    // 加锁
+    state.lock.lock();
+    try {
       // 重新计算和更新连接类型编码
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       // 依次关闭所有活动连接
@@ -349,6 +418,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
           conn.invalidate();
+          conn.closeStatementCache();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -364,6 +434,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.idleConnections.remove(i - 1);
           conn.invalidate();
+          conn.closeStatementCache();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -374,6 +445,8 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+    } finally {
+      state.lock.unlock();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -396,7 +469,8 @@ public class PooledDataSource implements DataSource {
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
 
-    synchronized (state) {
+    state.lock.lock();
+    try {
       // 将该连接从活跃连接中删除
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
@@ -415,13 +489,15 @@ public class PooledDataSource implements DataSource {
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          // 语句缓存跟随物理连接
+          newConn.takeStatementCache(conn);
 
           // 设置连接为未校验，以便取出时重新校验
           conn.invalidate();
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          state.notifyAll();
+          state.connectionAvailable.signalAll();
         } else {
           // 连接池已满或者连接不属于改连接池
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
@@ -430,6 +506,7 @@ public class PooledDataSource implements DataSource {
           }
 
           // 直接关闭连接
+          conn.closeStatementCache();
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
@@ -443,6 +520,8 @@ public class PooledDataSource implements DataSource {
         }
         state.badConnectionCount++;
       }
+    } finally {
+      state.lock.unlock();
     }
   }
 
@@ -463,125 +542,118 @@ public class PooledDataSource implements DataSource {
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      // 给 state 加同步锁
-      synchronized (state) {
+      // 新建的连接和超期回收的连接在锁外打开、回滚和校验，期间占用一个名额
+      boolean create = false;
+      PooledConnection overdueConnection = null;
+      state.lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
           conn = state.idleConnections.remove(0);
           if (log.isDebugEnabled()) {
             log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
           }
-        } else {
+        } else if (state.activeConnections.size() + state.pendingConnectionCount < poolMaximumActiveConnections) {
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
-            if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+          // Can create new connection
+          create = true;
+        } else if (!state.activeConnections.isEmpty()
+            && state.activeConnections.get(0).getCheckoutTime() > poolMaximumCheckoutTime) {
+          // Cannot create new connection
+          // 借出去最久的连接已经超出设定的借出时长
+          // Can claim overdue connection
+          overdueConnection = state.activeConnections.get(0);
+          long longestCheckoutTime = overdueConnection.getCheckoutTime();
+          // 声明该连接超期不还
+          state.claimedOverdueConnectionCount++;
+          state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+          state.accumulatedCheckoutTime += longestCheckoutTime;
+          // 因为超期不还而从连接池中移除
+          state.activeConnections.remove(overdueConnection);
+        } else {
+          // 借出去最久的连接没有超期
+          // 继续等待，等待有连接归还到连接池
+          // Must wait
+          try {
+            if (!countedWait) {
+              // 记录发生等待的次数。 某次请求等待多轮也算是一次等待
+              state.hadToWaitCount++;
+              countedWait = true;
             }
-          } else {
-            // Cannot create new connection
-            // 找到借出去最久的连接
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            // 查看借出去最久的连接已经被借走多久
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            // 如果超出设定的借出时长
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              // Can claim overdue connection
-              // 声明该连接超期不还
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              // 因为超期不还而从连接池中移除
-              state.activeConnections.remove(oldestActiveConnection);
-
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                // 如果超期不还的连接没有设置自动提交事务
-                // 尝试替它回滚事务
-                try {
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
-              }
-
-              // 新建一个连接替代超期不还连接的位置
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              oldestActiveConnection.invalidate();
-              if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
-              }
-            } else {
-              // 借出去最久的连接没有超期
-              // 继续等待，等待有连接归还到连接池
-              // Must wait
-              try {
-                if (!countedWait) {
-                  // 记录发生等待的次数。 某次请求等待多轮也算是一次等待
-                  state.hadToWaitCount++;
-                  countedWait = true;
-                }
-                if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                }
-                long wt = System.currentTimeMillis();
-                // 沉睡一段时间再尝试，防止一直占有计算资源
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
-              }
+            if (log.isDebugEnabled()) {
+              log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
             }
+            long wt = System.currentTimeMillis();
+            // 沉睡一段时间再尝试，防止一直占有计算资源
+            state.connectionAvailable.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+            state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+          } catch (InterruptedException e) {
+            break;
+          }
+          continue;
+        }
+        state.pendingConnectionCount++;
+      } finally {
+        state.lock.unlock();
+      }
+
+      boolean valid = false;
+      try {
+        if (create) {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+          if (log.isDebugEnabled()) {
+            log.debug("Created connection " + conn.getRealHashCode() + ".");
           }
+        } else if (overdueConnection != null) {
+          conn = claimOverdueConnection(overdueConnection);
         }
+        // ping to server and check the connection is valid or not
+        valid = conn.isValid();
+        if (valid && !conn.getRealConnection().getAutoCommit()) {
+          // 连接可用，并且没有设置自动提交，回滚未提交的操作
+          conn.getRealConnection().rollback();
+        }
+      } catch (SQLException | RuntimeException e) {
+        releasePendingConnection();
+        throw e;
+      }
 
+      state.lock.lock();
+      try {
+        state.pendingConnectionCount--;
         // 获取到连接
-        if (conn != null) {
-          // ping to server and check the connection is valid or not
-          if (conn.isValid()) {
-            // 连接可用，并且没有设置自动提交，回滚未提交的操作
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
-            // 每个出借的连接都打上数据源的连接类型编码，以便在归还时确保正确
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        if (valid) {
+          // 每个出借的连接都打上数据源的连接类型编码，以便在归还时确保正确
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+
+          // 数据记录操作
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.activeConnections.add(conn);
+          state.requestCount++;
+          state.accumulatedRequestTime += System.currentTimeMillis() - t;
+        } else {
 
-            // 数据记录操作
-            conn.setCheckoutTimestamp(System.currentTimeMillis());
-            conn.setLastUsedTimestamp(System.currentTimeMillis());
-            state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
-          } else {
+          // 连接不可用则 直接删除连接
 
-            // 连接不可用则 直接删除连接
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          state.badConnectionCount++;
+          localBadConnectionCount++;
+          conn = null;
+          state.connectionAvailable.signal();
 
+          // 如果没有一个连接可用，说明连不上数据库
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
             if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
-            state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-
-            // 如果没有一个连接可用，说明连不上数据库
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
             }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
           }
         }
+      } finally {
+        state.lock.unlock();
       }
     }
 
@@ -595,6 +667,48 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  private PooledConnection claimOverdueConnection(PooledConnection oldestActiveConnection) throws SQLException {
+    if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+      // 如果超期不还的连接没有设置自动提交事务
+      // 尝试替它回滚事务
+      try {
+        oldestActiveConnection.getRealConnection().rollback();
+      } catch (SQLException e) {
+        /*
+           Just log a message for debug and continue to execute the following
+           statement like nothing happened.
+           Wrap the bad connection with a new PooledConnection, this will help
+           to not interrupt current executing thread and give current thread a
+           chance to join the next competition for another valid/good database
+           connection. At the end of this loop, bad {@link @conn} will be set as null.
+         */
+        log.debug("Bad connection. Could not roll back");
+      }
+    }
+
+    // 新建一个连接替代超期不还连接的位置
+    PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+    conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+    oldestActiveConnection.invalidate();
+    // 超期连接上的语句可能仍在被使用，不再复用
+    oldestActiveConnection.closeStatementCache();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
+  private void releasePendingConnection() {
+    state.lock.lock();
+    try {
+      state.pendingConnectionCount--;
+      state.connectionAvailable.signal();
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
   /**
    * Method to check to see if a connection is still usable
    *
@@ -634,6 +748,7 @@ public class PooledDataSource implements DataSource {
       } catch (Exception e) {
         log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
         try {
+          conn.closeStatementCache();
           conn.getRealConnection().close();
         } catch (Exception e2) {
           // ignore
@@ -664,6 +779,25 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * Gets the statement cache of the physical connection behind a pooled connection.
+   *
+   * @param conn
+   *          the connection
+   * @return the statement cache, or {@code null} if the connection is not pooled or the pool does not cache statements
+   * @since 3.5.6
+   * @see #setPoolStatementCacheSize(int)
+   */
+  public static PooledStatementCache getStatementCache(Connection conn) {
+    if (Proxy.isProxyClass(conn.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(conn);
+      if (handler instanceof PooledConnection) {
+        return ((PooledConnection) handler).getStatementCache();
+      }
+    }
+    return null;
+  }
+
   @Override
   protected void finalize() throws Throwable {
     forceCloseAll();
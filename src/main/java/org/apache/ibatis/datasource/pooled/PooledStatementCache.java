@@ -0,0 +1,216 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.CacheStats;
+
+/**
+ * A bounded LRU cache of the statements prepared on one physical connection of the pool. The key identifies the SQL
+ * and every attribute the statement was prepared with, e.g. its result set type and its generated key columns.
+ * <p>
+ * The cache lives as long as the physical connection: it is handed over to the {@link PooledConnection} that wraps the
+ * connection when it returns to the pool, so that a {@link org.apache.ibatis.executor.ReuseExecutor} of a later
+ * session can reuse the statements of an earlier one.
+ * <p>
+ * A statement is checked out while a session uses it, e.g. while a cursor still reads its result set. A checked out
+ * statement is neither handed to another user nor evicted; the cache may then hold more statements than its maximum
+ * size until they are checked in. Evicted statements are closed, and all of them are closed when the physical
+ * connection is closed.
+ *
+ * @since 3.5.6
+ * @see PooledDataSource#setPoolStatementCacheSize(int)
+ */
+public final class PooledStatementCache {
+
+  private final int maximumSize;
+  private final Map<Object, Entry> statements = new LinkedHashMap<>(16, 0.75f, true);
+  private final Statistics statistics;
+  // 关闭语句可能有网络往返，持有 monitor 时阻塞会钉住虚拟线程的载体线程
+  private final ReentrantLock lock = new ReentrantLock();
+
+  PooledStatementCache(int maximumSize, Statistics statistics) {
+    this.maximumSize = maximumSize;
+    this.statistics = statistics;
+  }
+
+  /**
+   * Checks out the open statement cached for the key.
+   *
+   * @param key
+   *          the key of the statement
+   * @return the statement, or {@code null} if there is none or it is checked out already
+   */
+  public Statement checkOut(Object key) {
+    lock.lock();
+    try {
+      Entry entry = statements.get(key);
+      if (entry != null && !entry.checkedOut && isClosed(entry.statement)) {
+        statements.remove(key);
+        entry = null;
+      }
+      if (entry == null || entry.checkedOut) {
+        statistics.missCount.increment();
+        return null;
+      }
+      statistics.hitCount.increment();
+      entry.checkedOut = true;
+      return entry.statement;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches a statement that was just prepared, checked out by its caller.
+   *
+   * @param key
+   *          the key of the statement
+   * @param statement
+   *          the statement
+   * @return false if another statement is checked out for the key, in which case this one is not cached
+   */
+  public boolean add(Object key, Statement statement) {
+    lock.lock();
+    try {
+      Entry previous = statements.get(key);
+      if (previous != null && previous.checkedOut) {
+        return previous.statement == statement;
+      }
+      statements.put(key, new Entry(statement));
+      if (previous != null) {
+        closeQuietly(previous.statement);
+      }
+      evict();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks in a statement, after which it can be used again or evicted.
+   *
+   * @param key
+   *          the key of the statement
+   * @param statement
+   *          the statement
+   * @return false if the statement is not cached, in which case it must be closed by its user
+   */
+  public boolean checkIn(Object key, Statement statement) {
+    lock.lock();
+    try {
+      Entry entry = statements.get(key);
+      if (entry == null || entry.statement != statement) {
+        return false;
+      }
+      entry.checkedOut = false;
+      evict();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getSize() {
+    lock.lock();
+    try {
+      return statements.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Closes and removes all statements.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      statements.values().forEach(entry -> closeQuietly(entry.statement));
+      statements.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 从最久未使用的开始，淘汰未被借出的语句
+   */
+  private void evict() {
+    Iterator<Entry> iterator = statements.values().iterator();
+    while (statements.size() > maximumSize && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (!entry.checkedOut) {
+        iterator.remove();
+        statistics.evictionCount.increment();
+        closeQuietly(entry.statement);
+      }
+    }
+  }
+
+  private static boolean isClosed(Statement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  private static void closeQuietly(Statement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  private static final class Entry {
+    private final Statement statement;
+    private boolean checkedOut = true;
+
+    Entry(Statement statement) {
+      this.statement = statement;
+    }
+  }
+
+  /**
+   * The hit, miss and eviction counts of all statement caches of a pool.
+   */
+  public static final class Statistics {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public CacheStats getStats() {
+      return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum());
+    }
+
+    public void reset() {
+      hitCount.reset();
+      missCount.reset();
+      evictionCount.reset();
+    }
+  }
+
+}
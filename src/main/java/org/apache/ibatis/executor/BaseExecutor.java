@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -122,9 +123,59 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
+    if (ms.getChunkSizes() != null) {
+      List<Object> chunks = ParameterChunks.split(parameter, ms.getChunkSizes());
+      if (chunks != null) {
+        return doUpdateChunks(ms, chunks);
+      }
+    }
     return doUpdate(ms, parameter);
   }
 
+  /**
+   * 分块执行更新，默认在当前事务上创建一个 {@link BatchExecutor} 批量执行所有分块，返回影响的总行数
+   *
+   * @param ms 映射语句
+   * @param chunks 分块后的参数
+   * @return 影响的行数
+   * @throws SQLException the SQL exception
+   */
+  protected int doUpdateChunks(MappedStatement ms, List<Object> chunks) throws SQLException {
+    BatchExecutor batchExecutor = new BatchExecutor(configuration, transaction);
+    batchExecutor.setExecutorWrapper(wrapper);
+    try {
+      for (Object chunk : chunks) {
+        batchExecutor.doUpdate(ms, chunk);
+      }
+      int updateCount = 0;
+      for (BatchResult batchResult : batchExecutor.doFlushStatements(false)) {
+        for (int count : batchResult.getUpdateCounts()) {
+          updateCount += Math.max(count, 0);
+        }
+      }
+      return updateCount;
+    } finally {
+      // 出错时关闭尚未执行的语句，不能关闭 batchExecutor，否则会关闭共享的事务
+      batchExecutor.doFlushStatements(true);
+    }
+  }
+
+  /**
+   * 创建写入语句的 StatementHandler，同时把生成的 SQL 告知外层的 {@link CachingExecutor}，
+   * 按表失效时不必再为找出修改的表而重新生成一次 SQL
+   *
+   * @param ms 映射语句
+   * @param parameter 参数对象
+   * @return the statement handler
+   */
+  protected StatementHandler newUpdateStatementHandler(MappedStatement ms, Object parameter) {
+    StatementHandler handler = ms.getConfiguration().newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
+    if (wrapper instanceof CachingExecutor) {
+      ((CachingExecutor) wrapper).updating(ms, handler.getBoundSql());
+    }
+    return handler;
+  }
+
   @Override
   public List<BatchResult> flushStatements() throws SQLException {
     return flushStatements(false);
@@ -248,12 +299,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id, offset, limit, sql, parameters and environment id
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
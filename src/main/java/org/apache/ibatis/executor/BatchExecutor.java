@@ -30,6 +30,7 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -44,17 +45,23 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  private final BatchResultAccumulator batchResultAccumulator;
   private String currentSql;
   private MappedStatement currentStatement;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.batchResultAccumulator = new BatchResultAccumulator(configuration);
+  }
+
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    batchResultAccumulator.setBatchResultHandler(batchResultHandler);
   }
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
-    final Configuration configuration = ms.getConfiguration();
-    final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
+    final StatementHandler handler = newUpdateStatementHandler(ms, parameterObject);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
@@ -75,6 +82,18 @@ public class BatchExecutor extends BaseExecutor {
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
     }
     handler.batch(stmt);
+    if (batchResultAccumulator.add(boundSql, parameterObject)) {
+      // batchFlushSize 或 batchFlushBytes 已达到，提前执行当前批次
+      batchResultAccumulator.flushed(executeBatches());
+    }
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  @Override
+  protected int doUpdateChunks(MappedStatement ms, List<Object> chunks) throws SQLException {
+    for (Object chunk : chunks) {
+      doUpdate(ms, chunk);
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
@@ -110,23 +129,39 @@ public class BatchExecutor extends BaseExecutor {
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    if (isRollback) {
+      batchResultAccumulator.reset();
+      closeStatements();
+      return Collections.emptyList();
+    }
+    try {
+      return batchResultAccumulator.complete(executeBatches());
+    } catch (SQLException | RuntimeException e) {
+      batchResultAccumulator.reset();
+      throw e;
+    }
+  }
+
+  private List<BatchResult> executeBatches() throws SQLException {
     try {
       List<BatchResult> results = new ArrayList<>();
-      if (isRollback) {
-        return Collections.emptyList();
-      }
       for (int i = 0, n = statementList.size(); i < n; i++) {
         Statement stmt = statementList.get(i);
         applyTransactionTimeout(stmt);
         BatchResult batchResult = batchResultList.get(i);
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
+          MetricsCollector metricsCollector = configuration.getMetricsCollector();
+          long start = metricsCollector.isEnabled() ? System.nanoTime() : 0L;
+          batchResult.setUpdateCounts(stmt.executeBatch());
+          if (metricsCollector.isEnabled()) {
+            metricsCollector.recordExecution(ms, System.nanoTime() - start);
+          }
           List<Object> parameterObjects = batchResult.getParameterObjects();
           KeyGenerator keyGenerator = ms.getKeyGenerator();
           if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
             Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+            jdbc3KeyGenerator.processBatch(ms, stmt, ParameterChunks.merge(parameterObjects));
           } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
             for (Object parameter : parameterObjects) {
               keyGenerator.processAfter(this, ms, stmt, parameter);
@@ -152,13 +187,17 @@ public class BatchExecutor extends BaseExecutor {
       }
       return results;
     } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
-      }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      closeStatements();
+    }
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
     }
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
   }
 
 }
@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Tracks the size of the pending batch against the {@code batchFlushSize} and {@code batchFlushBytes} settings, and
+ * collects the results of the batches that were executed before {@code flushStatements} was called.
+ * <p>
+ * Results of early flushes are handed to the {@link BatchResultHandler} if there is one. Otherwise consecutive results
+ * of the same statement are merged into one {@link BatchResult} that keeps the update counts but not the parameter
+ * objects.
+ *
+ * @since 3.5.6
+ */
+final class BatchResultAccumulator {
+
+  private static final int PARAMETER_OVERHEAD = 16;
+
+  private final Configuration configuration;
+  private final int flushSize;
+  private final int flushBytes;
+  private final List<MergedResult> flushedResults = new ArrayList<>();
+  private BatchResultHandler batchResultHandler;
+
+  /**
+   * 当前待执行批次中的参数个数和估算字节数
+   */
+  private int pendingCount;
+  private long pendingBytes;
+
+  BatchResultAccumulator(Configuration configuration) {
+    this.configuration = configuration;
+    this.flushSize = configuration.getBatchFlushSize();
+    this.flushBytes = configuration.getBatchFlushBytes();
+  }
+
+  void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    this.batchResultHandler = batchResultHandler;
+  }
+
+  /**
+   * Counts a parameter object added to the pending batch.
+   *
+   * @return true if the pending batch should be executed now
+   */
+  boolean add(BoundSql boundSql, Object parameterObject) {
+    pendingCount++;
+    if (flushBytes > 0) {
+      pendingBytes += estimateBytes(boundSql, parameterObject);
+    }
+    return (flushSize > 0 && pendingCount >= flushSize) || (flushBytes > 0 && pendingBytes >= flushBytes);
+  }
+
+  /**
+   * Collects the results of an early flush.
+   */
+  void flushed(List<BatchResult> results) {
+    pendingCount = 0;
+    pendingBytes = 0;
+    if (batchResultHandler != null) {
+      results.forEach(batchResultHandler::handleBatchResult);
+      return;
+    }
+    for (BatchResult result : results) {
+      MergedResult last = flushedResults.isEmpty() ? null : flushedResults.get(flushedResults.size() - 1);
+      if (last == null || !last.accepts(result)) {
+        last = new MergedResult(result.getMappedStatement(), result.getSql());
+        flushedResults.add(last);
+      }
+      last.append(result.getUpdateCounts());
+    }
+  }
+
+  /**
+   * Completes a {@code flushStatements} call.
+   *
+   * @return the results to return to the caller
+   */
+  List<BatchResult> complete(List<BatchResult> results) {
+    if (batchResultHandler != null) {
+      flushed(results);
+      return Collections.emptyList();
+    }
+    if (flushedResults.isEmpty()) {
+      reset();
+      return results;
+    }
+    flushed(results);
+    List<BatchResult> completed = new ArrayList<>(flushedResults.size());
+    for (MergedResult merged : flushedResults) {
+      completed.add(merged.toBatchResult());
+    }
+    reset();
+    return completed;
+  }
+
+  void reset() {
+    pendingCount = 0;
+    pendingBytes = 0;
+    flushedResults.clear();
+  }
+
+  private long estimateBytes(BoundSql boundSql, Object parameterObject) {
+    long bytes = 0;
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      Object value;
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      bytes += PARAMETER_OVERHEAD + sizeOf(value);
+    }
+    return bytes;
+  }
+
+  private static long sizeOf(Object value) {
+    if (value == null || value instanceof InputStream || value instanceof Reader) {
+      // streams are read by the driver, their length is unknown here
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 2L * ((char[]) value).length;
+    }
+    return 8;
+  }
+
+  /**
+   * The update counts of consecutive results of one statement, appended to one growing array.
+   */
+  private static final class MergedResult {
+
+    private final MappedStatement mappedStatement;
+    private final String sql;
+    private int[] updateCounts = new int[16];
+    private int size;
+
+    MergedResult(MappedStatement mappedStatement, String sql) {
+      this.mappedStatement = mappedStatement;
+      this.sql = sql;
+    }
+
+    boolean accepts(BatchResult result) {
+      return mappedStatement == result.getMappedStatement() && sql.equals(result.getSql());
+    }
+
+    void append(int[] counts) {
+      if (size + counts.length > updateCounts.length) {
+        updateCounts = Arrays.copyOf(updateCounts, Math.max(updateCounts.length * 2, size + counts.length));
+      }
+      System.arraycopy(counts, 0, updateCounts, size, counts.length);
+      size += counts.length;
+    }
+
+    BatchResult toBatchResult() {
+      BatchResult result = new BatchResult(mappedStatement, sql);
+      result.setUpdateCounts(Arrays.copyOf(updateCounts, size));
+      return result;
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * 批量执行结果处理器，接收批量执行器每次执行 {@code executeBatch} 得到的 {@link BatchResult}
+ * <p>
+ * With a handler registered, the batch executors no longer retain flushed results, so a bulk load keeps only the
+ * pending batch on the heap.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.SqlSession#setBatchResultHandler(BatchResultHandler)
+ */
+@FunctionalInterface
+public interface BatchResultHandler {
+
+  void handleBatchResult(BatchResult batchResult);
+
+}
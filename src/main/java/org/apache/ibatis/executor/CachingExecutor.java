@@ -16,18 +16,29 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheLoader;
+import org.apache.ibatis.cache.TableDependencies;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -47,6 +58,17 @@ public class CachingExecutor implements Executor {
    */
   private final TransactionalCacheManager tcm = new TransactionalCacheManager();
 
+  /**
+   * 本事务修改过的表，提交时使依赖它们的二级缓存失效
+   */
+  private final Set<String> modifiedTables = new HashSet<>();
+  private TableDependencies tableDependencies;
+  /**
+   * 正在执行的写入语句，等待被包装的执行器告知其 SQL
+   */
+  private MappedStatement currentUpdate;
+  private boolean currentUpdateReported;
+
   public CachingExecutor(Executor delegate) {
     this.delegate = delegate;
     delegate.setExecutorWrapper(this);
@@ -65,8 +87,10 @@ public class CachingExecutor implements Executor {
         tcm.rollback();
       } else {
         tcm.commit();
+        invalidateModifiedTables();
       }
     } finally {
+      modifiedTables.clear();
       delegate.close(forceRollback);
     }
   }
@@ -78,8 +102,39 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
-    return delegate.update(ms, parameterObject);
+    if (!ms.getConfiguration().isTableCacheInvalidationEnabled() || !ms.isFlushCacheRequired()) {
+      flushCacheIfRequired(ms);
+      return delegate.update(ms, parameterObject);
+    }
+    // 修改的表由被包装的执行器生成 SQL 时告知，见 updating
+    currentUpdate = ms;
+    currentUpdateReported = false;
+    int updateCount;
+    try {
+      updateCount = delegate.update(ms, parameterObject);
+    } finally {
+      currentUpdate = null;
+    }
+    if (!currentUpdateReported) {
+      // 被包装的执行器不是 BaseExecutor 时，自行生成 SQL
+      addModifiedTables(ms, ms.getBoundSql(parameterObject));
+    }
+    return updateCount;
+  }
+
+  /**
+   * Receives the SQL of the insert, update or delete the delegate is about to execute.
+   *
+   * @param ms
+   *          the statement
+   * @param boundSql
+   *          its SQL
+   */
+  void updating(MappedStatement ms, BoundSql boundSql) {
+    if (currentUpdate == ms) {
+      currentUpdateReported = true;
+      addModifiedTables(ms, boundSql);
+    }
   }
 
   @Override
@@ -123,14 +178,21 @@ public class CachingExecutor implements Executor {
       if (ms.isUseCache() && resultHandler == null) {
         // 二级缓存不支持含有输出参数的 CALLABLE 语句，故在这里进行判断
         ensureNoOutParams(ms, boundSql);
-        // 从缓存中读取数据
+        CacheKey cacheKey = key;
+        if (ms.getConfiguration().isTableCacheInvalidationEnabled()) {
+          cacheKey = versionedKey(ms, key, boundSql);
+          if (cacheKey == null) {
+            // 本事务修改了查询依赖的表，未提交的数据既不能从二级缓存读取，也不能写入二级缓存
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          }
+        }
+        // 从缓存中读取数据，未命中时由被包装的执行器查询
+        StatementLoader loader = new StatementLoader(ms, parameterObject, rowBounds, key, boundSql);
         @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
-        if (list == null) {
-          // 缓存没有命中，则交给被包装的执行器执行
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          // 缓存被包装执行器返回的结果
-          tcm.putObject(cache, key, list); // issue #578 and #116
+        List<E> list = (List<E>) tcm.getObject(cache, cacheKey, loader, ms.getCacheTtl());
+        MetricsCollector metricsCollector = ms.getConfiguration().getMetricsCollector();
+        if (metricsCollector.isEnabled()) {
+          metricsCollector.recordCacheAccess(ms, cache, !loader.loaded);
         }
         return list;
       }
@@ -147,6 +209,7 @@ public class CachingExecutor implements Executor {
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
     tcm.commit();
+    invalidateModifiedTables();
   }
 
   @Override
@@ -156,6 +219,7 @@ public class CachingExecutor implements Executor {
     } finally {
       if (required) {
         tcm.rollback();
+        modifiedTables.clear();
       }
     }
   }
@@ -202,9 +266,118 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  /**
+   * 按表失效时只记录写入语句修改的表，提交时再使依赖它们的缓存失效。修改的表未知时清除整个命名空间的缓存
+   *
+   * @param ms {@link MappedStatement}
+   * @param boundSql 写入语句执行的 SQL
+   */
+  private void addModifiedTables(MappedStatement ms, BoundSql boundSql) {
+    TableDependencies dependencies = ms.getConfiguration().getTableDependencies();
+    String[] tables = dependencies.getWrittenTables(ms, boundSql);
+    if (tables == null) {
+      flushCacheIfRequired(ms);
+      return;
+    }
+    tableDependencies = dependencies;
+    Collections.addAll(modifiedTables, tables);
+    Cache cache = ms.getCache();
+    if (cache != null) {
+      // 每个查询都依赖其命名空间
+      modifiedTables.add(dependencies.namespaceOf(cache));
+    }
+  }
+
+  /**
+   * 二级缓存的键加上查询依赖的表的版本号，表被修改后旧的缓存数据不会再命中
+   *
+   * @return 加上版本号的键，查询依赖本事务修改过的表时为 null
+   */
+  private CacheKey versionedKey(MappedStatement ms, CacheKey key, BoundSql boundSql) {
+    TableDependencies dependencies = ms.getConfiguration().getTableDependencies();
+    String[] tables = dependencies.getReadTables(ms, boundSql);
+    for (String table : tables) {
+      if (modifiedTables.contains(table)) {
+        return null;
+      }
+    }
+    CacheKey versionedKey;
+    try {
+      versionedKey = key.clone();
+    } catch (CloneNotSupportedException e) {
+      throw new ExecutorException("Could not clone the cache key of " + ms.getId() + ". Cause: " + e, e);
+    }
+    dependencies.appendVersions(versionedKey, tables);
+    return versionedKey;
+  }
+
+  private void invalidateModifiedTables() {
+    if (!modifiedTables.isEmpty()) {
+      tableDependencies.invalidate(modifiedTables);
+      modifiedTables.clear();
+    }
+  }
+
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    delegate.setBatchResultHandler(batchResultHandler);
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
   }
 
+  /**
+   * Runs a cached select on a miss, in this session. For refresh-ahead, it runs the select again on the async executor
+   * service with an executor of its own, because the session that hit the entry may be gone by then.
+   */
+  private class StatementLoader implements CacheLoader {
+
+    private final MappedStatement ms;
+    private final Object parameterObject;
+    private final RowBounds rowBounds;
+    private final CacheKey key;
+    private final BoundSql boundSql;
+    private boolean loaded;
+
+    StatementLoader(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql) {
+      this.ms = ms;
+      this.parameterObject = parameterObject;
+      this.rowBounds = rowBounds;
+      this.key = key;
+      this.boundSql = boundSql;
+    }
+
+    @Override
+    public Object load() throws SQLException {
+      loaded = true;
+      return delegate.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+    }
+
+    @Override
+    public CompletableFuture<Object> reload() {
+      Configuration configuration = ms.getConfiguration();
+      Environment environment = configuration.getEnvironment();
+      if (environment == null || environment.getTransactionFactory() == null) {
+        return null;
+      }
+      try {
+        return CompletableFuture.supplyAsync(() -> {
+          Transaction transaction = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+          Executor executor = new SimpleExecutor(configuration, transaction);
+          try {
+            return executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+          } catch (SQLException e) {
+            throw new CompletionException(e);
+          } finally {
+            executor.close(false);
+          }
+        }, configuration.getAsyncExecutorService());
+      } catch (RejectedExecutionException e) {
+        return null;
+      }
+    }
+  }
+
 }
@@ -64,4 +64,16 @@ public interface Executor {
 
   void setExecutorWrapper(Executor executor);
 
+  /**
+   * Sets the handler that receives the results of executed batches instead of {@link #flushStatements()}. Executors
+   * that do not batch statements ignore it.
+   *
+   * @param batchResultHandler
+   *          the handler, or {@code null} to return the results from {@link #flushStatements()}
+   * @since 3.5.6
+   */
+  default void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    // nothing to do for executors that do not batch
+  }
+
 }
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+
+/**
+ * Splits the collection of a {@link ParamMap} parameter into chunks of the sizes configured by
+ * {@link org.apache.ibatis.mapping.MappedStatement#getChunkSizes()}, and merges the chunks back for the key generator.
+ *
+ * @since 3.5.6
+ */
+final class ParameterChunks {
+
+  private ParameterChunks() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Splits the parameter, largest chunks first, keeping the order of the rows. The rows that remain after the smallest
+   * chunk size make a last chunk of their own; it is not padded, since repeating a row would execute it twice.
+   *
+   * @return the chunks, or {@code null} when the parameter does not hold exactly one non-empty collection
+   */
+  static List<Object> split(Object parameter, int[] chunkSizes) {
+    if (!(parameter instanceof ParamMap)) {
+      return null;
+    }
+    ParamMap<?> paramMap = (ParamMap<?>) parameter;
+    Collection<?> collection = null;
+    for (Object value : paramMap.values()) {
+      if (value instanceof Collection) {
+        if (collection != null && collection != value) {
+          return null;
+        }
+        collection = (Collection<?>) value;
+      }
+    }
+    if (collection == null || collection.isEmpty()) {
+      return null;
+    }
+    // 同一个集合可能以多个名字出现，如 collection 和 list、@Param 名和 param1
+    Set<String> chunkedKeys = new HashSet<>();
+    for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
+      if (entry.getValue() == collection) {
+        chunkedKeys.add(entry.getKey());
+      }
+    }
+    List<?> rows = collection instanceof List ? (List<?>) collection : new ArrayList<>(collection);
+    List<Object> chunks = new ArrayList<>();
+    int offset = 0;
+    for (int chunkSize : chunkSizes) {
+      while (rows.size() - offset >= chunkSize) {
+        chunks.add(new Chunk(paramMap, chunkedKeys, rows.subList(offset, offset + chunkSize)));
+        offset += chunkSize;
+      }
+    }
+    if (offset < rows.size()) {
+      chunks.add(new Chunk(paramMap, chunkedKeys, rows.subList(offset, rows.size())));
+    }
+    return chunks;
+  }
+
+  /**
+   * Merges the chunks of a batch into one parameter holding all their rows, so that generated keys are assigned row by
+   * row instead of one key per chunk.
+   *
+   * @return the merged parameter, or the given parameter objects if they are not all chunks
+   */
+  static Object merge(List<Object> parameterObjects) {
+    if (parameterObjects.isEmpty() || !parameterObjects.stream().allMatch(Chunk.class::isInstance)) {
+      return parameterObjects;
+    }
+    Chunk first = (Chunk) parameterObjects.get(0);
+    List<Object> rows = new ArrayList<>();
+    for (Object parameterObject : parameterObjects) {
+      rows.addAll(((Chunk) parameterObject).rows);
+    }
+    ParamMap<Object> merged = new ParamMap<>();
+    merged.putAll(first);
+    for (String key : first.chunkedKeys) {
+      merged.put(key, rows);
+    }
+    return merged;
+  }
+
+  static final class Chunk extends ParamMap<Object> {
+
+    private static final long serialVersionUID = 6473185630913258417L;
+
+    private final transient Set<String> chunkedKeys;
+    private final transient List<?> rows;
+
+    Chunk(ParamMap<?> parameter, Set<String> chunkedKeys, List<?> rows) {
+      putAll(parameter);
+      for (String key : chunkedKeys) {
+        put(key, rows);
+      }
+      this.chunkedKeys = chunkedKeys;
+      this.rows = rows;
+    }
+  }
+
+}
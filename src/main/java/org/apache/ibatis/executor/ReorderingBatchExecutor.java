@@ -0,0 +1,231 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * A batch executor that keeps one open statement per distinct statement and SQL, so that interleaved calls such as
+ * insert-order, insert-line, insert-order, insert-line end up in two JDBC batches instead of one batch per call as with
+ * {@link BatchExecutor}.
+ * <p>
+ * Batches are flushed in the order their first statement was added, which keeps parent rows ahead of the child rows
+ * that reference them. Only inserts are moved ahead of other statements: an update or a delete joins the batch of the
+ * previous call if it has the same statement and SQL, otherwise it starts a new batch and no later statement can join a
+ * batch that was opened before it. Inserts whose rows reference rows of a statement that was first added after theirs
+ * must be flushed explicitly.
+ * <p>
+ * Every flushed {@link BatchResult} holds the update counts of its parameter objects, in the order they were added.
+ * Like {@link BatchExecutor}, all open batches are executed early once {@code batchFlushSize} or
+ * {@code batchFlushBytes} is reached.
+ *
+ * @since 3.5.6
+ */
+public class ReorderingBatchExecutor extends BaseExecutor {
+
+  /**
+   * 按首次加入的顺序排列，刷新时依次执行
+   */
+  private final List<Statement> statementList = new ArrayList<>();
+  private final List<BatchResult> batchResultList = new ArrayList<>();
+
+  /**
+   * 仍可追加参数的批次，key 由语句 id 和 SQL 组成，value 为批次在 {@link #statementList} 中的下标
+   */
+  private final Map<CacheKey, Integer> openBatches = new HashMap<>();
+  private CacheKey lastKey;
+  private final BatchResultAccumulator batchResultAccumulator;
+
+  public ReorderingBatchExecutor(Configuration configuration, Transaction transaction) {
+    super(configuration, transaction);
+    this.batchResultAccumulator = new BatchResultAccumulator(configuration);
+  }
+
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    batchResultAccumulator.setBatchResultHandler(batchResultHandler);
+  }
+
+  @Override
+  public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    final StatementHandler handler = newUpdateStatementHandler(ms, parameterObject);
+    final BoundSql boundSql = handler.getBoundSql();
+    final String sql = boundSql.getSql();
+    final CacheKey key = new CacheKey(2);
+    key.update(ms.getId());
+    key.update(sql);
+    Integer index = ms.getSqlCommandType() == SqlCommandType.INSERT || key.equals(lastKey) ? openBatches.get(key) : null;
+    final Statement stmt;
+    if (index != null) {
+      stmt = statementList.get(index);
+      applyTransactionTimeout(stmt);
+      handler.parameterize(stmt);
+      batchResultList.get(index).addParameterObject(parameterObject);
+    } else {
+      if (ms.getSqlCommandType() != SqlCommandType.INSERT) {
+        // updates and deletes may depend on any earlier statement, nothing may be moved ahead of them
+        openBatches.clear();
+      }
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      openBatches.put(key, statementList.size());
+      statementList.add(stmt);
+      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+    }
+    lastKey = key;
+    handler.batch(stmt);
+    if (batchResultAccumulator.add(boundSql, parameterObject)) {
+      batchResultAccumulator.flushed(executeBatches());
+    }
+    return BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  @Override
+  protected int doUpdateChunks(MappedStatement ms, List<Object> chunks) throws SQLException {
+    for (Object chunk : chunks) {
+      doUpdate(ms, chunk);
+    }
+    return BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  @Override
+  public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
+      throws SQLException {
+    Statement stmt = null;
+    try {
+      flushStatements();
+      Configuration configuration = ms.getConfiguration();
+      StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      return handler.query(stmt, resultHandler);
+    } finally {
+      closeStatement(stmt);
+    }
+  }
+
+  @Override
+  protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Connection connection = getConnection(ms.getStatementLog());
+    Statement stmt = handler.prepare(connection, transaction.getTimeout());
+    handler.parameterize(stmt);
+    Cursor<E> cursor = handler.queryCursor(stmt);
+    stmt.closeOnCompletion();
+    return cursor;
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    if (isRollback) {
+      batchResultAccumulator.reset();
+      closeStatements();
+      return Collections.emptyList();
+    }
+    try {
+      return batchResultAccumulator.complete(executeBatches());
+    } catch (SQLException | RuntimeException e) {
+      batchResultAccumulator.reset();
+      throw e;
+    }
+  }
+
+  private List<BatchResult> executeBatches() throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
+      for (int i = 0, n = statementList.size(); i < n; i++) {
+        Statement stmt = statementList.get(i);
+        applyTransactionTimeout(stmt);
+        BatchResult batchResult = batchResultList.get(i);
+        try {
+          MappedStatement ms = batchResult.getMappedStatement();
+          MetricsCollector metricsCollector = configuration.getMetricsCollector();
+          long start = metricsCollector.isEnabled() ? System.nanoTime() : 0L;
+          batchResult.setUpdateCounts(stmt.executeBatch());
+          if (metricsCollector.isEnabled()) {
+            metricsCollector.recordExecution(ms, System.nanoTime() - start);
+          }
+          List<Object> parameterObjects = batchResult.getParameterObjects();
+          KeyGenerator keyGenerator = ms.getKeyGenerator();
+          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+            jdbc3KeyGenerator.processBatch(ms, stmt, ParameterChunks.merge(parameterObjects));
+          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) {
+            for (Object parameter : parameterObjects) {
+              keyGenerator.processAfter(this, ms, stmt, parameter);
+            }
+          }
+          closeStatement(stmt);
+        } catch (BatchUpdateException e) {
+          StringBuilder message = new StringBuilder();
+          message.append(batchResult.getMappedStatement().getId())
+              .append(" (batch index #")
+              .append(i + 1)
+              .append(")")
+              .append(" failed.");
+          if (i > 0) {
+            message.append(" ")
+                .append(i)
+                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+          }
+          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+        }
+        results.add(batchResult);
+      }
+      return results;
+    } finally {
+      closeStatements();
+    }
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    lastKey = null;
+    openBatches.clear();
+    statementList.clear();
+    batchResultList.clear();
+  }
+
+}
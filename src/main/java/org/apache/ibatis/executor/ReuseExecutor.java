@@ -18,16 +18,23 @@ package org.apache.ibatis.executor;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledStatementCache;
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -35,12 +42,24 @@ import org.apache.ibatis.transaction.Transaction;
 
 /**
  * 支持 Statement 对象复用的执行器
+ * <p>
+ * 如果连接来自开启了 {@code poolStatementCacheSize} 的 {@link PooledDataSource}，
+ * Statement 还会缓存在物理连接上，供之后取得同一连接的会话复用
  *
  * @author Clinton Begin
  */
 public class ReuseExecutor extends BaseExecutor {
 
-  private final Map<String, Statement> statementMap = new HashMap<>();
+  private final Map<StatementKey, Statement> statementMap = new HashMap<>();
+  /**
+   * 当前连接的语句缓存，从中借出的 Statement 在刷新时归还而不关闭
+   */
+  private PooledStatementCache pooledStatementCache;
+  /**
+   * 游标仍在读取的 Statement 保持借出，游标关闭后的下一次刷新时才归还
+   */
+  private final Map<Statement, Cursor<?>> openCursors = new HashMap<>();
+  private final Map<Statement, StatementKey> heldStatements = new HashMap<>();
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -48,9 +67,8 @@ public class ReuseExecutor extends BaseExecutor {
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameter) throws SQLException {
-    Configuration configuration = ms.getConfiguration();
-    StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    StatementHandler handler = newUpdateStatementHandler(ms, parameter);
+    Statement stmt = prepareStatement(ms, handler, ms.getStatementLog());
     return handler.update(stmt);
   }
 
@@ -58,7 +76,7 @@ public class ReuseExecutor extends BaseExecutor {
   public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(ms, handler, ms.getStatementLog());
     return handler.query(stmt, resultHandler);
   }
 
@@ -66,50 +84,137 @@ public class ReuseExecutor extends BaseExecutor {
   protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
-    return handler.queryCursor(stmt);
+    Statement stmt = prepareStatement(ms, handler, ms.getStatementLog());
+    Cursor<E> cursor = handler.queryCursor(stmt);
+    if (pooledStatementCache != null) {
+      openCursors.put(stmt, cursor);
+    }
+    return cursor;
   }
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) {
-    for (Statement stmt : statementMap.values()) {
-      closeStatement(stmt);
+    Map<Statement, StatementKey> statements = new HashMap<>(heldStatements);
+    heldStatements.clear();
+    for (Map.Entry<StatementKey, Statement> entry : statementMap.entrySet()) {
+      statements.put(entry.getValue(), entry.getKey());
     }
     statementMap.clear();
+    for (Map.Entry<Statement, StatementKey> entry : statements.entrySet()) {
+      Statement stmt = entry.getKey();
+      Cursor<?> cursor = openCursors.remove(stmt);
+      if (cursor != null && cursor.isOpen()) {
+        openCursors.put(stmt, cursor);
+        heldStatements.put(stmt, entry.getValue());
+      } else if (pooledStatementCache == null || !pooledStatementCache.checkIn(entry.getValue(), stmt)) {
+        closeStatement(stmt);
+      }
+    }
+    if (heldStatements.isEmpty()) {
+      pooledStatementCache = null;
+    }
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  @Override
+  public void close(boolean forceRollback) {
+    // 会话关闭后游标无法再读取，在连接回到连接池之前归还其语句
+    openCursors.clear();
+    super.close(forceRollback);
+  }
+
+  private Statement prepareStatement(MappedStatement ms, StatementHandler handler, Log statementLog) throws SQLException {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
-    String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
-      stmt = getStatement(sql);
+    StatementKey key = new StatementKey(ms, boundSql.getSql());
+    if (hasStatementFor(key)) {
+      stmt = getStatement(key);
       applyTransactionTimeout(stmt);
     } else {
-      Connection connection = getConnection(statementLog);
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      putStatement(sql, stmt);
+      if (pooledStatementCache == null) {
+        pooledStatementCache = PooledDataSource.getStatementCache(transaction.getConnection());
+      }
+      stmt = pooledStatementCache == null ? null : pooledStatementCache.checkOut(key);
+      if (stmt != null) {
+        // 之前的事务可能缩短了超时时间
+        Integer queryTimeout = ms.getTimeout() != null ? ms.getTimeout() : configuration.getDefaultStatementTimeout();
+        stmt.setQueryTimeout(queryTimeout == null ? 0 : queryTimeout);
+        applyTransactionTimeout(stmt);
+      } else {
+        Connection connection = getConnection(statementLog);
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        if (pooledStatementCache != null) {
+          pooledStatementCache.add(key, stmt);
+        }
+      }
+      putStatement(key, stmt);
     }
     handler.parameterize(stmt);
     return stmt;
   }
 
-  private boolean hasStatementFor(String sql) {
+  private boolean hasStatementFor(StatementKey key) {
     try {
-      Statement statement = statementMap.get(sql);
-      return statement != null && !statement.getConnection().isClosed();
+      Statement statement = statementMap.get(key);
+      return statement != null && !statement.isClosed() && !statement.getConnection().isClosed();
     } catch (SQLException e) {
       return false;
     }
   }
 
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
+  private Statement getStatement(StatementKey key) {
+    return statementMap.get(key);
+  }
+
+  private void putStatement(StatementKey key, Statement stmt) {
+    statementMap.put(key, stmt);
   }
 
-  private void putStatement(String sql, Statement stmt) {
-    statementMap.put(sql, stmt);
+  /**
+   * The SQL of a statement and the attributes it is prepared with, which must all match for it to be reused.
+   */
+  private static final class StatementKey {
+
+    private final String sql;
+    private final StatementType statementType;
+    private final ResultSetType resultSetType;
+    private final boolean generatedKeys;
+    private final String[] keyColumns;
+    private final Integer fetchSize;
+    private final Integer timeout;
+    private final int hashCode;
+
+    StatementKey(MappedStatement ms, String sql) {
+      this.sql = sql;
+      this.statementType = ms.getStatementType();
+      this.resultSetType = ms.getResultSetType();
+      this.generatedKeys = ms.getKeyGenerator() instanceof Jdbc3KeyGenerator;
+      this.keyColumns = generatedKeys ? ms.getKeyColumns() : null;
+      this.fetchSize = ms.getFetchSize();
+      this.timeout = ms.getTimeout();
+      this.hashCode = Objects.hash(sql, statementType, resultSetType, generatedKeys, Arrays.hashCode(keyColumns),
+          fetchSize, timeout);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) o;
+      return hashCode == other.hashCode && sql.equals(other.sql) && statementType == other.statementType
+          && resultSetType == other.resultSetType && generatedKeys == other.generatedKeys
+          && Arrays.equals(keyColumns, other.keyColumns) && Objects.equals(fetchSize, other.fetchSize)
+          && Objects.equals(timeout, other.timeout);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
   }
 
 }
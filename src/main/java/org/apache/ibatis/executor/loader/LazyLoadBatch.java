@@ -0,0 +1,230 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.executor.loader.ResultLoaderMap.LoadPair;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The lazy loaders of the objects mapped from one result set. When the lazy property of one object is loaded by a
+ * nested select that declares a multi-key {@code batchSelect}, the same property of up to {@code lazyLoadBatchSize - 1}
+ * other objects is selected with it, by one execution of the multi-key statement. Its results are matched with the
+ * objects by their {@code batchKey} properties.
+ * <p>
+ * The other objects keep their loaders until they are used: each one then sets its property to the selected value, or
+ * waits for the select if another thread is still running it. A property is therefore never set by the thread of
+ * another object, and a batch that fails leaves the other objects to load their property on their own.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.Configuration#setLazyLoadBatchSize(int)
+ * @see org.apache.ibatis.mapping.MappedStatement#getBatchSelect()
+ */
+public final class LazyLoadBatch {
+
+  private final int batchSize;
+  /**
+   * 按 属性 + 嵌套查询 分组，保存仍有该属性未加载的 ResultLoaderMap。使用弱引用，
+   * 否则任意一个结果对象都会让整个结果集的对象无法回收
+   */
+  private final Map<String, Deque<WeakReference<ResultLoaderMap>>> siblings = new HashMap<>();
+
+  public LazyLoadBatch(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  synchronized void register(ResultLoaderMap loaderMap, String key, String statementId) {
+    siblings.computeIfAbsent(groupKey(key, statementId), k -> new ArrayDeque<>()).add(new WeakReference<>(loaderMap));
+  }
+
+  void load(String key, LoadPair trigger) throws SQLException {
+    final String statementId = trigger.getResultLoader().mappedStatement.getId();
+    Fetch fetch;
+    List<LoadPair> pairs = null;
+    synchronized (this) {
+      fetch = trigger.fetch;
+      if (fetch == null) {
+        pairs = new ArrayList<>();
+        pairs.add(trigger);
+        Deque<WeakReference<ResultLoaderMap>> queue = siblings.get(groupKey(key, statementId));
+        while (queue != null && !queue.isEmpty() && pairs.size() < batchSize) {
+          ResultLoaderMap sibling = queue.poll().get();
+          LoadPair pair = sibling == null ? null : sibling.getPending(key, statementId);
+          if (pair != null && pair.fetch == null) {
+            pairs.add(pair);
+          }
+        }
+        if (queue != null && queue.isEmpty()) {
+          siblings.remove(groupKey(key, statementId));
+        }
+        if (pairs.size() > 1) {
+          fetch = new Fetch(trigger.getResultLoader());
+          for (LoadPair pair : pairs) {
+            pair.fetch = fetch;
+          }
+        }
+      }
+    }
+    if (fetch == null) {
+      // 没有其他待加载的属性，使用原有的单键查询
+      trigger.load();
+      return;
+    }
+    try {
+      if (pairs != null) {
+        fetch.run(pairs);
+      }
+      if (!fetch.await()) {
+        // 另一个线程的批量查询失败，单独加载
+        trigger.load();
+        return;
+      }
+      trigger.setValue(fetch.valueOf(trigger.getResultLoader()));
+    } finally {
+      // 批量查询的结果包含整批的行，属性加载后不再引用
+      synchronized (this) {
+        trigger.fetch = null;
+      }
+    }
+  }
+
+  private static String groupKey(String key, String statementId) {
+    return key + '\u0000' + statementId;
+  }
+
+  /**
+   * One execution of the multi-key statement for the pairs of a batch.
+   */
+  static final class Fetch {
+
+    private final ResultLoader resultLoader;
+    private final String[] keyProperties;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Map<List<Object>, List<Object>> rowsByKey;
+
+    private Fetch(ResultLoader resultLoader) {
+      this.resultLoader = resultLoader;
+      this.keyProperties = resultLoader.mappedStatement.getBatchKeys();
+    }
+
+    private void run(List<LoadPair> pairs) throws SQLException {
+      try {
+        final Configuration configuration = resultLoader.configuration;
+        final String batchSelect = resultLoader.mappedStatement.getBatchSelect();
+        if (!configuration.hasStatement(batchSelect)) {
+          throw new ExecutorException("The batchSelect '" + batchSelect + "' of statement '"
+              + resultLoader.mappedStatement.getId() + "' is not defined.");
+        }
+        // 多个父对象共用同一个键时只查询一次
+        Map<List<Object>, Object> parameters = new LinkedHashMap<>();
+        for (LoadPair pair : pairs) {
+          Object parameter = pair.getResultLoader().parameterObject;
+          parameters.putIfAbsent(keyOf(parameter), parameter);
+        }
+        List<Object> rows = resultLoader.selectList(configuration.getMappedStatement(batchSelect),
+            ParamNameResolver.wrapToMapIfCollection(new ArrayList<>(parameters.values()), null));
+        Map<List<Object>, List<Object>> result = new HashMap<>();
+        for (Object row : rows) {
+          result.computeIfAbsent(keyOf(configuration.newMetaObject(row)), k -> new ArrayList<>()).add(row);
+        }
+        rowsByKey = result;
+      } finally {
+        done.countDown();
+      }
+    }
+
+    /**
+     * Waits for the multi-key statement.
+     *
+     * @return false if it failed
+     */
+    private boolean await() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            done.await();
+            return rowsByKey != null;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    private Object valueOf(ResultLoader loader) {
+      List<Object> rows = rowsByKey.getOrDefault(keyOf(loader.parameterObject), Collections.emptyList());
+      return new ResultExtractor(loader.configuration, loader.objectFactory).extractObjectFromList(rows,
+          loader.targetType);
+    }
+
+    private List<Object> keyOf(Object parameter) {
+      if (parameter instanceof Map) {
+        Object[] values = new Object[keyProperties.length];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = normalize(((Map<?, ?>) parameter).get(keyProperties[i]));
+        }
+        return Arrays.asList(values);
+      }
+      return Collections.singletonList(normalize(parameter));
+    }
+
+    private List<Object> keyOf(MetaObject row) {
+      Object[] values = new Object[keyProperties.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = normalize(row.getValue(keyProperties[i]));
+      }
+      return Arrays.asList(values);
+    }
+
+    /**
+     * 父结果集中的列与结果属性的数值类型可能不同，如 Integer 与 Long
+     */
+    private static Object normalize(Object value) {
+      if (value instanceof Number && !(value instanceof Double) && !(value instanceof Float)) {
+        try {
+          return new BigDecimal(value.toString()).stripTrailingZeros();
+        } catch (NumberFormatException e) {
+          return value;
+        }
+      }
+      return value;
+    }
+  }
+
+}
@@ -74,7 +74,7 @@ public class ResultLoader {
 
   private <E> List<E> selectList() throws SQLException {
     Executor localExecutor = executor;
-    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+    if (!canUseExecutor()) {
       localExecutor = newExecutor();
     }
     try {
@@ -86,6 +86,27 @@ public class ResultLoader {
     }
   }
 
+  /**
+   * Runs another statement the way this loader runs its own, e.g. the multi-key statement of a {@link LazyLoadBatch}.
+   */
+  <E> List<E> selectList(MappedStatement ms, Object parameter) throws SQLException {
+    Executor localExecutor = executor;
+    if (!canUseExecutor()) {
+      localExecutor = newExecutor();
+    }
+    try {
+      return localExecutor.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  private boolean canUseExecutor() {
+    return Thread.currentThread().getId() == this.creatorThreadId && !executor.isClosed();
+  }
+
   private Executor newExecutor() {
     final Environment environment = configuration.getEnvironment();
     if (environment == null) {
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BaseExecutor;
@@ -47,7 +48,23 @@ import org.apache.ibatis.session.RowBounds;
  */
 public class ResultLoaderMap {
 
-  private final Map<String, LoadPair> loaderMap = new HashMap<>();
+  private final Map<String, LoadPair> loaderMap = new ConcurrentHashMap<>();
+  private final LazyLoadBatch batch;
+
+  public ResultLoaderMap() {
+    this(null);
+  }
+
+  /**
+   * Creates a loader map whose properties are loaded together with the same properties of the other maps of the batch.
+   *
+   * @param batch
+   *          the batch of the result set, may be null
+   * @since 3.5.6
+   */
+  public ResultLoaderMap(LazyLoadBatch batch) {
+    this.batch = batch;
+  }
 
   public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
     String upperFirst = getUppercaseFirstProperty(property);
@@ -57,6 +74,9 @@ public class ResultLoaderMap {
               + " already exists in the result map. The leftmost property of all lazy loaded properties must be unique within a result map.");
     }
     loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
+    if (batch != null && resultLoader.mappedStatement.getBatchSelect() != null) {
+      batch.register(this, upperFirst, resultLoader.mappedStatement.getId());
+    }
   }
 
   public final Map<String, LoadPair> getProperties() {
@@ -76,14 +96,30 @@ public class ResultLoaderMap {
   }
 
   public boolean load(String property) throws SQLException {
-    LoadPair pair = loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
+    String key = property.toUpperCase(Locale.ENGLISH);
+    LoadPair pair = loaderMap.remove(key);
     if (pair != null) {
-      pair.load();
+      if (batch != null && pair.isBatchable()) {
+        batch.load(key, pair);
+      } else {
+        pair.load();
+      }
       return true;
     }
     return false;
   }
 
+  /**
+   * Gets the loader of a property that is still pending, so that another map of the batch can select it.
+   */
+  LoadPair getPending(String key, String statementId) {
+    LoadPair pair = loaderMap.get(key);
+    if (pair != null && pair.isBatchable() && statementId.equals(pair.resultLoader.mappedStatement.getId())) {
+      return pair;
+    }
+    return null;
+  }
+
   public void remove(String property) {
     loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
   }
@@ -145,6 +181,10 @@ public class ResultLoaderMap {
      * Parameter of the sql statement.
      */
     private Serializable mappedParameter;
+    /**
+     * The multi-key load of the batch that selects this property, guarded by the batch.
+     */
+    transient LazyLoadBatch.Fetch fetch;
 
     private LoadPair(final String property, MetaObject metaResultObject, ResultLoader resultLoader) {
       this.property = property;
@@ -234,6 +274,22 @@ public class ResultLoaderMap {
       this.metaResultObject.setValue(property, this.resultLoader.loadResult());
     }
 
+    boolean isBatchable() {
+      return serializationCheck != null && metaResultObject != null && resultLoader != null
+          && resultLoader.mappedStatement.getBatchSelect() != null;
+    }
+
+    ResultLoader getResultLoader() {
+      return resultLoader;
+    }
+
+    /**
+     * Sets the property to a value selected by the multi-key statement of a batch.
+     */
+    void setValue(Object value) {
+      this.metaResultObject.setValue(property, value);
+    }
+
     private Configuration getConfiguration() {
       if (this.configurationFactory == null) {
         throw new ExecutorException("Cannot get Configuration as configuration factory was not set.");
@@ -0,0 +1,457 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * A row mapper compiled for one {@link ResultMap} and one column layout of a {@link ResultSetWrapper}.
+ * <p>
+ * Everything {@link DefaultResultSetHandler} resolves for every row (the constructor, the setters, the type handlers
+ * and the columns they read) is resolved once, so mapping a row only reads the columns by position and calls the
+ * constructor and setters through {@link MethodHandle}s. Result maps that need the interpreter (nested result maps,
+ * nested queries, discriminators, multiple result sets, nested properties, custom object factories or wrappers) are not
+ * compiled, see {@link #isSupported()}.
+ *
+ * @since 3.5.6
+ */
+public final class CompiledRowMapper {
+
+  /**
+   * 无法编译的结果映射的占位符，避免每次查询都重新尝试编译
+   */
+  static final CompiledRowMapper UNSUPPORTED = new CompiledRowMapper(null, null, new ColumnValue[0], new PropertySetter[0], false);
+
+  private static final MethodType INSTANTIATOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final Object[] NO_ARGS = new Object[0];
+
+  private final Class<?> type;
+  /**
+   * 构造方法，类型为 (Object[])Object
+   */
+  private final MethodHandle instantiator;
+  private final ColumnValue[] constructorArgs;
+  /**
+   * 依次为自动映射的属性和 {@link ResultMap} 中声明的属性，和 {@link DefaultResultSetHandler} 的赋值顺序一致
+   */
+  private final PropertySetter[] setters;
+  private final boolean returnInstanceForEmptyRow;
+
+  private CompiledRowMapper(Class<?> type, MethodHandle instantiator, ColumnValue[] constructorArgs, PropertySetter[] setters,
+      boolean returnInstanceForEmptyRow) {
+    this.type = type;
+    this.instantiator = instantiator;
+    this.constructorArgs = constructorArgs;
+    this.setters = setters;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+  }
+
+  /**
+   * @return false if the result map has to be mapped by {@link DefaultResultSetHandler}
+   */
+  public boolean isSupported() {
+    return this != UNSUPPORTED;
+  }
+
+  /**
+   * 将结果集的当前行转化为对象
+   *
+   * @param rs 结果集，游标已经指向要映射的行
+   * @return 结果对象，如果该行没有任何值则返回 null（除非开启了 returnInstanceForEmptyRow）
+   * @throws SQLException
+   */
+  public Object map(ResultSet rs) throws SQLException {
+    boolean foundValues = false;
+    Object[] args = NO_ARGS;
+    if (constructorArgs.length > 0) {
+      args = new Object[constructorArgs.length];
+      for (int i = 0; i < constructorArgs.length; i++) {
+        final ColumnValue constructorArg = constructorArgs[i];
+        try {
+          args[i] = constructorArg.typeHandler.getResult(rs, constructorArg.columnIndex);
+        } catch (ResultMapException | SQLException e) {
+          throw new ExecutorException("Could not process result for mapping: " + constructorArg.mapping, e);
+        }
+        foundValues = args[i] != null || foundValues;
+      }
+      if (!foundValues) {
+        return null;
+      }
+    }
+    final Object rowValue = instantiate(args);
+    for (PropertySetter setter : setters) {
+      final Object value = setter.typeHandler.getResult(rs, setter.columnIndex);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || setter.callSetterOnNull) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        setter.set(rowValue, value);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  /**
+   * 读取结果集当前行中映射需要的列值，和 {@link #map(Object[])} 一起把读取和映射分开，映射可以交给其它线程完成
+   *
+   * @param rs 结果集，游标已经指向要映射的行
+   * @return 依次为构造参数和属性的列值
+   * @throws SQLException
+   */
+  public Object[] read(ResultSet rs) throws SQLException {
+    final Object[] values = new Object[constructorArgs.length + setters.length];
+    for (int i = 0; i < constructorArgs.length; i++) {
+      final ColumnValue constructorArg = constructorArgs[i];
+      try {
+        values[i] = constructorArg.typeHandler.getResult(rs, constructorArg.columnIndex);
+      } catch (ResultMapException | SQLException e) {
+        throw new ExecutorException("Could not process result for mapping: " + constructorArg.mapping, e);
+      }
+    }
+    for (int i = 0; i < setters.length; i++) {
+      final PropertySetter setter = setters[i];
+      values[constructorArgs.length + i] = setter.typeHandler.getResult(rs, setter.columnIndex);
+    }
+    return values;
+  }
+
+  /**
+   * 将 {@link #read(ResultSet)} 读取的列值转化为对象，不访问结果集，可以在任意线程调用
+   *
+   * @param values 列值
+   * @return 结果对象，如果该行没有任何值则返回 null（除非开启了 returnInstanceForEmptyRow）
+   */
+  public Object map(Object[] values) {
+    boolean foundValues = false;
+    Object[] args = NO_ARGS;
+    if (constructorArgs.length > 0) {
+      args = Arrays.copyOf(values, constructorArgs.length);
+      for (Object arg : args) {
+        foundValues = arg != null || foundValues;
+      }
+      if (!foundValues) {
+        return null;
+      }
+    }
+    final Object rowValue = instantiate(args);
+    for (int i = 0; i < setters.length; i++) {
+      final PropertySetter setter = setters[i];
+      final Object value = values[constructorArgs.length + i];
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || setter.callSetterOnNull) {
+        setter.set(rowValue, value);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  private Object instantiate(Object[] args) {
+    try {
+      return (Object) instantiator.invokeExact(args);
+    } catch (Throwable t) {
+      throw new ReflectionException("Error instantiating " + type + " with values (" + Arrays.toString(args) + "). Cause: " + t, t);
+    }
+  }
+
+  /**
+   * 编译结果映射。如果该结果映射不能编译，则返回 {@link #UNSUPPORTED}
+   *
+   * @param rsw 结果集包装，提供列的布局
+   * @param resultMap 结果映射，不能有鉴别器
+   * @param configuration 配置
+   * @return 编译好的行映射器或 {@link #UNSUPPORTED}
+   * @throws SQLException
+   */
+  public static CompiledRowMapper compile(ResultSetWrapper rsw, ResultMap resultMap, Configuration configuration) throws SQLException {
+    final Class<?> type = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null
+        || configuration.getObjectFactory().getClass() != DefaultObjectFactory.class
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class
+        || type.isInterface() || type.isArray() || Modifier.isAbstract(type.getModifiers())
+        || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)) {
+      return UNSUPPORTED;
+    }
+    final MetaClass metaType = MetaClass.forClass(type, configuration.getReflectorFactory());
+    final Reflector reflector = configuration.getReflectorFactory().findForClass(type);
+
+    // 构造方法
+    final List<ResultMapping> constructorMappings = resultMap.getConstructorResultMappings();
+    final ColumnValue[] constructorArgs = new ColumnValue[constructorMappings.size()];
+    final Class<?>[] constructorArgTypes = new Class<?>[constructorMappings.size()];
+    for (int i = 0; i < constructorArgs.length; i++) {
+      final ResultMapping constructorMapping = constructorMappings.get(i);
+      final int columnIndex = findColumnIndex(rsw, constructorMapping.getColumn());
+      if (columnIndex < 0 || constructorMapping.getTypeHandler() == null || constructorMapping.getResultSet() != null) {
+        return UNSUPPORTED;
+      }
+      constructorArgs[i] = new ColumnValue(columnIndex, constructorMapping.getTypeHandler(), constructorMapping);
+      constructorArgTypes[i] = constructorMapping.getJavaType();
+    }
+    if (constructorArgs.length == 0 && !metaType.hasDefaultConstructor()) {
+      return UNSUPPORTED;
+    }
+    final MethodHandle instantiator = findConstructor(type, constructorArgTypes);
+    if (instantiator == null) {
+      return UNSUPPORTED;
+    }
+
+    final List<PropertySetter> setters = new ArrayList<>();
+    // 自动映射
+    if (shouldApplyAutomaticMappings(resultMap, configuration)) {
+      final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+      final boolean failOnUnknownColumns = configuration.getAutoMappingUnknownColumnBehavior() != AutoMappingUnknownColumnBehavior.NONE;
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        final String property = metaType.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && property.indexOf('.') >= 0) {
+          // 嵌套属性需要 MetaObject 创建中间对象
+          return UNSUPPORTED;
+        }
+        if (property != null && metaType.hasSetter(property)) {
+          if (resultMap.getMappedProperties().contains(property)) {
+            continue;
+          }
+          final Class<?> propertyType = metaType.getSetterType(property);
+          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+            setters.add(newSetter(reflector, findColumnIndex(rsw, columnName), typeHandler, property, configuration));
+          } else if (failOnUnknownColumns) {
+            return UNSUPPORTED;
+          }
+        } else if (failOnUnknownColumns) {
+          // 让解释器报告未知的列
+          return UNSUPPORTED;
+        }
+      }
+    }
+
+    // 明确映射的属性
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return UNSUPPORTED;
+      }
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      if (column == null || property == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (property.indexOf('.') >= 0 || !metaType.hasSetter(property) || propertyMapping.getTypeHandler() == null) {
+        return UNSUPPORTED;
+      }
+      setters.add(newSetter(reflector, findColumnIndex(rsw, column), propertyMapping.getTypeHandler(), property, configuration));
+    }
+
+    return new CompiledRowMapper(type, instantiator, constructorArgs, setters.toArray(new PropertySetter[0]),
+        configuration.isReturnInstanceForEmptyRow());
+  }
+
+  private static boolean shouldApplyAutomaticMappings(ResultMap resultMap, Configuration configuration) {
+    if (resultMap.getAutoMapping() != null) {
+      return resultMap.getAutoMapping();
+    }
+    return AutoMappingBehavior.NONE != configuration.getAutoMappingBehavior();
+  }
+
+  /**
+   * 和 JDBC 驱动按列名取值一样，返回第一个名称相同（忽略大小写）的列的位置
+   */
+  private static int findColumnIndex(ResultSetWrapper rsw, String column) {
+    if (column == null) {
+      return -1;
+    }
+    final List<String> columnNames = rsw.getColumnNames();
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(column)) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  private static MethodHandle findConstructor(Class<?> type, Class<?>[] argTypes) {
+    try {
+      final Constructor<?> constructor = type.getDeclaredConstructor(argTypes);
+      final MethodHandle handle = unreflect(constructor);
+      if (handle == null) {
+        return null;
+      }
+      return handle.asSpreader(Object[].class, argTypes.length).asType(INSTANTIATOR_TYPE);
+    } catch (NoSuchMethodException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static PropertySetter newSetter(Reflector reflector, int columnIndex, TypeHandler<?> typeHandler, String property,
+      Configuration configuration) {
+    final Class<?> setterType = reflector.getSetterType(property);
+    MethodHandle handle = null;
+    try {
+      handle = findSetter(reflector.getType(), property, setterType);
+    } catch (RuntimeException e) {
+      // 无法访问，使用反射
+    }
+    return new PropertySetter(columnIndex, typeHandler, property, handle, reflector.getSetInvoker(property),
+        configuration.isCallSettersOnNulls() && !setterType.isPrimitive());
+  }
+
+  /**
+   * 查找和 {@link Reflector} 选择的相同的 setter 方法或字段。查找不到或者有歧义时返回 null，使用 {@link Reflector} 的
+   * {@link Invoker}
+   */
+  private static MethodHandle findSetter(Class<?> type, String property, Class<?> setterType) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      Method setter = null;
+      int candidates = 0;
+      for (Method method : current.getDeclaredMethods()) {
+        final String name = method.getName();
+        if (name.startsWith("set") && name.length() > 3 && method.getParameterTypes().length == 1 && !method.isBridge()
+            && !Modifier.isStatic(method.getModifiers()) && property.equals(PropertyNamer.methodToProperty(name))) {
+          candidates++;
+          setter = method;
+        }
+      }
+      if (candidates > 0) {
+        if (candidates > 1 || setter.getParameterTypes()[0] != setterType) {
+          return null;
+        }
+        final MethodHandle handle = unreflect(setter);
+        return handle == null ? null : handle.asType(SETTER_TYPE);
+      }
+    }
+    // 没有 setter 方法时 Reflector 直接给字段赋值
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (field.getName().equals(property)) {
+          if (field.getType() != setterType || Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers())) {
+            return null;
+          }
+          final MethodHandle handle = unreflect(field);
+          return handle == null ? null : handle.asType(SETTER_TYPE);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static MethodHandle unreflect(AccessibleObject member) {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    for (int attempt = 0; attempt < 2; attempt++) {
+      try {
+        if (member instanceof Constructor) {
+          return lookup.unreflectConstructor((Constructor<?>) member);
+        } else if (member instanceof Method) {
+          return lookup.unreflect((Method) member);
+        } else {
+          return lookup.unreflectSetter((Field) member);
+        }
+      } catch (IllegalAccessException e) {
+        if (attempt > 0 || !Reflector.canControlMemberAccessible()) {
+          return null;
+        }
+        member.setAccessible(true);
+      }
+    }
+    return null;
+  }
+
+  private static class ColumnValue {
+    final int columnIndex;
+    final TypeHandler<?> typeHandler;
+    final ResultMapping mapping;
+
+    ColumnValue(int columnIndex, TypeHandler<?> typeHandler, ResultMapping mapping) {
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.mapping = mapping;
+    }
+  }
+
+  private static class PropertySetter {
+    final int columnIndex;
+    final TypeHandler<?> typeHandler;
+    final String property;
+    /**
+     * setter 方法或字段，类型为 (Object, Object)void。为 null 时使用 {@link #invoker}
+     */
+    final MethodHandle handle;
+    final Invoker invoker;
+    final boolean callSetterOnNull;
+
+    PropertySetter(int columnIndex, TypeHandler<?> typeHandler, String property, MethodHandle handle, Invoker invoker,
+        boolean callSetterOnNull) {
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.property = property;
+      this.handle = handle;
+      this.invoker = invoker;
+      this.callSetterOnNull = callSetterOnNull;
+    }
+
+    void set(Object target, Object value) {
+      try {
+        if (handle != null) {
+          handle.invokeExact(target, value);
+        } else {
+          try {
+            invoker.invoke(target, new Object[] { value });
+          } catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+          }
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + property + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
@@ -30,12 +30,15 @@ import java.util.Set;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.LazyLoadBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -98,6 +101,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
+  // 开启 nestedQueryParallelism 时，汇总非懒加载的嵌套查询，待结果集处理完后并行执行
+  private NestedQueryBatch nestedQueryBatch;
+
+  // 开启 lazyLoadBatchSize 时，同一结果集的懒加载属性成批加载
+  private LazyLoadBatch lazyLoadBatch;
+
   private static class PendingRelation {
     public MetaObject metaObject;
     public ResultMapping propertyMapping;
@@ -183,6 +192,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     // 存储处理结果
     final List<Object> multipleResults = new ArrayList<>();
+    // 结果交给自定义 ResultHandler 时对象会立刻被使用，无法推迟嵌套查询
+    if (configuration.getNestedQueryParallelism() > 0 && resultHandler == null) {
+      nestedQueryBatch = new NestedQueryBatch(configuration);
+    }
+    // 游标逐行返回结果，不保留整个结果集的懒加载器
+    if (configuration.getLazyLoadBatchSize() > 1 && configuration.isLazyLoadingEnabled()) {
+      lazyLoadBatch = new LazyLoadBatch(configuration.getLazyLoadBatchSize());
+    }
 
     // 该变量用来对结果集进行计数
     int resultSetCount = 0;
@@ -227,6 +244,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    if (nestedQueryBatch != null) {
+      // 执行汇总的嵌套查询
+      NestedQueryBatch batch = nestedQueryBatch;
+      nestedQueryBatch = null;
+      batch.load();
+    }
+
     // 判断是否是单结果集：如果是则返回结果列表；如果不是则返回结果集列表
     return collapseSingleResultList(multipleResults);
   }
@@ -246,7 +270,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    DefaultCursor<E> cursor = new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    if (configuration.getCursorPrefetchSize() > 0 && !hasNestedQueries(resultMap, new HashSet<>())) {
+      // 嵌套查询会在预取线程上使用本会话的执行器，只能逐行映射
+      return new PrefetchingCursor<>(cursor, rsw, configuration.getCursorPrefetchSize(), configuration.getAsyncExecutorService());
+    }
+    return cursor;
+  }
+
+  private boolean hasNestedQueries(ResultMap resultMap, Set<String> visitedResultMapIds) {
+    if (!visitedResultMapIds.add(resultMap.getId())) {
+      return false;
+    }
+    if (resultMap.hasNestedQueries()) {
+      return true;
+    }
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      String nestedResultMapId = resultMapping.getNestedResultMapId();
+      if (nestedResultMapId != null && hasNestedQueries(configuration.getResultMap(nestedResultMapId), visitedResultMapIds)) {
+        return true;
+      }
+    }
+    Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator != null) {
+      for (String caseResultMapId : discriminator.getDiscriminatorMap().values()) {
+        if (configuration.hasResultMap(caseResultMapId)
+            && hasNestedQueries(configuration.getResultMap(caseResultMapId), visitedResultMapIds)) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -381,6 +435,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ResultSet resultSet = rsw.getResultSet();
     // 根据翻页配置，跳过指定的行
     skipRows(resultSet, rowBounds);
+    final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
+    if (rowMapper != null) {
+      while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+        storeObject(resultHandler, resultContext, rowMapper.map(resultSet), parentMapping, resultSet);
+      }
+      return;
+    }
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       // 将一条记录转化为一个对象
@@ -390,6 +451,40 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * 获取编译好的行映射器，结果映射不能编译时返回 null
+   */
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    return configuration.isCompiledRowMappersEnabled() ? compileRowMapper(rsw, resultMap) : null;
+  }
+
+  /**
+   * Returns the compiled row mapper for the result map and the column layout of the result set, regardless of the
+   * {@code compiledRowMappersEnabled} setting.
+   *
+   * @param rsw
+   *          the result set
+   * @param resultMap
+   *          the result map
+   * @return the row mapper, or null if the result map has to be mapped by this handler
+   * @throws SQLException
+   *           if the metadata of the result set cannot be read
+   * @since 3.5.6
+   */
+  public CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (resultMap.getDiscriminator() != null || hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return null;
+    }
+    final Cache compiledRowMappers = configuration.getCompiledRowMappers();
+    final String key = resultMap.getId() + ":" + rsw.getColumnLayout();
+    CompiledRowMapper rowMapper = (CompiledRowMapper) compiledRowMappers.getObject(key);
+    if (rowMapper == null) {
+      rowMapper = CompiledRowMapper.compile(rsw, resultMap, configuration);
+      compiledRowMappers.putObject(key, rowMapper);
+    }
+    return rowMapper.isSupported() ? rowMapper : null;
+  }
+
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       // 存在父级，则将这一行记录对应的结果对象绑定到父级结果上
@@ -440,7 +535,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
-    final ResultLoaderMap lazyLoader = new ResultLoaderMap();
+    final ResultLoaderMap lazyLoader = new ResultLoaderMap(lazyLoadBatch);
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
       //
@@ -470,7 +565,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       applyNestedResultMappings(rsw, resultMap, metaObject, columnPrefix, combinedKey, false);
       ancestorObjects.remove(resultMapId);
     } else {
-      final ResultLoaderMap lazyLoader = new ResultLoaderMap();
+      final ResultLoaderMap lazyLoader = new ResultLoaderMap(lazyLoadBatch);
       rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
       if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
         final MetaObject metaObject = configuration.newMetaObject(rowValue);
@@ -844,6 +939,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (propertyMapping.isLazy()) {
           lazyLoader.addLoader(property, metaResultObject, resultLoader);
           value = DEFERRED;
+        } else if (nestedQueryBatch != null && property != null) {
+          nestedQueryBatch.add(key, resultLoader, targetType, metaResultObject, property);
+          value = DEFERRED;
         } else {
           value = resultLoader.loadResult();
         }
@@ -1083,9 +1181,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    // result map id followed by column name and value pairs
+    final CacheKey cacheKey = new CacheKey(1 + 2 * (resultMappings.isEmpty() ? rsw.getColumnNames().size() : resultMappings.size()));
+    cacheKey.update(resultMap.getId());
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
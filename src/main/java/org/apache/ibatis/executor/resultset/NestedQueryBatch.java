@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Gathers the eager nested selects of a result set so that each distinct key is selected once and the selects run in
+ * parallel once the result set has been mapped.
+ * <p>
+ * The calling thread loads through the executor of its session, the other threads, taken from
+ * {@link Configuration#getAsyncExecutorService()}, through a new executor each, as
+ * {@link ResultLoader} does when it is used from another thread. Nested selects of nested selects are loaded by the
+ * thread that loads their parent, so that one query never takes more than {@code nestedQueryParallelism} connections.
+ *
+ * @since 3.5.6
+ * @see Configuration#setNestedQueryParallelism(int)
+ */
+final class NestedQueryBatch {
+
+  private static final ThreadLocal<Boolean> LOADING = new ThreadLocal<>();
+
+  private final Configuration configuration;
+  private final Map<CacheKey, PendingLoad> pendingLoads = new LinkedHashMap<>();
+
+  NestedQueryBatch(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Registers a property whose value is loaded by the result loader.
+   *
+   * @param key
+   *          the cache key of the nested select
+   * @param resultLoader
+   *          the loader of the nested select
+   * @param targetType
+   *          the type of the property
+   * @param metaObject
+   *          the object that owns the property
+   * @param property
+   *          the property
+   */
+  void add(CacheKey key, ResultLoader resultLoader, Class<?> targetType, MetaObject metaObject, String property) {
+    pendingLoads.computeIfAbsent(new CacheKey(new Object[] { key, targetType }), k -> new PendingLoad(resultLoader))
+        .addTarget(metaObject, property);
+  }
+
+  /**
+   * Runs the registered selects and sets the properties on the calling thread once all selects completed.
+   *
+   * @throws SQLException
+   *           if a select fails
+   */
+  void load() throws SQLException {
+    if (pendingLoads.isEmpty()) {
+      return;
+    }
+    final List<PendingLoad> loads = new ArrayList<>(pendingLoads.values());
+    pendingLoads.clear();
+    final AtomicInteger next = new AtomicInteger();
+    // nested selects of nested selects are loaded by the thread that loads their parent
+    final int helpers = LOADING.get() != null ? 0 : Math.min(configuration.getNestedQueryParallelism(), loads.size()) - 1;
+    final List<Future<?>> futures = new ArrayList<>(Math.max(helpers, 0));
+    final List<AtomicBoolean> started = new ArrayList<>(Math.max(helpers, 0));
+    for (int i = 0; i < helpers; i++) {
+      final AtomicBoolean helperStarted = new AtomicBoolean();
+      started.add(helperStarted);
+      futures.add(configuration.getAsyncExecutorService().submit(() -> {
+        if (!helperStarted.compareAndSet(false, true)) {
+          return null;
+        }
+        LOADING.set(Boolean.TRUE);
+        try {
+          loadAll(loads, next);
+        } finally {
+          LOADING.remove();
+        }
+        return null;
+      }));
+    }
+    Throwable failure = null;
+    final boolean nested = LOADING.get() != null;
+    LOADING.set(Boolean.TRUE);
+    try {
+      loadAll(loads, next);
+    } catch (SQLException | RuntimeException e) {
+      failure = e;
+      // let the helpers stop at their next select
+      next.set(loads.size());
+    } finally {
+      if (!nested) {
+        LOADING.remove();
+      }
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      if (started.get(i).compareAndSet(false, true)) {
+        // the helper has not started yet and has nothing left to do, waiting for it could starve a bounded pool
+        continue;
+      }
+      try {
+        futures.get(i).get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure instanceof SQLException) {
+      throw (SQLException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure != null) {
+      throw new ExecutorException("Error loading nested queries.  Cause: " + failure, failure);
+    }
+    final boolean callSettersOnNulls = configuration.isCallSettersOnNulls();
+    for (PendingLoad load : loads) {
+      load.apply(callSettersOnNulls);
+    }
+  }
+
+  private static void loadAll(List<PendingLoad> loads, AtomicInteger next) throws SQLException {
+    for (int i = next.getAndIncrement(); i < loads.size(); i = next.getAndIncrement()) {
+      PendingLoad load = loads.get(i);
+      load.value = load.resultLoader.loadResult();
+    }
+  }
+
+  private static final class PendingLoad {
+    private final ResultLoader resultLoader;
+    private final List<MetaObject> metaObjects = new ArrayList<>(1);
+    private final List<String> properties = new ArrayList<>(1);
+    private Object value;
+
+    PendingLoad(ResultLoader resultLoader) {
+      this.resultLoader = resultLoader;
+    }
+
+    void addTarget(MetaObject metaObject, String property) {
+      metaObjects.add(metaObject);
+      properties.add(property);
+    }
+
+    void apply(boolean callSettersOnNulls) {
+      for (int i = 0; i < metaObjects.size(); i++) {
+        MetaObject metaObject = metaObjects.get(i);
+        String property = properties.get(i);
+        if (value != null || (callSettersOnNulls && !metaObject.getSetterType(property).isPrimitive())) {
+          metaObject.setValue(property, value);
+        }
+      }
+    }
+  }
+
+}
@@ -81,6 +81,11 @@ public class ResultSetWrapper {
    */
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
 
+  /**
+   * 列布局（列名、Java 类型和 JDBC 类型），延迟生成
+   */
+  private String columnLayout;
+
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
@@ -110,6 +115,24 @@ public class ResultSetWrapper {
     return jdbcTypes;
   }
 
+  /**
+   * Gets a key that describes the names, Java types and JDBC types of all the columns. Two result sets with the same
+   * column layout are mapped with the same columns and type handlers.
+   *
+   * @return the column layout
+   * @since 3.5.6
+   */
+  public String getColumnLayout() {
+    if (columnLayout == null) {
+      StringBuilder layout = new StringBuilder();
+      for (int i = 0; i < columnNames.size(); i++) {
+        layout.append(columnNames.get(i)).append(':').append(classNames.get(i)).append(':').append(jdbcTypes.get(i)).append(',');
+      }
+      columnLayout = layout.toString();
+    }
+    return columnLayout;
+  }
+
   public JdbcType getJdbcType(String columnName) {
     for (int i = 0; i < columnNames.size(); i++) {
       if (columnNames.get(i).equalsIgnoreCase(columnName)) {
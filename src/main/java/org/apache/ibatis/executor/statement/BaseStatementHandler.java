@@ -18,6 +18,7 @@ package org.apache.ibatis.executor.statement;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -27,6 +28,7 @@ import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -47,6 +49,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
   protected final Executor executor;
   protected final MappedStatement mappedStatement;
   protected final RowBounds rowBounds;
+  protected final MetricsCollector metricsCollector;
 
   protected BoundSql boundSql;
 
@@ -55,6 +58,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
     this.executor = executor;
     this.mappedStatement = mappedStatement;
     this.rowBounds = rowBounds;
+    this.metricsCollector = configuration.getMetricsCollector();
 
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
@@ -125,6 +129,44 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
   }
 
+  /**
+   * 开始计时
+   *
+   * @return 当前时间（纳秒），未启用指标收集时为 0
+   */
+  protected long startTimer() {
+    return metricsCollector.isEnabled() ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * 记录语句的执行时间
+   *
+   * @param start {@link #startTimer()} 的返回值
+   * @return 当前时间（纳秒），作为结果集映射的开始时间
+   */
+  protected long recordExecution(long start) {
+    if (!metricsCollector.isEnabled()) {
+      return 0L;
+    }
+    long now = System.nanoTime();
+    metricsCollector.recordExecution(mappedStatement, now - start);
+    return now;
+  }
+
+  /**
+   * 记录结果集映射的时间和结果数量
+   *
+   * @param start {@link #recordExecution(long)} 的返回值
+   * @param results 映射结果
+   * @return 映射结果
+   */
+  protected <E> List<E> recordResultMapping(long start, List<E> results) {
+    if (metricsCollector.isEnabled()) {
+      metricsCollector.recordResultMapping(mappedStatement, System.nanoTime() - start, results.size());
+    }
+    return results;
+  }
+
   protected void closeStatement(Statement statement) {
     try {
       if (statement != null) {
@@ -49,7 +49,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    long start = startTimer();
     cs.execute();
+    recordExecution(start);
     int rows = cs.getUpdateCount();
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
@@ -67,8 +69,10 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    long start = startTimer();
     cs.execute();
-    List<E> resultList = resultSetHandler.handleResultSets(cs);
+    start = recordExecution(start);
+    List<E> resultList = recordResultMapping(start, resultSetHandler.handleResultSets(cs));
     resultSetHandler.handleOutputParameters(cs);
     return resultList;
   }
@@ -76,7 +80,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
+    long start = startTimer();
     cs.execute();
+    recordExecution(start);
     Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
     resultSetHandler.handleOutputParameters(cs);
     return resultList;
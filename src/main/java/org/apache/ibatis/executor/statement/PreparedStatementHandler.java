@@ -46,7 +46,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTimer();
     ps.execute();
+    recordExecution(start);
     int rows = ps.getUpdateCount();
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
@@ -63,14 +65,18 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTimer();
     ps.execute();
-    return resultSetHandler.handleResultSets(ps);
+    start = recordExecution(start);
+    return recordResultMapping(start, resultSetHandler.handleResultSets(ps));
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTimer();
     ps.execute();
+    recordExecution(start);
     return resultSetHandler.handleCursorResultSets(ps);
   }
 
@@ -66,22 +66,42 @@ public class RoutingStatementHandler implements StatementHandler {
 
   @Override
   public void batch(Statement statement) throws SQLException {
-    delegate.batch(statement);
+    StatementCanceller.track(statement);
+    try {
+      delegate.batch(statement);
+    } finally {
+      StatementCanceller.untrack(statement);
+    }
   }
 
   @Override
   public int update(Statement statement) throws SQLException {
-    return delegate.update(statement);
+    StatementCanceller.track(statement);
+    try {
+      return delegate.update(statement);
+    } finally {
+      StatementCanceller.untrack(statement);
+    }
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
-    return delegate.query(statement, resultHandler);
+    StatementCanceller.track(statement);
+    try {
+      return delegate.query(statement, resultHandler);
+    } finally {
+      StatementCanceller.untrack(statement);
+    }
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
-    return delegate.queryCursor(statement);
+    StatementCanceller.track(statement);
+    try {
+      return delegate.queryCursor(statement);
+    } finally {
+      StatementCanceller.untrack(statement);
+    }
   }
 
   @Override
@@ -47,16 +47,20 @@ public class SimpleStatementHandler extends BaseStatementHandler {
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
     int rows;
+    long start = startTimer();
     if (keyGenerator instanceof Jdbc3KeyGenerator) {
       statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
+      recordExecution(start);
       rows = statement.getUpdateCount();
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     } else if (keyGenerator instanceof SelectKeyGenerator) {
       statement.execute(sql);
+      recordExecution(start);
       rows = statement.getUpdateCount();
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     } else {
       statement.execute(sql);
+      recordExecution(start);
       rows = statement.getUpdateCount();
     }
     return rows;
@@ -71,14 +75,18 @@ public class SimpleStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     String sql = boundSql.getSql();
+    long start = startTimer();
     statement.execute(sql);
-    return resultSetHandler.handleResultSets(statement);
+    start = recordExecution(start);
+    return recordResultMapping(start, resultSetHandler.handleResultSets(statement));
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
+    long start = startTimer();
     statement.execute(sql);
+    recordExecution(start);
     return resultSetHandler.handleCursorResultSets(statement);
   }
 
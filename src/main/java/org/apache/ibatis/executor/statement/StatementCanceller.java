@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Cancels the statement that the thread it is attached to is executing. Once cancelled, the thread cannot execute
+ * further statements.
+ *
+ * @since 3.5.6
+ * @see Statement#cancel()
+ */
+public final class StatementCanceller {
+
+  private static final ThreadLocal<StatementCanceller> CURRENT = new ThreadLocal<>();
+
+  private volatile Statement statement;
+  private volatile boolean cancelled;
+
+  /**
+   * Tracks the statements executed by the current thread until {@link #detach()} is called.
+   */
+  public void attach() {
+    CURRENT.set(this);
+  }
+
+  public void detach() {
+    CURRENT.remove();
+    statement = null;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Cancels the statement that is being executed, if any.
+   */
+  public void cancel() {
+    cancelled = true;
+    Statement current = statement;
+    if (current != null) {
+      try {
+        current.cancel();
+      } catch (SQLException e) {
+        // the statement may have completed and been closed in the meantime
+      }
+    }
+  }
+
+  static void track(Statement statement) throws SQLException {
+    StatementCanceller canceller = CURRENT.get();
+    if (canceller != null) {
+      canceller.statement = statement;
+      if (canceller.cancelled) {
+        throw new SQLException("The statement was cancelled.", "HY008");
+      }
+    }
+  }
+
+  /**
+   * Stops tracking a statement whose execution finished, as it may be closed or reused by then.
+   */
+  static void untrack(Statement statement) {
+    StatementCanceller canceller = CURRENT.get();
+    if (canceller != null && canceller.statement == statement) {
+      canceller.statement = null;
+    }
+  }
+
+}
@@ -24,12 +24,14 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
-import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoadingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
-import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -102,16 +104,18 @@ public class CacheBuilder {
     // 设置缓存的属性
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    if (PerpetualCache.class.equals(cache.getClass()) || ConcurrentPerpetualCache.class.equals(cache.getClass())) {
       // 缓存实现类是 PerpetualCache， 不是用户自定义的缓存实现类
+      boolean threadSafe = cache instanceof ThreadSafeCache;
       for (Class<? extends Cache> decorator : decorators) {
         // 逐级嵌套自定义的装饰器
         cache = newCacheDecoratorInstance(decorator, cache);
         // 为装饰器设置属性
         setCacheProperties(cache);
+        threadSafe = threadSafe && cache instanceof ThreadSafeCache;
       }
       // 为缓存增加标准的装饰器
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, threadSafe);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       // 增加日志装饰器
       cache = new LoggingCache(cache);
@@ -133,31 +137,43 @@ public class CacheBuilder {
    * 为缓存增加标准的装饰器
    *
    * @param cache 被装饰的缓存
+   * @param threadSafe 被装饰的缓存是否已经是线程安全的
    * @return 装饰结束的缓存
    */
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean threadSafe) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       // 设置缓存大小
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
-      // 如果定义了清理间隔，则使用定时清理装饰器装饰缓存
+      // 使用过期装饰器装饰缓存，每条数据单独过期，默认的过期时间为清理间隔，语句可以指定自己的过期时间
+      ExpiringCache expiringCache = new ExpiringCache(cache);
       if (clearInterval != null) {
-        cache = new ScheduledCache(cache);
-        ((ScheduledCache) cache).setClearInterval(clearInterval);
+        expiringCache.setTtl(clearInterval);
       }
+      cache = expiringCache;
+      // ttl、jitter、tickDuration 等属性
+      setCacheProperties(cache);
       // 如果允许读写，则使用序列化装饰器装饰缓存
       if (readWrite) {
         cache = new SerializedCache(cache);
       }
       // 使用日志装饰器装饰缓存
       cache = new LoggingCache(cache);
-      // 使用同步装饰器装饰缓存
-      cache = new SynchronizedCache(cache);
-      // 如果启用了阻塞功能，则使用阻塞装饰器装饰缓存
+      // 使用同步装饰器装饰缓存，整个装饰链都是线程安全时则不需要
+      if (!threadSafe) {
+        cache = new SynchronizedCache(cache);
+      }
+      // 如果启用了阻塞功能，则使用加载装饰器装饰缓存，同一个键同时只有一个会话查询数据库
       if (blocking) {
-        cache = new BlockingCache(cache);
+        LoadingCache loadingCache = new LoadingCache(cache);
+        loadingCache.setReadWrite(readWrite);
+        // 用于判断何时提前刷新
+        loadingCache.setExpiration(expiringCache.getTtl());
+        cache = loadingCache;
+        // timeout、refreshAhead 等属性
+        setCacheProperties(cache);
       }
       return cache;
     } catch (Exception e) {
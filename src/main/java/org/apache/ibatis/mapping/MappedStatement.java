@@ -16,15 +16,19 @@
 package org.apache.ibatis.mapping;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableDependencies;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
 
@@ -63,6 +67,11 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private int[] chunkSizes;
+  private long cacheTtl;
+  private String[] tables;
+  private String batchSelect;
+  private String[] batchKeys;
 
   MappedStatement() {
     // constructor disabled
@@ -181,6 +190,108 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * Sets the sizes of the chunks a collection parameter is split into, e.g. {@code "128,16,1"}. Each chunk is
+     * executed as its own batched update, so a statement with a {@code foreach} only renders as many SQL shapes as
+     * there are chunk sizes. The rows that remain after the smallest chunk size are executed as one last, smaller
+     * chunk, which renders one more shape for each possible remainder; rows are never repeated to fill it, so end the
+     * sizes with {@code 1} to keep the number of shapes fixed.
+     *
+     * @param chunkSizes
+     *          comma separated chunk sizes, {@code null} or empty to execute the parameter as is
+     * @return the builder
+     * @since 3.5.6
+     */
+    public Builder chunkSizes(String chunkSizes) {
+      int[] sizes = null;
+      String[] values = delimitedStringToArray(chunkSizes);
+      if (values != null) {
+        try {
+          sizes = Arrays.stream(values).mapToInt(value -> Integer.parseInt(value.trim())).distinct().sorted().toArray();
+        } catch (NumberFormatException e) {
+          throw new BuilderException("Statement '" + mappedStatement.id + "' declares invalid chunkSizes '"
+              + chunkSizes + "'. Cause: " + e, e);
+        }
+        if (sizes[0] <= 0) {
+          throw new BuilderException("Statement '" + mappedStatement.id + "' declares chunkSizes '" + chunkSizes
+              + "' but chunk sizes must be positive.");
+        }
+        // 从大到小排列
+        for (int i = 0, j = sizes.length - 1; i < j; i++, j--) {
+          int size = sizes[i];
+          sizes[i] = sizes[j];
+          sizes[j] = size;
+        }
+      }
+      mappedStatement.chunkSizes = sizes;
+      return this;
+    }
+
+    /**
+     * Sets how long the results of this statement are kept in the 2nd level cache, so that results that rarely change
+     * can be kept longer than the other results of the namespace, or volatile ones shorter.
+     *
+     * @param cacheTtl
+     *          the milliseconds the results are kept, {@code null} to keep them like the other results of the namespace
+     * @return the builder
+     * @since 3.5.6
+     */
+    public Builder cacheTtl(Long cacheTtl) {
+      if (cacheTtl != null && cacheTtl <= 0) {
+        throw new IllegalArgumentException("The cache time to live must be positive but was " + cacheTtl);
+      }
+      mappedStatement.cacheTtl = cacheTtl == null ? 0 : cacheTtl;
+      return this;
+    }
+
+    /**
+     * Sets the tables a select reads, or the tables an insert, update or delete modifies, for table level cache
+     * invalidation. Useful when they cannot be found in the SQL, e.g. for a stored procedure or a view.
+     *
+     * @param tables
+     *          comma separated table names, {@code null} or empty to find them in the SQL
+     * @return the builder
+     * @since 3.5.6
+     * @see org.apache.ibatis.cache.TableDependencies
+     */
+    public Builder tables(String tables) {
+      String[] names = delimitedStringToArray(tables);
+      mappedStatement.tables = names == null ? null
+          : Arrays.stream(names).map(TableDependencies::normalize).distinct().sorted().toArray(String[]::new);
+      return this;
+    }
+
+    /**
+     * Sets the statement that selects the results of several parameters of this statement at once. When several lazy
+     * properties loaded by this statement are pending in one result set, they are loaded by one execution of that
+     * statement, whose parameter is the list of their parameters (named {@code list} and {@code collection}).
+     *
+     * @param batchSelect
+     *          the id of the multi-key statement, {@code null} to load each lazy property on its own
+     * @return the builder
+     * @since 3.5.6
+     * @see org.apache.ibatis.session.Configuration#setLazyLoadBatchSize(int)
+     */
+    public Builder batchSelect(String batchSelect) {
+      mappedStatement.batchSelect = batchSelect;
+      return this;
+    }
+
+    /**
+     * Sets the properties of the results of the {@link #batchSelect(String) multi-key statement} that hold the parameter
+     * they were selected for, e.g. {@code "id"}. With a composite parameter ({@code column="{a=x,b=y}"}), name one
+     * property per parameter entry, e.g. {@code "a,b"}.
+     *
+     * @param batchKey
+     *          comma separated property names
+     * @return the builder
+     * @since 3.5.6
+     */
+    public Builder batchKey(String batchKey) {
+      mappedStatement.batchKeys = delimitedStringToArray(batchKey);
+      return this;
+    }
+
     /**
      * Resul sets.
      *
@@ -200,6 +311,10 @@ public final class MappedStatement {
       assert mappedStatement.id != null;
       assert mappedStatement.sqlSource != null;
       assert mappedStatement.lang != null;
+      if (mappedStatement.batchSelect != null && mappedStatement.batchKeys == null) {
+        throw new BuilderException("Statement '" + mappedStatement.id
+            + "' declares a batchSelect but no batchKey to match its results with their parameters.");
+      }
       mappedStatement.resultMaps = Collections.unmodifiableList(mappedStatement.resultMaps);
       return mappedStatement;
     }
@@ -297,6 +412,56 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Gets the chunk sizes, largest first.
+   *
+   * @return the chunk sizes, {@code null} when the parameter is not split
+   * @since 3.5.6
+   */
+  public int[] getChunkSizes() {
+    return chunkSizes;
+  }
+
+  /**
+   * Gets how long the results of this statement are kept in the 2nd level cache.
+   *
+   * @return the milliseconds the results are kept, 0 when they are kept like the other results of the namespace
+   * @since 3.5.6
+   */
+  public long getCacheTtl() {
+    return cacheTtl;
+  }
+
+  /**
+   * Gets the declared tables of this statement.
+   *
+   * @return the normalized table names, sorted, {@code null} when the tables are found in the SQL
+   * @since 3.5.6
+   */
+  public String[] getTables() {
+    return tables;
+  }
+
+  /**
+   * Gets the id of the statement that selects the results of several parameters of this statement at once.
+   *
+   * @return the multi-key statement id, {@code null} when lazy properties are loaded one by one
+   * @since 3.5.6
+   */
+  public String getBatchSelect() {
+    return batchSelect;
+  }
+
+  /**
+   * Gets the properties of the results of the multi-key statement that hold the parameter they were selected for.
+   *
+   * @return the property names, {@code null} when there is no multi-key statement
+   * @since 3.5.6
+   */
+  public String[] getBatchKeys() {
+    return batchKeys;
+  }
+
   /**
    * Gets the resul sets.
    *
@@ -309,6 +474,8 @@ public final class MappedStatement {
   }
 
   public BoundSql getBoundSql(Object parameterObject) {
+    MetricsCollector metricsCollector = configuration.getMetricsCollector();
+    long start = metricsCollector.isEnabled() ? System.nanoTime() : 0L;
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings == null || parameterMappings.isEmpty()) {
@@ -326,6 +493,9 @@ public final class MappedStatement {
       }
     }
 
+    if (metricsCollector.isEnabled()) {
+      metricsCollector.recordSqlBuild(this, System.nanoTime() - start);
+    }
     return boundSql;
   }
 
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Receives the timings measured while statements are executed.
+ * <p>
+ * The methods are called on the hot path of every statement, by many threads at once: implementations must be
+ * thread-safe and should neither block nor allocate. Times are in nanoseconds. When {@link #isEnabled()} returns false,
+ * nothing is measured and no other method is called.
+ *
+ * @since 3.5.6
+ * @see org.apache.ibatis.session.Configuration#setMetricsCollector(MetricsCollector)
+ */
+public interface MetricsCollector {
+
+  /**
+   * @return false if times must not be measured at all
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * Records the time spent building the {@link org.apache.ibatis.mapping.BoundSql} of a statement, including the
+   * evaluation of dynamic SQL.
+   */
+  void recordSqlBuild(MappedStatement ms, long nanos);
+
+  /**
+   * Records the time spent by the driver executing a statement, or a batch of statements.
+   */
+  void recordExecution(MappedStatement ms, long nanos);
+
+  /**
+   * Records the time spent mapping the result sets of a statement to objects and the number of objects returned.
+   */
+  void recordResultMapping(MappedStatement ms, long nanos, int rows);
+
+  /**
+   * Records the time a thread waited to check out a connection from a pooled data source.
+   */
+  void recordPoolWait(DataSource dataSource, long nanos);
+
+  /**
+   * Records a lookup of the second level cache of a statement.
+   */
+  void recordCacheAccess(MappedStatement ms, Cache cache, boolean hit);
+
+}
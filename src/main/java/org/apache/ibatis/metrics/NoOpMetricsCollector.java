@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * The default {@link MetricsCollector}: it is disabled, so that statements are not timed at all.
+ *
+ * @since 3.5.6
+ */
+public final class NoOpMetricsCollector implements MetricsCollector {
+
+  public static final NoOpMetricsCollector INSTANCE = new NoOpMetricsCollector();
+
+  @Override
+  public boolean isEnabled() {
+    return false;
+  }
+
+  @Override
+  public void recordSqlBuild(MappedStatement ms, long nanos) {
+    // NOP
+  }
+
+  @Override
+  public void recordExecution(MappedStatement ms, long nanos) {
+    // NOP
+  }
+
+  @Override
+  public void recordResultMapping(MappedStatement ms, long nanos, int rows) {
+    // NOP
+  }
+
+  @Override
+  public void recordPoolWait(DataSource dataSource, long nanos) {
+    // NOP
+  }
+
+  @Override
+  public void recordCacheAccess(MappedStatement ms, Cache cache, boolean hit) {
+    // NOP
+  }
+
+}
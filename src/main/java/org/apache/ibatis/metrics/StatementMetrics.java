@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+/**
+ * The histograms recorded by a {@link HistogramMetricsCollector} for one mapped statement.
+ *
+ * @since 3.5.6
+ */
+public final class StatementMetrics {
+
+  private final String id;
+  private final LatencyHistogram sqlBuild = new LatencyHistogram();
+  private final LatencyHistogram execution = new LatencyHistogram();
+  private final LatencyHistogram resultMapping = new LatencyHistogram();
+  private final LatencyHistogram rows = new LatencyHistogram();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the id of the mapped statement
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return the nanoseconds spent building the SQL
+   */
+  public LatencyHistogram getSqlBuild() {
+    return sqlBuild;
+  }
+
+  /**
+   * @return the nanoseconds spent by the driver executing the statement
+   */
+  public LatencyHistogram getExecution() {
+    return execution;
+  }
+
+  /**
+   * @return the nanoseconds spent mapping the result sets
+   */
+  public LatencyHistogram getResultMapping() {
+    return resultMapping;
+  }
+
+  /**
+   * @return the number of objects returned by each execution
+   */
+  public LatencyHistogram getRows() {
+    return rows;
+  }
+
+  public void reset() {
+    sqlBuild.reset();
+    execution.reset();
+    resultMapping.reset();
+    rows.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "StatementMetrics{id=" + id + ", sqlBuild=" + sqlBuild + ", execution=" + execution + ", resultMapping="
+        + resultMapping + ", rows=" + rows + "}";
+  }
+
+}
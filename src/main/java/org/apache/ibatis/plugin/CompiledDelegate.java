@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+/**
+ * The super class of the delegates generated by {@link DelegateClassGenerator}. A delegate stands for the proxy of one
+ * layer of the nested {@link Plugin} proxies: it only runs the interceptors from {@link #layer} inwards.
+ *
+ * @since 3.5.6
+ */
+abstract class CompiledDelegate {
+
+  /**
+   * 被拦截的原始对象
+   */
+  protected final Object target;
+  protected final CompiledPlugin.Chain chain;
+  /**
+   * 第一个生效的拦截器在 {@link CompiledPlugin.Chain} 中的下标，0 为最外层
+   */
+  protected final int layer;
+
+  protected CompiledDelegate(Object target, CompiledPlugin.Chain chain, int layer) {
+    this.target = target;
+    this.chain = chain;
+    this.layer = layer;
+  }
+
+  /**
+   * @return a delegate of the same class for another target or layer
+   */
+  protected abstract CompiledDelegate newInstance(Object target, int layer);
+
+  /**
+   * Calls the method of the given slot on the target, without any interceptor.
+   */
+  protected abstract Object dispatch(int slot, Object[] args) throws Throwable;
+
+  /**
+   * Runs the interceptors of the given slot, called by the generated intercepted methods.
+   */
+  protected final Object intercept(int slot, Object[] args) throws Throwable {
+    return chain.invoke(this, slot, args);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return target.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return target.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return target.toString();
+  }
+
+}
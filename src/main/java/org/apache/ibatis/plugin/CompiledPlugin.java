@@ -0,0 +1,260 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Applies a run of interceptors that use the default {@link Interceptor#plugin(Object)} with one generated delegate
+ * instead of one {@link Plugin} proxy per interceptor.
+ * <p>
+ * For every target class, {@link DelegateClassGenerator} generates a class that implements all the interfaces the
+ * interceptors intercept. Methods that no interceptor intercepts call the target directly. An intercepted method runs
+ * the interceptors that intercept it as a flat chain, and the last {@link Invocation#proceed()} calls the target
+ * directly as well. The interceptors are called in the same order as the nested proxies: the one added last is called
+ * first. Like the inner proxy, the target of an {@link Invocation} is a delegate that only runs the remaining
+ * interceptors, and the innermost interceptor gets the target itself.
+ * <p>
+ * Target classes the delegate cannot be generated for fall back to {@link Plugin#wrap(Object, Interceptor)}. This
+ * happens, for example, when an intercepted interface is not public or when Javassist is not on the class path.
+ *
+ * @since 3.5.6
+ */
+final class CompiledPlugin {
+
+  private static final Log log = LogFactory.getLog(CompiledPlugin.class);
+
+  /**
+   * 按加入的顺序排列
+   */
+  private final Interceptor[] interceptors;
+  private final ConcurrentMap<Class<?>, Chain> chains = new ConcurrentHashMap<>();
+
+  CompiledPlugin(List<Interceptor> interceptors) {
+    this.interceptors = interceptors.toArray(new Interceptor[0]);
+  }
+
+  Object wrap(Object target) {
+    Class<?> type = target.getClass();
+    Chain chain = chains.get(type);
+    if (chain == null) {
+      chain = chains.computeIfAbsent(type, this::compile);
+    }
+    if (chain == Chain.NONE) {
+      return target;
+    }
+    if (chain == Chain.UNSUPPORTED) {
+      for (Interceptor interceptor : interceptors) {
+        target = Plugin.wrap(target, interceptor);
+      }
+      return target;
+    }
+    return chain.prototype.newInstance(target, 0);
+  }
+
+  private Chain compile(Class<?> type) {
+    // 由外向内排列，和嵌套代理的调用顺序一致
+    List<Interceptor> layers = new ArrayList<>();
+    List<Set<String>> interceptedMethods = new ArrayList<>();
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    for (int i = interceptors.length - 1; i >= 0; i--) {
+      Map<Class<?>, Set<Method>> signatureMap = Plugin.getSignatureMap(interceptors[i]);
+      Class<?>[] intercepted = Plugin.getAllInterfaces(type, signatureMap);
+      if (intercepted.length > 0) {
+        Set<String> methods = new LinkedHashSet<>();
+        for (Class<?> c : intercepted) {
+          for (Method method : signatureMap.get(c)) {
+            methods.add(signature(method));
+          }
+        }
+        layers.add(interceptors[i]);
+        interceptedMethods.add(methods);
+        interfaces.addAll(Arrays.asList(intercepted));
+      }
+    }
+    if (layers.isEmpty()) {
+      return Chain.NONE;
+    }
+
+    Map<String, Method> slots = new LinkedHashMap<>();
+    for (Class<?> c : interfaces) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        log.debug("Interceptors of " + type.getName() + " are not compiled because " + c.getName() + " is not public.");
+        return Chain.UNSUPPORTED;
+      }
+      for (Method method : c.getMethods()) {
+        if (Modifier.isStatic(method.getModifiers())) {
+          continue;
+        }
+        Method existing = slots.putIfAbsent(signature(method), method);
+        if (existing != null && existing.getReturnType() != method.getReturnType()) {
+          log.debug("Interceptors of " + type.getName() + " are not compiled because " + method + " and " + existing
+              + " differ in their return type.");
+          return Chain.UNSUPPORTED;
+        }
+      }
+    }
+
+    Method[] methods = slots.values().toArray(new Method[0]);
+    int[][] interceptorsBySlot = new int[methods.length][];
+    for (int slot = 0; slot < methods.length; slot++) {
+      String signature = signature(methods[slot]);
+      int[] slotLayers = new int[layers.size()];
+      int count = 0;
+      for (int layer = 0; layer < layers.size(); layer++) {
+        if (interceptedMethods.get(layer).contains(signature)) {
+          slotLayers[count++] = layer;
+        }
+      }
+      interceptorsBySlot[slot] = Arrays.copyOf(slotLayers, count);
+    }
+
+    Chain chain = new Chain(layers.toArray(new Interceptor[0]), methods, interceptorsBySlot);
+    try {
+      Class<? extends CompiledDelegate> delegateType = DelegateClassGenerator.generate(interfaces, methods, interceptorsBySlot);
+      chain.prototype = delegateType.getConstructor(Object.class, Chain.class, int.class).newInstance(null, chain, 0);
+    } catch (Exception | LinkageError e) {
+      log.debug("Interceptors of " + type.getName() + " are not compiled. Cause: " + e);
+      return Chain.UNSUPPORTED;
+    }
+    return chain;
+  }
+
+  private static String signature(Method method) {
+    return method.getName() + Arrays.toString(method.getParameterTypes());
+  }
+
+  /**
+   * The interceptors that apply to one target class, and the methods of its generated delegate.
+   */
+  static final class Chain {
+
+    /**
+     * 没有拦截器需要拦截该类型
+     */
+    static final Chain NONE = new Chain(new Interceptor[0], new Method[0], new int[0][]);
+    /**
+     * 无法生成委托类，退回到 {@link Plugin} 代理
+     */
+    static final Chain UNSUPPORTED = new Chain(new Interceptor[0], new Method[0], new int[0][]);
+
+    /**
+     * 由外向内排列的拦截器
+     */
+    private final Interceptor[] layers;
+    private final Method[] methods;
+    /**
+     * 每个方法的拦截器在 {@link #layers} 中的下标，由外向内排列
+     */
+    private final int[][] interceptorsBySlot;
+    private CompiledDelegate prototype;
+
+    private Chain(Interceptor[] layers, Method[] methods, int[][] interceptorsBySlot) {
+      this.layers = layers;
+      this.methods = methods;
+      this.interceptorsBySlot = interceptorsBySlot;
+    }
+
+    Object invoke(CompiledDelegate delegate, int slot, Object[] args) throws Throwable {
+      int[] interceptors = interceptorsBySlot[slot];
+      int position = 0;
+      while (position < interceptors.length && interceptors[position] < delegate.layer) {
+        position++;
+      }
+      if (position == interceptors.length) {
+        return delegate.dispatch(slot, args);
+      }
+      try {
+        return layers[interceptors[position]].intercept(new ChainedInvocation(this, delegate, slot, position, args));
+      } catch (Exception e) {
+        throw declared(slot, ExceptionUtil.unwrapThrowable(e));
+      }
+    }
+
+    /**
+     * 和 {@link java.lang.reflect.Proxy} 一样，将方法没有声明的受检异常包装为 {@link UndeclaredThrowableException}
+     */
+    private Throwable declared(int slot, Throwable t) {
+      if (t instanceof RuntimeException || t instanceof Error) {
+        return t;
+      }
+      for (Class<?> exceptionType : methods[slot].getExceptionTypes()) {
+        if (exceptionType.isInstance(t)) {
+          return t;
+        }
+      }
+      return new UndeclaredThrowableException(t);
+    }
+  }
+
+  /**
+   * An invocation whose {@link #proceed()} calls the next interceptor of the chain, or the target itself.
+   */
+  private static final class ChainedInvocation extends Invocation {
+
+    private final Chain chain;
+    private final CompiledDelegate delegate;
+    private final int slot;
+    private final int position;
+
+    ChainedInvocation(Chain chain, CompiledDelegate delegate, int slot, int position, Object[] args) {
+      super(delegate.target, chain.methods[slot], args);
+      this.chain = chain;
+      this.delegate = delegate;
+      this.slot = slot;
+      this.position = position;
+    }
+
+    @Override
+    public Object getTarget() {
+      int next = chain.interceptorsBySlot[slot][position] + 1;
+      return next == chain.layers.length ? delegate.target : delegate.newInstance(delegate.target, next);
+    }
+
+    @Override
+    public Object proceed() throws InvocationTargetException {
+      int[] interceptors = chain.interceptorsBySlot[slot];
+      try {
+        if (position + 1 < interceptors.length) {
+          return chain.layers[interceptors[position + 1]]
+              .intercept(new ChainedInvocation(chain, delegate, slot, position + 1, getArgs()));
+        }
+        return delegate.dispatch(slot, getArgs());
+      } catch (Exception e) {
+        throw new InvocationTargetException(chain.declared(slot, ExceptionUtil.unwrapThrowable(e)));
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+
+}
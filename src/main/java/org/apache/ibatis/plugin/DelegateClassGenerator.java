@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.CtPrimitiveType;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import javassist.NotFoundException;
+
+/**
+ * Generates the {@link CompiledDelegate} subclasses of {@link CompiledPlugin} with Javassist. For a slot without
+ * interceptors the generated method is a plain call on the target, for example:
+ *
+ * <pre>
+ * public BoundSql getBoundSql() {
+ *   return ((StatementHandler) this.target).getBoundSql();
+ * }
+ * </pre>
+ *
+ * An intercepted method passes its arguments to {@link CompiledDelegate#intercept(int, Object[])}, and the generated
+ * {@code dispatch} method calls the target by slot number at the end of the chain.
+ * <p>
+ * The classes are defined next to {@link CompiledDelegate}, that is in the class loader of MyBatis, and are never
+ * unloaded. A generated class only depends on the interfaces, their methods and which slots are intercepted by which
+ * layer, not on the interceptor instances, so it is generated once for each such shape and shared by every
+ * {@link CompiledPlugin}, including those of configurations built later on.
+ *
+ * @since 3.5.6
+ */
+final class DelegateClassGenerator {
+
+  private static final AtomicInteger counter = new AtomicInteger();
+  private static final Map<Shape, Class<? extends CompiledDelegate>> generated = new ConcurrentHashMap<>();
+
+  private DelegateClassGenerator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @param interfaces the interfaces the delegate implements
+   * @param methods the methods of the interfaces, indexed by slot
+   * @param interceptorsBySlot the interceptors of each slot, methods without any are called directly
+   * @return the generated class, with a constructor taking the target, the chain and the layer
+   */
+  static Class<? extends CompiledDelegate> generate(Collection<Class<?>> interfaces, Method[] methods,
+      int[][] interceptorsBySlot) throws CannotCompileException, NotFoundException {
+    Shape shape = new Shape(interfaces, methods, interceptorsBySlot);
+    Class<? extends CompiledDelegate> delegateType = generated.get(shape);
+    if (delegateType != null) {
+      return delegateType;
+    }
+    // 同一形状只生成一次，生成失败时不缓存
+    synchronized (generated) {
+      delegateType = generated.get(shape);
+      if (delegateType == null) {
+        delegateType = define(interfaces, methods, interceptorsBySlot);
+        generated.put(shape, delegateType);
+      }
+      return delegateType;
+    }
+  }
+
+  private static Class<? extends CompiledDelegate> define(Collection<Class<?>> interfaces, Method[] methods,
+      int[][] interceptorsBySlot) throws CannotCompileException, NotFoundException {
+    ClassPool pool = new ClassPool(true);
+    pool.appendClassPath(new LoaderClassPath(CompiledDelegate.class.getClassLoader()));
+    for (Class<?> type : interfaces) {
+      pool.appendClassPath(new LoaderClassPath(type.getClassLoader()));
+    }
+
+    CtClass ctClass = pool.makeClass(CompiledDelegate.class.getName() + "$$" + counter.incrementAndGet());
+    try {
+      ctClass.setSuperclass(pool.get(CompiledDelegate.class.getName()));
+      for (Class<?> type : interfaces) {
+        ctClass.addInterface(pool.get(type.getName()));
+      }
+      ctClass.addConstructor(CtNewConstructor.make(
+          new CtClass[] { pool.get(Object.class.getName()), pool.get(CompiledPlugin.Chain.class.getName()), CtClass.intType },
+          new CtClass[0], "{ super($$); }", ctClass));
+      ctClass.addMethod(CtNewMethod.make("protected " + CompiledDelegate.class.getName()
+          + " newInstance(Object target, int layer) { return new " + ctClass.getName() + "($1, this.chain, $2); }", ctClass));
+
+      StringBuilder dispatch = new StringBuilder("protected Object dispatch(int slot, Object[] args) { switch ($1) {");
+      for (int slot = 0; slot < methods.length; slot++) {
+        Method method = methods[slot];
+        boolean isVoid = method.getReturnType() == void.class;
+        String body;
+        if (interceptorsBySlot[slot].length == 0) {
+          body = isVoid ? "{ " + call(method, "$$") + "; }" : "{ return " + call(method, "$$") + "; }";
+        } else {
+          body = isVoid ? "{ intercept(" + slot + ", $args); }" : "{ return ($r) intercept(" + slot + ", $args); }";
+        }
+        ctClass.addMethod(CtNewMethod.make(Modifier.PUBLIC, pool.get(sourceName(method.getReturnType())), method.getName(),
+            types(pool, method.getParameterTypes()), types(pool, method.getExceptionTypes()), body, ctClass));
+
+        dispatch.append("case ").append(slot).append(": ");
+        String call = call(method, arguments(pool, method.getParameterTypes()));
+        dispatch.append(isVoid ? call + "; return null;" : "return ($w) " + call + ";");
+      }
+      dispatch.append("} throw new IllegalArgumentException(\"Unknown slot \" + $1); }");
+      ctClass.addMethod(CtNewMethod.make(dispatch.toString(), ctClass));
+
+      @SuppressWarnings("unchecked")
+      Class<? extends CompiledDelegate> delegateType = (Class<? extends CompiledDelegate>) ctClass.toClass(CompiledDelegate.class);
+      return delegateType;
+    } finally {
+      ctClass.detach();
+    }
+  }
+
+  private static String call(Method method, String arguments) {
+    return "((" + method.getDeclaringClass().getName() + ") this.target)." + method.getName() + "(" + arguments + ")";
+  }
+
+  /**
+   * 将 Object[] 类型的参数数组 $2 转换为方法的参数列表
+   */
+  private static String arguments(ClassPool pool, Class<?>[] parameterTypes) throws NotFoundException {
+    StringBuilder arguments = new StringBuilder();
+    for (int i = 0; i < parameterTypes.length; i++) {
+      if (i > 0) {
+        arguments.append(", ");
+      }
+      Class<?> type = parameterTypes[i];
+      String value = "$2[" + i + "]";
+      if (type.isPrimitive()) {
+        CtPrimitiveType primitive = (CtPrimitiveType) pool.get(type.getName());
+        arguments.append("((").append(primitive.getWrapperName()).append(") ").append(value).append(").")
+            .append(primitive.getGetMethodName()).append("()");
+      } else {
+        arguments.append("(").append(sourceName(type)).append(") ").append(value);
+      }
+    }
+    return arguments.toString();
+  }
+
+  private static String sourceName(Class<?> type) {
+    return type.isArray() ? sourceName(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  private static CtClass[] types(ClassPool pool, Class<?>[] types) throws NotFoundException {
+    CtClass[] ctClasses = new CtClass[types.length];
+    for (int i = 0; i < types.length; i++) {
+      ctClasses[i] = pool.get(sourceName(types[i]));
+    }
+    return ctClasses;
+  }
+
+  /**
+   * 决定生成的类的内容：实现的接口、每个槽位的方法及拦截它的层
+   */
+  private static final class Shape {
+
+    private final List<Class<?>> interfaces;
+    private final List<Method> methods;
+    private final int[][] interceptorsBySlot;
+
+    Shape(Collection<Class<?>> interfaces, Method[] methods, int[][] interceptorsBySlot) {
+      this.interfaces = new ArrayList<>(interfaces);
+      this.methods = Arrays.asList(methods);
+      this.interceptorsBySlot = interceptorsBySlot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Shape)) {
+        return false;
+      }
+      Shape other = (Shape) o;
+      return interfaces.equals(other.interfaces) && methods.equals(other.methods)
+          && Arrays.deepEquals(interceptorsBySlot, other.interceptorsBySlot);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * interfaces.hashCode() + methods.hashCode()) + Arrays.deepHashCode(interceptorsBySlot);
+    }
+  }
+
+}
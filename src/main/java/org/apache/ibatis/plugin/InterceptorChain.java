@@ -18,6 +18,7 @@ package org.apache.ibatis.plugin;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * @author Clinton Begin
@@ -26,6 +27,11 @@ public class InterceptorChain {
 
   private final List<Interceptor> interceptors = new ArrayList<>();
 
+  /**
+   * 开启编译后依次应用的插件：连续使用默认 plugin 方法的拦截器合并为一个 {@link CompiledPlugin}，重写了 plugin 方法的拦截器保持原样
+   */
+  private volatile List<UnaryOperator<Object>> compiledPlugins;
+
   /**
    * 向所有的拦截器链提供目标对象，由拦截器链给出替换目标对象的对象
    *
@@ -33,6 +39,13 @@ public class InterceptorChain {
    * @return 用来替换目标对象的对象
    */
   public Object pluginAll(Object target) {
+    List<UnaryOperator<Object>> plugins = compiledPlugins;
+    if (plugins != null) {
+      for (UnaryOperator<Object> plugin : plugins) {
+        target = plugin.apply(target);
+      }
+      return target;
+    }
     // 依次交给每个拦截器完成目标对象的替换工作
     for (Interceptor interceptor : interceptors) {
       target = interceptor.plugin(target);
@@ -42,6 +55,50 @@ public class InterceptorChain {
 
   public void addInterceptor(Interceptor interceptor) {
     interceptors.add(interceptor);
+    if (compiledPlugins != null) {
+      compiledPlugins = compile();
+    }
+  }
+
+  /**
+   * Sets whether interceptors that use the default {@link Interceptor#plugin(Object)} are applied with one generated
+   * delegate per target class instead of one {@link Plugin} proxy each.
+   *
+   * @param compiled
+   *          true to compile the interceptors
+   * @since 3.5.6
+   * @see CompiledPlugin
+   */
+  public void setCompiled(boolean compiled) {
+    compiledPlugins = compiled ? compile() : null;
+  }
+
+  private List<UnaryOperator<Object>> compile() {
+    List<UnaryOperator<Object>> plugins = new ArrayList<>();
+    List<Interceptor> run = new ArrayList<>();
+    for (Interceptor interceptor : interceptors) {
+      if (usesDefaultPlugin(interceptor)) {
+        run.add(interceptor);
+        continue;
+      }
+      if (!run.isEmpty()) {
+        plugins.add(new CompiledPlugin(run)::wrap);
+        run.clear();
+      }
+      plugins.add(interceptor::plugin);
+    }
+    if (!run.isEmpty()) {
+      plugins.add(new CompiledPlugin(run)::wrap);
+    }
+    return plugins;
+  }
+
+  private static boolean usesDefaultPlugin(Interceptor interceptor) {
+    try {
+      return interceptor.getClass().getMethod("plugin", Object.class).getDeclaringClass() == Interceptor.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
   }
 
   public List<Interceptor> getInterceptors() {
@@ -18,9 +18,13 @@ package org.apache.ibatis.reflection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
+
 public class DefaultReflectorFactory implements ReflectorFactory {
   private boolean classCacheEnabled = true;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
+  private InvokerFactory invokerFactory = new ReflectionInvokerFactory();
 
   public DefaultReflectorFactory() {
   }
@@ -35,6 +39,23 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  public InvokerFactory getInvokerFactory() {
+    return invokerFactory;
+  }
+
+  /**
+   * Sets the factory of the getters and setters of the reflectors. Reflectors that have already been created are
+   * discarded.
+   *
+   * @param invokerFactory
+   *          the invoker factory
+   * @since 3.5.6
+   */
+  public void setInvokerFactory(InvokerFactory invokerFactory) {
+    this.invokerFactory = invokerFactory;
+    reflectorMap.clear();
+  }
+
   /**
    * 生产 {@link Reflector} 对象
    * @param type 目标类型
@@ -46,9 +67,9 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     if (classCacheEnabled) {
       // 生产输入参数 type 反射器对象，并放入缓存
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, t -> new Reflector(t, invokerFactory));
     } else {
-      return new Reflector(type);
+      return new Reflector(type, invokerFactory);
     }
   }
 
@@ -35,10 +35,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
-import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
-import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
 /**
@@ -67,10 +67,26 @@ public class Reflector {
   private Constructor<?> defaultConstructor;
   // 大小写无关的属性映射表。键为属性名全大写值。值为属性名
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+  // 调用器工厂
+  private final InvokerFactory invokerFactory;
 
   public Reflector(Class<?> clazz) {
+    this(clazz, new ReflectionInvokerFactory());
+  }
+
+  /**
+   * Instantiates a new reflector whose getters and setters are created by the given factory.
+   *
+   * @param clazz
+   *          the class
+   * @param invokerFactory
+   *          the invoker factory
+   * @since 3.5.6
+   */
+  public Reflector(Class<?> clazz, InvokerFactory invokerFactory) {
     // 要被反射的类
     type = clazz;
+    this.invokerFactory = invokerFactory;
     // 设置默认构造器属性
     addDefaultConstructor(clazz);
     // 解析所有的 getter
@@ -152,7 +168,7 @@ public class Reflector {
         ? new AmbiguousMethodInvoker(method, MessageFormat.format(
             "Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
             name, method.getDeclaringClass().getName()))
-        : new MethodInvoker(method);
+        : invokerFactory.createMethodInvoker(method);
     getMethods.put(name, invoker);
     Type returnType = TypeParameterResolver.resolveReturnType(method, type);
     getTypes.put(name, typeToClass(returnType));
@@ -220,7 +236,7 @@ public class Reflector {
   }
 
   private void addSetMethod(String name, Method method) {
-    MethodInvoker invoker = new MethodInvoker(method);
+    MethodInvoker invoker = invokerFactory.createMethodInvoker(method);
     setMethods.put(name, invoker);
     Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
     setTypes.put(name, typeToClass(paramTypes[0]));
@@ -270,7 +286,7 @@ public class Reflector {
 
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), invokerFactory.createSetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -278,7 +294,7 @@ public class Reflector {
 
   private void addGetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), invokerFactory.createGetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
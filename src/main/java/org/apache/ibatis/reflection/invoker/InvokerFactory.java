@@ -0,0 +1,56 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Creates the {@link Invoker}s a {@link Reflector} uses to read and write properties.
+ *
+ * @since 3.5.6
+ * @see ReflectionInvokerFactory
+ * @see LambdaInvokerFactory
+ */
+public interface InvokerFactory {
+
+  /**
+   * 为 getter（无参数）或 setter（一个参数）方法创建调用器
+   *
+   * @param method getter 或 setter 方法
+   * @return 调用器，{@link Invoker#getType()} 必须和 {@link MethodInvoker} 的相同
+   */
+  MethodInvoker createMethodInvoker(Method method);
+
+  /**
+   * 创建读取属性的调用器
+   *
+   * @param field 属性
+   * @return 调用器
+   */
+  GetFieldInvoker createGetFieldInvoker(Field field);
+
+  /**
+   * 创建写入属性的调用器
+   *
+   * @param field 属性
+   * @return 调用器
+   */
+  SetFieldInvoker createSetFieldInvoker(Field field);
+
+}
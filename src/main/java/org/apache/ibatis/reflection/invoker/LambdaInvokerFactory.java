@@ -0,0 +1,211 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Creates invokers that do not go through core reflection.
+ * <p>
+ * Getter and setter methods are called through {@link Function}s and {@link BiConsumer}s generated by
+ * {@link LambdaMetafactory}, so the JIT compiler can inline them like a direct call. Fields are read and written
+ * through {@link MethodHandle}s. The lambdas are defined with a private lookup in the class that declares the member,
+ * so they are loaded by the class loader of that class and can access non-public members. Members that cannot be
+ * looked up (e.g. classes of modules that are not opened to MyBatis) are accessed through reflection like with
+ * {@link ReflectionInvokerFactory}.
+ *
+ * @since 3.5.6
+ */
+public class LambdaInvokerFactory extends ReflectionInvokerFactory {
+
+  private static final int ALLOWED_MODES = MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+      | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC;
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final Constructor<Lookup> lookupConstructor;
+  private static final Method privateLookupInMethod;
+
+  static {
+    Method privateLookupIn;
+    try {
+      privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException e) {
+      privateLookupIn = null;
+    }
+    privateLookupInMethod = privateLookupIn;
+
+    Constructor<Lookup> lookup = null;
+    if (privateLookupInMethod == null) {
+      // JDK 1.8
+      try {
+        lookup = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+        lookup.setAccessible(true);
+      } catch (Exception e) {
+        lookup = null;
+      }
+    }
+    lookupConstructor = lookup;
+  }
+
+  @Override
+  public MethodInvoker createMethodInvoker(Method method) {
+    try {
+      final Lookup lookup = privateLookupIn(method.getDeclaringClass());
+      if (lookup != null && !Modifier.isStatic(method.getModifiers())) {
+        final MethodHandle handle = lookup.unreflect(method);
+        final Class<?> declaringClass = method.getDeclaringClass();
+        if (method.getParameterTypes().length == 0) {
+          final CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+              GETTER_TYPE, handle, MethodType.methodType(wrap(method.getReturnType()), declaringClass));
+          @SuppressWarnings("unchecked")
+          final Function<Object, Object> getter = (Function<Object, Object>) callSite.getTarget().invoke();
+          return new GetterInvoker(method, getter);
+        } else if (method.getParameterTypes().length == 1) {
+          final CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+              SETTER_TYPE, handle, MethodType.methodType(void.class, declaringClass, wrap(method.getParameterTypes()[0])));
+          @SuppressWarnings("unchecked")
+          final BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+          return new SetterInvoker(method, setter);
+        }
+      }
+    } catch (Throwable t) {
+      // 无法生成，使用反射
+    }
+    return super.createMethodInvoker(method);
+  }
+
+  @Override
+  public GetFieldInvoker createGetFieldInvoker(Field field) {
+    try {
+      final Lookup lookup = privateLookupIn(field.getDeclaringClass());
+      if (lookup != null) {
+        return new FieldGetterInvoker(field, lookup.unreflectGetter(field).asType(GETTER_TYPE));
+      }
+    } catch (Throwable t) {
+      // 无法访问，使用反射
+    }
+    return super.createGetFieldInvoker(field);
+  }
+
+  @Override
+  public SetFieldInvoker createSetFieldInvoker(Field field) {
+    try {
+      final Lookup lookup = privateLookupIn(field.getDeclaringClass());
+      // final 属性只能通过反射修改
+      if (lookup != null && !Modifier.isFinal(field.getModifiers())) {
+        return new FieldSetterInvoker(field, lookup.unreflectSetter(field).asType(SETTER_TYPE));
+      }
+    } catch (Throwable t) {
+      // 无法访问，使用反射
+    }
+    return super.createSetFieldInvoker(field);
+  }
+
+  private static Lookup privateLookupIn(Class<?> type) throws Exception {
+    if (privateLookupInMethod != null) {
+      return (Lookup) privateLookupInMethod.invoke(null, type, MethodHandles.lookup());
+    } else if (lookupConstructor != null) {
+      return lookupConstructor.newInstance(type, ALLOWED_MODES);
+    }
+    return null;
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+  }
+
+  private static class GetterInvoker extends MethodInvoker {
+    private final Function<Object, Object> getter;
+
+    GetterInvoker(Method method, Function<Object, Object> getter) {
+      super(method);
+      this.getter = getter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) {
+      return getter.apply(target);
+    }
+  }
+
+  private static class SetterInvoker extends MethodInvoker {
+    private final BiConsumer<Object, Object> setter;
+
+    SetterInvoker(Method method, BiConsumer<Object, Object> setter) {
+      super(method);
+      this.setter = setter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) {
+      setter.accept(target, args[0]);
+      return null;
+    }
+  }
+
+  private static class FieldGetterInvoker extends GetFieldInvoker {
+    private final MethodHandle getter;
+
+    FieldGetterInvoker(Field field, MethodHandle getter) {
+      super(field);
+      this.getter = getter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+      try {
+        return (Object) getter.invokeExact(target);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+    }
+  }
+
+  private static class FieldSetterInvoker extends SetFieldInvoker {
+    private final MethodHandle setter;
+
+    FieldSetterInvoker(Field field, MethodHandle setter) {
+      super(field);
+      this.setter = setter;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+      try {
+        setter.invokeExact(target, args[0]);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new IllegalStateException(t);
+      }
+      return null;
+    }
+  }
+
+}
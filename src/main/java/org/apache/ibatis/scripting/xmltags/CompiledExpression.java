@@ -0,0 +1,562 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * A simple OGNL expression compiled into a tree of Java nodes.
+ * <p>
+ * Only the expressions that dynamic SQL tests are usually made of are compiled: property paths (<code>a.b.c</code>),
+ * <code>size()</code>, <code>isEmpty()</code> and <code>length()</code> calls, <code>null</code>, boolean, integer and
+ * string literals, the comparison operators, <code>!</code>/<code>not</code>, <code>and</code>/<code>&amp;&amp;</code>,
+ * <code>or</code>/<code>||</code> and parentheses. {@link #compile(String)} returns null for any other expression.
+ * <p>
+ * The nodes follow the semantics of OGNL and of {@link DynamicContext.ContextAccessor}. When a value is met whose
+ * OGNL semantics are not reproduced (e.g. comparing an enum with a string), {@link #getValue(Object, ReflectorFactory)}
+ * returns {@link #UNRESOLVED} and the expression has to be evaluated by OGNL.
+ *
+ * @since 3.5.6
+ */
+final class CompiledExpression {
+
+  /**
+   * 表达式的值无法确定，需要使用 OGNL 计算
+   */
+  static final Object UNRESOLVED = new Object();
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("null", "true", "false", "and", "or", "not",
+      "eq", "neq", "lt", "gt", "lte", "gte", "in", "instanceof", "new", "shl", "shr", "ushr", "band", "bor", "xor"));
+
+  private final Node root;
+
+  private CompiledExpression(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * 编译表达式
+   *
+   * @param expression OGNL 表达式
+   * @return 编译后的表达式；如果表达式不在支持的范围内，返回 null
+   */
+  static CompiledExpression compile(String expression) {
+    final List<String> tokens = tokenize(expression);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    final Parser parser = new Parser(tokens);
+    final Node root = parser.parseOr();
+    return root != null && parser.position == tokens.size() ? new CompiledExpression(root) : null;
+  }
+
+  /**
+   * 计算表达式的值
+   *
+   * @param root 根对象，通常为 {@link DynamicContext#getBindings()}
+   * @param reflectorFactory 用于读取对象的属性
+   * @return 表达式的值，或 {@link #UNRESOLVED}
+   */
+  Object getValue(Object root, ReflectorFactory reflectorFactory) {
+    return this.root.getValue(root, reflectorFactory);
+  }
+
+  //
+  // TOKENIZER
+  //
+
+  private static List<String> tokenize(String expression) {
+    final List<String> tokens = new ArrayList<>();
+    final int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      final char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int end = i + 1;
+        while (end < length && Character.isJavaIdentifierPart(expression.charAt(end))) {
+          end++;
+        }
+        tokens.add(expression.substring(i, end));
+        i = end;
+      } else if (c >= '0' && c <= '9') {
+        int end = i + 1;
+        while (end < length && expression.charAt(end) >= '0' && expression.charAt(end) <= '9') {
+          end++;
+        }
+        if (end < length && (Character.isJavaIdentifierPart(expression.charAt(end)) || expression.charAt(end) == '.')) {
+          // 带后缀或小数的数字
+          return null;
+        }
+        tokens.add(expression.substring(i, end));
+        i = end;
+      } else if (c == '\'' || c == '"') {
+        final int end = expression.indexOf(c, i + 1);
+        if (end < 0 || expression.substring(i + 1, end).indexOf('\\') >= 0 || (c == '\'' && end == i + 2)) {
+          // 转义字符或字符常量（OGNL 中 'a' 为 Character）
+          return null;
+        }
+        tokens.add(expression.substring(i, end + 1));
+        i = end + 1;
+      } else if (i + 1 < length && isTwoCharOperator(expression.substring(i, i + 2))) {
+        tokens.add(expression.substring(i, i + 2));
+        i += 2;
+      } else if (c == '(' || c == ')' || c == '.' || c == '!' || c == '<' || c == '>') {
+        tokens.add(String.valueOf(c));
+        i++;
+      } else {
+        return null;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isTwoCharOperator(String s) {
+    return "==".equals(s) || "!=".equals(s) || "<=".equals(s) || ">=".equals(s) || "&&".equals(s) || "||".equals(s);
+  }
+
+  //
+  // PARSER
+  //
+
+  private static class Parser {
+    private final List<String> tokens;
+    private int position;
+
+    Parser(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private boolean accept(String... candidates) {
+      final String token = peek();
+      for (String candidate : candidates) {
+        if (candidate.equals(token)) {
+          position++;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    Node parseOr() {
+      Node left = parseAnd();
+      while (left != null && accept("or", "||")) {
+        final Node right = parseAnd();
+        left = right == null ? null : new Or(left, right);
+      }
+      return left;
+    }
+
+    Node parseAnd() {
+      Node left = parseNot();
+      while (left != null && accept("and", "&&")) {
+        final Node right = parseNot();
+        left = right == null ? null : new And(left, right);
+      }
+      return left;
+    }
+
+    Node parseNot() {
+      if (accept("!", "not")) {
+        final Node operand = parseNot();
+        return operand == null ? null : new Not(operand);
+      }
+      return parseComparison();
+    }
+
+    Node parseComparison() {
+      final Node left = parsePrimary();
+      if (left == null) {
+        return null;
+      }
+      final String operator = peek();
+      final int kind = Comparison.kindOf(operator);
+      if (kind < 0) {
+        return left;
+      }
+      position++;
+      final Node right = parsePrimary();
+      return right == null ? null : new Comparison(kind, left, right);
+    }
+
+    Node parsePrimary() {
+      final String token = peek();
+      if (token == null) {
+        return null;
+      }
+      if (accept("(")) {
+        final Node node = parseOr();
+        return node != null && accept(")") ? node : null;
+      }
+      position++;
+      final char first = token.charAt(0);
+      if (first == '\'' || first == '"') {
+        return new Literal(token.substring(1, token.length() - 1));
+      } else if (first >= '0' && first <= '9') {
+        try {
+          return new Literal(Integer.valueOf(token));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      } else if ("null".equals(token)) {
+        return new Literal(null);
+      } else if ("true".equals(token)) {
+        return new Literal(Boolean.TRUE);
+      } else if ("false".equals(token)) {
+        return new Literal(Boolean.FALSE);
+      } else if (Character.isJavaIdentifierStart(first) && !KEYWORDS.contains(token)) {
+        return parsePath(token);
+      }
+      return null;
+    }
+
+    private Node parsePath(String first) {
+      Node node = new Property(null, first);
+      while (accept(".")) {
+        final String name = peek();
+        if (name == null || !Character.isJavaIdentifierStart(name.charAt(0)) || KEYWORDS.contains(name)) {
+          return null;
+        }
+        position++;
+        if (accept("(")) {
+          if (!accept(")") || !MethodCall.isSupported(name)) {
+            return null;
+          }
+          node = new MethodCall(node, name);
+        } else {
+          node = new Property(node, name);
+        }
+      }
+      return node;
+    }
+  }
+
+  //
+  // NODES
+  //
+
+  private abstract static class Node {
+    abstract Object getValue(Object root, ReflectorFactory reflectorFactory);
+  }
+
+  private static class Literal extends Node {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      return value;
+    }
+  }
+
+  private static class Property extends Node {
+    private final Node target;
+    private final String name;
+
+    Property(Node target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object object = target == null ? root : target.getValue(root, reflectorFactory);
+      if (object == UNRESOLVED || object == null) {
+        // OGNL 会报告 source is null
+        return UNRESOLVED;
+      }
+      if (object instanceof DynamicContext.ContextMap) {
+        // 和 DynamicContext.ContextAccessor 相同
+        final Map<?, ?> map = (Map<?, ?>) object;
+        final Object result = map.get(name);
+        if (map.containsKey(name) || result != null) {
+          return result;
+        }
+        final Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        return parameterObject instanceof Map ? ((Map<?, ?>) parameterObject).get(name) : null;
+      }
+      if (object instanceof Map) {
+        // OGNL 的 MapPropertyAccessor 对这些名称有特殊处理
+        if ("size".equals(name) || "keys".equals(name) || "keySet".equals(name) || "values".equals(name) || "isEmpty".equals(name)) {
+          return UNRESOLVED;
+        }
+        return ((Map<?, ?>) object).get(name);
+      }
+      if (object instanceof Collection || object.getClass().isArray()) {
+        return UNRESOLVED;
+      }
+      final Reflector reflector = reflectorFactory.findForClass(object.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNRESOLVED;
+      }
+      try {
+        return reflector.getGetInvoker(name).invoke(object, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        // 由 OGNL 报告异常
+        return UNRESOLVED;
+      }
+    }
+  }
+
+  private static class MethodCall extends Node {
+    private final Node target;
+    private final String name;
+
+    MethodCall(Node target, String name) {
+      this.target = target;
+      this.name = name;
+    }
+
+    static boolean isSupported(String name) {
+      return "size".equals(name) || "isEmpty".equals(name) || "length".equals(name);
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object object = target.getValue(root, reflectorFactory);
+      if (object instanceof Collection) {
+        if ("size".equals(name)) {
+          return ((Collection<?>) object).size();
+        } else if ("isEmpty".equals(name)) {
+          return ((Collection<?>) object).isEmpty();
+        }
+      } else if (object instanceof Map) {
+        if ("size".equals(name)) {
+          return ((Map<?, ?>) object).size();
+        } else if ("isEmpty".equals(name)) {
+          return ((Map<?, ?>) object).isEmpty();
+        }
+      } else if (object instanceof String) {
+        if ("length".equals(name)) {
+          return ((String) object).length();
+        } else if ("isEmpty".equals(name)) {
+          return ((String) object).isEmpty();
+        }
+      }
+      return UNRESOLVED;
+    }
+  }
+
+  private static class Not extends Node {
+    private final Node operand;
+
+    Not(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = operand.getValue(root, reflectorFactory);
+      return value == UNRESOLVED ? UNRESOLVED : !booleanValue(value);
+    }
+  }
+
+  private static class And extends Node {
+    private final Node left;
+    private final Node right;
+
+    And(Node left, Node right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = left.getValue(root, reflectorFactory);
+      if (value == UNRESOLVED || !booleanValue(value)) {
+        return value;
+      }
+      return right.getValue(root, reflectorFactory);
+    }
+  }
+
+  private static class Or extends Node {
+    private final Node left;
+    private final Node right;
+
+    Or(Node left, Node right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object value = left.getValue(root, reflectorFactory);
+      if (value == UNRESOLVED || booleanValue(value)) {
+        return value;
+      }
+      return right.getValue(root, reflectorFactory);
+    }
+  }
+
+  private static class Comparison extends Node {
+    private static final int EQ = 0;
+    private static final int NEQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 3;
+    private static final int LTE = 4;
+    private static final int GTE = 5;
+
+    private final int kind;
+    private final Node left;
+    private final Node right;
+
+    Comparison(int kind, Node left, Node right) {
+      this.kind = kind;
+      this.left = left;
+      this.right = right;
+    }
+
+    static int kindOf(String operator) {
+      if (operator == null) {
+        return -1;
+      }
+      switch (operator) {
+        case "==":
+        case "eq":
+          return EQ;
+        case "!=":
+        case "neq":
+          return NEQ;
+        case "<":
+        case "lt":
+          return LT;
+        case ">":
+        case "gt":
+          return GT;
+        case "<=":
+        case "lte":
+          return LTE;
+        case ">=":
+        case "gte":
+          return GTE;
+        default:
+          return -1;
+      }
+    }
+
+    @Override
+    Object getValue(Object root, ReflectorFactory reflectorFactory) {
+      final Object leftValue = left.getValue(root, reflectorFactory);
+      if (leftValue == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      final Object rightValue = right.getValue(root, reflectorFactory);
+      if (rightValue == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      if (kind == EQ || kind == NEQ) {
+        final Boolean equal = isEqual(leftValue, rightValue);
+        if (equal == null) {
+          return UNRESOLVED;
+        }
+        return kind == EQ ? equal : !equal;
+      }
+      final Integer comparison = compare(leftValue, rightValue);
+      if (comparison == null) {
+        return UNRESOLVED;
+      }
+      switch (kind) {
+        case LT:
+          return comparison < 0;
+        case GT:
+          return comparison > 0;
+        case LTE:
+          return comparison <= 0;
+        default:
+          return comparison >= 0;
+      }
+    }
+
+    private static Boolean isEqual(Object left, Object right) {
+      if (left == right) {
+        return true;
+      }
+      if (left == null || right == null) {
+        return false;
+      }
+      if (left instanceof String && right instanceof String || left instanceof Boolean && right instanceof Boolean) {
+        return left.equals(right);
+      }
+      final Integer comparison = compareNumbers(left, right);
+      return comparison == null ? null : comparison == 0;
+    }
+
+    private static Integer compare(Object left, Object right) {
+      if (left instanceof String && right instanceof String) {
+        return ((String) left).compareTo((String) right);
+      }
+      return compareNumbers(left, right);
+    }
+
+    private static Integer compareNumbers(Object left, Object right) {
+      if (isIntegral(left) && isIntegral(right)) {
+        return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+      }
+      if ((isIntegral(left) || isFloatingPoint(left)) && (isIntegral(right) || isFloatingPoint(right))) {
+        return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+      }
+      return null;
+    }
+
+    private static boolean isIntegral(Object value) {
+      return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isFloatingPoint(Object value) {
+      return value instanceof Double || value instanceof Float;
+    }
+  }
+
+  /**
+   * 和 OGNL 的 OgnlOps.booleanValue 相同
+   */
+  private static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+}
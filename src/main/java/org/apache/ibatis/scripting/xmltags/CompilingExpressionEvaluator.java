@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * An {@link ExpressionEvaluator} that evaluates simple expressions with {@link CompiledExpression}s, and falls back to
+ * OGNL for the others or when a compiled expression cannot resolve its value.
+ *
+ * @since 3.5.6
+ */
+public class CompilingExpressionEvaluator extends ExpressionEvaluator {
+
+  /**
+   * 无法编译的表达式
+   */
+  private static final CompiledExpression NOT_COMPILABLE = CompiledExpression.compile("null");
+
+  private static final Map<String, CompiledExpression> expressionCache = new ConcurrentHashMap<>();
+
+  private final ReflectorFactory reflectorFactory;
+
+  public CompilingExpressionEvaluator(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  protected Object getValue(String expression, Object parameterObject) {
+    final CompiledExpression compiledExpression = compile(expression);
+    if (compiledExpression != NOT_COMPILABLE) {
+      final Object value;
+      try {
+        value = compiledExpression.getValue(parameterObject, reflectorFactory);
+      } catch (RuntimeException e) {
+        // ContextMap 读取参数对象的属性时抛出的异常，和 OgnlCache 一样包装
+        throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+      }
+      if (value != CompiledExpression.UNRESOLVED) {
+        return value;
+      }
+    }
+    return super.getValue(expression, parameterObject);
+  }
+
+  private static CompiledExpression compile(String expression) {
+    CompiledExpression compiledExpression = expressionCache.get(expression);
+    if (compiledExpression == null) {
+      compiledExpression = CompiledExpression.compile(expression);
+      if (compiledExpression == null) {
+        compiledExpression = NOT_COMPILABLE;
+      }
+      expressionCache.putIfAbsent(expression, compiledExpression);
+    }
+    return compiledExpression;
+  }
+
+}
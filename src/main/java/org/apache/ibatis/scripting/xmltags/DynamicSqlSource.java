@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
@@ -33,9 +34,16 @@ public class DynamicSqlSource implements SqlSource {
   private final Configuration configuration;
   private final SqlNode rootSqlNode;
 
+  /**
+   * 已解析的 SQL 缓存，为 null 时每次都重新解析
+   */
+  private final ParsedSqlCache parsedSqlCache;
+
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.parsedSqlCache = configuration.getParsedSqlCacheSize() > 0
+        ? new ParsedSqlCache(configuration, configuration.getParsedSqlCacheSize()) : null;
   }
 
 
@@ -54,11 +62,16 @@ public class DynamicSqlSource implements SqlSource {
     rootSqlNode.apply(context);
 
     // 处理占位符、汇总参数信息
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
 
-    // 使用 SQLSourceBuilder 处理 "#{}", 将其转化为 "?" , 最终生成 StaticSqlSource 对象
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    // 使用 SQLSourceBuilder 处理 "#{}", 将其转化为 "?" , 最终生成 StaticSqlSource 对象；相同形状的 SQL 复用缓存的解析结果
+    SqlSource sqlSource;
+    if (parsedSqlCache != null) {
+      sqlSource = parsedSqlCache.parse(context.getSql(), parameterType, context.getBindings());
+    } else {
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    }
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     // 保存参数信息到 org.apache.ibatis.mapping.BoundSql.metaParameters
     context.getBindings().forEach(boundSql::setAdditionalParameter);
@@ -29,7 +29,7 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = getValue(expression, parameterObject);
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -48,7 +48,7 @@ public class ExpressionEvaluator {
    */
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
     // 获取表达式的结果
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = getValue(expression, parameterObject);
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -73,4 +73,16 @@ public class ExpressionEvaluator {
     throw new BuilderException("Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
   }
 
+  /**
+   * 计算表达式的值，默认使用 OGNL
+   *
+   * @param expression 表达式
+   * @param parameterObject 参数对象
+   * @return 表达式的值
+   * @since 3.5.6
+   */
+  protected Object getValue(String expression, Object parameterObject) {
+    return OgnlCache.getValue(expression, parameterObject);
+  }
+
 }
@@ -54,6 +54,11 @@ public class XMLScriptBuilder extends BaseBuilder {
    */
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
 
+  /**
+   * if 和 foreach 节点使用的表达式求值器
+   */
+  private final ExpressionEvaluator expressionEvaluator;
+
   public XMLScriptBuilder(Configuration configuration, XNode context) {
     this(configuration, context, null);
   }
@@ -62,6 +67,8 @@ public class XMLScriptBuilder extends BaseBuilder {
     super(configuration);
     this.context = context;
     this.parameterType = parameterType;
+    this.expressionEvaluator = configuration.isCompiledDynamicSqlEnabled()
+        ? new CompilingExpressionEvaluator(configuration.getReflectorFactory()) : new ExpressionEvaluator();
     initNodeHandlerMap();
   }
 
@@ -219,7 +226,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, expressionEvaluator);
       targetContents.add(forEachSqlNode);
     }
   }
@@ -242,7 +249,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       // 获取该节点的test属性
       String test = nodeToHandle.getStringAttribute("test");
       // 创建一个 IfSqlNode
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test, expressionEvaluator);
       // 将创建的 IfSqlNode 放到 SQL 节点树中
       targetContents.add(ifSqlNode);
     }
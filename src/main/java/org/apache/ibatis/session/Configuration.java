@@ -18,16 +18,24 @@ package org.apache.ibatis.session;
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableDependencies;
+import org.apache.ibatis.cache.decorators.ConcurrentFifoCache;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.*;
@@ -36,6 +44,7 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -51,6 +60,9 @@ import org.apache.ibatis.logging.nologging.NoLoggingImpl;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.logging.stdout.StdOutImpl;
 import org.apache.ibatis.mapping.*;
+import org.apache.ibatis.metrics.HistogramMetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.NoOpMetricsCollector;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
@@ -59,6 +71,9 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.reflection.invoker.LambdaInvokerFactory;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
 import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -74,6 +89,9 @@ import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 /**
@@ -81,6 +99,8 @@ import java.util.function.BiFunction;
  */
 public class Configuration {
 
+  private static final int COMPILED_ROW_MAPPERS_SIZE = 1024;
+
   /**
    * <environment> 节点的信息
    */
@@ -101,6 +121,16 @@ public class Configuration {
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
   protected boolean shrinkWhitespacesInSql;
+  protected boolean compiledRowMappersEnabled;
+  protected boolean compiledDynamicSqlEnabled;
+  protected boolean compiledInterceptorsEnabled;
+  protected boolean tableCacheInvalidationEnabled;
+  protected int parsedSqlCacheSize;
+  protected int batchFlushSize;
+  protected int batchFlushBytes;
+  protected int nestedQueryParallelism;
+  protected int lazyLoadBatchSize;
+  protected int cursorPrefetchSize;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -126,6 +156,17 @@ public class Configuration {
    */
   protected ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
 
+  /**
+   * 调用器工厂，用于生成 {@link DefaultReflectorFactory} 中属性的读写调用器
+   */
+  protected InvokerFactory invokerFactory = new ReflectionInvokerFactory();
+  protected MetricsCollector metricsCollector = NoOpMetricsCollector.INSTANCE;
+
+  /**
+   * 执行异步 mapper 方法及并行嵌套查询的线程池，为 null 时使用默认线程池
+   */
+  protected ExecutorService asyncExecutorService;
+
   /**
    * 对象工厂
    */
@@ -222,6 +263,18 @@ public class Configuration {
    */
   protected final Map<String, XNode> sqlFragments = new StrictMap<>("XML fragments parsed from previous mappers");
 
+  /**
+   * 编译好的行映射器，键为 resultMap 的 id + 列布局。动态 SQL 的列布局可能不断变化，因此只保留最近使用的
+   * {@value #COMPILED_ROW_MAPPERS_SIZE} 个
+   */
+  protected final Cache compiledRowMappers = newCompiledRowMappers();
+
+  /**
+   * 所有动态语句的已解析 SQL 缓存的命中统计
+   */
+  protected final ParsedSqlCache.Statistics parsedSqlCacheStatistics = new ParsedSqlCache.Statistics();
+  protected final TableDependencies tableDependencies = new TableDependencies();
+
 
   /**
    * 存储暂时性错误的节点；在第一次解析完成后，再处理一遍这些错误节点即可
@@ -253,6 +306,7 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
@@ -260,6 +314,10 @@ public class Configuration {
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentPerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_LRU", ConcurrentLruCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_FIFO", ConcurrentFifoCache.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -277,6 +335,12 @@ public class Configuration {
     typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
     typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+    typeAliasRegistry.registerAlias("REFLECTION", ReflectionInvokerFactory.class);
+    typeAliasRegistry.registerAlias("LAMBDA", LambdaInvokerFactory.class);
+
+    typeAliasRegistry.registerAlias("NO_METRICS", NoOpMetricsCollector.class);
+    typeAliasRegistry.registerAlias("HISTOGRAM", HistogramMetricsCollector.class);
+
     languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
     languageRegistry.register(RawLanguageDriver.class);
   }
@@ -364,6 +428,268 @@ public class Configuration {
     this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
   }
 
+  /**
+   * Gets whether simple result maps are mapped by a {@link CompiledRowMapper} instead of the reflective mapping of
+   * {@link DefaultResultSetHandler}.
+   *
+   * @return true if compiled row mappers are used
+   * @since 3.5.6
+   */
+  public boolean isCompiledRowMappersEnabled() {
+    return compiledRowMappersEnabled;
+  }
+
+  /**
+   * Sets whether simple result maps are mapped by a {@link CompiledRowMapper}. Result maps with nested result maps,
+   * nested queries or discriminators are always mapped by {@link DefaultResultSetHandler}.
+   *
+   * @param compiledRowMappersEnabled
+   *          true to compile row mappers at first use
+   * @since 3.5.6
+   */
+  public void setCompiledRowMappersEnabled(boolean compiledRowMappersEnabled) {
+    this.compiledRowMappersEnabled = compiledRowMappersEnabled;
+  }
+
+  /**
+   * Gets whether the test expressions of {@code <if>}/{@code <when>} and the collection expressions of
+   * {@code <foreach>} are compiled instead of being evaluated by OGNL.
+   *
+   * @return true if dynamic SQL expressions are compiled
+   * @since 3.5.6
+   */
+  public boolean isCompiledDynamicSqlEnabled() {
+    return compiledDynamicSqlEnabled;
+  }
+
+  /**
+   * Sets whether the expressions of XML dynamic SQL are compiled. Expressions that cannot be compiled are still
+   * evaluated by OGNL. This setting affects the statements parsed after it is changed.
+   *
+   * @param compiledDynamicSqlEnabled
+   *          true to compile dynamic SQL expressions
+   * @since 3.5.6
+   */
+  public void setCompiledDynamicSqlEnabled(boolean compiledDynamicSqlEnabled) {
+    this.compiledDynamicSqlEnabled = compiledDynamicSqlEnabled;
+  }
+
+  /**
+   * Gets the maximum number of parsed SQL shapes kept by each dynamic statement.
+   *
+   * @return the cache size, 0 when rendered SQL is parsed on every execution
+   * @since 3.5.6
+   */
+  public int getParsedSqlCacheSize() {
+    return parsedSqlCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of parsed SQL shapes kept by each dynamic statement. A shape is the SQL rendered by the
+   * dynamic SQL nodes of a statement for a given parameter type; its {@code #{}} placeholders are parsed into parameter
+   * mappings once and reused afterwards. This setting affects the statements parsed after it is changed.
+   *
+   * @param parsedSqlCacheSize
+   *          the cache size, 0 (the default) to parse the rendered SQL on every execution
+   * @since 3.5.6
+   */
+  public void setParsedSqlCacheSize(int parsedSqlCacheSize) {
+    this.parsedSqlCacheSize = parsedSqlCacheSize;
+  }
+
+  /**
+   * Gets the number of parameter sets after which a batch executor executes its pending batches.
+   *
+   * @return the batch size, 0 when batches are only executed by {@code flushStatements}
+   * @since 3.5.6
+   */
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets the number of parameter sets after which a batch executor executes its pending batches, without waiting for
+   * {@code flushStatements} or the commit. Results of those early executions keep their update counts but drop their
+   * parameter objects, unless a {@link org.apache.ibatis.executor.BatchResultHandler} receives them. This setting
+   * affects the executors created after it is changed.
+   *
+   * @param batchFlushSize
+   *          the batch size, 0 to only execute batches on {@code flushStatements}
+   * @since 3.5.6
+   */
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  /**
+   * Gets the estimated size in bytes of the bound parameters after which a batch executor executes its pending
+   * batches.
+   *
+   * @return the byte budget, 0 when there is none
+   * @since 3.5.6
+   */
+  public int getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  /**
+   * Sets the estimated size in bytes of the bound parameters after which a batch executor executes its pending
+   * batches. Strings count two bytes per character, byte arrays their length and any other value eight bytes, plus a
+   * fixed overhead per parameter.
+   *
+   * @param batchFlushBytes
+   *          the byte budget, 0 for none
+   * @since 3.5.6
+   * @see #setBatchFlushSize(int)
+   */
+  public void setBatchFlushBytes(int batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  /**
+   * Gets the number of eager nested selects of one result set that may run at the same time.
+   *
+   * @return the parallelism, 0 when nested selects run row by row
+   * @since 3.5.6
+   */
+  public int getNestedQueryParallelism() {
+    return nestedQueryParallelism;
+  }
+
+  /**
+   * Sets the number of eager nested selects of one result set that may run at the same time. When set, the nested
+   * selects of {@code association} and {@code collection} mappings that are not lazy are gathered while the result set
+   * is mapped, each distinct key is selected once, and the selects are run on the calling session and on up to
+   * {@code nestedQueryParallelism - 1} additional sessions on {@link #getAsyncExecutorService()}. The additional sessions
+   * take their own connections from the data source and do not see uncommitted changes of the calling session.
+   *
+   * @param nestedQueryParallelism
+   *          the parallelism, 0 (the default) to run nested selects row by row
+   * @since 3.5.6
+   */
+  public void setNestedQueryParallelism(int nestedQueryParallelism) {
+    this.nestedQueryParallelism = nestedQueryParallelism;
+  }
+
+  /**
+   * Gets the number of objects of one result set whose lazy property is loaded at once.
+   *
+   * @return the batch size, 0 when every lazy property is loaded on its own
+   * @since 3.5.6
+   */
+  public int getLazyLoadBatchSize() {
+    return lazyLoadBatchSize;
+  }
+
+  /**
+   * Sets the number of objects of one result set whose lazy property is loaded at once. When the lazy property of one
+   * object is triggered, and its nested select declares a multi-key {@code batchSelect}, the same property of up to
+   * {@code lazyLoadBatchSize - 1} other objects of the result set is loaded with it by one execution of that
+   * statement. Nested selects without a {@code batchSelect} load each property on its own.
+   *
+   * @param lazyLoadBatchSize
+   *          the batch size, 0 (the default) to load every lazy property on its own
+   * @since 3.5.6
+   * @see org.apache.ibatis.executor.loader.LazyLoadBatch
+   */
+  public void setLazyLoadBatchSize(int lazyLoadBatchSize) {
+    this.lazyLoadBatchSize = lazyLoadBatchSize;
+  }
+
+  /**
+   * Gets whether interceptors are applied with one generated delegate per target class instead of nested proxies.
+   *
+   * @return true if interceptors are compiled
+   * @since 3.5.6
+   */
+  public boolean isCompiledInterceptorsEnabled() {
+    return compiledInterceptorsEnabled;
+  }
+
+  /**
+   * Sets whether interceptors are applied with one generated delegate per target class instead of one
+   * {@link org.apache.ibatis.plugin.Plugin} proxy per interceptor. Methods no interceptor intercepts are then called
+   * directly, and intercepted methods run their interceptors as a flat chain. Interceptors that override
+   * {@link Interceptor#plugin(Object)} still wrap the target themselves.
+   *
+   * @param compiledInterceptorsEnabled
+   *          true to compile the interceptors
+   * @since 3.5.6
+   */
+  public void setCompiledInterceptorsEnabled(boolean compiledInterceptorsEnabled) {
+    this.compiledInterceptorsEnabled = compiledInterceptorsEnabled;
+    interceptorChain.setCompiled(compiledInterceptorsEnabled);
+  }
+
+  /**
+   * Gets whether writes invalidate the cached selects that read the tables they modify instead of clearing the cache
+   * of their namespace.
+   *
+   * @return true if the 2nd level caches are invalidated by table
+   * @since 3.5.6
+   */
+  public boolean isTableCacheInvalidationEnabled() {
+    return tableCacheInvalidationEnabled;
+  }
+
+  /**
+   * Sets whether writes invalidate the cached selects that read the tables they modify, in any namespace, instead of
+   * clearing the whole cache of their own namespace. The tables of a statement are found in its SQL, or declared with
+   * the {@code tables} attribute. A write whose tables are unknown still clears the cache of its namespace.
+   *
+   * @param tableCacheInvalidationEnabled
+   *          true to invalidate the 2nd level caches by table
+   * @since 3.5.6
+   * @see TableDependencies
+   */
+  public void setTableCacheInvalidationEnabled(boolean tableCacheInvalidationEnabled) {
+    this.tableCacheInvalidationEnabled = tableCacheInvalidationEnabled;
+  }
+
+  /**
+   * Gets the versions of the tables the cached selects depend on.
+   *
+   * @return the table dependencies
+   * @since 3.5.6
+   */
+  public TableDependencies getTableDependencies() {
+    return tableDependencies;
+  }
+
+  /**
+   * Gets the number of mapped rows a cursor may read ahead of its consumer.
+   *
+   * @return the number of rows, 0 if cursors map rows on the consuming thread
+   * @since 3.5.6
+   */
+  public int getCursorPrefetchSize() {
+    return cursorPrefetchSize;
+  }
+
+  /**
+   * Sets the number of mapped rows a cursor may read ahead of its consumer. When set, the rows of a cursor whose result
+   * map has no nested selects are fetched and mapped on {@link #getAsyncExecutorService()} into a buffer of this size,
+   * and the fetch size of its result set is adjusted to the rate at which the rows are consumed.
+   *
+   * @param cursorPrefetchSize
+   *          the number of rows, 0 (the default) to map rows on the consuming thread
+   * @since 3.5.6
+   * @see org.apache.ibatis.cursor.defaults.PrefetchingCursor
+   */
+  public void setCursorPrefetchSize(int cursorPrefetchSize) {
+    this.cursorPrefetchSize = cursorPrefetchSize;
+  }
+
+  /**
+   * Gets the hit and miss counts of the parsed SQL caches of all dynamic statements.
+   *
+   * @return the statistics
+   * @since 3.5.6
+   */
+  public ParsedSqlCache.Statistics getParsedSqlCacheStatistics() {
+    return parsedSqlCacheStatistics;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -418,6 +744,7 @@ public class Configuration {
 
   public void setEnvironment(Environment environment) {
     this.environment = environment;
+    applyMetricsCollector();
   }
 
   public AutoMappingBehavior getAutoMappingBehavior() {
@@ -634,6 +961,84 @@ public class Configuration {
 
   public void setReflectorFactory(ReflectorFactory reflectorFactory) {
     this.reflectorFactory = reflectorFactory;
+    applyInvokerFactory();
+  }
+
+  public InvokerFactory getInvokerFactory() {
+    return invokerFactory;
+  }
+
+  /**
+   * Sets the factory of the invokers used to read and write properties. It applies to a {@link DefaultReflectorFactory};
+   * a custom {@link ReflectorFactory} creates its reflectors on its own.
+   *
+   * @param invokerFactory
+   *          the invoker factory, {@link ReflectionInvokerFactory} if null
+   * @since 3.5.6
+   */
+  public void setInvokerFactory(InvokerFactory invokerFactory) {
+    if (invokerFactory == null) {
+      invokerFactory = new ReflectionInvokerFactory();
+    }
+    this.invokerFactory = invokerFactory;
+    applyInvokerFactory();
+  }
+
+  private void applyInvokerFactory() {
+    if (reflectorFactory instanceof DefaultReflectorFactory
+        && ((DefaultReflectorFactory) reflectorFactory).getInvokerFactory() != invokerFactory) {
+      ((DefaultReflectorFactory) reflectorFactory).setInvokerFactory(invokerFactory);
+    }
+  }
+
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
+  /**
+   * Sets the collector of the statement timings, the pool wait times and the second level cache hits. It is also given
+   * to the {@link PooledDataSource} of the environment, if any.
+   *
+   * @param metricsCollector
+   *          the metrics collector, {@link NoOpMetricsCollector} if null
+   * @since 3.5.6
+   */
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    if (metricsCollector == null) {
+      metricsCollector = NoOpMetricsCollector.INSTANCE;
+    }
+    this.metricsCollector = metricsCollector;
+    applyMetricsCollector();
+  }
+
+  /**
+   * Gets the executor service that runs mapper methods returning a {@link java.util.concurrent.CompletableFuture} and
+   * parallel nested selects.
+   *
+   * @return the executor service set with {@link #setAsyncExecutorService(ExecutorService)}, or a shared default one
+   *         that runs every task on a virtual thread on Java 21 and later, on a daemon thread otherwise
+   * @since 3.5.6
+   */
+  public ExecutorService getAsyncExecutorService() {
+    return asyncExecutorService == null ? DefaultAsyncExecutorService.INSTANCE : asyncExecutorService;
+  }
+
+  /**
+   * Sets the executor service that runs mapper methods returning a {@link java.util.concurrent.CompletableFuture} and
+   * parallel nested selects. It is not shut down by MyBatis.
+   *
+   * @param asyncExecutorService
+   *          the executor service, null for the default one
+   * @since 3.5.6
+   */
+  public void setAsyncExecutorService(ExecutorService asyncExecutorService) {
+    this.asyncExecutorService = asyncExecutorService;
+  }
+
+  private void applyMetricsCollector() {
+    if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+      ((PooledDataSource) environment.getDataSource()).setMetricsCollector(metricsCollector);
+    }
   }
 
   public ObjectFactory getObjectFactory() {
@@ -758,6 +1163,8 @@ public class Configuration {
     // 根据数据库操作类型创建实际执行器
     if (ExecutorType.BATCH == executorType) {
       executor = new BatchExecutor(this, transaction);
+    } else if (ExecutorType.REORDERING_BATCH == executorType) {
+      executor = new ReorderingBatchExecutor(this, transaction);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -917,6 +1324,16 @@ public class Configuration {
     return sqlFragments;
   }
 
+  public Cache getCompiledRowMappers() {
+    return compiledRowMappers;
+  }
+
+  private static Cache newCompiledRowMappers() {
+    ConcurrentLruCache lruCache = new ConcurrentLruCache(new ConcurrentPerpetualCache(CompiledRowMapper.class.getName()), 1);
+    lruCache.setSize(COMPILED_ROW_MAPPERS_SIZE);
+    return lruCache;
+  }
+
   public void addInterceptor(Interceptor interceptor) {
     interceptorChain.addInterceptor(interceptor);
   }
@@ -1150,4 +1567,21 @@ public class Configuration {
     }
   }
 
+  private static final class DefaultAsyncExecutorService {
+    private static final ExecutorService INSTANCE = newExecutorService();
+
+    private static ExecutorService newExecutorService() {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-async-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+  }
+
 }
@@ -19,5 +19,10 @@ package org.apache.ibatis.session;
  * @author Clinton Begin
  */
 public enum ExecutorType {
-  SIMPLE, REUSE, BATCH
+  SIMPLE, REUSE, BATCH,
+  /**
+   * @since 3.5.6
+   * @see org.apache.ibatis.executor.ReorderingBatchExecutor
+   */
+  REORDERING_BATCH
 }
@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultHandler;
 
 /**
  * The primary Java interface for working with MyBatis.
@@ -257,6 +258,17 @@ public interface SqlSession extends Closeable {
    */
   List<BatchResult> flushStatements();
 
+  /**
+   * Streams the results of batch statements to the handler instead of returning them from {@link #flushStatements()},
+   * including the batches executed early because {@code batchFlushSize} or {@code batchFlushBytes} was reached.
+   * Sessions that do not batch statements ignore it, like {@link org.apache.ibatis.executor.Executor#setBatchResultHandler}.
+   * @param batchResultHandler the handler, or {@code null} to return the results from {@link #flushStatements()} again
+   * @since 3.5.6
+   */
+  default void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    // nothing to do for sessions that do not batch
+  }
+
   /**
    * Closes the session.
    */
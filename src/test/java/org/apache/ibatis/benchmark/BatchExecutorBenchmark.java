@@ -0,0 +1,177 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * An order import that alternates an order insert with the inserts of its lines, run with {@link ExecutorType#BATCH}
+ * and {@link ExecutorType#REORDERING_BATCH}. Besides the time, the {@link Counters} report how many statements were
+ * prepared and how many {@code executeBatch} round trips were made per import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchExecutorBenchmark {
+
+  @Param({ "BATCH", "REORDERING_BATCH" })
+  public ExecutorType executorType;
+
+  @Param({ "500" })
+  public int orders;
+
+  @Param({ "3" })
+  public int linesPerOrder;
+
+  private PooledDataSource dataSource;
+  private SqlSessionFactory sqlSessionFactory;
+
+  public interface OrderMapper {
+
+    @Insert("INSERT INTO orders (id, customer) VALUES (#{id}, #{customer})")
+    int insertOrder(Order order);
+
+    @Insert("INSERT INTO order_line (order_id, line_no, quantity) VALUES (#{orderId}, #{lineNo}, #{quantity})")
+    int insertLine(OrderLine line);
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    public long statementsPrepared;
+    public long roundTrips;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      statementsPrepared = 0;
+      roundTrips = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:batch_executor", "sa", "");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE order_line IF EXISTS");
+      statement.execute("DROP TABLE orders IF EXISTS");
+      statement.execute("CREATE TABLE orders (id INT PRIMARY KEY, customer VARCHAR(64))");
+      statement.execute("CREATE TABLE order_line (order_id INT REFERENCES orders (id), line_no INT, quantity INT,"
+          + " PRIMARY KEY (order_id, line_no))");
+    }
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(OrderMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public List<BatchResult> interleavedInserts(Counters counters) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(executorType)) {
+      OrderMapper mapper = sqlSession.getMapper(OrderMapper.class);
+      for (int id = 0; id < orders; id++) {
+        mapper.insertOrder(new Order(id, "customer" + id));
+        for (int lineNo = 0; lineNo < linesPerOrder; lineNo++) {
+          mapper.insertLine(new OrderLine(id, lineNo, lineNo + 1));
+        }
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      // every batch result stands for one prepared statement and one executeBatch call
+      counters.statementsPrepared += results.size();
+      counters.roundTrips += results.size();
+      sqlSession.rollback(true);
+      return results;
+    }
+  }
+
+  public static class Order {
+    private final int id;
+    private final String customer;
+
+    public Order(int id, String customer) {
+      this.id = id;
+      this.customer = customer;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getCustomer() {
+      return customer;
+    }
+  }
+
+  public static class OrderLine {
+    private final int orderId;
+    private final int lineNo;
+    private final int quantity;
+
+    public OrderLine(int orderId, int lineNo, int quantity) {
+      this.orderId = orderId;
+      this.lineNo = lineNo;
+      this.quantity = quantity;
+    }
+
+    public int getOrderId() {
+      return orderId;
+    }
+
+    public int getLineNo() {
+      return lineNo;
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation and lookup cost of {@link CacheKey}s shaped like the ones built by
+ * {@code BaseExecutor.createCacheKey} (one per query) and {@code DefaultResultSetHandler.createRowKey} (one per row
+ * of a nested result map). Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+  private static final String STATEMENT_ID = "org.apache.ibatis.domain.blog.mappers.BlogMapper.selectBlogsWithAuthor";
+  private static final String SQL = "select * from blog b join author a on b.author_id = a.id where b.title like ? and a.id in (?, ?, ?, ?, ?, ?, ?)";
+
+  @Param({ "8" })
+  public int parameterCount;
+
+  private Object[] parameters;
+  private CacheKey parentRowKey;
+  private Map<CacheKey, Object> queryKeys;
+  private Map<CacheKey, Object> rowKeys;
+  private int row;
+
+  @Setup
+  public void setup() throws CloneNotSupportedException {
+    parameters = new Object[parameterCount];
+    parameters[0] = "%mybatis%";
+    for (int i = 1; i < parameterCount; i++) {
+      parameters[i] = i;
+    }
+    parentRowKey = new CacheKey(new Object[] { "blogResult", "id", 1 });
+    queryKeys = new HashMap<>();
+    queryKeys.put(createQueryKey(), Boolean.TRUE);
+    rowKeys = new HashMap<>();
+    for (int i = 0; i < 1024; i++) {
+      rowKeys.put(createRowKey(i), Boolean.TRUE);
+    }
+  }
+
+  @Benchmark
+  public CacheKey queryKey() {
+    return createQueryKey();
+  }
+
+  @Benchmark
+  public Object queryKeyLookup() {
+    return queryKeys.get(createQueryKey());
+  }
+
+  @Benchmark
+  public CacheKey rowKey() {
+    return createRowKey(row++ & 1023);
+  }
+
+  @Benchmark
+  public Object rowKeyLookup() {
+    return rowKeys.get(createRowKey(row++ & 1023));
+  }
+
+  @Benchmark
+  public CacheKey combinedRowKey() throws CloneNotSupportedException {
+    CacheKey combinedKey = createRowKey(row++ & 1023).clone();
+    combinedKey.update(parentRowKey);
+    return combinedKey;
+  }
+
+  private CacheKey createQueryKey() {
+    CacheKey cacheKey = new CacheKey(parameters.length + 5);
+    cacheKey.update(STATEMENT_ID);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (Object parameter : parameters) {
+      cacheKey.update(parameter);
+    }
+    cacheKey.update("development");
+    return cacheKey;
+  }
+
+  private CacheKey createRowKey(int id) {
+    CacheKey cacheKey = new CacheKey(7);
+    cacheKey.update("postResult");
+    cacheKey.update("ID");
+    cacheKey.update(id);
+    cacheKey.update("BLOG_ID");
+    cacheKey.update(1);
+    cacheKey.update("AUTHOR_ID");
+    cacheKey.update(101);
+    return cacheKey;
+  }
+
+}
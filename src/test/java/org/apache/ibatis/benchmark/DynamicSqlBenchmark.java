@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to render a typical dynamic search statement and a multi-row insert generated by {@code <foreach>}, with OGNL and
+ * with compiled expressions, with and without the parsed SQL cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicSqlBenchmark {
+
+  private static final String SEARCH = "<script>SELECT * FROM blog"
+      + " <where>"
+      + "  <if test=\"title != null and title != ''\">AND title LIKE #{title}</if>"
+      + "  <if test=\"authorId != null and authorId > 0\">AND author_id = #{authorId}</if>"
+      + "  <if test=\"state == 'ACTIVE' or state == 'PENDING'\">AND state = #{state}</if>"
+      + "  <if test=\"ids != null and ids.size() > 0\">AND id IN"
+      + "   <foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+      + "  </if>"
+      + " </where>"
+      + "</script>";
+
+  private static final String BULK_INSERT = "<script>INSERT INTO blog (id, author_id, title) VALUES"
+      + " <foreach collection=\"list\" item=\"row\" separator=\",\">(#{row.id}, #{row.authorId}, #{row.title})</foreach>"
+      + "</script>";
+
+  @Param({ "false", "true" })
+  public boolean compiledDynamicSqlEnabled;
+
+  @Param({ "0", "64" })
+  public int parsedSqlCacheSize;
+
+  @Param({ "1000" })
+  public int rows;
+
+  private SqlSource sqlSource;
+  private SqlSource bulkInsertSqlSource;
+  private Map<String, Object> parameter;
+  private Map<String, Object> bulkInsertParameter;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Configuration configuration = new Configuration();
+    configuration.setCompiledDynamicSqlEnabled(compiledDynamicSqlEnabled);
+    configuration.setParsedSqlCacheSize(parsedSqlCacheSize);
+    sqlSource = new XMLLanguageDriver().createSqlSource(configuration, SEARCH, Map.class);
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      ids.add(i);
+    }
+    parameter = new HashMap<>();
+    parameter.put("title", "%mybatis%");
+    parameter.put("authorId", 101);
+    parameter.put("state", "ACTIVE");
+    parameter.put("ids", ids);
+
+    bulkInsertSqlSource = new XMLLanguageDriver().createSqlSource(configuration, BULK_INSERT, Map.class);
+    List<Map<String, Object>> list = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      Map<String, Object> row = new HashMap<>();
+      row.put("id", i);
+      row.put("authorId", i % 100);
+      row.put("title", "title " + i);
+      list.add(row);
+    }
+    bulkInsertParameter = new HashMap<>();
+    bulkInsertParameter.put("list", list);
+  }
+
+  @Benchmark
+  public BoundSql search() {
+    return sqlSource.getBoundSql(parameter);
+  }
+
+  @Benchmark
+  public BoundSql foreachInsert() {
+    return bulkInsertSqlSource.getBoundSql(bulkInsertParameter);
+  }
+
+}
@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays a synthetic query trace against the eviction policies. The trace mixes Zipf-distributed lookups with
+ * periodic scans of keys that are never requested again. Besides the throughput, the {@code hits} and {@code misses}
+ * counters give the hit ratio of each policy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvictionPolicyBenchmark {
+
+  private static final int TRACE_LENGTH = 1 << 20;
+  private static final int DISTINCT_KEYS = 20000;
+
+  @Param({ "LRU", "FIFO", "TINYLFU" })
+  public String eviction;
+
+  @Param({ "1000" })
+  public int size;
+
+  /**
+   * Share of the trace made of one-off scan keys, in percent.
+   */
+  @Param({ "0", "20" })
+  public int scanPercent;
+
+  private Cache cache;
+  private Integer[] trace;
+  private int index;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HitCounters {
+    public long hits;
+    public long misses;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      hits = 0;
+      misses = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    PerpetualCache base = new PerpetualCache("benchmark");
+    if ("LRU".equals(eviction)) {
+      LruCache lru = new LruCache(base);
+      lru.setSize(size);
+      cache = lru;
+    } else if ("FIFO".equals(eviction)) {
+      FifoCache fifo = new FifoCache(base);
+      fifo.setSize(size);
+      cache = fifo;
+    } else {
+      TinyLfuCache tinyLfu = new TinyLfuCache(base);
+      tinyLfu.setSize(size);
+      cache = tinyLfu;
+    }
+    trace = createTrace(new Random(42));
+  }
+
+  @Benchmark
+  public Object replay(HitCounters counters) {
+    Integer key = trace[index++ & (TRACE_LENGTH - 1)];
+    Object value = cache.getObject(key);
+    if (value == null) {
+      counters.misses++;
+      cache.putObject(key, key);
+      return key;
+    }
+    counters.hits++;
+    return value;
+  }
+
+  private Integer[] createTrace(Random random) {
+    double[] cdf = new double[DISTINCT_KEYS];
+    double sum = 0;
+    for (int i = 0; i < cdf.length; i++) {
+      sum += 1.0 / Math.pow(i + 1, 0.9);
+      cdf[i] = sum;
+    }
+    for (int i = 0; i < cdf.length; i++) {
+      cdf[i] /= sum;
+    }
+    Integer[] keys = new Integer[TRACE_LENGTH];
+    int scanKey = DISTINCT_KEYS;
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      if (i % 1000 < scanPercent * 10) {
+        keys[i] = scanKey++;
+      } else {
+        int rank = Arrays.binarySearch(cdf, random.nextDouble());
+        keys[i] = Math.min(rank < 0 ? -rank - 1 : rank, DISTINCT_KEYS - 1);
+      }
+    }
+    return keys;
+  }
+
+}
@@ -0,0 +1,314 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end time of mapper calls against an in-memory HSQLDB: a single row select, a 10k rows select, a select
+ * mapped with a nested result map, a batch insert and a multi-row {@code <foreach>} insert with and without chunking.
+ * Together they cover the {@code MapperProxy} dispatch, the executors, {@code DefaultResultSetHandler} and the pooled
+ * data source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+
+  private static final int AUTHORS = 100;
+  private static final int POSTS_PER_AUTHOR = 100;
+
+  @Param({ "1000" })
+  public int batchSize;
+
+  private PooledDataSource dataSource;
+  private SqlSessionFactory sqlSessionFactory;
+  private SqlSession sqlSession;
+  private BlogMapper mapper;
+
+  public interface BlogMapper {
+
+    @Results(id = "post", value = {
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "authorId", column = "author_id"),
+        @Result(property = "subject", column = "subject"),
+        @Result(property = "body", column = "body")
+    })
+    @Select("SELECT * FROM post WHERE id = #{id}")
+    Post selectPost(int id);
+
+    @Select("SELECT * FROM post")
+    List<Post> selectPosts();
+
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "username", column = "username"),
+        @Result(property = "email", column = "email"),
+        @Result(property = "posts", many = @Many(resultMap = "post", columnPrefix = "post_"))
+    })
+    @Select("SELECT a.id, a.username, a.email, p.id AS post_id, p.author_id AS post_author_id,"
+        + " p.subject AS post_subject, p.body AS post_body"
+        + " FROM author a LEFT JOIN post p ON p.author_id = a.id ORDER BY a.id, p.id")
+    List<Author> selectAuthorsWithPosts();
+
+    @Insert("INSERT INTO post (id, author_id, subject, body) VALUES (#{id}, #{authorId}, #{subject}, #{body})")
+    int insertPost(Post post);
+
+    @Insert("<script>INSERT INTO post (id, author_id, subject, body) VALUES"
+        + " <foreach collection='list' item='post' separator=','>(#{post.id}, #{post.authorId}, #{post.subject}, #{post.body})</foreach>"
+        + "</script>")
+    int insertPosts(List<Post> posts);
+
+    @Insert("<script>INSERT INTO post (id, author_id, subject, body) VALUES"
+        + " <foreach collection='list' item='post' separator=','>(#{post.id}, #{post.authorId}, #{post.subject}, #{post.body})</foreach>"
+        + "</script>")
+    @Options(chunkSizes = "128,16,1")
+    int insertPostsInChunks(List<Post> posts);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:executor", "sa", "");
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("DROP TABLE post IF EXISTS");
+        statement.execute("DROP TABLE author IF EXISTS");
+        statement.execute("CREATE TABLE author (id INT PRIMARY KEY, username VARCHAR(64), email VARCHAR(64))");
+        statement.execute("CREATE TABLE post (id INT PRIMARY KEY, author_id INT, subject VARCHAR(128), body VARCHAR(1024))");
+      }
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO author VALUES (?,?,?)")) {
+        for (int i = 0; i < AUTHORS; i++) {
+          statement.setInt(1, i);
+          statement.setString(2, "author" + i);
+          statement.setString(3, "author" + i + "@example.com");
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO post VALUES (?,?,?,?)")) {
+        for (int i = 0; i < AUTHORS * POSTS_PER_AUTHOR; i++) {
+          statement.setInt(1, i);
+          statement.setInt(2, i % AUTHORS);
+          statement.setString(3, "subject " + i);
+          statement.setString(4, "body of post " + i);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    }
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    configuration.addMapper(BlogMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    sqlSession = sqlSessionFactory.openSession();
+    mapper = sqlSession.getMapper(BlogMapper.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sqlSession.close();
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public Post selectOne() {
+    return mapper.selectPost(ThreadLocalRandom.current().nextInt(AUTHORS * POSTS_PER_AUTHOR));
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Post> selectList() {
+    return mapper.selectPosts();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public List<Author> nestedResultMap() {
+    return mapper.selectAuthorsWithPosts();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int batchInsert() {
+    try (SqlSession batchSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      BlogMapper batchMapper = batchSession.getMapper(BlogMapper.class);
+      int base = AUTHORS * POSTS_PER_AUTHOR;
+      for (int i = 0; i < batchSize; i++) {
+        Post post = new Post();
+        post.setId(base + i);
+        post.setAuthorId(i % AUTHORS);
+        post.setSubject("subject " + i);
+        post.setBody("body of post " + i);
+        batchMapper.insertPost(post);
+      }
+      int rows = batchSession.flushStatements().size();
+      batchSession.rollback(true);
+      return rows;
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int foreachInsert() {
+    try (SqlSession insertSession = sqlSessionFactory.openSession()) {
+      int rows = insertSession.getMapper(BlogMapper.class).insertPosts(newPosts());
+      insertSession.rollback(true);
+      return rows;
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int chunkedForeachInsert() {
+    try (SqlSession insertSession = sqlSessionFactory.openSession()) {
+      int rows = insertSession.getMapper(BlogMapper.class).insertPostsInChunks(newPosts());
+      insertSession.rollback(true);
+      return rows;
+    }
+  }
+
+  private List<Post> newPosts() {
+    List<Post> posts = new ArrayList<>(batchSize);
+    int base = AUTHORS * POSTS_PER_AUTHOR;
+    for (int i = 0; i < batchSize; i++) {
+      Post post = new Post();
+      post.setId(base + i);
+      post.setAuthorId(i % AUTHORS);
+      post.setSubject("subject " + i);
+      post.setBody("body of post " + i);
+      posts.add(post);
+    }
+    return posts;
+  }
+
+  public static class Author {
+    private int id;
+    private String username;
+    private String email;
+    private List<Post> posts;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+
+    public void setEmail(String email) {
+      this.email = email;
+    }
+
+    public List<Post> getPosts() {
+      return posts;
+    }
+
+    public void setPosts(List<Post> posts) {
+      this.posts = posts;
+    }
+  }
+
+  public static class Post {
+    private int id;
+    private int authorId;
+    private String subject;
+    private String body;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public int getAuthorId() {
+      return authorId;
+    }
+
+    public void setAuthorId(int authorId) {
+      this.authorId = authorId;
+    }
+
+    public String getSubject() {
+      return subject;
+    }
+
+    public void setSubject(String subject) {
+      this.subject = subject;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    public void setBody(String body) {
+      this.body = body;
+    }
+  }
+
+}
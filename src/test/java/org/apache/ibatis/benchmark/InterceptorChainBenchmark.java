@@ -0,0 +1,206 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.InterceptorChain;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The plugin overhead of one select: the parameter handler, the result set handler and the statement handler are
+ * wrapped by the interceptor chain and called the way {@code SimpleExecutor} calls them. The handlers do nothing, so
+ * only the work of the nested {@code Plugin} proxies or of the compiled delegates is measured. The five interceptors
+ * intercept the methods a pagination, a tenancy, an audit, a metrics and a masking plugin would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterceptorChainBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean compiled;
+
+  @Param({ "1", "5" })
+  public int interceptors;
+
+  private InterceptorChain interceptorChain;
+
+  @Setup
+  public void setup() {
+    List<Interceptor> plugins = Arrays.asList(new PaginationInterceptor(), new TenancyInterceptor(), new AuditInterceptor(),
+        new MetricsInterceptor(), new MaskingInterceptor());
+    interceptorChain = new InterceptorChain();
+    plugins.subList(0, interceptors).forEach(interceptorChain::addInterceptor);
+    interceptorChain.setCompiled(compiled);
+  }
+
+  @Benchmark
+  public List<Object> select() throws Exception {
+    ParameterHandler parameterHandler = (ParameterHandler) interceptorChain.pluginAll(new NoOpParameterHandler());
+    ResultSetHandler resultSetHandler = (ResultSetHandler) interceptorChain.pluginAll(new NoOpResultSetHandler());
+    StatementHandler statementHandler = (StatementHandler) interceptorChain
+        .pluginAll(new NoOpStatementHandler(parameterHandler, resultSetHandler));
+    statementHandler.getBoundSql();
+    Statement statement = statementHandler.prepare(null, null);
+    statementHandler.parameterize(statement);
+    return statementHandler.query(statement, null);
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class PaginationInterceptor extends ProceedingInterceptor {
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class) })
+  public static class TenancyInterceptor extends ProceedingInterceptor {
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "update", args = Statement.class),
+      @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }) })
+  public static class AuditInterceptor extends ProceedingInterceptor {
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }),
+      @Signature(type = StatementHandler.class, method = "batch", args = Statement.class) })
+  public static class MetricsInterceptor extends ProceedingInterceptor {
+  }
+
+  @Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = Statement.class))
+  public static class MaskingInterceptor extends ProceedingInterceptor {
+  }
+
+  public abstract static class ProceedingInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+  }
+
+  public static class NoOpParameterHandler implements ParameterHandler {
+    @Override
+    public Object getParameterObject() {
+      return null;
+    }
+
+    @Override
+    public void setParameters(PreparedStatement ps) {
+      // nothing to bind
+    }
+  }
+
+  public static class NoOpResultSetHandler implements ResultSetHandler {
+    @Override
+    public <E> List<E> handleResultSets(Statement stmt) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public <E> Cursor<E> handleCursorResultSets(Statement stmt) {
+      return null;
+    }
+
+    @Override
+    public void handleOutputParameters(CallableStatement cs) {
+      // no output parameters
+    }
+  }
+
+  public static class NoOpStatementHandler implements StatementHandler {
+    private final ParameterHandler parameterHandler;
+    private final ResultSetHandler resultSetHandler;
+
+    public NoOpStatementHandler(ParameterHandler parameterHandler, ResultSetHandler resultSetHandler) {
+      this.parameterHandler = parameterHandler;
+      this.resultSetHandler = resultSetHandler;
+    }
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout) {
+      return null;
+    }
+
+    @Override
+    public void parameterize(Statement statement) throws SQLException {
+      parameterHandler.setParameters((PreparedStatement) statement);
+    }
+
+    @Override
+    public void batch(Statement statement) {
+      // not batched
+    }
+
+    @Override
+    public int update(Statement statement) {
+      return 0;
+    }
+
+    @Override
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+      return resultSetHandler.handleResultSets(statement);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+      return resultSetHandler.handleCursorResultSets(statement);
+    }
+
+    @Override
+    public BoundSql getBoundSql() {
+      return null;
+    }
+
+    @Override
+    public ParameterHandler getParameterHandler() {
+      return parameterHandler;
+    }
+  }
+
+}
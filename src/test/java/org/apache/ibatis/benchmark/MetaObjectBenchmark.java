@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.reflection.invoker.LambdaInvokerFactory;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MetaObject#getValue(String)} and {@link MetaObject#setValue(String, Object)} on nested paths with the
+ * reflective and the generated property invokers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetaObjectBenchmark {
+
+  @Param({ "REFLECTION", "LAMBDA" })
+  public String invokerFactory;
+
+  private MetaObject metaObject;
+  private int counter;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    InvokerFactory factory = "LAMBDA".equals(invokerFactory) ? new LambdaInvokerFactory() : new ReflectionInvokerFactory();
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setInvokerFactory(factory);
+    Blog blog = new Blog(1, "blog", new Author(101, "jim", "********", "jim@example.com", "bio", Section.NEWS), null);
+    metaObject = MetaObject.forObject(blog, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+  @Benchmark
+  public Object getNested() {
+    return metaObject.getValue("author.username");
+  }
+
+  @Benchmark
+  public Object getTopLevel() {
+    return metaObject.getValue("title");
+  }
+
+  @Benchmark
+  public void setNested() {
+    metaObject.setValue("author.id", counter++);
+  }
+
+  @Benchmark
+  public void setTopLevel() {
+    metaObject.setValue("id", counter++);
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a hit and of a put of a read/write cache: {@link SerializedCache} over {@link PerpetualCache}, which keeps
+ * Java serialized bytes on the heap, against {@link OffHeapCache}. Run with {@code -prof gc} to see the allocation
+ * rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffHeapCacheBenchmark {
+
+  @Param({ "serialized", "offHeap" })
+  public String cacheType;
+
+  @Param({ "20" })
+  public int rows;
+
+  private Cache cache;
+  private List<Author> result;
+
+  @Setup
+  public void setup() {
+    cache = "offHeap".equals(cacheType) ? new OffHeapCache("benchmark")
+        : new SerializedCache(new PerpetualCache("benchmark"));
+    result = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      result.add(new Author(i, "author" + i, "******", "author" + i + "@example.com", "Biography of author " + i,
+          Section.NEWS));
+    }
+    cache.putObject("hit", result);
+  }
+
+  @Benchmark
+  public Object hit() {
+    return cache.getObject("hit");
+  }
+
+  @Benchmark
+  public void put() {
+    cache.putObject("put", result);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Connection checkout/return throughput of {@link PooledDataSource} and {@link ConcurrentPooledDataSource} with many
+ * more threads than connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(400)
+public class PoolContentionBenchmark {
+
+  @Param({ "POOLED", "CONCURRENT_POOLED" })
+  public String pool;
+
+  @Param({ "16" })
+  public int maximumActiveConnections;
+
+  private PooledDataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    String driver = "org.hsqldb.jdbcDriver";
+    String url = "jdbc:hsqldb:mem:pool_contention";
+    dataSource = "POOLED".equals(pool)
+        ? new PooledDataSource(driver, url, "sa", "")
+        : new ConcurrentPooledDataSource(driver, url, "sa", "");
+    dataSource.setPoolMaximumActiveConnections(maximumActiveConnections);
+    dataSource.setPoolMaximumIdleConnections(maximumActiveConnections);
+    dataSource.setPoolTimeToWait(1000);
+    dataSource.setPoolMaximumCheckoutTime(60000);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public void checkoutAndReturn(Blackhole blackhole) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      blackhole.consume(connection.getAutoCommit());
+    }
+  }
+
+}
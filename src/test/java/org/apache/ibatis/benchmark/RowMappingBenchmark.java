@@ -0,0 +1,287 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to map a wide result set with the reflective mapping of the result set handler and with
+ * {@link CompiledRowMapper}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean compiledRowMappersEnabled;
+
+  @Param({ "10000" })
+  public int rows;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private SqlSession sqlSession;
+  private WideRowMapper mapper;
+
+  public interface WideRowMapper {
+
+    @Select("SELECT * FROM wide_row")
+    List<WideRow> selectAutoMapped();
+
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "name", column = "name"),
+        @Result(property = "email", column = "email"),
+        @Result(property = "street", column = "street"),
+        @Result(property = "city", column = "city"),
+        @Result(property = "country", column = "country"),
+        @Result(property = "age", column = "age"),
+        @Result(property = "visits", column = "visits"),
+        @Result(property = "balance", column = "balance"),
+        @Result(property = "score", column = "score"),
+        @Result(property = "active", column = "active"),
+        @Result(property = "createdAt", column = "created_at"),
+        @Result(property = "updatedAt", column = "updated_at"),
+        @Result(property = "notes", column = "notes")
+    })
+    @Select("SELECT * FROM wide_row")
+    List<WideRow> selectWithResultMap();
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    UnpooledDataSource dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:row_mapping", "sa", "");
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("DROP TABLE wide_row IF EXISTS");
+        statement.execute("CREATE TABLE wide_row (id INT PRIMARY KEY, name VARCHAR(64), email VARCHAR(64), street VARCHAR(64),"
+            + " city VARCHAR(64), country VARCHAR(64), age INT, visits BIGINT, balance DECIMAL(12,2), score DOUBLE,"
+            + " active BOOLEAN, created_at TIMESTAMP, updated_at TIMESTAMP, notes VARCHAR(255))");
+      }
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO wide_row VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)")) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < rows; i++) {
+          statement.setInt(1, i);
+          statement.setString(2, "name" + i);
+          statement.setString(3, "user" + i + "@example.com");
+          statement.setString(4, i + " Main Street");
+          statement.setString(5, "city" + i % 100);
+          statement.setString(6, "country" + i % 10);
+          statement.setInt(7, i % 90);
+          statement.setLong(8, i * 31L);
+          statement.setBigDecimal(9, BigDecimal.valueOf(i, 2));
+          statement.setDouble(10, i / 7.0);
+          statement.setBoolean(11, i % 2 == 0);
+          statement.setTimestamp(12, now);
+          statement.setTimestamp(13, now);
+          statement.setString(14, i % 3 == 0 ? null : "notes of row " + i);
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    }
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.setMapUnderscoreToCamelCase(true);
+    configuration.setCompiledRowMappersEnabled(compiledRowMappersEnabled);
+    configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    configuration.addMapper(WideRowMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    sqlSession = sqlSessionFactory.openSession();
+    mapper = sqlSession.getMapper(WideRowMapper.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public List<WideRow> autoMapping() {
+    return mapper.selectAutoMapped();
+  }
+
+  @Benchmark
+  public List<WideRow> resultMap() {
+    return mapper.selectWithResultMap();
+  }
+
+  public static class WideRow {
+    private int id;
+    private String name;
+    private String email;
+    private String street;
+    private String city;
+    private String country;
+    private int age;
+    private long visits;
+    private BigDecimal balance;
+    private double score;
+    private boolean active;
+    private Date createdAt;
+    private Date updatedAt;
+    private String notes;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+
+    public void setEmail(String email) {
+      this.email = email;
+    }
+
+    public String getStreet() {
+      return street;
+    }
+
+    public void setStreet(String street) {
+      this.street = street;
+    }
+
+    public String getCity() {
+      return city;
+    }
+
+    public void setCity(String city) {
+      this.city = city;
+    }
+
+    public String getCountry() {
+      return country;
+    }
+
+    public void setCountry(String country) {
+      this.country = country;
+    }
+
+    public int getAge() {
+      return age;
+    }
+
+    public void setAge(int age) {
+      this.age = age;
+    }
+
+    public long getVisits() {
+      return visits;
+    }
+
+    public void setVisits(long visits) {
+      this.visits = visits;
+    }
+
+    public BigDecimal getBalance() {
+      return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+      this.balance = balance;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public void setScore(double score) {
+      this.score = score;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+
+    public Date getCreatedAt() {
+      return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+      this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+      return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+      this.updatedAt = updatedAt;
+    }
+
+    public String getNotes() {
+      return notes;
+    }
+
+    public void setNotes(String notes) {
+      this.notes = notes;
+    }
+  }
+
+}
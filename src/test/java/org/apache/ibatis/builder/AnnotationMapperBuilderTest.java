@@ -44,6 +44,8 @@ class AnnotationMapperBuilderTest {
     assertThat(mappedStatement.isFlushCacheRequired()).isTrue();
     assertThat(mappedStatement.isUseCache()).isFalse();
     assertThat(mappedStatement.getResultSets()).containsExactly("resultSets");
+    assertThat(mappedStatement.getCacheTtl()).isEqualTo(60000);
+    assertThat(mappedStatement.getTables()).containsExactly("author", "blog");
 
     mappedStatement = configuration.getMappedStatement("insertWithOptions");
     assertThat(mappedStatement.getKeyGenerator()).isInstanceOf(Jdbc3KeyGenerator.class);
@@ -71,6 +73,8 @@ class AnnotationMapperBuilderTest {
 
     MappedStatement mappedStatement = configuration.getMappedStatement("selectWithOptionsAndWithoutOptionsAttributes");
     assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.DEFAULT);
+    assertThat(mappedStatement.getCacheTtl()).isZero();
+    assertThat(mappedStatement.getTables()).isNull();
   }
 
   @Test
@@ -101,7 +105,7 @@ class AnnotationMapperBuilderTest {
     void insertWithOptions(String name);
 
     @Select("select * from test")
-    @Options(fetchSize = 200, timeout = 10, statementType = StatementType.STATEMENT, resultSetType = ResultSetType.SCROLL_INSENSITIVE, flushCache = Options.FlushCachePolicy.TRUE, useCache = false, resultSets = "resultSets")
+    @Options(fetchSize = 200, timeout = 10, statementType = StatementType.STATEMENT, resultSetType = ResultSetType.SCROLL_INSENSITIVE, flushCache = Options.FlushCachePolicy.TRUE, useCache = false, resultSets = "resultSets", cacheTtl = 60000, tables = "Blog, author")
     String selectWithOptions(Integer id);
 
     @Select("select * from test")
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ParsedSqlCacheTest {
+
+  private static final String SEARCH = "<script>SELECT * FROM author"
+      + " <where>"
+      + "  <if test=\"username != null\">AND username = #{username}</if>"
+      + "  <if test=\"ids != null\">AND id IN"
+      + "   <foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+      + "  </if>"
+      + " </where>"
+      + "</script>";
+
+  private static SqlSource createSqlSource(Configuration configuration, String script) {
+    return new XMLLanguageDriver().createSqlSource(configuration, script, Object.class);
+  }
+
+  private static Map<String, Object> parameter(String username, Object... ids) {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("username", username);
+    parameter.put("ids", ids.length == 0 ? null : Arrays.asList(ids));
+    return parameter;
+  }
+
+  @Test
+  void shouldReuseParameterMappingsOfSameShape() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(64);
+    SqlSource sqlSource = createSqlSource(configuration, SEARCH);
+    BoundSql first = sqlSource.getBoundSql(parameter("sally", 1, 2));
+    BoundSql second = sqlSource.getBoundSql(parameter("jim", 3, 4));
+    BoundSql third = sqlSource.getBoundSql(parameter(null, 5));
+    assertEquals(first.getSql(), second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(3, first.getParameterMappings().size());
+    assertEquals(1, third.getParameterMappings().size());
+    CacheStats stats = configuration.getParsedSqlCacheStatistics().getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+  }
+
+  @Test
+  void shouldNotReuseParameterMappingsResolvedForOtherTypes() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(64);
+    SqlSource sqlSource = createSqlSource(configuration, SEARCH);
+    BoundSql integers = sqlSource.getBoundSql(parameter("sally", 1, 2));
+    BoundSql longs = sqlSource.getBoundSql(parameter("sally", 1L, 2L));
+    assertEquals(integers.getSql(), longs.getSql());
+    assertNotSame(integers.getParameterMappings(), longs.getParameterMappings());
+    assertEquals(Integer.class, integers.getParameterMappings().get(1).getJavaType());
+    assertEquals(Long.class, longs.getParameterMappings().get(1).getJavaType());
+    assertEquals(Long.class, sqlSource.getBoundSql(parameter("jim", 3L, 4L)).getParameterMappings().get(2).getJavaType());
+    assertEquals(1, configuration.getParsedSqlCacheStatistics().getStats().getHitCount());
+  }
+
+  @Test
+  void shouldResolveNestedPropertiesOfBeanItems() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheSize(64);
+    SqlSource sqlSource = createSqlSource(configuration, "<script>INSERT INTO author (id, username) VALUES"
+        + " <foreach collection=\"list\" item=\"author\" separator=\",\">(#{author.id}, #{author.username})</foreach>"
+        + "</script>");
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("list", Arrays.asList(new Author(1), new Author(2)));
+    BoundSql first = sqlSource.getBoundSql(parameter);
+    BoundSql second = sqlSource.getBoundSql(parameter);
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(int.class, second.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, second.getParameterMappings().get(1).getJavaType());
+  }
+
+  @Test
+  void shouldKeepBoundedNumberOfShapes() {
+    Configuration configuration = new Configuration();
+    ParsedSqlCache cache = new ParsedSqlCache(configuration, 2);
+    Map<String, Object> bindings = new HashMap<>();
+    for (int i = 0; i < 10; i++) {
+      cache.parse("SELECT * FROM author WHERE id = #{id} AND " + i + " = " + i, Map.class, bindings);
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(10, configuration.getParsedSqlCacheStatistics().getStats().getMissCount());
+  }
+
+  @Test
+  void shouldParseEveryTimeByDefault() {
+    Configuration configuration = new Configuration();
+    SqlSource sqlSource = createSqlSource(configuration, SEARCH);
+    BoundSql first = sqlSource.getBoundSql(parameter("sally", 1, 2));
+    BoundSql second = sqlSource.getBoundSql(parameter("jim", 3, 4));
+    assertNotSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(0, configuration.getParsedSqlCacheStatistics().getStats().getRequestCount());
+  }
+
+}
@@ -50,6 +50,10 @@ import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.metrics.HistogramMetricsCollector;
+import org.apache.ibatis.metrics.NoOpMetricsCollector;
+import org.apache.ibatis.reflection.invoker.LambdaInvokerFactory;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -79,6 +83,7 @@ class XmlConfigBuilderTest {
       assertThat(config.getAutoMappingUnknownColumnBehavior()).isEqualTo(AutoMappingUnknownColumnBehavior.NONE);
       assertThat(config.isCacheEnabled()).isTrue();
       assertThat(config.getProxyFactory()).isInstanceOf(JavassistProxyFactory.class);
+      assertThat(config.getInvokerFactory()).isInstanceOf(ReflectionInvokerFactory.class);
       assertThat(config.isLazyLoadingEnabled()).isFalse();
       assertThat(config.isAggressiveLazyLoading()).isFalse();
       assertThat(config.isMultipleResultSetsEnabled()).isTrue();
@@ -101,6 +106,17 @@ class XmlConfigBuilderTest {
       assertNull(config.getConfigurationFactory());
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
       assertThat(config.isShrinkWhitespacesInSql()).isFalse();
+      assertThat(config.isCompiledRowMappersEnabled()).isFalse();
+      assertThat(config.isCompiledDynamicSqlEnabled()).isFalse();
+      assertThat(config.getParsedSqlCacheSize()).isEqualTo(0);
+      assertThat(config.getBatchFlushSize()).isZero();
+      assertThat(config.getBatchFlushBytes()).isZero();
+      assertThat(config.getNestedQueryParallelism()).isZero();
+      assertThat(config.getLazyLoadBatchSize()).isZero();
+      assertThat(config.getCursorPrefetchSize()).isZero();
+      assertThat(config.isCompiledInterceptorsEnabled()).isFalse();
+      assertThat(config.isTableCacheInvalidationEnabled()).isFalse();
+      assertThat(config.getMetricsCollector()).isInstanceOf(NoOpMetricsCollector.class);
       assertThat(config.getDefaultSqlProviderType()).isNull();
     }
   }
@@ -175,6 +191,7 @@ class XmlConfigBuilderTest {
       assertThat(config.getAutoMappingUnknownColumnBehavior()).isEqualTo(AutoMappingUnknownColumnBehavior.WARNING);
       assertThat(config.isCacheEnabled()).isFalse();
       assertThat(config.getProxyFactory()).isInstanceOf(CglibProxyFactory.class);
+      assertThat(config.getInvokerFactory()).isInstanceOf(LambdaInvokerFactory.class);
       assertThat(config.isLazyLoadingEnabled()).isTrue();
       assertThat(config.isAggressiveLazyLoading()).isTrue();
       assertThat(config.isMultipleResultSetsEnabled()).isFalse();
@@ -197,6 +214,17 @@ class XmlConfigBuilderTest {
       assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
       assertThat(config.isShrinkWhitespacesInSql()).isTrue();
+      assertThat(config.isCompiledRowMappersEnabled()).isTrue();
+      assertThat(config.isCompiledDynamicSqlEnabled()).isTrue();
+      assertThat(config.getParsedSqlCacheSize()).isEqualTo(16);
+      assertThat(config.getBatchFlushSize()).isEqualTo(1000);
+      assertThat(config.getBatchFlushBytes()).isEqualTo(1048576);
+      assertThat(config.getNestedQueryParallelism()).isEqualTo(4);
+      assertThat(config.getLazyLoadBatchSize()).isEqualTo(25);
+      assertThat(config.getCursorPrefetchSize()).isEqualTo(256);
+      assertThat(config.isCompiledInterceptorsEnabled()).isTrue();
+      assertThat(config.isTableCacheInvalidationEnabled()).isTrue();
+      assertThat(config.getMetricsCollector()).isInstanceOf(HistogramMetricsCollector.class);
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
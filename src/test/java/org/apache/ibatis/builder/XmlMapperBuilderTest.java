@@ -59,6 +59,8 @@ class XmlMapperBuilderTest {
       assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.SCROLL_SENSITIVE);
       assertThat(mappedStatement.isFlushCacheRequired()).isFalse();
       assertThat(mappedStatement.isUseCache()).isFalse();
+      assertThat(mappedStatement.getCacheTtl()).isEqualTo(60000);
+      assertThat(mappedStatement.getTables()).containsExactly("author");
     }
   }
 
@@ -42,6 +42,10 @@ import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.HistogramMetricsCollector;
+import org.apache.ibatis.metrics.NoOpMetricsCollector;
+import org.apache.ibatis.reflection.invoker.LambdaInvokerFactory;
+import org.apache.ibatis.reflection.invoker.ReflectionInvokerFactory;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.*;
@@ -65,6 +69,7 @@ class XmlConfigBuilderTest {
       assertEquals(AutoMappingUnknownColumnBehavior.NONE, config.getAutoMappingUnknownColumnBehavior());
       assertTrue(config.isCacheEnabled());
       assertTrue(config.getProxyFactory() instanceof JavassistProxyFactory);
+      assertTrue(config.getInvokerFactory() instanceof ReflectionInvokerFactory);
       assertFalse(config.isLazyLoadingEnabled());
       assertFalse(config.isAggressiveLazyLoading());
       assertTrue(config.isMultipleResultSetsEnabled());
@@ -85,6 +90,17 @@ class XmlConfigBuilderTest {
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
       assertFalse(config.isShrinkWhitespacesInSql());
+      assertFalse(config.isCompiledRowMappersEnabled());
+      assertFalse(config.isCompiledDynamicSqlEnabled());
+      assertEquals(0, config.getParsedSqlCacheSize());
+      assertEquals(0, config.getBatchFlushSize());
+      assertEquals(0, config.getBatchFlushBytes());
+      assertEquals(0, config.getNestedQueryParallelism());
+      assertEquals(0, config.getLazyLoadBatchSize());
+      assertEquals(0, config.getCursorPrefetchSize());
+      assertFalse(config.isCompiledInterceptorsEnabled());
+      assertFalse(config.isTableCacheInvalidationEnabled());
+      assertTrue(config.getMetricsCollector() instanceof NoOpMetricsCollector);
     } finally {
       // System.clearProperty(XPathParser.KEY_USE_XSD);
     }
@@ -102,6 +118,7 @@ class XmlConfigBuilderTest {
       assertEquals(AutoMappingUnknownColumnBehavior.WARNING, config.getAutoMappingUnknownColumnBehavior());
       assertFalse(config.isCacheEnabled());
       assertTrue(config.getProxyFactory() instanceof CglibProxyFactory);
+      assertTrue(config.getInvokerFactory() instanceof LambdaInvokerFactory);
       assertTrue(config.isLazyLoadingEnabled());
       assertTrue(config.isAggressiveLazyLoading());
       assertFalse(config.isMultipleResultSetsEnabled());
@@ -123,6 +140,17 @@ class XmlConfigBuilderTest {
       assertEquals(JBoss6VFS.class.getName(), config.getVfsImpl().getName());
       assertEquals(String.class.getName(), config.getConfigurationFactory().getName());
       assertTrue(config.isShrinkWhitespacesInSql());
+      assertTrue(config.isCompiledRowMappersEnabled());
+      assertTrue(config.isCompiledDynamicSqlEnabled());
+      assertEquals(16, config.getParsedSqlCacheSize());
+      assertEquals(1000, config.getBatchFlushSize());
+      assertEquals(1048576, config.getBatchFlushBytes());
+      assertEquals(4, config.getNestedQueryParallelism());
+      assertEquals(25, config.getLazyLoadBatchSize());
+      assertEquals(256, config.getCursorPrefetchSize());
+      assertTrue(config.isCompiledInterceptorsEnabled());
+      assertTrue(config.isTableCacheInvalidationEnabled());
+      assertTrue(config.getMetricsCollector() instanceof HistogramMetricsCollector);
 
       assertEquals(Author.class, config.getTypeAliasRegistry().getTypeAliases().get("blogauthor"));
       assertEquals(Blog.class, config.getTypeAliasRegistry().getTypeAliases().get("blog"));
@@ -86,6 +86,40 @@ class CacheKeyTest {
     assertEquals(key1, key2);
   }
 
+  @Test
+  void shouldTestPresizedCacheKeysEqualToGrowingOnes() {
+    CacheKey key1 = new CacheKey(2);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 20; i++) {
+      key1.update(i);
+      key2.update(i);
+    }
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(20, key1.getUpdateCount());
+  }
+
+  @Test
+  void shouldNotShareUpdatesWithClone() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" });
+    CacheKey clonedKey = key.clone();
+    clonedKey.update("world");
+    key.update("there");
+    assertNotEquals(key, clonedKey);
+    assertEquals(new CacheKey(new Object[] { 1, "hello", "world" }), clonedKey);
+    assertEquals(new CacheKey(new Object[] { 1, "hello", "there" }), key);
+  }
+
+  @Test
+  void shouldTestCacheKeysWithNestedKeysEqual() {
+    CacheKey key1 = new CacheKey(new Object[] { "row", new CacheKey(new Object[] { "parent", 1 }) });
+    CacheKey key2 = new CacheKey(new Object[] { "row", new CacheKey(new Object[] { "parent", 1 }) });
+    CacheKey key3 = new CacheKey(new Object[] { "row", new CacheKey(new Object[] { "parent", 2 }) });
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertNotEquals(key1, key3);
+  }
+
   @Test
   void throwExceptionWhenTryingToUpdateNullCacheKey() {
     CacheKey cacheKey = CacheKey.NULL_CACHE_KEY;
@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  @Test
+  void shouldExpireEachItemOnItsOwn() throws Exception {
+    ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    expiringCache.setTtl(200);
+    expiringCache.setJitter(0);
+    Cache cache = new LoggingCache(expiringCache);
+    cache.putObject("old", "old");
+    Thread.sleep(120);
+    cache.putObject("new", "new");
+    Thread.sleep(120);
+    assertNull(cache.getObject("old"));
+    assertEquals("new", cache.getObject("new"));
+  }
+
+  @Test
+  void shouldKeepItemsPutWithTheirOwnTtl() throws Exception {
+    ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    expiringCache.setTtl(100);
+    expiringCache.setJitter(0);
+    Cache cache = new LoggingCache(expiringCache);
+    cache.putObject("volatile", "volatile");
+    cache.putObject("lookup", "lookup", 60000);
+    cache.putObject("shortLived", "shortLived", 50);
+    Thread.sleep(70);
+    assertNull(cache.getObject("shortLived"));
+    assertEquals("volatile", cache.getObject("volatile"));
+    Thread.sleep(70);
+    assertNull(cache.getObject("volatile"));
+    assertEquals("lookup", cache.getObject("lookup"));
+  }
+
+  @Test
+  void shouldKeepItemsWithoutTtlUntilEvicted() throws Exception {
+    Cache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.putObject(0, 0);
+    Thread.sleep(50);
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test
+  void shouldSpreadDeadlinesWithJitter() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setTtl(400);
+    cache.setJitter(0.5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    Set<Boolean> expired = new HashSet<>();
+    Thread.sleep(300);
+    for (int i = 0; i < 100; i++) {
+      expired.add(cache.getObject(i) == null);
+    }
+    // 过期时刻在 200ms 到 400ms 之间随机分布
+    assertEquals(2, expired.size());
+    Thread.sleep(150);
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldRemoveExpiredItemsThatAreNotReadAnymore() throws Exception {
+    PerpetualCache delegate = new PerpetualCache("DefaultCache");
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setTickDuration(10);
+    cache.setJitter(0);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i, 50);
+    }
+    cache.putObject("lookup", "lookup", 60000);
+    Thread.sleep(100);
+    cache.putObject("trigger", "trigger");
+    assertEquals(2, delegate.getSize());
+    assertEquals("lookup", cache.getObject("lookup"));
+  }
+
+  @Test
+  void shouldNotExpireItemsPutAgain() throws Exception {
+    PerpetualCache delegate = new PerpetualCache("DefaultCache");
+    ExpiringCache cache = new ExpiringCache(delegate);
+    cache.setTickDuration(10);
+    cache.setJitter(0);
+    cache.putObject(0, "first", 50);
+    cache.putObject(0, "second", 60000);
+    Thread.sleep(100);
+    assertEquals("second", cache.getObject(0));
+    assertEquals(1, delegate.getSize());
+  }
+
+  @Test
+  void shouldNotKeepItemsEvictedByTheDelegate() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new LruCache(new PerpetualCache("DefaultCache")));
+    cache.setTtl(60000);
+    Object key = new Object();
+    WeakReference<Object> evictedKey = new WeakReference<>(key);
+    cache.putObject(key, "evicted");
+    key = null;
+    for (int i = 0; i < 2000; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 0; i < 10 && evictedKey.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(evictedKey.get());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    expiringCache.setTtl(60000);
+    Cache cache = new LoggingCache(expiringCache);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  void shouldRejectInvalidJitter() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    assertThrows(IllegalArgumentException.class, () -> cache.setJitter(1.5));
+  }
+
+}
@@ -0,0 +1,232 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.LoadingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class LoadingCacheTest {
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @AfterEach
+  void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  void shouldLoadOnceForConcurrentMisses() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> value = Arrays.asList("value");
+    List<Future<Object>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executorService.submit(() -> cache.load("key", () -> {
+        loads.incrementAndGet();
+        await(release);
+        return value;
+      })));
+    }
+    while (loads.get() == 0) {
+      Thread.sleep(1);
+    }
+    Thread.sleep(50);
+    release.countDown();
+    Thread.sleep(50);
+    // 加载的会话提交前，其它会话一直等待
+    assertEquals(1, results.stream().filter(Future::isDone).count());
+    cache.putObject("key", value);
+    for (Future<Object> result : results) {
+      assertSame(value, result.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldLoadAgainWhenTheLoadingSessionRollsBack() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    assertEquals("uncommitted", cache.load("key", () -> "uncommitted"));
+    Future<Object> waiting = executorService.submit(() -> cache.load("key", () -> {
+      loads.incrementAndGet();
+      return "committed";
+    }));
+    Thread.sleep(50);
+    assertEquals(0, loads.get());
+    cache.removeObject("key");
+    assertEquals("committed", waiting.get(5, TimeUnit.SECONDS));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldLoadAgainWhenTheLoadingSessionFails() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Object> failing = executorService.submit(() -> cache.load("key", () -> {
+      loads.incrementAndGet();
+      started.countDown();
+      await(release);
+      throw new SQLException("connection lost");
+    }));
+    started.await();
+    Future<Object> waiting = executorService.submit(() -> cache.load("key", () -> {
+      loads.incrementAndGet();
+      return "value";
+    }));
+    Thread.sleep(50);
+    release.countDown();
+    assertEquals("value", waiting.get(5, TimeUnit.SECONDS));
+    Exception e = assertThrows(Exception.class, () -> failing.get(5, TimeUnit.SECONDS));
+    assertEquals(SQLException.class, e.getCause().getClass());
+    assertEquals(2, loads.get());
+    cache.putObject("key", "value");
+    // 失败的加载不会留下任何锁
+    assertEquals("again", cache.load("key", () -> "again"));
+  }
+
+  @Test
+  void shouldGiveUpWaitingAfterTimeout() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<Object> slow = executorService.submit(() -> cache.load("key", () -> {
+      started.countDown();
+      await(release);
+      return "slow";
+    }));
+    started.await();
+    assertThrows(CacheException.class, () -> cache.load("key", () -> "fast"));
+    release.countDown();
+    assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldGiveWaitingSessionsACopyWhenReadWrite() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    cache.setReadWrite(true);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ArrayList<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+    Future<Object> loading = executorService.submit(() -> cache.load("key", () -> {
+      started.countDown();
+      await(release);
+      return value;
+    }));
+    started.await();
+    Future<Object> waiting = executorService.submit(() -> cache.load("key", () -> "not loaded"));
+    Thread.sleep(50);
+    release.countDown();
+    assertSame(value, loading.get(5, TimeUnit.SECONDS));
+    cache.putObject("key", value);
+    Object copy = waiting.get(5, TimeUnit.SECONDS);
+    assertEquals(value, copy);
+    assertNotSame(value, copy);
+  }
+
+  @Test
+  void shouldExpireEntriesOneByOne() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    cache.setExpiration(100);
+    cache.putObject("old", "value");
+    Thread.sleep(60);
+    cache.putObject("new", "value");
+    Thread.sleep(60);
+    assertNull(cache.getObject("old"));
+    assertEquals("value", cache.getObject("new"));
+  }
+
+  @Test
+  void shouldRefreshHotEntriesBeforeTheyExpire() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    cache.setExpiration(1000);
+    cache.setRefreshAhead(950);
+    cache.putObject("key", "old");
+    Thread.sleep(60);
+    CompletableFuture<Object> reload = new CompletableFuture<>();
+    CacheLoader loader = new CacheLoader() {
+      @Override
+      public Object load() {
+        throw new AssertionError("Should not load a hit");
+      }
+
+      @Override
+      public CompletableFuture<Object> reload() {
+        loads.incrementAndGet();
+        return reload;
+      }
+    };
+    assertEquals("old", cache.getObject("key", loader));
+    assertEquals("old", cache.getObject("key", loader));
+    assertEquals(1, loads.get());
+    reload.complete("new");
+    assertEquals("new", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldDiscardRefreshesThatStartedBeforeClear() throws Exception {
+    LoadingCache cache = new LoadingCache(new PerpetualCache("default"));
+    cache.setExpiration(1000);
+    cache.setRefreshAhead(1000);
+    cache.putObject("key", "old");
+    CompletableFuture<Object> reload = new CompletableFuture<>();
+    cache.getObject("key", new CacheLoader() {
+      @Override
+      public Object load() {
+        throw new AssertionError("Should not load a hit");
+      }
+
+      @Override
+      public CompletableFuture<Object> reload() {
+        return reload;
+      }
+    });
+    cache.clear();
+    reload.complete("stale");
+    assertNull(cache.getObject("key"));
+  }
+
+  private static void await(CountDownLatch latch) throws SQLException {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException(e);
+    }
+  }
+
+}
@@ -0,0 +1,238 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldReturnCopiesOfResultObjects() {
+    OffHeapCache cache = new OffHeapCache("default");
+    Blog blog = new Blog(1, "Off heap");
+    blog.posts.add(new Post(blog, "first", Section.NEWS));
+    blog.posts.add(new Post(blog, "second", Section.VIDEOS));
+    List<Object> result = new ArrayList<>();
+    result.add(blog);
+    cache.putObject(0, result);
+
+    List<Blog> cached = (List<Blog>) cache.getObject(0);
+    Blog cachedBlog = cached.get(0);
+    assertNotSame(blog, cachedBlog);
+    assertEquals("Off heap", cachedBlog.title);
+    assertEquals(2, cachedBlog.posts.size());
+    assertEquals(Section.VIDEOS, cachedBlog.posts.get(1).section);
+    // 关联对象指回父对象
+    assertSame(cachedBlog, cachedBlog.posts.get(0).blog);
+
+    cachedBlog.title = "changed";
+    assertEquals("Off heap", ((List<Blog>) cache.getObject(0)).get(0).title);
+  }
+
+  @Test
+  void shouldKeepValuesOfCommonTypes() {
+    OffHeapCache cache = new OffHeapCache("default");
+    Map<String, Object> row = new HashMap<>();
+    row.put("amount", new BigDecimal("12345.678"));
+    row.put("created", Timestamp.valueOf("2020-05-01 10:20:30.123456789"));
+    row.put("updated", LocalDateTime.of(2020, 5, 1, 10, 20));
+    row.put("zoned", OffsetDateTime.parse("2020-05-01T10:20:30+02:00"));
+    row.put("tags", new TreeSet<>(Arrays.asList("b", "a")));
+    row.put("ids", new int[] { 1, 2, 3 });
+    row.put("names", new String[] { "x", null });
+    row.put("bytes", new byte[] { 1, 2 });
+    row.put("count", 3L);
+    row.put("empty", null);
+    cache.putObject("row", row);
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> cached = (Map<String, Object>) cache.getObject("row");
+    assertEquals(HashMap.class, cached.getClass());
+    assertEquals(new BigDecimal("12345.678"), cached.get("amount"));
+    assertEquals(Timestamp.valueOf("2020-05-01 10:20:30.123456789"), cached.get("created"));
+    assertEquals(LocalDateTime.of(2020, 5, 1, 10, 20), cached.get("updated"));
+    assertEquals(OffsetDateTime.parse("2020-05-01T10:20:30+02:00"), cached.get("zoned"));
+    assertEquals(TreeSet.class, cached.get("tags").getClass());
+    assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) cached.get("ids"));
+    assertArrayEquals(new String[] { "x", null }, (String[]) cached.get("names"));
+    assertArrayEquals(new byte[] { 1, 2 }, (byte[]) cached.get("bytes"));
+    assertEquals(3L, cached.get("count"));
+    assertTrue(cached.containsKey("empty"));
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setCapacity(2048);
+    char[] chars = new char[200];
+    Arrays.fill(chars, 'x');
+    String value = new String(chars);
+    for (int i = 0; i < 12; i++) {
+      cache.putObject(i, value);
+    }
+    // 每个分片可以存放 4 条数据，写满第三个分片时回收了第一个
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(3));
+    assertEquals(value, cache.getObject(4));
+    assertEquals(value, cache.getObject(11));
+    assertEquals(8, cache.getSize());
+    assertEquals(4, cache.getStats().getEvictionCount());
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.putObject(0, "small");
+    cache.putObject(0, new String(new char[100]));
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRejectClassesNotAllowedByClassFilter() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setClassFilter("java.util.*;!*");
+    cache.putObject(0, new Blog(1, "rejected"));
+    cache.putObject(1, "allowed");
+    assertThrows(CacheException.class, () -> cache.getObject(0));
+    assertEquals("allowed", cache.getObject(1));
+  }
+
+  @Test
+  void shouldRejectObjectsWithoutDefaultConstructor() {
+    OffHeapCache cache = new OffHeapCache("default");
+    assertThrows(CacheException.class, () -> cache.putObject(0, new Immutable(1)));
+  }
+
+  @Test
+  void shouldMapSlabsToFiles() throws Exception {
+    File directory = Files.createTempDirectory("mybatis-cache").toFile();
+    directory.deleteOnExit();
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setDirectory(directory.getAbsolutePath());
+    cache.setSlabSize(4096);
+    cache.setCapacity(8192);
+    cache.initialize();
+    cache.putObject(0, new Blog(1, "mapped"));
+    assertEquals(2, directory.listFiles().length);
+    assertEquals("mapped", ((Blog) cache.getObject(0)).title);
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(4, cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(4));
+    cache.putObject(5, 5);
+    assertEquals(5, cache.getObject(5));
+    assertEquals(2, cache.getStats().getHitCount());
+    assertEquals(1, cache.getStats().getMissCount());
+  }
+
+  @Test
+  void shouldReadLinesLikeDataInputStream() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCodec(LineCodec.class.getName());
+    cache.putObject(0, "first\r\nsecond\rthird\n\nlast");
+    assertEquals(Arrays.asList("first", "second", "third", "", "last"), cache.getObject(0));
+  }
+
+  public static class LineCodec implements CacheCodec {
+
+    @Override
+    public void encode(Object value, DataOutput output) throws IOException {
+      output.writeBytes((String) value);
+    }
+
+    @Override
+    public Object decode(DataInput input, ClassResolver classResolver) throws IOException {
+      List<String> lines = new ArrayList<>();
+      for (String line = input.readLine(); line != null; line = input.readLine()) {
+        lines.add(line);
+      }
+      return lines;
+    }
+  }
+
+  static class Blog {
+    private int id;
+    private String title;
+    private List<Post> posts = new ArrayList<>();
+
+    Blog() {
+    }
+
+    Blog(int id, String title) {
+      this.id = id;
+      this.title = title;
+    }
+
+    public int getId() {
+      return id;
+    }
+  }
+
+  static class Post {
+    private Blog blog;
+    private String subject;
+    private Section section;
+
+    Post() {
+    }
+
+    Post(Blog blog, String subject, Section section) {
+      this.blog = blog;
+      this.subject = subject;
+      this.section = section;
+    }
+  }
+
+  static class Immutable {
+    private final int id;
+
+    Immutable(int id) {
+      this.id = id;
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTablesTest {
+
+  @Test
+  void shouldFindTablesOfJoinsAndCommaLists() {
+    SqlTables tables = SqlTables.parse("select * from Blog b join Author a on b.author_id = a.id, post p"
+        + " left outer join comment c on c.post_id = p.id where b.id = ?");
+    assertArrayEquals(new String[] { "author", "blog", "comment", "post" }, tables.getRead());
+    assertNull(tables.getWritten());
+  }
+
+  @Test
+  void shouldFindTablesOfSubqueriesAndUnions() {
+    SqlTables tables = SqlTables.parse("(select id from blog) union (select id from post"
+        + " where author_id in (select id from author as a where a.username = 'from tag'))");
+    assertArrayEquals(new String[] { "author", "blog", "post" }, tables.getRead());
+  }
+
+  @Test
+  void shouldNormalizeQuotedAndQualifiedNames() {
+    SqlTables tables = SqlTables.parse("SELECT * FROM \"PUBLIC\".\"Blog\" JOIN `shop`.`order` o ON 1 = 1 -- from comment\n"
+        + "/* join hidden */ JOIN [dbo].[Author] ON 1 = 1");
+    assertArrayEquals(new String[] { "author", "blog", "order" }, tables.getRead());
+  }
+
+  @Test
+  void shouldNotKnowTablesOfTableFunctions() {
+    assertNull(SqlTables.parse("select * from generate_series(1, 10)").getRead());
+    assertNull(SqlTables.parse("select * from blog, lateral (select * from post) p").getRead());
+    assertNull(SqlTables.parse("select * from table(blog_ids(?))").getRead());
+  }
+
+  @Test
+  void shouldNotKnowTablesOfSelectsWithoutTables() {
+    assertNull(SqlTables.parse("select nextval('blog_seq')").getRead());
+  }
+
+  @Test
+  void shouldFindTableOfInsert() {
+    SqlTables tables = SqlTables.parse("insert into Author (id, username) select id, name from person");
+    assertArrayEquals(new String[] { "author" }, tables.getWritten());
+    assertNull(tables.getRead());
+  }
+
+  @Test
+  void shouldFindTablesOfUpdate() {
+    assertArrayEquals(new String[] { "blog" }, SqlTables.parse("update blog set title = ? where id = ?").getWritten());
+    assertArrayEquals(new String[] { "author", "blog" },
+        SqlTables.parse("UPDATE LOW_PRIORITY blog b JOIN author a ON a.id = b.author_id SET b.title = a.username").getWritten());
+  }
+
+  @Test
+  void shouldFindTablesOfDelete() {
+    assertArrayEquals(new String[] { "post" }, SqlTables.parse("delete from post where id = ?").getWritten());
+    assertArrayEquals(new String[] { "post" }, SqlTables.parse("delete post where id = ?").getWritten());
+    assertArrayEquals(new String[] { "comment", "post" },
+        SqlTables.parse("delete p, c from post p join comment c on c.post_id = p.id").getWritten());
+  }
+
+  @Test
+  void shouldFindTablesOfMergeAndTruncate() {
+    assertArrayEquals(new String[] { "blog" },
+        SqlTables.parse("merge into blog b using (select ? id from dual) s on (b.id = s.id) when matched then update set title = ?").getWritten());
+    assertArrayEquals(new String[] { "blog" }, SqlTables.parse("truncate table blog").getWritten());
+  }
+
+  @Test
+  void shouldFindTableOfWriteStartingWithCommonTableExpression() {
+    SqlTables tables = SqlTables.parse("with old as (select id from blog where title is null) delete from post where blog_id in (select id from old)");
+    assertArrayEquals(new String[] { "post" }, tables.getWritten());
+  }
+
+  @Test
+  void shouldNotKnowTablesOfProcedureCalls() {
+    SqlTables tables = SqlTables.parse("{call delete_blog(?)}");
+    assertNull(tables.getRead());
+    assertNull(tables.getWritten());
+  }
+
+}
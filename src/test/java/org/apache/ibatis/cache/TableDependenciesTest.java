@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class TableDependenciesTest {
+
+  @Test
+  void shouldChangeKeysOfSelectsReadingModifiedTables() throws Exception {
+    TableDependencies dependencies = new TableDependencies();
+    CacheKey key = new CacheKey(new Object[] { "selectBlog", 1 });
+    CacheKey blogKey = key.clone();
+    dependencies.appendVersions(blogKey, new String[] { "author", "blog" });
+    CacheKey postKey = key.clone();
+    dependencies.appendVersions(postKey, new String[] { "post" });
+
+    dependencies.invalidate(Arrays.asList("blog", "comment"));
+
+    CacheKey newBlogKey = key.clone();
+    dependencies.appendVersions(newBlogKey, new String[] { "author", "blog" });
+    CacheKey newPostKey = key.clone();
+    dependencies.appendVersions(newPostKey, new String[] { "post" });
+    assertNotEquals(blogKey, newBlogKey);
+    assertEquals(postKey, newPostKey);
+    assertEquals(1, dependencies.getVersion("blog"));
+    assertEquals(0, dependencies.getVersion("author"));
+  }
+
+  @Test
+  void shouldDependOnNamespaceOfCache() {
+    TableDependencies dependencies = new TableDependencies();
+    Cache cache = new PerpetualCache("org.apache.ibatis.domain.blog.mappers.BlogMapper");
+    String namespace = dependencies.namespaceOf(cache);
+    dependencies.invalidate(Arrays.asList(namespace));
+    assertEquals(1, dependencies.getVersion(namespace));
+    assertEquals(0, dependencies.getVersion("blogmapper"));
+  }
+
+  @Test
+  void shouldKeepNamespaceUnlessTablesAreDeclared() {
+    TableDependencies dependencies = new TableDependencies();
+    Configuration configuration = new Configuration();
+    Cache cache = new PerpetualCache("org.apache.ibatis.domain.blog.mappers.BlogMapper");
+    StaticSqlSource sqlSource = new StaticSqlSource(configuration, "select * from blog join author on blog.author_id = author.id");
+    MappedStatement parsed = new MappedStatement.Builder(configuration, "selectBlog", sqlSource, SqlCommandType.SELECT)
+        .cache(cache).build();
+    MappedStatement declared = new MappedStatement.Builder(configuration, "selectBlog", sqlSource, SqlCommandType.SELECT)
+        .cache(cache).tables("blog, author").build();
+
+    assertArrayEquals(new String[] { "author", "blog", dependencies.namespaceOf(cache) },
+        dependencies.getReadTables(parsed, sqlSource.getBoundSql(null)));
+    assertArrayEquals(new String[] { "author", "blog" },
+        dependencies.getReadTables(declared, sqlSource.getBoundSql(null)));
+  }
+
+  @Test
+  void shouldNormalizeDeclaredTables() {
+    assertEquals("blog", TableDependencies.normalize(" \"PUBLIC\".\"Blog\""));
+  }
+
+}
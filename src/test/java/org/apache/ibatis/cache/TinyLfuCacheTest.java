@@ -0,0 +1,101 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  @Test
+  void shouldNotGrowBeyondMaximumSize() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertEquals(95, cache.getStats().getEvictionCount());
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedItemsDuringScan() {
+    TinyLfuCache tinyLfu = new TinyLfuCache(new PerpetualCache("default"));
+    tinyLfu.setSize(100);
+    LruCache lru = new LruCache(new PerpetualCache("default"));
+    lru.setSize(100);
+    for (Cache cache : new Cache[] { tinyLfu, lru }) {
+      for (int round = 0; round < 5; round++) {
+        for (int i = 0; i < 50; i++) {
+          getOrPut(cache, i);
+        }
+      }
+      for (int i = 1000; i < 2000; i++) {
+        getOrPut(cache, i);
+      }
+    }
+    for (int i = 0; i < 50; i++) {
+      assertNotNull(tinyLfu.getObject(i));
+      assertNull(lru.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldRecordHitsAndMisses() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(0));
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    assertEquals(0, cache.getObject(0));
+    CacheStats stats = cache.getStats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(0, stats.getEvictionCount());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  private static void getOrPut(Cache cache, int key) {
+    if (cache.getObject(key) == null) {
+      cache.putObject(key, key);
+    }
+  }
+
+}
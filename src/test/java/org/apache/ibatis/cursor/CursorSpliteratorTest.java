@@ -0,0 +1,182 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+
+class CursorSpliteratorTest {
+
+  @Test
+  void shouldSplitIntoBatches() {
+    CursorSpliterator<Integer, Integer> spliterator = new CursorSpliterator<>(Arrays.asList(1, 2, 3, 4, 5).iterator(),
+        Function.identity(), 2);
+    Spliterator<Integer> first = spliterator.trySplit();
+    assertEquals(2, first.estimateSize());
+    assertTrue(first.hasCharacteristics(Spliterator.SIZED));
+    assertEquals(2, spliterator.trySplit().estimateSize());
+    Spliterator<Integer> last = spliterator.trySplit();
+    assertEquals(1, last.estimateSize());
+    assertNull(spliterator.trySplit());
+    List<Integer> items = new ArrayList<>();
+    first.forEachRemaining(items::add);
+    last.forEachRemaining(items::add);
+    assertEquals(Arrays.asList(1, 2, 5), items);
+  }
+
+  @Test
+  void shouldStreamInOrder() {
+    List<Integer> items = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+    ListCursor<Integer> cursor = new ListCursor<>(items);
+    try (Stream<Integer> stream = cursor.stream(true, 100)) {
+      assertEquals(items, stream.map(item -> item).collect(Collectors.toList()));
+    }
+    assertTrue(cursor.closed);
+    assertFalse(cursor.concurrentAccess.get());
+  }
+
+  @Test
+  void shouldMapRowsOnWorkers() {
+    List<Integer> rows = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+    AtomicInteger readers = new AtomicInteger();
+    AtomicBoolean concurrentAccess = new AtomicBoolean();
+    Set<Thread> mappers = ConcurrentHashMap.newKeySet();
+    Iterator<Integer> iterator = rows.iterator();
+    Iterator<Integer> rowIterator = new Iterator<Integer>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Integer next() {
+        if (readers.incrementAndGet() > 1) {
+          concurrentAccess.set(true);
+        }
+        try {
+          return iterator.next();
+        } finally {
+          readers.decrementAndGet();
+        }
+      }
+    };
+    CursorSpliterator<Integer, String> spliterator = new CursorSpliterator<>(rowIterator, row -> {
+      mappers.add(Thread.currentThread());
+      sleepBriefly();
+      return String.valueOf(row);
+    }, 100);
+    List<String> items = StreamSupport.stream(spliterator, true).collect(Collectors.toList());
+    assertEquals(rows.stream().map(String::valueOf).collect(Collectors.toList()), items);
+    assertFalse(concurrentAccess.get());
+    assertTrue(mappers.size() > 1, "rows were mapped by " + mappers);
+  }
+
+  private static void sleepBriefly() {
+    try {
+      Thread.sleep(0, 100_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  void shouldKeepNullItems() {
+    ListCursor<String> cursor = new ListCursor<>(Arrays.asList("a", null, "c"));
+    assertEquals(Arrays.asList("a", null, "c"), cursor.stream(true, 1).collect(Collectors.toList()));
+  }
+
+  @Test
+  void shouldRejectInvalidBatchSize() {
+    ListCursor<String> cursor = new ListCursor<>(Arrays.asList("a"));
+    assertThrows(IllegalArgumentException.class, () -> cursor.stream(true, 0));
+  }
+
+  private static class ListCursor<T> implements Cursor<T> {
+
+    private final List<T> items;
+    private final AtomicInteger readers = new AtomicInteger();
+    private final AtomicBoolean concurrentAccess = new AtomicBoolean();
+    private int index = -1;
+    private boolean closed;
+
+    ListCursor(List<T> items) {
+      this.items = items;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return index >= 0 && !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return index == items.size() - 1;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return index;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        @Override
+        public boolean hasNext() {
+          return index + 1 < items.size();
+        }
+
+        @Override
+        public T next() {
+          if (readers.incrementAndGet() > 1) {
+            concurrentAccess.set(true);
+          }
+          try {
+            return items.get(++index);
+          } finally {
+            readers.decrementAndGet();
+          }
+        }
+      };
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.type.JdbcType;
+import org.junit.jupiter.api.Test;
+
+class FetchSizeTunerTest {
+
+  @Test
+  void shouldGrowWhenConsumerWaits() {
+    FetchSizeTuner tuner = new FetchSizeTuner(100, 100);
+    tuner.consumerWaited();
+    assertEquals(200, tuner.tune());
+    // no wait since the last adjustment
+    assertEquals(200, tuner.tune());
+    tuner.consumerWaited();
+    assertEquals(400, tuner.tune());
+  }
+
+  @Test
+  void shouldShrinkWhenProducerWaits() {
+    FetchSizeTuner tuner = new FetchSizeTuner(100, 100);
+    tuner.producerWaited();
+    assertEquals(50, tuner.tune());
+    for (int i = 0; i < 10; i++) {
+      tuner.producerWaited();
+      tuner.tune();
+    }
+    assertEquals(FetchSizeTuner.MINIMUM_FETCH_SIZE, tuner.getFetchSize());
+  }
+
+  @Test
+  void shouldKeepSizeWhenBothWait() {
+    FetchSizeTuner tuner = new FetchSizeTuner(100, 100);
+    tuner.consumerWaited();
+    tuner.producerWaited();
+    assertEquals(100, tuner.tune());
+  }
+
+  @Test
+  void shouldLimitFetchedBytes() {
+    FetchSizeTuner wideRows = new FetchSizeTuner(10, 64 * 1024);
+    for (int i = 0; i < 10; i++) {
+      wideRows.consumerWaited();
+      wideRows.tune();
+    }
+    assertEquals(FetchSizeTuner.MAXIMUM_FETCH_BYTES / (64 * 1024), wideRows.getFetchSize());
+
+    FetchSizeTuner narrowRows = new FetchSizeTuner(100, 8);
+    for (int i = 0; i < 20; i++) {
+      narrowRows.consumerWaited();
+      narrowRows.tune();
+    }
+    assertEquals(FetchSizeTuner.MAXIMUM_FETCH_SIZE, narrowRows.getFetchSize());
+  }
+
+  @Test
+  void shouldNeverShrinkBelowSmallInitialSize() {
+    FetchSizeTuner tuner = new FetchSizeTuner(1, 100);
+    tuner.producerWaited();
+    assertEquals(1, tuner.tune());
+  }
+
+  @Test
+  void shouldEstimateRowBytes() {
+    assertEquals(4 + 8 + 32 + 1024 + 32,
+        FetchSizeTuner.estimateRowBytes(Arrays.asList(JdbcType.INTEGER, JdbcType.TIMESTAMP, JdbcType.VARCHAR, JdbcType.BLOB, null)));
+  }
+
+}
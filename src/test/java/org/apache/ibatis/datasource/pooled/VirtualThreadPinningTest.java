@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+
+/**
+ * Runs thousands of virtual threads through the pool and a synchronized cache whose backing store and connections
+ * block, and checks with JFR that no virtual thread pinned its carrier thread.
+ * <p>
+ * Virtual threads are final from Java 21 on. JFR is called through reflection, so that this test compiles with the
+ * Java 8 compiler too.
+ */
+@EnabledIf("virtualThreadsAvailable")
+class VirtualThreadPinningTest {
+
+  private static final int TASKS = 5000;
+  private static final int MAXIMUM_ACTIVE_CONNECTIONS = 10;
+
+  static boolean virtualThreadsAvailable() {
+    try {
+      // Java 19 和 20 中虚拟线程还是预览特性，Runtime.version() 在 Java 8 中不存在
+      Object version = Runtime.class.getMethod("version").invoke(null);
+      return (Integer) version.getClass().getMethod("feature").invoke(version) >= 21;
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  @Test
+  void shouldNotPinCarrierThreads() throws Exception {
+    SlowDataSource slowDataSource = new SlowDataSource();
+    PooledDataSource dataSource = new PooledDataSource(slowDataSource);
+    dataSource.setPoolMaximumActiveConnections(MAXIMUM_ACTIVE_CONNECTIONS);
+    dataSource.setPoolMaximumIdleConnections(MAXIMUM_ACTIVE_CONNECTIONS);
+    Cache cache = new SynchronizedCache(new SlowCache("slow"));
+    AtomicInteger completed = new AtomicInteger();
+
+    Path file = Files.createTempFile("mybatis-pinning", ".jfr");
+    try (PinningRecording recording = new PinningRecording()) {
+      long start = System.nanoTime();
+      ExecutorService executorService = (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      for (int i = 0; i < TASKS; i++) {
+        final Integer key = i % 100;
+        executorService.execute(() -> {
+          try (Connection connection = dataSource.getConnection()) {
+            Thread.sleep(1);
+            if (cache.getObject(key) == null) {
+              cache.putObject(key, key);
+            }
+            completed.incrementAndGet();
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+      }
+      executorService.shutdown();
+      assertTrue(executorService.awaitTermination(60, TimeUnit.SECONDS));
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      recording.stopAndDump(file);
+
+      assertEquals(TASKS, completed.get());
+      assertEquals(TASKS, dataSource.getPoolState().getRequestCount());
+      assertTrue(slowDataSource.opened.get() <= MAXIMUM_ACTIVE_CONNECTIONS,
+          () -> slowDataSource.opened.get() + " connections were opened");
+      // every task holds a connection for at least a millisecond, ten connections serve at most ten tasks at a time
+      assertTrue(elapsedMillis < TASKS * 20L / MAXIMUM_ACTIVE_CONNECTIONS, () -> "took " + elapsedMillis + " ms");
+
+      List<String> pinned = PinningRecording.pinnedAt(file);
+      assertTrue(pinned.isEmpty(), () -> "carrier threads were pinned at " + String.join(", ", pinned));
+    } finally {
+      dataSource.forceCloseAll();
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * A JFR recording of the {@code jdk.VirtualThreadPinned} events, used through reflection.
+   */
+  private static class PinningRecording implements AutoCloseable {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final Object recording;
+
+    PinningRecording() throws ReflectiveOperationException {
+      recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+      Object settings = invoke(recording, "enable", new Class<?>[] { String.class }, EVENT);
+      settings = invoke(settings, "withThreshold", new Class<?>[] { Duration.class }, Duration.ZERO);
+      invoke(settings, "withStackTrace", new Class<?>[0]);
+      invoke(recording, "start", new Class<?>[0]);
+    }
+
+    void stopAndDump(Path file) throws ReflectiveOperationException {
+      invoke(recording, "stop", new Class<?>[0]);
+      invoke(recording, "dump", new Class<?>[] { Path.class }, file);
+    }
+
+    /**
+     * @return the first MyBatis method on the stack of each pinning, without duplicates
+     */
+    static List<String> pinnedAt(Path file) throws ReflectiveOperationException {
+      List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+          .getMethod("readAllEvents", Path.class).invoke(null, file);
+      List<String> pinnedAt = new ArrayList<>();
+      for (Object event : events) {
+        Object eventType = invoke(event, "getEventType", new Class<?>[0]);
+        if (EVENT.equals(invoke(eventType, "getName", new Class<?>[0]))) {
+          String location = describe(invoke(event, "getStackTrace", new Class<?>[0]));
+          if (!pinnedAt.contains(location)) {
+            pinnedAt.add(location);
+          }
+        }
+      }
+      return pinnedAt;
+    }
+
+    private static String describe(Object stackTrace) throws ReflectiveOperationException {
+      if (stackTrace == null) {
+        return "unknown";
+      }
+      for (Object frame : (List<?>) invoke(stackTrace, "getFrames", new Class<?>[0])) {
+        if (!(Boolean) invoke(frame, "isJavaFrame", new Class<?>[0])) {
+          continue;
+        }
+        Object method = invoke(frame, "getMethod", new Class<?>[0]);
+        Object type = invoke(method, "getType", new Class<?>[0]);
+        String name = invoke(type, "getName", new Class<?>[0]) + "." + invoke(method, "getName", new Class<?>[0]);
+        if (name.startsWith("org.apache.ibatis")) {
+          return name;
+        }
+      }
+      return "unknown";
+    }
+
+    private static Object invoke(Object target, String name, Class<?>[] parameterTypes, Object... args)
+        throws ReflectiveOperationException {
+      // 通过公开的类型查找方法，JFR 的实现类不一定是公开的
+      Class<?> type = target.getClass();
+      while (!Modifier.isPublic(type.getModifiers())) {
+        type = type.getSuperclass();
+      }
+      return type.getMethod(name, parameterTypes).invoke(target, args);
+    }
+
+    @Override
+    public void close() throws ReflectiveOperationException {
+      invoke(recording, "close", new Class<?>[0]);
+    }
+  }
+
+  /**
+   * Opening a connection takes a network round trip.
+   */
+  private static class SlowDataSource extends UnpooledDataSource {
+
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @Override
+    public Connection getConnection() {
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      opened.incrementAndGet();
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getAutoCommit":
+                return true;
+              case "isClosed":
+                return false;
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              default:
+                return null;
+            }
+          });
+    }
+  }
+
+  /**
+   * A cache backed by a remote store.
+   */
+  private static class SlowCache extends PerpetualCache {
+
+    SlowCache(String id) {
+      super(id);
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      super.putObject(key, value);
+    }
+  }
+
+}
@@ -15,15 +15,77 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 class BatchExecutorTest extends BaseExecutorTest {
 
+  private static DataSource dataSource;
+
+  @BeforeAll
+  static void setUpDataSource() throws Exception {
+    dataSource = createBlogDataSource();
+  }
+
   @Test
   void dummy() {
   }
 
+  @Test
+  void shouldExecuteBatchWhenFlushSizeIsReached() throws Exception {
+    config.setBatchFlushSize(2);
+    Executor executor = createExecutor(new JdbcTransaction(dataSource, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 200; id < 205; id++) {
+        executor.update(insertStatement, new Author(id, "author" + id, "******", "author" + id + "@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldStreamBatchResultsToHandler() throws Exception {
+    config.setBatchFlushSize(2);
+    Executor executor = createExecutor(new JdbcTransaction(dataSource, null, false));
+    try {
+      List<BatchResult> streamed = new ArrayList<>();
+      executor.setBatchResultHandler(streamed::add);
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 200; id < 205; id++) {
+        executor.update(insertStatement, new Author(id, "author" + id, "******", "author" + id + "@apache.org", null, Section.NEWS));
+      }
+      assertEquals(2, streamed.size());
+      assertTrue(executor.flushStatements().isEmpty());
+      assertEquals(3, streamed.size());
+      assertEquals(2, streamed.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] { 1 }, streamed.get(2).getUpdateCounts());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new BatchExecutor(config, transaction);
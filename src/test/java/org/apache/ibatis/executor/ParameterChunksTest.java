@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class ParameterChunksTest {
+
+  private static final int[] CHUNK_SIZES = { 128, 16, 1 };
+
+  @Test
+  void shouldSplitIntoLargestChunksFirst() {
+    List<Integer> rows = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+    List<Object> chunks = ParameterChunks.split(ParamNameResolver.wrapToMapIfCollection(rows, null), CHUNK_SIZES);
+    List<Integer> sizes = chunks.stream().map(chunk -> ((List<?>) ((Map<?, ?>) chunk).get("list")).size())
+        .collect(Collectors.toList());
+    List<Integer> expected = new ArrayList<>();
+    expected.addAll(Collections.nCopies(7, 128));
+    expected.addAll(Collections.nCopies(6, 16));
+    expected.addAll(Collections.nCopies(8, 1));
+    assertEquals(expected, sizes);
+    Map<?, ?> first = (Map<?, ?>) chunks.get(0);
+    assertSame(first.get("list"), first.get("collection"));
+    assertEquals(rows, ((Map<?, ?>) ParameterChunks.merge(chunks)).get("list"));
+  }
+
+  @Test
+  void shouldKeepRemainderSmallerThanAllChunkSizes() {
+    List<Object> chunks = ParameterChunks.split(ParamNameResolver.wrapToMapIfCollection(Arrays.asList(1, 2, 3, 4, 5), null),
+        new int[] { 4, 2 });
+    assertEquals(2, chunks.size());
+    assertEquals(Collections.singletonList(5), ((Map<?, ?>) chunks.get(1)).get("list"));
+  }
+
+  @Test
+  void shouldSplitNamedCollectionAndKeepOtherParameters() {
+    ParamMap<Object> parameter = new ParamMap<>();
+    parameter.put("authors", Arrays.asList("a", "b", "c"));
+    parameter.put("param1", parameter.get("authors"));
+    parameter.put("blogId", 1);
+    parameter.put("param2", 1);
+    List<Object> chunks = ParameterChunks.split(parameter, new int[] { 2, 1 });
+    assertEquals(2, chunks.size());
+    Map<?, ?> last = (Map<?, ?>) chunks.get(1);
+    assertEquals(Collections.singletonList("c"), last.get("authors"));
+    assertEquals(Collections.singletonList("c"), last.get("param1"));
+    assertEquals(1, last.get("blogId"));
+  }
+
+  @Test
+  void shouldNotSplitUnsupportedParameters() {
+    assertNull(ParameterChunks.split("author", CHUNK_SIZES));
+    assertNull(ParameterChunks.split(ParamNameResolver.wrapToMapIfCollection(Collections.emptyList(), null), CHUNK_SIZES));
+    ParamMap<Object> twoCollections = new ParamMap<>();
+    twoCollections.put("authors", Arrays.asList("a", "b"));
+    twoCollections.put("posts", Arrays.asList("c", "d"));
+    assertNull(ParameterChunks.split(twoCollections, CHUNK_SIZES));
+  }
+
+  @Test
+  void shouldNotMergePlainParameters() {
+    List<Object> parameterObjects = Arrays.asList("a", "b");
+    assertSame(parameterObjects, ParameterChunks.merge(parameterObjects));
+  }
+
+  @Test
+  void shouldSortChunkSizesOfMappedStatement() {
+    Configuration configuration = new Configuration();
+    MappedStatement ms = new MappedStatement.Builder(configuration, "insertAuthors",
+        new StaticSqlSource(configuration, "INSERT INTO author (id) VALUES (?)"), SqlCommandType.INSERT)
+        .chunkSizes("1, 128,16").build();
+    assertArrayEquals(CHUNK_SIZES, ms.getChunkSizes());
+  }
+
+  @Test
+  void shouldRejectInvalidChunkSizesWithTheStatementId() {
+    Configuration configuration = new Configuration();
+    MappedStatement.Builder builder = new MappedStatement.Builder(configuration, "insertAuthors",
+        new StaticSqlSource(configuration, "INSERT INTO author (id) VALUES (?)"), SqlCommandType.INSERT);
+    BuilderException malformed = assertThrows(BuilderException.class, () -> builder.chunkSizes("128,many"));
+    assertTrue(malformed.getMessage().contains("'insertAuthors'"));
+    BuilderException negative = assertThrows(BuilderException.class, () -> builder.chunkSizes("16,0"));
+    assertTrue(negative.getMessage().contains("'insertAuthors'"));
+  }
+
+}
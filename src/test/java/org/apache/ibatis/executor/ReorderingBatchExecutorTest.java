@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ReorderingBatchExecutorTest extends BaseExecutorTest {
+
+  private static DataSource dataSource;
+
+  @BeforeAll
+  static void setUpDataSource() throws Exception {
+    dataSource = createBlogDataSource();
+  }
+
+  @Test
+  void shouldGroupInterleavedInserts() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(dataSource, null, false));
+    try {
+      MappedStatement insertAuthor = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement insertBlog = prepareInsertBlogMappedStatement();
+      for (int id = 200; id < 203; id++) {
+        executor.update(insertAuthor, new Author(id, "author" + id, "******", "author" + id + "@apache.org", null, Section.NEWS));
+        executor.update(insertBlog, blog(id, id));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("insertAuthor", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(0).getUpdateCounts());
+      assertEquals("insertBlog", results.get(1).getMappedStatement().getId());
+      assertArrayEquals(new int[] { 1, 1, 1 }, results.get(1).getUpdateCounts());
+
+      List<Author> authors = executor.query(ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config), 202,
+          RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("author202", authors.get(0).getUsername());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldNotMoveInsertsAheadOfUpdates() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(dataSource, null, false));
+    try {
+      MappedStatement insertAuthor = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateAuthor = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      Author author = new Author(300, "someone", "******", "someone@apache.org", null, Section.NEWS);
+      executor.update(insertAuthor, author);
+      author.setUsername("someone else");
+      executor.update(updateAuthor, author);
+      executor.update(updateAuthor, new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS));
+      executor.update(insertAuthor, new Author(301, "another", "******", "another@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals("insertAuthor", results.get(0).getMappedStatement().getId());
+      assertArrayEquals(new int[] { 1 }, results.get(0).getUpdateCounts());
+      assertEquals("updateAuthor", results.get(1).getMappedStatement().getId());
+      assertArrayEquals(new int[] { 1, 1 }, results.get(1).getUpdateCounts());
+      assertEquals("insertAuthor", results.get(2).getMappedStatement().getId());
+      assertArrayEquals(new int[] { 1 }, results.get(2).getUpdateCounts());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  private MappedStatement prepareInsertBlogMappedStatement() {
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "id", registry.getTypeHandler(int.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "authorId", registry.getTypeHandler(int.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "title", registry.getTypeHandler(String.class)).build());
+    return new MappedStatement.Builder(config, "insertBlog",
+        new StaticSqlSource(config, "INSERT INTO blog (id,author_id,title) values(?,?,?)"), SqlCommandType.INSERT)
+        .parameterMap(new ParameterMap.Builder(config, "defaultParameterMap", Map.class, parameterMappings).build())
+        .build();
+  }
+
+  private static Map<String, Object> blog(int id, int authorId) {
+    Map<String, Object> blog = new HashMap<>();
+    blog.put("id", id);
+    blog.put("authorId", authorId);
+    blog.put("title", "blog of " + authorId);
+    return blog;
+  }
+
+  @Override
+  protected Executor createExecutor(Transaction transaction) {
+    return new ReorderingBatchExecutor(config, transaction);
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Arg;
+import org.apache.ibatis.annotations.Case;
+import org.apache.ibatis.annotations.ConstructorArgs;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.TypeDiscriminator;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.ImmutableAuthor;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperTest {
+
+  private static DataSource dataSource;
+
+  interface AuthorMapper {
+
+    @Select("SELECT * FROM author ORDER BY id")
+    List<Author> selectAutoMapped();
+
+    @Results({
+        @Result(property = "id", column = "author_id", id = true),
+        @Result(property = "username", column = "author_username"),
+        @Result(property = "bio", column = "author_bio")
+    })
+    @Select("SELECT id AS author_id, username AS author_username, bio AS author_bio, email FROM author ORDER BY id")
+    List<Author> selectWithResultMap();
+
+    @ConstructorArgs({
+        @Arg(column = "id", javaType = int.class, id = true),
+        @Arg(column = "username", javaType = String.class),
+        @Arg(column = "password", javaType = String.class),
+        @Arg(column = "email", javaType = String.class),
+        @Arg(column = "bio", javaType = String.class),
+        @Arg(column = "favourite_section", javaType = Section.class)
+    })
+    @Select("SELECT * FROM author ORDER BY id")
+    List<ImmutableAuthor> selectWithConstructor();
+
+    @Select("SELECT CAST(NULL AS VARCHAR(10)) AS username FROM author WHERE id = 101")
+    Author selectEmptyRow();
+
+    @TypeDiscriminator(column = "favourite_section", javaType = String.class, cases = {
+        @Case(value = "NEWS", type = Author.class, results = @Result(property = "bio", column = "email"))
+    })
+    @Select("SELECT * FROM author ORDER BY id")
+    List<Author> selectDiscriminated();
+  }
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DDL);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DATA);
+  }
+
+  private static SqlSessionFactory createSqlSessionFactory(boolean compiledRowMappersEnabled) {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.setMapUnderscoreToCamelCase(true);
+    configuration.setCompiledRowMappersEnabled(compiledRowMappersEnabled);
+    configuration.addMapper(AuthorMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  void shouldMapLikeTheInterpreter() {
+    SqlSessionFactory interpreted = createSqlSessionFactory(false);
+    SqlSessionFactory compiled = createSqlSessionFactory(true);
+    try (SqlSession interpretedSession = interpreted.openSession(); SqlSession compiledSession = compiled.openSession()) {
+      AuthorMapper expected = interpretedSession.getMapper(AuthorMapper.class);
+      AuthorMapper actual = compiledSession.getMapper(AuthorMapper.class);
+      assertEquals(expected.selectAutoMapped(), actual.selectAutoMapped());
+      assertEquals(expected.selectWithResultMap(), actual.selectWithResultMap());
+      assertEquals(expected.selectWithConstructor(), actual.selectWithConstructor());
+      assertEquals(expected.selectDiscriminated(), actual.selectDiscriminated());
+    }
+    assertEquals(0, interpreted.getConfiguration().getCompiledRowMappers().getSize());
+  }
+
+  @Test
+  void shouldMapAllColumnsOfTheResultSet() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Author> authors = sqlSession.getMapper(AuthorMapper.class).selectAutoMapped();
+      assertEquals(2, authors.size());
+      Author author = authors.get(1);
+      assertEquals(102, author.getId());
+      assertEquals("sally", author.getUsername());
+      assertEquals("sally@ibatis.apache.org", author.getEmail());
+      assertNull(author.getBio());
+      assertEquals(Section.VIDEOS, author.getFavouriteSection());
+    }
+    assertEquals(1, sqlSessionFactory.getConfiguration().getCompiledRowMappers().getSize());
+  }
+
+  @Test
+  void shouldReturnNullForEmptyRow() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertNull(sqlSession.getMapper(AuthorMapper.class).selectEmptyRow());
+    }
+  }
+
+  @Test
+  void shouldNotCompileDiscriminatedResultMap() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Author> authors = sqlSession.getMapper(AuthorMapper.class).selectDiscriminated();
+      assertEquals("jim@ibatis.apache.org", authors.get(0).getBio());
+    }
+    assertEquals(0, sqlSessionFactory.getConfiguration().getCompiledRowMappers().getSize());
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class StatementCancellerTest {
+
+  @Mock
+  Statement statement;
+
+  @Test
+  void shouldCancelTrackedStatement() throws SQLException {
+    StatementCanceller canceller = new StatementCanceller();
+    canceller.attach();
+    try {
+      StatementCanceller.track(statement);
+      canceller.cancel();
+    } finally {
+      canceller.detach();
+    }
+    assertTrue(canceller.isCancelled());
+    verify(statement).cancel();
+  }
+
+  @Test
+  void shouldRefuseStatementsOnceCancelled() {
+    StatementCanceller canceller = new StatementCanceller();
+    canceller.cancel();
+    canceller.attach();
+    try {
+      SQLException e = assertThrows(SQLException.class, () -> StatementCanceller.track(statement));
+      assertEquals("HY008", e.getSQLState());
+    } finally {
+      canceller.detach();
+    }
+  }
+
+  @Test
+  void shouldIgnoreStatementsWhenNotAttached() throws SQLException {
+    StatementCanceller canceller = new StatementCanceller();
+    canceller.cancel();
+    assertDoesNotThrow(() -> StatementCanceller.track(statement));
+    canceller.attach();
+    canceller.detach();
+    assertDoesNotThrow(() -> StatementCanceller.track(statement));
+    verify(statement, never()).cancel();
+  }
+
+  @Test
+  void shouldNotCancelStatementThatCompleted() throws SQLException {
+    StatementCanceller canceller = new StatementCanceller();
+    canceller.attach();
+    try {
+      StatementCanceller.track(statement);
+      StatementCanceller.untrack(statement);
+      canceller.cancel();
+    } finally {
+      canceller.detach();
+    }
+    verify(statement, never()).cancel();
+  }
+
+  @Test
+  void shouldIgnoreFailureOfCancel() throws SQLException {
+    doThrow(new SQLException("closed")).when(statement).cancel();
+    StatementCanceller canceller = new StatementCanceller();
+    canceller.attach();
+    try {
+      StatementCanceller.track(statement);
+      assertDoesNotThrow(canceller::cancel);
+    } finally {
+      canceller.detach();
+    }
+  }
+
+}
@@ -0,0 +1,184 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReuseTheConnectionReturnedLastByTheSameThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection first = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(first);
+      first.close();
+      Connection second = ds.getConnection();
+      assertSame(real, PooledDataSource.unwrapConnection(second));
+      second.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandConnectionOverToWaitingThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolTimeToWait(10000);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Connection held = ds.getConnection();
+      CountDownLatch started = new CountDownLatch(1);
+      Future<Connection> waiter = executor.submit(() -> {
+        started.countDown();
+        return ds.getConnection();
+      });
+      started.await();
+      while (ds.getPoolState().getHadToWaitCount() == 0) {
+        Thread.sleep(10);
+      }
+      Connection real = PooledDataSource.unwrapConnection(held);
+      held.close();
+      Connection handedOver = waiter.get(5, TimeUnit.SECONDS);
+      assertSame(real, PooledDataSource.unwrapConnection(handedOver));
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      handedOver.close();
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumCheckoutTime(10);
+    try {
+      Connection leaked = ds.getConnection();
+      Thread.sleep(50);
+      Connection claimed = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertThrows(SQLException.class, leaked::getAutoCommit);
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      claimed.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotExceedMaximumActiveConnectionsUnderContention() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    ds.setPoolMaximumActiveConnections(4);
+    ds.setPoolMaximumIdleConnections(4);
+    ds.setPoolTimeToWait(100);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 200; j++) {
+            try (Connection c = ds.getConnection()) {
+              assertTrue(ds.getPoolState().getActiveConnectionCount() <= 4);
+              c.getAutoCommit();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+      assertEquals(16 * 200, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReturnRealConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    Connection c = ds.getConnection();
+    assertTrue(PooledDataSource.unwrapConnection(c) instanceof JDBCConnection);
+    c.close();
+    ds.forceCloseAll();
+  }
+
+  private ConcurrentPooledDataSource createConcurrentPooledDataSource() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    return new ConcurrentPooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password"));
+  }
+}
@@ -22,12 +22,28 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledStatementCache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ReuseExecutor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -91,6 +107,150 @@ class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  void shouldReuseCachedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolStatementCacheSize(2);
+      Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), ds));
+      MappedStatement ms = new MappedStatement.Builder(configuration, "selectProducts",
+          new StaticSqlSource(configuration, "SELECT * FROM PRODUCT"), SqlCommandType.SELECT)
+          .resultMaps(Collections.singletonList(
+              new ResultMap.Builder(configuration, "defaultResultMap", Map.class, new ArrayList<>()).build()))
+          .build();
+      for (int i = 0; i < 3; i++) {
+        Executor executor = new ReuseExecutor(configuration, new JdbcTransaction(ds, null, true));
+        try {
+          executor.query(ms, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        } finally {
+          executor.close(false);
+        }
+      }
+      CacheStats stats = ds.getStatementCacheStatistics().getStats();
+      assertEquals(1, stats.getMissCount());
+      assertEquals(2, stats.getHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedStatement() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(2);
+      Connection c = ds.getConnection();
+      PooledStatementCache cache = PooledDataSource.getStatementCache(c);
+      PreparedStatement first = c.prepareStatement("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      PreparedStatement second = c.prepareStatement("select 2 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      PreparedStatement third = c.prepareStatement("select 3 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      cache.add("first", first);
+      cache.add("second", second);
+      cache.checkIn("first", first);
+      cache.checkIn("second", second);
+      assertSame(first, cache.checkOut("first"));
+      cache.checkIn("first", first);
+      cache.add("third", third);
+      cache.checkIn("third", third);
+      assertEquals(2, cache.getSize());
+      assertTrue(second.isClosed());
+      assertNull(cache.checkOut("second"));
+      assertSame(third, cache.checkOut("third"));
+      assertEquals(1, ds.getStatementCacheStatistics().getStats().getEvictionCount());
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotEvictOrHandOutCheckedOutStatements() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(1);
+      Connection c = ds.getConnection();
+      PooledStatementCache cache = PooledDataSource.getStatementCache(c);
+      PreparedStatement first = c.prepareStatement("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      PreparedStatement second = c.prepareStatement("select 2 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      cache.add("first", first);
+      assertNull(cache.checkOut("first"));
+      cache.add("second", second);
+      assertEquals(2, cache.getSize());
+      assertFalse(first.isClosed());
+      cache.checkIn("second", second);
+      assertEquals(1, cache.getSize());
+      assertTrue(second.isClosed());
+      assertTrue(cache.checkIn("first", first));
+      assertSame(first, cache.checkOut("first"));
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCacheStatementsOfTheSameSqlPreparedDifferently() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolStatementCacheSize(2);
+      Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), ds));
+      List<ResultMap> resultMaps = Collections.singletonList(
+          new ResultMap.Builder(configuration, "defaultResultMap", Map.class, new ArrayList<>()).build());
+      MappedStatement forwardOnly = new MappedStatement.Builder(configuration, "selectProducts",
+          new StaticSqlSource(configuration, "SELECT * FROM PRODUCT"), SqlCommandType.SELECT)
+          .resultMaps(resultMaps).build();
+      MappedStatement scrollable = new MappedStatement.Builder(configuration, "selectScrollableProducts",
+          new StaticSqlSource(configuration, "SELECT * FROM PRODUCT"), SqlCommandType.SELECT)
+          .resultMaps(resultMaps).resultSetType(ResultSetType.SCROLL_INSENSITIVE).build();
+      for (int i = 0; i < 2; i++) {
+        Executor executor = new ReuseExecutor(configuration, new JdbcTransaction(ds, null, true));
+        try {
+          executor.query(forwardOnly, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+          executor.query(scrollable, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        } finally {
+          executor.close(false);
+        }
+      }
+      CacheStats stats = ds.getStatementCacheStatistics().getStats();
+      assertEquals(2, stats.getMissCount());
+      assertEquals(2, stats.getHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseCachedStatementsWhenConnectionIsClosed() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(2);
+      Connection c = ds.getConnection();
+      PreparedStatement st = c.prepareStatement("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      PooledDataSource.getStatementCache(c).add("select", st);
+      c.close();
+      assertFalse(st.isClosed());
+      ds.forceCloseAll();
+      assertTrue(st.isClosed());
+      assertNull(PooledDataSource.getStatementCache(c));
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotCacheStatementsByDefault() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try (Connection c = ds.getConnection()) {
+      assertNull(PooledDataSource.getStatementCache(c));
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Disabled("See the comments")
   @Test
   void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
@@ -23,6 +23,12 @@ import java.lang.reflect.Field;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ConcurrentLruCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -43,6 +49,42 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void shouldNotSynchronizeThreadSafeCacheChain() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class)
+        .addDecorator(ConcurrentLruCache.class).readWrite(true).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+  }
+
+  @Test
+  void shouldSynchronizeWhenAnyDecoratorIsNotThreadSafe() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class)
+        .addDecorator(LruCache.class).build();
+
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void shouldExposeStatsThroughDecoratorChain() {
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class)
+        .addDecorator(TinyLfuCache.class).readWrite(true).build();
+    cache.getObject("missing");
+
+    Assertions.assertThat(cache.getStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldExpireEntriesWithTheirOwnTtlThroughDecoratorChain() throws Exception {
+    Cache cache = new CacheBuilder("test").clearInterval(60000L).readWrite(true).build();
+    cache.putObject("volatile", "volatile", 50);
+    cache.putObject("lookup", "lookup");
+    Thread.sleep(100);
+
+    Assertions.assertThat(cache.getObject("volatile")).isNull();
+    Assertions.assertThat(cache.getObject("lookup")).isEqualTo("lookup");
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
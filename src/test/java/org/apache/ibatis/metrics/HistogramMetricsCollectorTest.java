@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HistogramMetricsCollectorTest {
+
+  private static PooledDataSource dataSource;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private HistogramMetricsCollector metricsCollector;
+
+  @CacheNamespace
+  interface AuthorMapper {
+
+    @Select("SELECT * FROM author ORDER BY id")
+    List<Author> selectAll();
+
+    @Select("SELECT * FROM author WHERE id = #{id}")
+    Author selectById(int id);
+
+    @Update("UPDATE author SET bio = #{bio} WHERE id = #{id}")
+    int updateBio(Author author);
+  }
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = BaseDataTest.createPooledDataSource(BaseDataTest.BLOG_PROPERTIES);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DDL);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DATA);
+  }
+
+  @BeforeEach
+  void createSqlSessionFactory() {
+    metricsCollector = new HistogramMetricsCollector();
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.setMetricsCollector(metricsCollector);
+    configuration.addMapper(AuthorMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  void shouldRecordStatementTimings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AuthorMapper mapper = sqlSession.getMapper(AuthorMapper.class);
+      assertEquals(2, mapper.selectAll().size());
+      mapper.selectById(101);
+    }
+    StatementMetrics selectAll = metricsCollector.getStatementMetrics(AuthorMapper.class.getName() + ".selectAll");
+    assertEquals(1, selectAll.getSqlBuild().getCount());
+    assertEquals(1, selectAll.getExecution().getCount());
+    assertEquals(1, selectAll.getResultMapping().getCount());
+    assertEquals(2, selectAll.getRows().getMax());
+    assertTrue(selectAll.getExecution().getMax() > 0);
+    StatementMetrics selectById = metricsCollector.getStatementMetrics(AuthorMapper.class.getName() + ".selectById");
+    assertEquals(1, selectById.getRows().getMax());
+    assertEquals(2, metricsCollector.getAllStatementMetrics().size());
+    assertTrue(metricsCollector.getPoolWait().getCount() > 0);
+  }
+
+  @Test
+  void shouldRecordBatchExecutions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      AuthorMapper mapper = sqlSession.getMapper(AuthorMapper.class);
+      Author author = new Author(101);
+      author.setBio("batched");
+      mapper.updateBio(author);
+      mapper.updateBio(author);
+      sqlSession.flushStatements();
+      sqlSession.rollback(true);
+    }
+    StatementMetrics updateBio = metricsCollector.getStatementMetrics(AuthorMapper.class.getName() + ".updateBio");
+    assertEquals(2, updateBio.getSqlBuild().getCount());
+    assertEquals(1, updateBio.getExecution().getCount());
+    assertEquals(0, updateBio.getResultMapping().getCount());
+  }
+
+  @Test
+  void shouldRecordSecondLevelCacheHits() {
+    for (int i = 0; i < 3; i++) {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        sqlSession.getMapper(AuthorMapper.class).selectAll();
+      }
+    }
+    CacheStats stats = metricsCollector.getCacheStats(AuthorMapper.class.getName());
+    assertEquals(2, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+  }
+
+  @Test
+  void shouldNotRecordAnythingByDefault() {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    assertSame(NoOpMetricsCollector.INSTANCE, configuration.getMetricsCollector());
+    configuration.addMapper(AuthorMapper.class);
+    try (SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession()) {
+      sqlSession.getMapper(AuthorMapper.class).selectAll();
+    }
+    assertNull(metricsCollector.getStatementMetrics(AuthorMapper.class.getName() + ".selectAll"));
+  }
+
+}
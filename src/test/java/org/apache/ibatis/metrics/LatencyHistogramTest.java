@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldMapEveryValueToItsBucket() {
+    long[] values = { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+    for (long value : values) {
+      int bucket = LatencyHistogram.bucketOf(value);
+      assertTrue(LatencyHistogram.highestValueOf(bucket) >= value, "value " + value);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value, "value " + value);
+      }
+    }
+  }
+
+  @Test
+  void shouldReportPercentilesWithBoundedError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10000; i++) {
+      histogram.record(i * 1000L);
+    }
+    assertEquals(10000, histogram.getCount());
+    assertEquals(10_000_000L, histogram.getMax());
+    assertEquals(5_000_500D, histogram.getMean(), 0.1);
+    assertWithin(5_000_000L, histogram.getValueAtPercentile(50));
+    assertWithin(9_900_000L, histogram.getValueAtPercentile(99));
+    assertEquals(10_000_000L, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void shouldReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.record(-1);
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected / 16, "expected about " + expected + " but was " + actual);
+  }
+
+}
@@ -0,0 +1,281 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class CompiledPluginTest {
+
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  void shouldCallInterceptorsInTheOrderOfNestedProxies() throws Exception {
+    List<Interceptor> interceptors = Arrays.asList(new Tracing("first"), new Tracing("second"), new Tracing("third"));
+    Counter proxied = (Counter) chain(false, interceptors).pluginAll(new SimpleCounter());
+    assertEquals("HELLO", proxied.greet("hello"));
+    List<String> expected = new ArrayList<>(calls);
+
+    calls.clear();
+    Counter compiled = (Counter) chain(true, interceptors).pluginAll(new SimpleCounter());
+    assertFalse(Proxy.isProxyClass(compiled.getClass()));
+    assertEquals("HELLO", compiled.greet("hello"));
+    assertEquals(Arrays.asList("third", "second", "first"), calls);
+    assertEquals(expected, calls);
+  }
+
+  @Test
+  void shouldCallMethodsThatAreNotInterceptedDirectly() {
+    SimpleCounter target = new SimpleCounter();
+    Counter counter = (Counter) chain(true, Arrays.asList(new Tracing("only"))).pluginAll(target);
+    assertEquals(3L, counter.add(1L, 2));
+    assertEquals(3, counter.count());
+    counter.reset();
+    assertEquals(0, target.count());
+    assertEquals(target.toString(), counter.toString());
+    assertEquals(target.hashCode(), counter.hashCode());
+    assertTrue(calls.isEmpty());
+  }
+
+  @Test
+  void shouldPassPrimitivesThroughTheChain() {
+    SimpleCounter target = new SimpleCounter();
+    Counter counter = (Counter) chain(true, Arrays.asList(new Everything(), new Everything())).pluginAll(target);
+    assertEquals(3L, counter.add(1L, 2));
+    assertEquals(3, counter.count());
+    counter.reset();
+    assertEquals(0, target.count());
+    assertEquals(Arrays.asList("add", "add", "count", "count", "reset", "reset"), calls);
+  }
+
+  @Test
+  void shouldGenerateOneClassPerTargetType() {
+    InterceptorChain chain = chain(true, Arrays.asList(new Tracing("first"), new Tracing("second")));
+    Object first = chain.pluginAll(new SimpleCounter());
+    Object second = chain.pluginAll(new SimpleCounter());
+    assertSame(first.getClass(), second.getClass());
+  }
+
+  @Test
+  void shouldShareGeneratedClassesBetweenChains() throws Exception {
+    // 每个 Configuration 都有自己的拦截器链，相同形状的委托类只生成一次
+    Object first = chain(true, Arrays.asList(new Tracing("first"), new Tracing("second"))).pluginAll(new SimpleCounter());
+    Object second = chain(true, Arrays.asList(new Tracing("third"), new Tracing("fourth"))).pluginAll(new SimpleCounter());
+    assertSame(first.getClass(), second.getClass());
+    Counter counter = (Counter) second;
+    counter.greet("hello");
+    assertEquals(Arrays.asList("fourth", "third"), calls);
+  }
+
+  @Test
+  void shouldPassTheRemainingInterceptorsAsTarget() throws Exception {
+    List<Object> targets = new ArrayList<>();
+    Interceptor outer = new Tracing("outer", invocation -> {
+      targets.add(invocation.getTarget());
+      // 直接调用目标对象时只经过内层的拦截器
+      return ((Counter) invocation.getTarget()).greet("direct");
+    });
+    SimpleCounter target = new SimpleCounter();
+    Counter counter = (Counter) chain(true, Arrays.asList(new Tracing("inner"), outer)).pluginAll(target);
+    assertEquals("DIRECT", counter.greet("hello"));
+    assertEquals(Arrays.asList("outer", "inner"), calls);
+    assertFalse(targets.get(0) instanceof SimpleCounter);
+
+    Interceptor innermost = new Tracing("innermost", invocation -> {
+      targets.add(invocation.getTarget());
+      return invocation.proceed();
+    });
+    counter = (Counter) chain(true, Arrays.asList(innermost)).pluginAll(target);
+    counter.greet("hello");
+    assertSame(target, targets.get(1));
+  }
+
+  @Test
+  void shouldThrowTheExceptionsOfTheTarget() {
+    Interceptor unwrapping = new Tracing("unwrapping", invocation -> {
+      try {
+        return invocation.proceed();
+      } catch (InvocationTargetException e) {
+        calls.add(e.getCause().getClass().getSimpleName());
+        throw e;
+      }
+    });
+    Counter counter = (Counter) chain(true, Arrays.asList(new Tracing("inner"), unwrapping)).pluginAll(new SimpleCounter());
+    assertThrows(IOException.class, () -> counter.greet(null));
+    assertEquals(Arrays.asList("unwrapping", "inner", "IOException"), calls);
+  }
+
+  @Test
+  void shouldWrapUndeclaredCheckedExceptions() {
+    Interceptor failing = new Tracing("failing", invocation -> {
+      throw new SQLException("not declared");
+    });
+    Counter counter = (Counter) chain(true, Arrays.asList(failing)).pluginAll(new SimpleCounter());
+    UndeclaredThrowableException e = assertThrows(UndeclaredThrowableException.class, () -> counter.greet("hello"));
+    assertTrue(e.getCause() instanceof SQLException);
+  }
+
+  @Test
+  void shouldKeepThePluginOfInterceptorsThatOverrideIt() throws Exception {
+    Interceptor custom = new CustomPlugin();
+    List<Interceptor> interceptors = Arrays.asList(new Tracing("first"), custom, new Tracing("third"));
+    Counter counter = (Counter) chain(true, interceptors).pluginAll(new SimpleCounter());
+    assertEquals("HELLO", counter.greet("hello"));
+    assertEquals(Arrays.asList("third", "custom", "first"), calls);
+  }
+
+  @Test
+  void shouldFallBackToProxiesForInterfacesThatAreNotPublic() {
+    Hidden hidden = (Hidden) chain(true, Arrays.asList(new HiddenInterceptor())).pluginAll((Hidden) () -> "hidden");
+    assertTrue(Proxy.isProxyClass(hidden.getClass()));
+    assertEquals("intercepted", hidden.name());
+  }
+
+  @Test
+  void shouldInterceptJdkInterfaces() {
+    Map<String, String> map = new HashMap<>();
+    map = (Map<String, String>) chain(true, Arrays.asList(new PluginTest.AlwaysMapPlugin())).pluginAll(map);
+    assertEquals("Always", map.get("Anything"));
+    assertEquals("{}", map.toString());
+  }
+
+  private static InterceptorChain chain(boolean compiled, List<Interceptor> interceptors) {
+    InterceptorChain chain = new InterceptorChain();
+    interceptors.forEach(chain::addInterceptor);
+    chain.setCompiled(compiled);
+    return chain;
+  }
+
+  public interface Counter {
+
+    String greet(String name) throws IOException;
+
+    int count();
+
+    long add(long value, int increment);
+
+    void reset();
+  }
+
+  public static class SimpleCounter implements Counter {
+
+    private long total;
+
+    @Override
+    public String greet(String name) throws IOException {
+      if (name == null) {
+        throw new IOException("no name");
+      }
+      return name.toUpperCase();
+    }
+
+    @Override
+    public int count() {
+      return (int) total;
+    }
+
+    @Override
+    public long add(long value, int increment) {
+      total += value + increment;
+      return total;
+    }
+
+    @Override
+    public void reset() {
+      total = 0;
+    }
+  }
+
+  @Intercepts(@Signature(type = Counter.class, method = "greet", args = String.class))
+  class Tracing implements Interceptor {
+
+    private final String name;
+    private final Interceptor body;
+
+    Tracing(String name) {
+      this(name, Invocation::proceed);
+    }
+
+    Tracing(String name, Interceptor body) {
+      this.name = name;
+      this.body = body;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return body.intercept(invocation);
+    }
+  }
+
+  @Intercepts(@Signature(type = Counter.class, method = "greet", args = String.class))
+  class CustomPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add("custom");
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Counter.class, method = "count", args = {}),
+      @Signature(type = Counter.class, method = "add", args = { long.class, int.class }),
+      @Signature(type = Counter.class, method = "reset", args = {}) })
+  class Everything implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(invocation.getMethod().getName());
+      return invocation.proceed();
+    }
+  }
+
+  interface Hidden {
+    String name();
+  }
+
+  @Intercepts(@Signature(type = Hidden.class, method = "name", args = {}))
+  static class HiddenInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) {
+      return "intercepted";
+    }
+  }
+
+}
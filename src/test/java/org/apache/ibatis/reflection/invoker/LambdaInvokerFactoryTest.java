@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class LambdaInvokerFactoryTest {
+
+  private final Reflector reflector = new Reflector(Bean.class, new LambdaInvokerFactory());
+
+  @Test
+  void shouldGenerateInvokersForMethodsAndFields() {
+    assertFalse(reflector.getGetInvoker("id").getClass() == MethodInvoker.class);
+    assertFalse(reflector.getSetInvoker("id").getClass() == MethodInvoker.class);
+    assertFalse(reflector.getGetInvoker("name").getClass() == GetFieldInvoker.class);
+    assertFalse(reflector.getSetInvoker("name").getClass() == SetFieldInvoker.class);
+  }
+
+  @Test
+  void shouldReadAndWriteProperties() throws Exception {
+    Bean bean = new Bean();
+    reflector.getSetInvoker("id").invoke(bean, new Object[] { 7 });
+    reflector.getSetInvoker("name").invoke(bean, new Object[] { "seven" });
+    reflector.getSetInvoker("tags").invoke(bean, new Object[] { new ArrayList<>() });
+    assertEquals(7, reflector.getGetInvoker("id").invoke(bean, null));
+    assertEquals("seven", reflector.getGetInvoker("name").invoke(bean, null));
+    assertTrue((Boolean) reflector.getGetInvoker("active").invoke(bean, null));
+    assertEquals(int.class, reflector.getGetInvoker("id").getType());
+    assertEquals(String.class, reflector.getSetInvoker("name").getType());
+  }
+
+  @Test
+  void shouldSetFinalFieldsThroughReflection() throws Exception {
+    Bean bean = new Bean();
+    reflector.getSetInvoker("code").invoke(bean, new Object[] { "changed" });
+    assertEquals("changed", reflector.getGetInvoker("code").invoke(bean, null));
+  }
+
+  @Test
+  void shouldPropagateExceptionsOfGetters() {
+    Bean bean = new Bean();
+    assertThrows(UnsupportedOperationException.class, () -> reflector.getGetInvoker("broken").invoke(bean, null));
+  }
+
+  @Test
+  void shouldResolveGenericGetterTypes() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setInvokerFactory(new LambdaInvokerFactory());
+    MetaClass metaClass = MetaClass.forClass(Bean.class, reflectorFactory);
+    assertEquals(String.class, metaClass.getGetterType("tags[0]"));
+  }
+
+  @Test
+  void shouldAccessNestedPathsThroughMetaObject() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setInvokerFactory(new LambdaInvokerFactory());
+    Bean bean = new Bean();
+    MetaObject metaObject = MetaObject.forObject(bean, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+    metaObject.setValue("author.username", "jim");
+    metaObject.setValue("author.favouriteSection", Section.NEWS);
+    assertEquals("jim", metaObject.getValue("author.username"));
+    assertEquals(Section.NEWS, bean.getAuthor().getFavouriteSection());
+    assertThrows(ReflectionException.class, () -> metaObject.setValue("id", "not a number"));
+  }
+
+  @Test
+  void shouldApplyInvokerFactoryOfConfiguration() {
+    Configuration configuration = new Configuration();
+    DefaultReflectorFactory reflectorFactory = (DefaultReflectorFactory) configuration.getReflectorFactory();
+    Reflector before = reflectorFactory.findForClass(Bean.class);
+    configuration.setInvokerFactory(new LambdaInvokerFactory());
+    assertTrue(reflectorFactory.getInvokerFactory() instanceof LambdaInvokerFactory);
+    Reflector after = reflectorFactory.findForClass(Bean.class);
+    assertFalse(before == after);
+    assertSame(after, reflectorFactory.findForClass(Bean.class));
+  }
+
+  static class Bean {
+    private int id;
+    private String name;
+    private final String code = "initial";
+    private List<String> tags;
+    private Author author;
+
+    public int getId() {
+      return id;
+    }
+
+    private void setId(int id) {
+      this.id = id;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+
+    public Author getAuthor() {
+      return author;
+    }
+
+    public void setAuthor(Author author) {
+      this.author = author;
+    }
+
+    public String getBroken() {
+      throw new UnsupportedOperationException("broken");
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompilingExpressionEvaluatorTest {
+
+  private final ExpressionEvaluator ognlEvaluator = new ExpressionEvaluator();
+  private final CompilingExpressionEvaluator compilingEvaluator = new CompilingExpressionEvaluator(new DefaultReflectorFactory());
+
+  private Map<String, Object> bindings;
+
+  @BeforeEach
+  void setUp() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "cbegin");
+    parameter.put("id", 5);
+    parameter.put("score", 2.5d);
+    parameter.put("active", true);
+    parameter.put("nothing", null);
+    parameter.put("ids", new ArrayList<>(Arrays.asList(1, 2, 3)));
+    parameter.put("noIds", new ArrayList<>());
+    parameter.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    DynamicContext context = new DynamicContext(new Configuration(), parameter);
+    context.bind("local", "value");
+    bindings = context.getBindings();
+  }
+
+  @Test
+  void shouldEvaluateLikeOgnl() {
+    String[] expressions = {
+        "name != null", "name != null and name != ''", "name == \"cbegin\"", "name eq 'cbegin'", "name neq 'norm'",
+        "id > 3", "id gte 5", "id lt 5", "id <= 4 or active", "not active", "!active", "(id == 5) && (name != null)",
+        "score > 2", "score < 3", "nothing == null", "nothing != null", "missing == null", "local == 'value'",
+        "local", "id", "ids != null and ids.size() > 0", "noIds.isEmpty()", "!ids.isEmpty()", "name.length() == 6",
+        "author.username == 'cbegin'", "author.password == null", "author.id == 1", "author.bio", "_parameter.name",
+        "active and name", "nothing or id"
+    };
+    for (String expression : expressions) {
+      assertNotNull(CompiledExpression.compile(expression), expression);
+      assertEquals(ognlEvaluator.getValue(expression, bindings), compilingEvaluator.getValue(expression, bindings), expression);
+      assertEquals(ognlEvaluator.evaluateBoolean(expression, bindings), compilingEvaluator.evaluateBoolean(expression, bindings), expression);
+    }
+  }
+
+  @Test
+  void shouldNotCompileUnsupportedExpressions() {
+    assertNull(CompiledExpression.compile("name == 'c'"));
+    assertNull(CompiledExpression.compile("id == 5.0"));
+    assertNull(CompiledExpression.compile("id + 1 > 5"));
+    assertNull(CompiledExpression.compile("name.substring(1) == 'begin'"));
+    assertNull(CompiledExpression.compile("ids[0] == 1"));
+    assertNull(CompiledExpression.compile("@java.lang.Math@max(1, 2)"));
+    assertNull(CompiledExpression.compile("id == 5 and"));
+    assertNull(CompiledExpression.compile("name == 'a\\'b'"));
+  }
+
+  @Test
+  void shouldFallBackToOgnl() {
+    assertTrue(compilingEvaluator.evaluateBoolean("id == 5.0", bindings));
+    assertTrue(compilingEvaluator.evaluateBoolean("author.favouriteSection.name() == 'NEWS'", bindings));
+    // 集合的伪属性由 OGNL 计算
+    assertSame(CompiledExpression.UNRESOLVED, CompiledExpression.compile("ids.size == 3")
+        .getValue(bindings, new DefaultReflectorFactory()));
+    assertTrue(compilingEvaluator.evaluateBoolean("ids.size == 3", bindings));
+  }
+
+  @Test
+  void shouldReportErrorsLikeOgnl() {
+    assertThrows(BuilderException.class, () -> compilingEvaluator.evaluateBoolean("nothing.name == null", bindings));
+    assertThrows(BuilderException.class, () -> compilingEvaluator.evaluateBoolean("author.unknown == null", bindings));
+    assertThrows(BuilderException.class, () -> compilingEvaluator.evaluateIterable("nothing", bindings));
+  }
+
+  @Test
+  void shouldWrapErrorsOfContextLookups() {
+    Map<String, Object> failingBindings = new DynamicContext(new Configuration(), new FailingBean()).getBindings();
+    assertThrows(BuilderException.class, () -> compilingEvaluator.evaluateBoolean("broken == null", failingBindings));
+  }
+
+  @Test
+  void shouldEvaluateIterable() {
+    assertEquals(Arrays.asList(1, 2, 3), compilingEvaluator.evaluateIterable("ids", bindings));
+    assertEquals(Arrays.asList(1, 2, 3), compilingEvaluator.evaluateIterable("_parameter.ids", bindings));
+  }
+
+  @Test
+  void shouldEvaluateBeanRoot() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertTrue(compilingEvaluator.evaluateBoolean("username == 'cbegin'", author));
+    assertFalse(compilingEvaluator.evaluateBoolean("password != null", author));
+  }
+
+  public static class FailingBean {
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+  }
+
+}
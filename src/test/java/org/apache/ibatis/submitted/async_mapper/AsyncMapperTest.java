@@ -0,0 +1,196 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @BeforeEach
+  void setUpData() throws Exception {
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldSelectOnAnotherSession() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsers().get(10, TimeUnit.SECONDS);
+      assertEquals(2, users.size());
+      assertEquals("User1", users.get(0).getName());
+      Map<Integer, User> usersById = mapper.getUsersById().get(10, TimeUnit.SECONDS);
+      assertEquals("User2", usersById.get(2).getName());
+      User user = mapper.getUser(2).toCompletableFuture().get(10, TimeUnit.SECONDS);
+      assertEquals("User2", user.getName());
+      assertNull(mapper.getUser(9).toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void shouldCommitChanges() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Integer.valueOf(1), mapper.insertUser(new User(3, "User3")).get(10, TimeUnit.SECONDS));
+      assertEquals("User3", mapper.getUser(3).toCompletableFuture().get(10, TimeUnit.SECONDS).getName());
+      assertNull(mapper.deleteUser(1).get(10, TimeUnit.SECONDS));
+      assertEquals(2, mapper.getUsers().get(10, TimeUnit.SECONDS).size());
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionally() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<List<User>> future = sqlSession.getMapper(Mapper.class).getFromMissingTable();
+      ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test
+  void shouldNotExecuteCancelledCall() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    CountDownLatch latch = new CountDownLatch(1);
+    configuration.setAsyncExecutorService(executorService);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      executorService.execute(() -> {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      CompletableFuture<Integer> future = sqlSession.getMapper(Mapper.class).insertUser(new User(4, "User4"));
+      assertTrue(future.cancel(true));
+      latch.countDown();
+      executorService.shutdown();
+      assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+      assertTrue(future.isCancelled());
+    } finally {
+      configuration.setAsyncExecutorService(null);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertNull(sqlSession.getMapper(Mapper.class).getUser(4).toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void shouldRollBackUpdateCancelledBeforeCommit() throws Exception {
+    SqlSessionFactory pausingSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      pausingSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    PauseAfterUpdate pauseAfterUpdate = new PauseAfterUpdate();
+    Configuration configuration = pausingSessionFactory.getConfiguration();
+    configuration.addInterceptor(pauseAfterUpdate);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    configuration.setAsyncExecutorService(executorService);
+    try (SqlSession sqlSession = pausingSessionFactory.openSession()) {
+      CompletableFuture<Integer> future = sqlSession.getMapper(Mapper.class).insertUser(new User(5, "User5"));
+      assertTrue(pauseAfterUpdate.updated.await(10, TimeUnit.SECONDS));
+      // 语句已经执行完，但还没有提交
+      assertTrue(future.cancel(true));
+      pauseAfterUpdate.cancelled.countDown();
+      executorService.shutdown();
+      assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+      assertTrue(future.isCancelled());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertNull(sqlSession.getMapper(Mapper.class).getUser(5).toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void shouldNotCancelCommittedUpdate() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CompletableFuture<Integer> future = sqlSession.getMapper(Mapper.class).insertUser(new User(6, "User6"));
+      assertEquals(Integer.valueOf(1), future.get(10, TimeUnit.SECONDS));
+      assertFalse(future.cancel(true));
+      assertEquals("User6", sqlSession.getMapper(Mapper.class).getUser(6).toCompletableFuture().get(10, TimeUnit.SECONDS).getName());
+    }
+  }
+
+  @Test
+  void shouldRejectFutureOfCursor() {
+    Configuration configuration = new Configuration();
+    configuration.addMapper(CursorMapper.class);
+    try (SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession()) {
+      CursorMapper mapper = sqlSession.getMapper(CursorMapper.class);
+      assertThrows(BindingException.class, mapper::getUsers);
+    }
+  }
+
+  /**
+   * 语句执行完后等待测试取消 future
+   */
+  @Intercepts(@Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }))
+  public static class PauseAfterUpdate implements Interceptor {
+
+    private final CountDownLatch updated = new CountDownLatch(1);
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      Object result = invocation.proceed();
+      updated.countDown();
+      cancelled.await(10, TimeUnit.SECONDS);
+      return result;
+    }
+  }
+
+}
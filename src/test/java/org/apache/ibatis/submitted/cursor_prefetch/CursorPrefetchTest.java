@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CursorPrefetchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_prefetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_prefetch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGetAllUsers() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      assertTrue(usersCursor instanceof PrefetchingCursor);
+      assertFalse(usersCursor.isOpen());
+      assertEquals(-1, usersCursor.getCurrentIndex());
+
+      Iterator<User> iterator = usersCursor.iterator();
+      assertTrue(iterator.hasNext());
+      assertTrue(usersCursor.isOpen());
+      assertEquals(-1, usersCursor.getCurrentIndex());
+
+      for (int id = 1; id <= 11; id++) {
+        User user = iterator.next();
+        assertEquals(id, user.getId());
+        assertEquals(id - 1, usersCursor.getCurrentIndex());
+        // give the worker time to fill the buffer
+        Thread.sleep(1);
+      }
+      assertFalse(iterator.hasNext());
+      assertThrows(NoSuchElementException.class, iterator::next);
+      assertFalse(usersCursor.isOpen());
+      assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getUsers(new RowBounds(2, 3));
+      assertEquals(1, usersCursor.getCurrentIndex());
+      List<String> names = new ArrayList<>();
+      usersCursor.forEach(user -> names.add(user.getName()));
+      assertEquals(3, names.size());
+      assertEquals("User3", names.get(0));
+      assertEquals("User5", names.get(2));
+      assertEquals(4, usersCursor.getCurrentIndex());
+      assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldReturnNullRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<String> names = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getNames().forEach(names::add);
+      assertEquals(11, names.size());
+      assertEquals("User10", names.get(9));
+      assertNull(names.get(10));
+    }
+  }
+
+  @Test
+  void shouldStopPrefetchingWhenClosed() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> usersCursor = mapper.getAllUsers();
+      Iterator<User> iterator = usersCursor.iterator();
+      assertEquals("User1", iterator.next().getName());
+
+      usersCursor.close();
+      assertFalse(usersCursor.isOpen());
+      assertFalse(usersCursor.isConsumed());
+      assertFalse(iterator.hasNext());
+
+      // the session can be used once the cursor is closed
+      assertEquals("User2", mapper.getUser(2).getName());
+    }
+  }
+
+  @Test
+  void shouldCloseCursorOnSessionClose() {
+    Cursor<User> usersCursor;
+    Iterator<User> iterator;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      iterator = usersCursor.iterator();
+      assertTrue(iterator.hasNext());
+    }
+    assertFalse(usersCursor.isOpen());
+    assertFalse(usersCursor.isConsumed());
+  }
+
+  @Test
+  void shouldMapNestedSelectsOnConsumingThread() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getUsersWithFriend();
+      assertTrue(usersCursor instanceof DefaultCursor);
+      Iterator<User> iterator = usersCursor.iterator();
+      assertEquals("User2", iterator.next().getFriend().getName());
+      assertEquals("User1", iterator.next().getFriend().getName());
+      assertNull(iterator.next().getFriend());
+    }
+  }
+
+}
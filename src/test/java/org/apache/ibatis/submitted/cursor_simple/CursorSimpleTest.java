@@ -18,9 +18,12 @@ package org.apache.ibatis.submitted.cursor_simple;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
@@ -468,4 +471,61 @@ class CursorSimpleTest {
       Assertions.assertTrue(cursor.isConsumed());
     }
   }
+
+  @Test
+  void shouldStreamUsersInParallel() {
+    Cursor<User> usersCursor;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      List<String> names;
+      try (Stream<User> users = usersCursor.stream(true, 2)) {
+        Assertions.assertTrue(users.isParallel());
+        names = users.map(User::getName).collect(Collectors.toList());
+      }
+      Assertions.assertEquals(Arrays.asList("User1", "User2", "User3", "User4", "User5"), names);
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldStreamUsersInParallelWithRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3));
+      List<String> names;
+      try (Stream<User> users = usersCursor.stream(true, 1)) {
+        names = users.map(User::getName).collect(Collectors.toList());
+      }
+      Assertions.assertEquals(Arrays.asList("User2", "User3", "User4"), names);
+      Assertions.assertTrue(usersCursor.isConsumed());
+      Assertions.assertEquals(3, usersCursor.getCurrentIndex());
+    }
+  }
+
+  @Test
+  void shouldStreamNullUsersInParallel() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getNullUsers(RowBounds.DEFAULT);
+      List<User> users;
+      try (Stream<User> stream = usersCursor.stream(true, 1)) {
+        users = stream.collect(Collectors.toList());
+      }
+      Assertions.assertEquals(4, users.size());
+      Assertions.assertNull(users.get(0));
+      Assertions.assertEquals("Kate", users.get(1).getName());
+      Assertions.assertNull(users.get(2));
+      Assertions.assertNull(users.get(3));
+    }
+  }
+
+  @Test
+  void shouldCloseCursorWithStream() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      try (Stream<User> users = usersCursor.stream(false)) {
+        Assertions.assertEquals("User1", users.findFirst().get().getName());
+      }
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+    }
+  }
 }
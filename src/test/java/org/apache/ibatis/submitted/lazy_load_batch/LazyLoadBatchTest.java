@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lazy_load_batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class LazyLoadBatchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/lazy_load_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/lazy_load_batch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldLoadSiblingPropertiesWithOneQuery() {
+    List<Order> orders;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      orders = sqlSession.getMapper(Mapper.class).selectOrders();
+    }
+    int queries = StatementCounter.QUERIES.get();
+    assertEquals("Alice", orders.get(0).getCustomer().getName());
+    // the customers of the other orders were selected by the same query
+    assertEquals(queries + 1, StatementCounter.QUERIES.get());
+    assertEquals("Bob", orders.get(1).getCustomer().getName());
+    assertEquals("Alice", orders.get(2).getCustomer().getName());
+    assertEquals("Carol", orders.get(3).getCustomer().getName());
+    assertEquals(queries + 1, StatementCounter.QUERIES.get());
+  }
+
+  @Test
+  void shouldLoadInBatchesOfTheConfiguredSize() {
+    sqlSessionFactory.getConfiguration().setLazyLoadBatchSize(2);
+    try {
+      List<Order> orders;
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      }
+      int queries = StatementCounter.QUERIES.get();
+      assertEquals("Carol", orders.get(3).getCustomer().getName());
+      assertEquals(queries + 1, StatementCounter.QUERIES.get());
+      // selected with the fourth order
+      assertEquals("Alice", orders.get(0).getCustomer().getName());
+      assertEquals(queries + 1, StatementCounter.QUERIES.get());
+      assertEquals("Bob", orders.get(1).getCustomer().getName());
+      assertEquals("Alice", orders.get(2).getCustomer().getName());
+      assertEquals(queries + 2, StatementCounter.QUERIES.get());
+    } finally {
+      sqlSessionFactory.getConfiguration().setLazyLoadBatchSize(10);
+    }
+  }
+
+  @Test
+  void shouldLoadSiblingPropertiesWithinTheSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      int queries = StatementCounter.QUERIES.get();
+      assertEquals("Carol", orders.get(3).getCustomer().getName());
+      assertEquals("Alice", orders.get(0).getCustomer().getName());
+      assertEquals("Bob", orders.get(1).getCustomer().getName());
+      assertEquals(queries + 1, StatementCounter.QUERIES.get());
+    }
+  }
+
+  @Test
+  void shouldNotKeepSiblingsReachable() throws Exception {
+    List<WeakReference<Order>> siblings = new ArrayList<>();
+    Order first = selectFirstOrder(siblings);
+    for (int i = 0; i < 50 && siblings.stream().anyMatch(sibling -> sibling.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    // the lazy loader of the first order must not keep the other orders of the result set
+    assertTrue(siblings.stream().allMatch(sibling -> sibling.get() == null));
+    assertEquals("Alice", first.getCustomer().getName());
+  }
+
+  private static Order selectFirstOrder(List<WeakReference<Order>> siblings) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      for (Order order : orders.subList(1, orders.size())) {
+        siblings.add(new WeakReference<>(order));
+      }
+      return orders.get(0);
+    }
+  }
+
+  @Test
+  void shouldLoadOneByOneWithoutBatchSelect() {
+    List<Order> orders;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      orders = sqlSession.getMapper(Mapper.class).selectOrdersWithoutBatchSelect();
+    }
+    int queries = StatementCounter.QUERIES.get();
+    assertEquals("Alice", orders.get(0).getCustomer().getName());
+    assertEquals("Bob", orders.get(1).getCustomer().getName());
+    assertEquals(queries + 2, StatementCounter.QUERIES.get());
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lazy_load_batch;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Select("select id, customer_id from orders order by id")
+  @Results({
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "customer", column = "customer_id", one = @One(select = "selectCustomer"))
+  })
+  List<Order> selectOrders();
+
+  @Select("select id, name from customer where id = #{id}")
+  @Options(batchSelect = "selectCustomers", batchKey = "id")
+  Customer selectCustomer(Integer id);
+
+  @Select({"<script>",
+      "select id, name from customer where id in",
+      "<foreach item='id' collection='list' open='(' separator=',' close=')'>#{id}</foreach>",
+      "</script>"})
+  List<Customer> selectCustomers(List<Integer> ids);
+
+  @Select("select id, customer_id from orders order by id")
+  @Results({
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "customer", column = "customer_id", one = @One(select = "selectCustomerOneByOne"))
+  })
+  List<Order> selectOrdersWithoutBatchSelect();
+
+  @Select("select id, name from customer where id = #{id}")
+  Customer selectCustomerOneByOne(Integer id);
+
+}
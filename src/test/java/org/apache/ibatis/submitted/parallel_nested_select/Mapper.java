@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_nested_select;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+
+public interface Mapper {
+
+  @Select("select id, name from department order by id")
+  @Results(id = "departmentResult", value = {
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "name", column = "name"),
+      @Result(property = "employees", column = "id", many = @Many(select = "selectEmployeesByDepartment"))
+  })
+  List<Department> selectDepartments();
+
+  @Select("select id, name from department order by id")
+  @Results(id = "departmentResultForHandler", value = {
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "employees", column = "id", many = @Many(select = "selectEmployeesByDepartment"))
+  })
+  @ResultType(Department.class)
+  void selectDepartmentsWithHandler(ResultHandler<Department> handler);
+
+  @Select("select id, name, manager_id from employee where department_id = #{id} order by id")
+  @Results(id = "employeeResult", value = {
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "name", column = "name"),
+      @Result(property = "manager", column = "manager_id", one = @One(select = "selectEmployee"))
+  })
+  List<Employee> selectEmployeesByDepartment(Integer departmentId);
+
+  @Select("select id, name from employee where id = #{id}")
+  Employee selectEmployee(Integer id);
+
+}
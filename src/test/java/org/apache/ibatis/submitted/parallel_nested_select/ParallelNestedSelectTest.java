@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_nested_select;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_nested_select/CreateDB.sql");
+  }
+
+  @Test
+  void shouldLoadNestedSelectsOfAllRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Department> departments = sqlSession.getMapper(Mapper.class).selectDepartments();
+      assertEquals(3, departments.size());
+      List<Employee> sales = departments.get(0).getEmployees();
+      assertEquals(3, sales.size());
+      assertNull(sales.get(0).getManager());
+      assertEquals("Alice", sales.get(1).getManager().getName());
+      assertEquals("Alice", sales.get(2).getManager().getName());
+      List<Employee> support = departments.get(1).getEmployees();
+      assertEquals(2, support.size());
+      assertEquals("Dave", support.get(1).getManager().getName());
+      assertTrue(departments.get(2).getEmployees().isEmpty());
+    }
+  }
+
+  @Test
+  void shouldRunNestedSelectsOnHelperSessionsInParallel() throws Exception {
+    SqlSessionFactory recordingSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_nested_select/mybatis-config.xml")) {
+      recordingSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    RecordNestedSelects recorder = new RecordNestedSelects();
+    recordingSessionFactory.getConfiguration().addInterceptor(recorder);
+    try (SqlSession sqlSession = recordingSessionFactory.openSession()) {
+      List<Department> departments = sqlSession.getMapper(Mapper.class).selectDepartments();
+      assertEquals(3, departments.size());
+      assertEquals(3, departments.get(0).getEmployees().size());
+    }
+    // 调用线程的嵌套查询直接使用原始执行器，只有辅助会话新建的执行器经过插件；两个辅助会话互相等待，只有并行执行时才不会超时
+    assertEquals(0, recorder.overlapping.getCount());
+    assertFalse(recorder.threads.contains(Thread.currentThread()));
+    assertTrue(recorder.threads.size() > 1, "nested selects ran on " + recorder.threads);
+    assertTrue(recorder.connections.size() > 1);
+    for (Executor executor : recorder.executors) {
+      assertTrue(executor.isClosed(), "the executor of a helper session was not closed");
+    }
+  }
+
+  @Intercepts(@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class,
+      RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class }))
+  public static class RecordNestedSelects implements Interceptor {
+    private final CountDownLatch overlapping = new CountDownLatch(2);
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Executor> executors = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+      if (ms.getId().endsWith(".selectEmployeesByDepartment")) {
+        Executor executor = (Executor) invocation.getTarget();
+        threads.add(Thread.currentThread());
+        connections.add(executor.getTransaction().getConnection());
+        executors.add(executor);
+        overlapping.countDown();
+        overlapping.await(5, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+  }
+
+  @Test
+  void shouldSelectEachDistinctKeyOnce() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Employee> sales = sqlSession.getMapper(Mapper.class).selectEmployeesByDepartment(1);
+      assertSame(sales.get(1).getManager(), sales.get(2).getManager());
+    }
+  }
+
+  @Test
+  void shouldLoadNestedSelectsRowByRowForResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Integer> employeeCounts = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).selectDepartmentsWithHandler(
+          context -> employeeCounts.add(context.getResultObject().getEmployees().size()));
+      assertEquals(3, employeeCounts.size());
+      assertEquals(Integer.valueOf(3), employeeCounts.get(0));
+      assertEquals(Integer.valueOf(2), employeeCounts.get(1));
+      assertEquals(Integer.valueOf(0), employeeCounts.get(2));
+    }
+  }
+
+}